@@ -25,11 +25,30 @@ CREATE TABLE IF NOT EXISTS patients (
 
     INDEX idx_attended_at    (attended_at),
 
+    -- Historial por páginas: WHERE status='ATTENDED' ORDER BY attended_at DESC, id DESC
+    INDEX idx_status_attended (status, attended_at),
+
+    -- Historial filtrado por nivel: igualdad en (status, level) + rango en attended_at
+    INDEX idx_status_level_attended (status, level, attended_at),
+
     CONSTRAINT chk_level CHECK (level BETWEEN 1 AND 5),
 
     CONSTRAINT chk_status CHECK (status IN ('WAITING', 'ATTENDED'))
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 
+-- Secuencias hi/lo: cada fila guarda el primer ID aún no reservado.
+-- La aplicación reserva bloques (id.blockSize) y asigna los IDs localmente.
+CREATE TABLE IF NOT EXISTS id_sequences (
+    name        VARCHAR(64)     NOT NULL,
+    next_val    BIGINT          NOT NULL,
+
+    PRIMARY KEY (name)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT IGNORE INTO id_sequences (name, next_val)
+    SELECT 'patients', COALESCE(MAX(id), 0) + 1 FROM patients;
+
+
 SHOW TABLES;
 DESCRIBE patients;
@@ -1,5 +1,7 @@
 package com.meditriage;
 
+import com.meditriage.database.DatabaseConnection;
+import com.meditriage.service.TriageService;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -31,6 +33,13 @@ public class App extends Application {
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        // Vaciar el journal hacia MySQL y cerrar las conexiones ociosas del pool
+        TriageService.shutdown();
+        DatabaseConnection.shutdown();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -0,0 +1,69 @@
+package com.meditriage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Configuración de la aplicación leída de {@code /app.properties} en el classpath.
+ *
+ * Centraliza la lectura de propiedades para que la BD, el pool de conexiones y
+ * los servicios compartan una única carga del archivo.
+ * Usa java.util.Properties únicamente para configuración (ver README).
+ */
+public final class AppConfig {
+
+    private static final Properties props = new Properties();
+
+    // Carga las propiedades una sola vez al inicializar la clase
+    static {
+        try (InputStream is = AppConfig.class.getResourceAsStream("/app.properties")) {
+            if (is == null) {
+                throw new RuntimeException(
+                    "No se encontró /app.properties en el classpath. " +
+                    "Copia src/main/resources/app.properties y configura las credenciales.");
+            }
+            props.load(is);
+        } catch (IOException e) {
+            throw new RuntimeException("Error leyendo app.properties: " + e.getMessage(), e);
+        }
+    }
+
+    /** Valor de la propiedad, o null si no está definida. */
+    public static String get(String key) {
+        return props.getProperty(key);
+    }
+
+    /** Valor de la propiedad, o {@code def} si no está definida. */
+    public static String get(String key, String def) {
+        String v = props.getProperty(key);
+        return (v == null || v.isBlank()) ? def : v.trim();
+    }
+
+    /** Propiedad entera; retorna {@code def} si falta o no es numérica. */
+    public static int getInt(String key, int def) {
+        String v = props.getProperty(key);
+        if (v == null || v.isBlank()) return def;
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("[Config] Valor inválido para " + key + ": " + v);
+            return def;
+        }
+    }
+
+    /** Propiedad long; retorna {@code def} si falta o no es numérica. */
+    public static long getLong(String key, long def) {
+        String v = props.getProperty(key);
+        if (v == null || v.isBlank()) return def;
+        try {
+            return Long.parseLong(v.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("[Config] Valor inválido para " + key + ": " + v);
+            return def;
+        }
+    }
+
+    // No instanciable
+    private AppConfig() {}
+}
@@ -1,13 +1,17 @@
 package com.meditriage.controller;
 
 import com.meditriage.model.Patient;
+import com.meditriage.model.TriageEvent;
+import com.meditriage.service.TriageEventBus;
 import com.meditriage.service.TriageService;
 import com.meditriage.service.TriageStats;
+import com.meditriage.service.WaitQuantiles;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
+import javafx.scene.layout.GridPane;
 import javafx.util.Duration;
 
 import java.net.URL;
@@ -19,9 +23,20 @@ import java.util.ResourceBundle;
  * Controlador del Dashboard.
  *
  * Muestra KPIs en tiempo real y gestiona el simulador de llegada de pacientes.
+ * Las métricas y los registros del simulador van por TriageAsync: la lectura
+ * no corre en el hilo de JavaFX y, si una sigue en curso, la siguiente se une
+ * a ella en lugar de apilarse.
+ *
+ * Sin sondeo: los KPIs se releen con cada pulso de eventos de dominio
+ * (UiEventPump, como máximo uno por frame). Un tic por minuto cubre lo que
+ * cambia solo con el reloj (ventana de la última hora, corte de medianoche).
  * Implementa Refreshable para actualizar datos al navegar a esta vista.
+ *
+ * Oculta (ViewLifecycle) no recibe eventos y el tic de reloj queda en pausa.
+ * El simulador sigue corriendo: su propósito es llenar la cola mientras se
+ * mira otra vista; sus líneas de log se acumulan y se ven al volver.
  */
-public class DashboardController implements Initializable, Refreshable {
+public class DashboardController implements Initializable, Refreshable, ViewLifecycle, TriageEventBus.Listener {
 
     // KPI Cards
     @FXML private Label lblQueueSize;
@@ -35,6 +50,12 @@ public class DashboardController implements Initializable, Refreshable {
     @FXML private Label lblAvlInfo;
     @FXML private Label lblUndoInfo;
     @FXML private Label lblHistoryInfo;
+    @FXML private Label lblPoolInfo;
+
+    // percentiles de espera por nivel (filas 1-5; columnas hoy / última hora)
+    @FXML private GridPane gridWaitQuantiles;
+    private final Label[]  lblWaitToday    = new Label[6];
+    private final Label[]  lblWaitLastHour = new Label[6];
 
     // simulación
     @FXML private ToggleButton toggleSimulation;
@@ -48,8 +69,9 @@ public class DashboardController implements Initializable, Refreshable {
 
     // internals
     private final TriageService service = TriageService.getInstance();
+    private final TriageAsync   async   = TriageAsync.getInstance();
     private Timeline            simulationTimeline;
-    private Timeline            refreshTimeline;
+    private Timeline            clockTimeline;
 
     private static final DateTimeFormatter TIME_FMT =
         DateTimeFormatter.ofPattern("HH:mm:ss");
@@ -108,26 +130,51 @@ public class DashboardController implements Initializable, Refreshable {
             }
         });
 
-        // Auto-refresh del dashboard cada 3 s
-        refreshTimeline = new Timeline(
-            new KeyFrame(Duration.seconds(3), e -> updateKpis())
+        setupWaitQuantiles();
+
+        // KPIs por eventos; el tic de reloj solo para ventanas de tiempo (arranca en onShow)
+        clockTimeline = new Timeline(
+            new KeyFrame(Duration.minutes(1), e -> updateKpis())
         );
-        refreshTimeline.setCycleCount(Timeline.INDEFINITE);
-        refreshTimeline.play();
+        clockTimeline.setCycleCount(Timeline.INDEFINITE);
 
-        updateKpis();
         appendLog("Sistema MediTriage iniciado.");
     }
 
+    // Ciclo de vida
+    @Override
+    public void onShow() {
+        UiEventPump.getInstance().subscribe(this);
+        clockTimeline.play();
+    }
+
+    @Override
+    public void onHide() {
+        UiEventPump.getInstance().unsubscribe(this);
+        clockTimeline.pause();
+    }
+
     // Refreshable
     @Override
     public void refresh() {
         updateKpis();
     }
 
+    /** Un pulso de eventos: una sola relectura de métricas por frame, sin importar cuántos. */
+    @Override
+    public void onEvents(TriageEvent[] events) {
+        updateKpis();
+    }
+
     // KPIs
     private void updateKpis() {
-        TriageStats stats = service.getStats();
+        TriageAsync.onFx(async.stats(), (stats, error) -> {
+            if (error != null) appendLog("⚠ Error leyendo métricas: " + TriageAsync.message(error));
+            else               showKpis(stats);
+        });
+    }
+
+    private void showKpis(TriageStats stats) {
         Patient mostUrgent = service.peekNext();
 
         lblQueueSize.setText(String.valueOf(stats.getQueueSize()));
@@ -146,17 +193,64 @@ public class DashboardController implements Initializable, Refreshable {
         lblAttendedToday.setText(String.valueOf(stats.getAttendedToday()));
         lblAvgWait.setText(String.format("%.1f min", stats.getAvgWaitMinutes()));
 
+        for (int level = 1; level <= 5; level++) {
+            showQuantiles(lblWaitToday[level],    stats.getWaitToday(level));
+            showQuantiles(lblWaitLastHour[level], stats.getWaitLastHour(level));
+        }
+
         // Métricas de estructuras
         lblHashInfo.setText(String.format(
-            "Hash: %d entradas | LF=%.2f | %d colisiones",
-            stats.getHashTableSize(), stats.getHashLoadFactor(), stats.getHashCollisions()
+            "Hash: %d entradas | LF=%.2f | %d colisiones | sondeo máx %d",
+            stats.getHashTableSize(), stats.getHashLoadFactor(), stats.getHashCollisions(),
+            stats.getHashMaxProbe()
         ));
         lblAvlInfo.setText(String.format(
             "AVL ID: h=%d  |  AVL Nombre: h=%d",
             stats.getAvlByIdHeight(), stats.getAvlByNameHeight()
         ));
         lblUndoInfo.setText("Stack undo: " + stats.getUndoStackSize() + " acción(es)");
-        lblHistoryInfo.setText("Historial memoria: " + stats.getHistorySize() + " paciente(s)");
+        lblHistoryInfo.setText("Historial memoria: " + stats.getHistorySize() + " paciente(s)"
+            + " | Journal: " + stats.getJournalPending() + " pendiente(s)");
+        lblPoolInfo.setText(String.format(
+            "Pool BD: %d activas | %d ociosas | espera %.2f ms | stmt cache %.0f%%",
+            stats.getPoolActive(), stats.getPoolIdle(), stats.getPoolAvgWaitMs(),
+            stats.getStmtCacheHitRatio() * 100
+        ));
+    }
+
+    /** Encabezados y una fila por nivel con su meta Manchester. */
+    private void setupWaitQuantiles() {
+        gridWaitQuantiles.addRow(0, header("NIVEL"), header("META"),
+                                    header("HOY"), header("ÚLTIMA HORA"));
+        for (int level = 1; level <= 5; level++) {
+            int   target = Patient.targetMinutes(level);
+            Label name   = new Label("Nivel " + level);
+            name.getStyleClass().addAll("level-badge", "level-" + level);
+            lblWaitToday[level]    = new Label("—");
+            lblWaitLastHour[level] = new Label("—");
+            gridWaitQuantiles.addRow(level, name,
+                new Label(target == 0 ? "inmediata" : "< " + target + " min"),
+                lblWaitToday[level], lblWaitLastHour[level]);
+        }
+    }
+
+    private static Label header(String text) {
+        Label l = new Label(text);
+        l.getStyleClass().add("card-title");
+        return l;
+    }
+
+    /** "p50 / p90 / p99 min (n)"; en rojo si el p90 pasa la meta del nivel. */
+    private static void showQuantiles(Label label, WaitQuantiles q) {
+        if (q.getCount() == 0) {
+            label.setText("—");
+            label.setStyle("-fx-text-fill: #636e72;");
+            return;
+        }
+        label.setText(String.format("%.0f / %.0f / %.0f min  (n=%d)",
+            q.getP50(), q.getP90(), q.getP99(), q.getCount()));
+        label.setStyle(q.isP90OverTarget() ? "-fx-text-fill: #e74c3c; -fx-font-weight: bold;"
+                                           : "-fx-text-fill: #27ae60;");
     }
 
     // Simulación
@@ -208,15 +302,15 @@ public class DashboardController implements Initializable, Refreshable {
         String symptoms = SYMPTOMS[(int)(Math.random() * SYMPTOMS.length)];
         int    age      = 1 + (int)(Math.random() * 90);
 
-        try {
-            Patient p = service.registerPatient(name, age, symptoms, level);
+        TriageAsync.onFx(async.registerPatient(name, age, symptoms, level), (p, error) -> {
+            if (error != null) {
+                appendLog("⚠ Error generando paciente: " + TriageAsync.message(error));
+                return;
+            }
             appendLog("[" + LocalDateTime.now().format(TIME_FMT) + "] "
                 + "Nivel " + level + " — " + p.getName()
                 + " (ID " + p.getId() + ") registrado.");
-            updateKpis();
-        } catch (Exception e) {
-            appendLog("⚠ Error generando paciente: " + e.getMessage());
-        }
+        });
     }
 
     /** Nivel aleatorio con distribución realista de triaje. */
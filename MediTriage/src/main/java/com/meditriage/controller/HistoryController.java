@@ -1,27 +1,50 @@
 package com.meditriage.controller;
 
+import com.meditriage.database.AttendedQuery;
+import com.meditriage.database.HistoryCursor;
+import com.meditriage.database.HistoryPeriod;
 import com.meditriage.model.Patient;
+import com.meditriage.model.TriageEvent;
+import com.meditriage.service.TriageEventBus;
 import com.meditriage.service.TriageService;
+import com.meditriage.structures.IntObjectHashTable;
+import javafx.collections.ObservableList;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 
+import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
 import java.util.ResourceBundle;
 
 /**
  * Controlador de la vista "Historial".
  *
  * Muestra los pacientes atendidos con filtros por nivel, nombre y tiempo.
- * Los datos vienen de la BD (PatientDAO) para consulta completa,
- * y de la DoublyLinkedList en memoria para el historial reciente.
+ * Los datos vienen de la BD (PatientDAO) por páginas con cursor (keyset):
+ * "Cargar más" trae la página siguiente sin límite de profundidad. La
+ * exportación CSV recorre en streaming todo el resultado del filtro, no solo
+ * lo cargado en la tabla.
  *
- * Implementa Refreshable para recargar al navegar aquí.
+ * Las consultas y la exportación corren vía TriageAsync, fuera del hilo de
+ * JavaFX. Una página que llega después de cambiar los filtros se descarta;
+ * clics repetidos con los mismos filtros comparten la misma consulta.
+ *
+ * Las atenciones (y sus undo) llegan como eventos de dominio: la fila se
+ * inserta, actualiza o quita en su lugar si cumple los filtros, sin volver a
+ * consultar. MySQL se actualiza en segundo plano, así que una atención
+ * recién hecha aparece aquí antes de estar en la BD.
+ *
+ * Implementa Refreshable para recargar al navegar aquí (conservando los
+ * filtros elegidos); los eventos solo se reciben mientras está visible.
  */
-public class HistoryController implements Initializable, Refreshable {
+public class HistoryController implements Initializable, Refreshable, ViewLifecycle, TriageEventBus.Listener {
 
     // Filtros
     @FXML private ComboBox<String> cmbFilterLevel;
@@ -39,11 +62,20 @@ public class HistoryController implements Initializable, Refreshable {
     @FXML private TableColumn<Patient, String> colAttended;
     @FXML private TableColumn<Patient, String> colWait;
 
-    // Info
-    @FXML private Label lblHistoryInfo;
+    // Info y paginación
+    @FXML private Label  lblHistoryInfo;
+    @FXML private Button btnLoadMore;
+
+    private final TriageService service  = TriageService.getInstance();
+    private final TriageAsync   async    = TriageAsync.getInstance();
+    private final int           pageSize = service.getHistoryPageSize();
 
-    private final TriageService service = TriageService.getInstance();
-    private Patient[] currentData = new Patient[0]; // para exportar CSV
+    // Consulta en curso: las páginas siguientes y la exportación usan la misma
+    private AttendedQuery query = AttendedQuery.all();
+    private HistoryCursor cursor;   // última fila cargada (null = ninguna)
+    private boolean       hasMore;
+    private int           generation;   // sube con cada cambio de filtros
+    private boolean       loading;      // hay una página en camino
 
     // Inicialización
     @Override
@@ -60,13 +92,24 @@ public class HistoryController implements Initializable, Refreshable {
         cmbFilterLevel.getSelectionModel().select(0);
 
         // Filtro tiempo
-        cmbFilterTime.getItems().setAll("Hoy", "Última hora", "Todo");
+        for (HistoryPeriod p : HistoryPeriod.values()) cmbFilterTime.getItems().add(p.getLabel());
         cmbFilterTime.getSelectionModel().select(0);
 
         setupTableColumns();
         tableHistory.setPlaceholder(new Label("Sin pacientes atendidos con los filtros seleccionados."));
     }
 
+    // Ciclo de vida
+    @Override
+    public void onShow() {
+        UiEventPump.getInstance().subscribe(this);
+    }
+
+    @Override
+    public void onHide() {
+        UiEventPump.getInstance().unsubscribe(this);
+    }
+
     @Override
     public void refresh() {
         applyFilters();
@@ -88,23 +131,117 @@ public class HistoryController implements Initializable, Refreshable {
 
     private void applyFilters() {
         int    levelIdx  = cmbFilterLevel.getSelectionModel().getSelectedIndex(); // 0=todos
-        int    level     = levelIdx; // 0=todos, 1-5=nivel exacto
-        String name      = txtFilterName.getText();
         String timeStr   = cmbFilterTime.getSelectionModel().getSelectedItem();
-        String timeFilter;
-        if      ("Hoy".equals(timeStr))          timeFilter = "TODAY";
-        else if ("Última hora".equals(timeStr))  timeFilter = "LAST_HOUR";
-        else                                     timeFilter = "ALL";
+        // La ventana de tiempo se fija ahora: "Cargar más" no se corre con el reloj
+        query = AttendedQuery.all()
+            .level(Math.max(0, levelIdx))
+            .nameContains(txtFilterName.getText())
+            .period(HistoryPeriod.fromLabel(timeStr), LocalDateTime.now());
+
+        generation++;
+        cursor  = null;
+        loading = false;
+        tableHistory.getItems().clear();
+        loadNextPage();
+    }
+
+    // Paginación
+    @FXML
+    private void onLoadMore() {
+        if (hasMore && !loading) loadNextPage();
+    }
+
+    /** Pide en segundo plano la página siguiente a {@code cursor} y la agrega al llegar. */
+    private void loadNextPage() {
+        int gen = generation;
+        loading = true;
+        btnLoadMore.setDisable(true);
+        lblHistoryInfo.setText("Consultando el historial…");
+        TriageAsync.onFx(async.historyPage(query.after(cursor), pageSize), (page, error) -> {
+            if (gen != generation) return;   // los filtros cambiaron mientras tanto
+            loading = false;
+            if (error != null) {
+                hasMore = false;
+                lblHistoryInfo.setText("Error al consultar el historial: " + TriageAsync.message(error));
+                return;
+            }
+            showPage(page);
+        });
+    }
+
+    private void showPage(Patient[] page) {
+        // Una fila que ya llegó por evento no se repite
+        ObservableList<Patient>    items = tableHistory.getItems();
+        IntObjectHashTable<Patient> shown = new IntObjectHashTable<>();
+        for (Patient p : items) shown.put(p.getId(), p);
+        int n = 0;
+        for (Patient p : page) if (!shown.containsKey(p.getId())) n++;
+        Patient[] fresh = new Patient[n];
+        n = 0;
+        for (Patient p : page) if (!shown.containsKey(p.getId())) fresh[n++] = p;
+        items.addAll(fresh);
+
+        if (page.length > 0) cursor = HistoryCursor.after(page[page.length - 1]);
+        hasMore = page.length == pageSize;
+        btnLoadMore.setDisable(!hasMore);
+        showCount();
+    }
 
-        currentData = service.getDao().listAttendedWithFilters(level, name, timeFilter);
-        tableHistory.getItems().setAll(currentData);
-        lblHistoryInfo.setText("Mostrando " + currentData.length + " registro(s).");
+    private void showCount() {
+        lblHistoryInfo.setText("Mostrando " + tableHistory.getItems().size() + " registro(s)"
+            + (hasMore ? " — hay más (Cargar más)." : "."));
+    }
+
+    // Eventos
+
+    /**
+     * Un pulso de eventos: por cada paciente tocado, su fila se actualiza
+     * (set), se quita o se inserta en su lugar según cumpla los filtros. No
+     * se inserta detrás de la última fila cargada si quedan páginas: esa
+     * posición la trae "Cargar más".
+     */
+    @Override
+    public void onEvents(TriageEvent[] events) {
+        ObservableList<Patient> items = tableHistory.getItems();
+        boolean changed = false;
+        for (TriageEvent e : events) {
+            Patient p    = e.getPatient();
+            int     at   = indexOf(items, p.getId());
+            boolean show = query.matches(p);
+            if (at >= 0) {
+                if (show) items.set(at, p);
+                else      items.remove(at);
+                changed = true;
+            } else if (show) {
+                int pos = insertionIndex(items, p);
+                if (pos < items.size() || !hasMore) {
+                    items.add(pos, p);
+                    changed = true;
+                }
+            }
+        }
+        if (changed && !loading) showCount();
+    }
+
+    private static int indexOf(ObservableList<Patient> items, int id) {
+        for (int i = 0; i < items.size(); i++) if (items.get(i).getId() == id) return i;
+        return -1;
+    }
+
+    /** Posición en el orden del historial (attended_at DESC, id DESC). */
+    private static int insertionIndex(ObservableList<Patient> items, Patient p) {
+        for (int i = 0; i < items.size(); i++) {
+            Patient cur = items.get(i);
+            int cmp = cur.getAttendedAt().compareTo(p.getAttendedAt());
+            if (cmp < 0 || (cmp == 0 && cur.getId() < p.getId())) return i;
+        }
+        return items.size();
     }
 
     // Exportar CSV
     @FXML
     private void onExportCsv() {
-        if (currentData.length == 0) {
+        if (tableHistory.getItems().isEmpty()) {
             showAlert(Alert.AlertType.INFORMATION, "Sin datos",
                 "No hay datos para exportar con los filtros actuales.");
             return;
@@ -113,27 +250,52 @@ public class HistoryController implements Initializable, Refreshable {
         // Diálogo simple para elegir destino (se escribe en escritorio por defecto)
         String path = System.getProperty("user.home") + "/meditriage_historial.csv";
 
-        try (FileWriter fw = new FileWriter(path)) {
-            fw.write("ID,Nombre,Edad,Nivel,Descripcion,Sintomas,Llegada,Atendido,EsperaMin\n");
-            for (Patient p : currentData) {
-                if (p == null) continue;
-                fw.write(
-                    csvField(String.valueOf(p.getId()))        + "," +
-                    csvField(p.getName())                      + "," +
-                    csvField(String.valueOf(p.getAge()))       + "," +
-                    csvField(String.valueOf(p.getLevel()))     + "," +
-                    csvField(p.getLevelDescription())          + "," +
-                    csvField(p.getSymptoms())                  + "," +
-                    csvField(p.getArrivalFormatted())          + "," +
-                    csvField(p.getAttendedFormatted())         + "," +
-                    csvField(String.valueOf(p.getWaitMinutes()))+ "\n"
-                );
+        // Todo el resultado del filtro, fila a fila desde la BD (no solo las páginas
+        // cargadas), en segundo plano; un segundo clic se une a la exportación en curso
+        AttendedQuery exported = query;
+        TriageAsync.onFx(async.read("export:" + path, () -> exportCsv(exported, path)), (rows, error) -> {
+            if (error != null) {
+                showAlert(Alert.AlertType.ERROR, "Error",
+                    "No se pudo exportar el historial: " + TriageAsync.message(error));
+            } else {
+                showAlert(Alert.AlertType.INFORMATION, "Exportado",
+                    rows + " registro(s) guardados en:\n" + path);
             }
-            showAlert(Alert.AlertType.INFORMATION, "Exportado",
-                "CSV guardado en:\n" + path);
+        });
+    }
+
+    /** Escribe el CSV completo de {@code q}; corre en el pool de I/O. */
+    private Integer exportCsv(AttendedQuery q, String path) throws IOException, SQLException {
+        int[] rows = { 0 };
+        try (BufferedWriter fw = new BufferedWriter(new FileWriter(path))) {
+            fw.write("ID,Nombre,Edad,Nivel,Descripcion,Sintomas,Llegada,Atendido,EsperaMin\n");
+            service.getDao().streamAttended(q, p -> {
+                writeCsvRow(fw, p);
+                rows[0]++;
+                return true;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return rows[0];
+    }
+
+    /** Escribe una fila; el IOException sale envuelto (el RowHandler no lo declara). */
+    private void writeCsvRow(BufferedWriter fw, Patient p) {
+        try {
+            fw.write(
+                csvField(String.valueOf(p.getId()))        + "," +
+                csvField(p.getName())                      + "," +
+                csvField(String.valueOf(p.getAge()))       + "," +
+                csvField(String.valueOf(p.getLevel()))     + "," +
+                csvField(p.getLevelDescription())          + "," +
+                csvField(p.getSymptoms())                  + "," +
+                csvField(p.getArrivalFormatted())          + "," +
+                csvField(p.getAttendedFormatted())         + "," +
+                csvField(String.valueOf(p.getWaitMinutes()))+ "\n"
+            );
         } catch (IOException e) {
-            showAlert(Alert.AlertType.ERROR, "Error",
-                "No se pudo guardar el archivo: " + e.getMessage());
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -1,7 +1,9 @@
 package com.meditriage.controller;
 
 import com.meditriage.App;
+import com.meditriage.AppConfig;
 import com.meditriage.database.DatabaseConnection;
+import com.meditriage.structures.HashTable;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
@@ -10,7 +12,9 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.layout.StackPane;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.ResourceBundle;
 
@@ -19,9 +23,31 @@ import java.util.ResourceBundle;
  *
  * Gestiona el sidebar de navegación y la carga dinámica de vistas
  * en el área central (contentArea).
+ *
+ * Caché de vistas: cada FXML se carga una sola vez (un controlador por
+ * vista) y se reutiliza al navegar, en una HashTable por nombre. Al cambiar
+ * de vista la saliente recibe onHide() y la entrante onShow() y refresh()
+ * (ViewLifecycle / Refreshable), así las ocultas no tienen temporizadores ni
+ * suscripciones activas. Con {@code ui.preloadViews=true} el resto de las
+ * vistas se precarga tras mostrar el Dashboard: el FXML se lee en segundo plano
+ * y se construye en el hilo de JavaFX.
  */
 public class MainController implements Initializable {
 
+    /** Vistas del sidebar, en el orden en que se precargan. */
+    private static final String[] VIEWS = { "dashboard", "queue", "register", "search", "history" };
+
+    /** Vista ya construida: raíz del FXML y su controlador. */
+    private static final class CachedView {
+        final Parent root;
+        final Object controller;
+
+        CachedView(Parent root, Object controller) {
+            this.root       = root;
+            this.controller = controller;
+        }
+    }
+
     // Sidebar
     @FXML private Button    btnDashboard;
     @FXML private Button    btnRegister;
@@ -38,12 +64,17 @@ public class MainController implements Initializable {
     // Botón activo actualmente
     private Button activeButton;
 
+    // Vistas construidas (solo hilo de JavaFX) y la que está en pantalla
+    private final HashTable<String, CachedView> views = new HashTable<>();
+    private CachedView                          current;
+
     // Inicialización
     @Override
     public void initialize(URL url, ResourceBundle rb) {
         checkDbConnection();
         loadView("dashboard");
         setActive(btnDashboard);
+        if (Boolean.parseBoolean(AppConfig.get("ui.preloadViews", "true"))) preloadViews();
     }
 
     // Manejadores de navegación
@@ -56,28 +87,91 @@ public class MainController implements Initializable {
     // Carga dinámica de vistas
 
     /**
-     * Carga la vista FXML correspondiente y la coloca en contentArea.
-     * Si el controlador de la vista implementa Refreshable, llama a refresh().
+     * Muestra la vista en contentArea, construyéndola solo la primera vez.
+     * Si es la que ya está en pantalla, solo la refresca.
      */
     private void loadView(String viewName) {
-        try {
-            FXMLLoader loader = new FXMLLoader(
-                App.class.getResource("/com/meditriage/fxml/" + viewName + ".fxml")
-            );
-            Parent view = loader.load();
-            contentArea.getChildren().setAll(view);
-
-            // Refrescar datos si el controlador lo soporta
-            Object ctrl = loader.getController();
-            if (ctrl instanceof Refreshable r) {
-                r.refresh();
+        CachedView next = views.get(viewName);
+        if (next == null) {
+            try {
+                next = buildView(viewName);
+            } catch (IOException ex) {
+                System.err.println("[Main] Error cargando vista '" + viewName + "': " + ex.getMessage());
+                ex.printStackTrace();
+                return;
             }
-        } catch (IOException ex) {
-            System.err.println("[Main] Error cargando vista '" + viewName + "': " + ex.getMessage());
-            ex.printStackTrace();
+            views.put(viewName, next);
+        }
+
+        if (next != current) {
+            if (current != null && current.controller instanceof ViewLifecycle v) v.onHide();
+            contentArea.getChildren().setAll(next.root);
+            current = next;
+            if (next.controller instanceof ViewLifecycle v) v.onShow();
+        }
+
+        // Refrescar datos si el controlador lo soporta
+        if (next.controller instanceof Refreshable r) {
+            r.refresh();
+        }
+    }
+
+    /** Carga el FXML (parseo + initialize del controlador); solo en el hilo de JavaFX. */
+    private static CachedView buildView(String viewName) throws IOException {
+        return buildView(viewName, null);
+    }
+
+    /** Igual que {@link #buildView(String)} pero desde bytes ya leídos, si los hay. */
+    private static CachedView buildView(String viewName, byte[] fxml) throws IOException {
+        FXMLLoader loader = new FXMLLoader(viewUrl(viewName));
+        Parent root = fxml == null ? loader.load() : loader.load(new ByteArrayInputStream(fxml));
+        return new CachedView(root, loader.getController());
+    }
+
+    /** Lee el FXML sin parsearlo; es lo único de la precarga que corre fuera del hilo de JavaFX. */
+    private static byte[] readView(String viewName) throws IOException {
+        try (InputStream in = viewUrl(viewName).openStream()) {
+            return in.readAllBytes();
         }
     }
 
+    private static URL viewUrl(String viewName) {
+        return App.class.getResource("/com/meditriage/fxml/" + viewName + ".fxml");
+    }
+
+    /**
+     * Precarga las vistas que aún no están en caché, de a una. El pool de I/O
+     * solo lee el FXML; los nodos y el controlador se crean en el hilo de
+     * JavaFX, que es donde el toolkit admite construirlos. Cada vista se arma
+     * en su propio runLater para no acaparar un pulso con todas. Si el
+     * usuario llegó antes a esa vista, la leída se descarta; si falla, se
+     * cargará al navegar.
+     */
+    private void preloadViews() {
+        preloadFrom(0);
+    }
+
+    private void preloadFrom(int index) {
+        while (index < VIEWS.length && views.containsKey(VIEWS[index])) index++;
+        if (index == VIEWS.length) return;
+
+        String name = VIEWS[index];
+        int    next = index + 1;
+        TriageAsync.onFx(TriageAsync.getInstance().read(null, () -> readView(name)), (fxml, error) -> {
+            if (error == null && !views.containsKey(name)) {
+                try {
+                    views.put(name, buildView(name, fxml));
+                } catch (IOException ex) {
+                    error = ex;
+                }
+            }
+            if (error != null) {
+                System.err.println("[Main] Precarga de '" + name + "' falló: " + TriageAsync.message(error));
+            }
+            preloadFrom(next);
+        });
+    }
+
     // Estilo del botón activo
     private void setActive(Button btn) {
         if (activeButton != null) activeButton.getStyleClass().remove("active");
@@ -89,17 +183,15 @@ public class MainController implements Initializable {
 
     // Estado de la BD
     private void checkDbConnection() {
-        new Thread(() -> {
-            boolean ok = DatabaseConnection.testConnection();
-            javafx.application.Platform.runLater(() -> {
-                if (ok) {
-                    lblDbStatus.setText("● BD Conectada");
-                    lblDbStatus.getStyleClass().setAll("db-status-ok");
-                } else {
-                    lblDbStatus.setText("● BD Sin conexión");
-                    lblDbStatus.getStyleClass().setAll("db-status-error");
-                }
-            });
-        }).start();
+        TriageAsync async = TriageAsync.getInstance();
+        TriageAsync.onFx(async.read("db-check", DatabaseConnection::testConnection), (ok, error) -> {
+            if (error == null && ok) {
+                lblDbStatus.setText("● BD Conectada");
+                lblDbStatus.getStyleClass().setAll("db-status-ok");
+            } else {
+                lblDbStatus.setText("● BD Sin conexión");
+                lblDbStatus.getStyleClass().setAll("db-status-error");
+            }
+        });
     }
 }
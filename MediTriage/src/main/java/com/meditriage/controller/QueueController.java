@@ -1,7 +1,11 @@
 package com.meditriage.controller;
 
 import com.meditriage.model.Patient;
+import com.meditriage.model.TriageEvent;
+import com.meditriage.service.TriageEventBus;
 import com.meditriage.service.TriageService;
+import com.meditriage.structures.IntObjectHashTable;
+import javafx.collections.ObservableList;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.fxml.FXML;
@@ -17,11 +21,17 @@ import java.util.ResourceBundle;
  * Controlador de la vista "Cola Prioritaria".
  *
  * Muestra todos los pacientes en espera, ordenados por el MinHeap.
- * Permite atender al siguiente (pop del heap) y deshacer la última acción.
+ * Permite atender al siguiente (pop del heap), re-triar al paciente seleccionado
+ * y deshacer la última acción. Las acciones van por TriageAsync: el hilo de
+ * JavaFX no espera al fsync del journal, y los botones quedan deshabilitados
+ * hasta que la acción en curso termina.
  *
- * Implementa Refreshable para actualizar la tabla al navegar aquí.
+ * Implementa Refreshable para cargar la tabla al navegar aquí. Mientras está
+ * visible la mantienen los eventos de dominio (UiEventPump, un pulso por
+ * frame): solo se quitan y reinsertan las filas de los pacientes tocados, sin
+ * rehacer la lista entera tras cada atención. Oculta no recibe eventos.
  */
-public class QueueController implements Initializable, Refreshable {
+public class QueueController implements Initializable, Refreshable, ViewLifecycle, TriageEventBus.Listener {
 
     // Tabla
     @FXML private TableView<Patient>           tableQueue;
@@ -36,18 +46,33 @@ public class QueueController implements Initializable, Refreshable {
     // Acciones
     @FXML private Button btnAttendNext;
     @FXML private Button btnUndo;
+    @FXML private Button btnRetriage;
+    @FXML private ComboBox<Integer> cmbRetriageLevel;
 
     // Status
     @FXML private Label lblStatus;
     @FXML private Label lblQueueInfo;
 
     private final TriageService service = TriageService.getInstance();
+    private final TriageAsync   async   = TriageAsync.getInstance();
 
     // Inicialización
     @Override
     public void initialize(URL url, ResourceBundle rb) {
         setupTableColumns();
         tableQueue.setPlaceholder(new Label("La cola de espera está vacía."));
+        cmbRetriageLevel.getItems().setAll(1, 2, 3, 4, 5);
+    }
+
+    // Ciclo de vida
+    @Override
+    public void onShow() {
+        UiEventPump.getInstance().subscribe(this);
+    }
+
+    @Override
+    public void onHide() {
+        UiEventPump.getInstance().unsubscribe(this);
     }
 
     @Override
@@ -55,6 +80,38 @@ public class QueueController implements Initializable, Refreshable {
         loadQueue();
     }
 
+    /**
+     * Aplica un pulso de eventos como cambios mínimos sobre la tabla:
+     *   1. Quita de una vez las filas de los pacientes tocados.
+     *   2. Reinserta los que siguen en espera en su posición de la foto,
+     *      en orden ascendente (los demás conservan su orden relativo).
+     * Si la foto ya incluye un lote cuyos eventos aún no llegaron, el
+     * resultado no coincide con ella y se recarga completa (caso raro).
+     * Solo actualiza el total: lblStatus conserva el mensaje de la última
+     * acción ("✓ Atendido…", re-triage, undo), que suele mostrarse antes
+     * de que llegue el pulso con sus eventos.
+     */
+    @Override
+    public void onEvents(TriageEvent[] events) {
+        IntObjectHashTable<Patient> touched = new IntObjectHashTable<>();
+        for (TriageEvent e : events) touched.put(e.getPatient().getId(), e.getPatient());
+
+        Patient[]               sorted = service.getQueueSnapshotSorted();
+        ObservableList<Patient> items  = tableQueue.getItems();
+        items.removeIf(p -> touched.containsKey(p.getId()));
+        for (int i = 0; i < sorted.length; i++) {
+            if (touched.containsKey(sorted[i].getId())) items.add(Math.min(i, items.size()), sorted[i]);
+        }
+        if (!sameOrder(items, sorted)) items.setAll(sorted);
+        showQueueCount(sorted);
+    }
+
+    private static boolean sameOrder(ObservableList<Patient> items, Patient[] sorted) {
+        if (items.size() != sorted.length) return false;
+        for (int i = 0; i < sorted.length; i++) if (items.get(i) != sorted[i]) return false;
+        return true;
+    }
+
     // Columnas
     private void setupTableColumns() {
         colId.setCellValueFactory(new PropertyValueFactory<>("id"));
@@ -107,9 +164,17 @@ public class QueueController implements Initializable, Refreshable {
     private void loadQueue() {
         Patient[] sorted = service.getQueueSnapshotSorted();
         tableQueue.getItems().setAll(sorted);
+        showQueueCount(sorted);
+        showNext(sorted);
+    }
+
+    private void showQueueCount(Patient[] sorted) {
         int sz = sorted.length;
         lblQueueInfo.setText("Total en espera: " + sz + " paciente" + (sz != 1 ? "s" : ""));
-        Patient next = service.peekNext();
+    }
+
+    private void showNext(Patient[] sorted) {
+        Patient next = sorted.length > 0 ? sorted[0] : null;
         if (next != null) {
             lblStatus.setText("Siguiente: " + next.getName()
                 + " | Nivel " + next.getLevel()
@@ -123,26 +188,64 @@ public class QueueController implements Initializable, Refreshable {
     // Atender siguiente
     @FXML
     private void onAttendNext() {
-        Patient attended = service.attendNext();
-        if (attended == null) {
-            showAlert(Alert.AlertType.INFORMATION,
-                "Cola vacía", "No hay pacientes en espera.");
+        setBusy(true);
+        TriageAsync.onFx(async.attendNext(), (attended, error) -> {
+            setBusy(false);
+            if (error != null) {
+                showToast("⚠ Error al atender: " + TriageAsync.message(error));
+            } else if (attended == null) {
+                showAlert(Alert.AlertType.INFORMATION,
+                    "Cola vacía", "No hay pacientes en espera.");
+            } else {
+                showToast("✓ Atendido: " + attended.getName()
+                    + " (Nivel " + attended.getLevel() + ")");
+            }
+        });
+    }
+
+    // Re-triage
+    @FXML
+    private void onRetriage() {
+        Patient selected = tableQueue.getSelectionModel().getSelectedItem();
+        Integer level    = cmbRetriageLevel.getValue();
+        if (selected == null || level == null) {
+            showAlert(Alert.AlertType.WARNING,
+                "Re-triage", "Seleccione un paciente de la cola y el nuevo nivel.");
             return;
         }
-        showToast("✓ Atendido: " + attended.getName()
-            + " (Nivel " + attended.getLevel() + ")");
-        loadQueue();
+        int previous = selected.getLevel();
+        setBusy(true);
+        TriageAsync.onFx(async.retriage(selected.getId(), level), (p, error) -> {
+            setBusy(false);
+            if (error != null) {
+                showToast("⚠ Error en re-triage: " + TriageAsync.message(error));
+            } else if (p == null) {
+                showToast("El paciente ya no está en espera.");
+            } else {
+                showToast("✓ Re-triage: " + p.getName() + " (Nivel " + previous + " → " + level + ")");
+            }
+        });
     }
 
     // Deshacer
     @FXML
     private void onUndo() {
-        String msg = service.undoLastAction();
-        showToast(msg);
-        loadQueue();
+        setBusy(true);
+        TriageAsync.onFx(async.undoLastAction(), (msg, error) -> {
+            setBusy(false);
+            showToast(error != null ? "⚠ Error al deshacer: " + TriageAsync.message(error) : msg);
+        });
     }
 
     // Helpers
+
+    /** Una acción a la vez: evita, p. ej., dos atenciones por un doble clic. */
+    private void setBusy(boolean busy) {
+        btnAttendNext.setDisable(busy);
+        btnRetriage.setDisable(busy);
+        btnUndo.setDisable(busy);
+    }
+
     private void showToast(String msg) {
         lblStatus.setText(msg);
     }
@@ -4,7 +4,8 @@ package com.meditriage.controller;
  * Interfaz que implementan los controladores que necesitan refrescar
  * su estado cuando el usuario navega hacia ellos.
  *
- * MainController llama a refresh() después de cargar cada vista.
+ * MainController llama a refresh() cada vez que muestra la vista (después
+ * de ViewLifecycle.onShow(), si también la implementa).
  */
 public interface Refreshable {
     void refresh();
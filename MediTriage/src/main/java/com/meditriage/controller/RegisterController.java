@@ -1,7 +1,5 @@
 package com.meditriage.controller;
 
-import com.meditriage.model.Patient;
-import com.meditriage.service.TriageService;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.fxml.FXML;
@@ -15,7 +13,8 @@ import java.util.ResourceBundle;
 /**
  * Controlador de la vista "Registrar Paciente".
  *
- * Valida el formulario y delega el registro al TriageService.
+ * Valida el formulario y delega el registro al TriageService vía TriageAsync
+ * (reserva de ID y fsync fuera del hilo de JavaFX).
  * Muestra confirmación tipo "toast" que desaparece automáticamente.
  */
 public class RegisterController implements Initializable {
@@ -31,8 +30,8 @@ public class RegisterController implements Initializable {
     @FXML private Label            lblMessage;
     @FXML private Label            lblLastRegistered;
 
-    private final TriageService service = TriageService.getInstance();
-    private Timeline            toastTimeline;
+    private final TriageAsync async = TriageAsync.getInstance();
+    private Timeline          toastTimeline;
 
     // Inicialización
     @Override
@@ -58,8 +57,14 @@ public class RegisterController implements Initializable {
         String symptoms = txtSymptoms.getText().trim();
         int    level    = cmbLevel.getSelectionModel().getSelectedIndex() + 1;
 
-        try {
-            Patient registered = service.registerPatient(name, age, symptoms, level);
+        // Deshabilitado hasta la respuesta: un doble clic no registra dos veces
+        btnRegister.setDisable(true);
+        TriageAsync.onFx(async.registerPatient(name, age, symptoms, level), (registered, error) -> {
+            btnRegister.setDisable(false);
+            if (error != null) {
+                showError("⚠ Error al registrar: " + TriageAsync.message(error));
+                return;
+            }
             showSuccess("✓ Paciente registrado: " + registered.getName()
                 + " (ID " + registered.getId() + ", Nivel " + registered.getLevel() + ")");
             lblLastRegistered.setText(
@@ -67,9 +72,7 @@ public class RegisterController implements Initializable {
                 + " | Nivel " + registered.getLevel() + " | Edad " + registered.getAge()
             );
             clearForm();
-        } catch (Exception ex) {
-            showError("⚠ Error al registrar: " + ex.getMessage());
-        }
+        });
     }
 
     @FXML
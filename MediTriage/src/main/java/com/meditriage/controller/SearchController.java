@@ -2,27 +2,46 @@ package com.meditriage.controller;
 
 import com.meditriage.model.Patient;
 import com.meditriage.service.TriageService;
+import javafx.animation.PauseTransition;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
+import javafx.util.Duration;
 
 import java.net.URL;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ResourceBundle;
 
 /**
  * Controlador de la vista "Buscar Paciente".
  *
- * Permite buscar por ID exacto (AVL por ID) o por nombre (AVL por nombre /
- * traversal filtrado). Muestra la ficha del paciente encontrado.
+ * Permite buscar por ID exacto (AVL por ID), por nombre (AVL por nombre /
+ * trie de palabras / trigramas, y búsqueda aproximada si nada coincide) o por síntomas (índice invertido con ranking
+ * BM25, filtrable por nivel y por ventana de llegada). Muestra la ficha del
+ * paciente encontrado.
+ *
+ * Búsqueda mientras se escribe: tras una pausa breve de tecleo se consulta el
+ * trie de palabras en memoria (nunca MySQL) y se muestran las coincidencias.
+ *
+ * Las búsquedas que pueden ir a MySQL (ID fuera de la cola, nombre mientras
+ * el índice de texto carga) corren vía TriageAsync. Cada búsqueda lleva un
+ * número: una respuesta que llega después de otra búsqueda más nueva se
+ * descarta, así un resultado lento nunca pisa al actual.
  */
-public class SearchController implements Initializable {
+public class SearchController implements Initializable, ViewLifecycle {
 
     // Búsqueda
     @FXML private TextField txtSearch;
     @FXML private Button    btnSearchById;
     @FXML private Button    btnSearchByName;
 
+    // Búsqueda por síntomas
+    @FXML private ComboBox<String> cmbSymptomLevel;
+    @FXML private ComboBox<String> cmbSymptomWindow;
+    @FXML private Button           btnSearchBySymptoms;
+
     // Resultado único
     @FXML private VBox      vboxResult;
     @FXML private Label     lblResultId;
@@ -42,11 +61,27 @@ public class SearchController implements Initializable {
     @FXML private TableColumn<Patient, String> colResAge;
     @FXML private TableColumn<Patient, String> colResLevel;
     @FXML private TableColumn<Patient, String> colResStatus;
+    @FXML private TableColumn<Patient, String> colResSymptoms;
 
     // Status
     @FXML private Label lblSearchStatus;
 
     private final TriageService service = TriageService.getInstance();
+    private final TriageAsync   async   = TriageAsync.getInstance();
+
+    // Número de la última búsqueda lanzada (solo en el hilo de JavaFX)
+    private int searchSeq;
+
+    // Filtros de síntomas (el índice del combo es el criterio)
+    private static final String[] LEVEL_FILTERS  = {
+        "Todos los niveles", "Nivel 1", "Nivel 2", "Nivel 3", "Nivel 4", "Nivel 5", "Niveles 1–2"
+    };
+    private static final String[] WINDOW_FILTERS = {
+        "Hoy", "Últimas 24 h", "Últimos 7 días", "Todo el historial"
+    };
+
+    // Espera tras la última tecla antes de buscar (evita consultar por cada carácter)
+    private final PauseTransition typingPause = new PauseTransition(Duration.millis(150));
 
     // Inicialización
     @Override
@@ -55,8 +90,51 @@ public class SearchController implements Initializable {
         tableResults.setVisible(false);
         setupTableColumns();
 
+        cmbSymptomLevel.getItems().setAll(LEVEL_FILTERS);
+        cmbSymptomLevel.getSelectionModel().select(0);
+        cmbSymptomWindow.getItems().setAll(WINDOW_FILTERS);
+        cmbSymptomWindow.getSelectionModel().select(0);
+
         // Enter en el campo dispara búsqueda por ID
         txtSearch.setOnAction(e -> onSearchById());
+
+        // Búsqueda por prefijo mientras se escribe
+        typingPause.setOnFinished(e -> onLiveSearch());
+        txtSearch.textProperty().addListener((obs, old, text) -> typingPause.playFromStart());
+    }
+
+    // Ciclo de vida
+    @Override
+    public void onShow() { }
+
+    /** Oculta no busca: se cancela la búsqueda pendiente de la pausa de tecleo. */
+    @Override
+    public void onHide() {
+        typingPause.stop();
+    }
+
+    // Búsqueda mientras se escribe
+    private void onLiveSearch() {
+        String text = txtSearch.getText().trim();
+        if (isNumeric(text) && !text.isEmpty()) return; // los IDs se buscan con Enter
+        searchSeq++;
+        if (text.isEmpty()) {
+            hidePanels();
+            showStatus("");
+            return;
+        }
+
+        Patient[] results = service.searchByNamePrefix(text, TriageService.SEARCH_LIMIT);
+        if (results.length == 0) {
+            showFuzzyResults(text, "Sin coincidencias en espera para «" + text
+                + "» (Enter / Buscar nombre consulta también la BD).");
+        } else if (results.length == 1) {
+            showSingleResult(results[0]);
+            showStatus("1 coincidencia (trie de palabras) — O(prefijo + k).");
+        } else {
+            showMultipleResults(results);
+            showStatus(results.length + " coincidencias (trie de palabras) — O(prefijo + k).");
+        }
     }
 
     // Búsqueda por ID
@@ -65,19 +143,28 @@ public class SearchController implements Initializable {
         String text = txtSearch.getText().trim();
         if (text.isBlank()) { showStatus("Introduce un ID numérico."); return; }
 
+        int id;
         try {
-            int id = Integer.parseInt(text);
-            Patient p = service.searchById(id);
-            if (p != null) {
+            id = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            showStatus("El ID debe ser un número entero.");
+            return;
+        }
+
+        int seq = ++searchSeq;
+        showStatus("Buscando ID " + id + "…");
+        TriageAsync.onFx(async.searchById(id), (p, error) -> {
+            if (seq != searchSeq) return;   // hubo otra búsqueda después
+            if (error != null) {
+                showStatus("Error al buscar el ID " + id + ": " + TriageAsync.message(error));
+            } else if (p != null) {
                 showSingleResult(p);
                 showStatus("Paciente encontrado via AVL (ID) — O(log n).");
             } else {
                 hidePanels();
                 showStatus("No se encontró ningún paciente con ID " + id + ".");
             }
-        } catch (NumberFormatException e) {
-            showStatus("El ID debe ser un número entero.");
-        }
+        });
     }
 
     // Búsqueda por Nombre
@@ -85,31 +172,88 @@ public class SearchController implements Initializable {
     private void onSearchByName() {
         String text = txtSearch.getText().trim();
         if (text.isBlank()) { showStatus("Introduce un nombre o fragmento."); return; }
+        int seq = ++searchSeq;
 
-        // Primero intenta búsqueda exacta en AVL de nombres
-        Patient exact = service.searchByNameExact(text);
-        if (exact != null) {
-            showSingleResult(exact);
+        // Primero intenta búsqueda exacta en AVL (nombre, ID): puede haber homónimos
+        Patient[] exact = service.searchAllByName(text);
+        if (exact.length == 1) {
+            showSingleResult(exact[0]);
             showStatus("Encontrado via AVL (nombre exacto) — O(log n).");
             return;
         }
+        if (exact.length > 1) {
+            showMultipleResults(exact);
+            showStatus(exact.length + " pacientes con el nombre «" + text
+                + "» (rango AVL nombre+ID) — O(log n + k).");
+            return;
+        }
 
-        // Si no, traversal del AVL + filtro "contiene"
-        Patient[] results = service.searchByNameContains(text);
+        // Si no, inicio de palabra en el trie (o LIKE en BD si no hay nada en memoria)
+        showStatus("Buscando «" + text + "»…");
+        TriageAsync.onFx(async.searchByNameContains(text), (results, error) -> {
+            if (seq != searchSeq) return;
+            if (error != null) {
+                showStatus("Error al buscar «" + text + "»: " + TriageAsync.message(error));
+            } else if (results.length == 0) {
+                showFuzzyResults(text, "No se encontraron pacientes con nombre que contenga «" + text + "».");
+            } else if (results.length == 1) {
+                showSingleResult(results[0]);
+                showStatus("1 resultado encontrado (trie de palabras / BD).");
+            } else {
+                showMultipleResults(results);
+                showStatus(results.length + " resultados encontrados (trie de palabras / BD).");
+            }
+        });
+    }
+
+    /** Sin coincidencias exactas: muestra nombres parecidos (errores de tipeo) o {@code emptyMessage}. */
+    private void showFuzzyResults(String text, String emptyMessage) {
+        Patient[] similar = service.searchByNameFuzzy(text, TriageService.SEARCH_LIMIT);
+        if (similar.length == 0) {
+            hidePanels();
+            showStatus(emptyMessage);
+            return;
+        }
+        showMultipleResults(similar);
+        showStatus("Sin coincidencias exactas; " + similar.length
+            + " nombre(s) parecido(s) a «" + text + "», del más al menos parecido.");
+    }
+
+    // Búsqueda por Síntomas
+    @FXML
+    private void onSearchBySymptoms() {
+        String text = txtSearch.getText().trim();
+        if (text.isBlank()) { showStatus("Introduce uno o más síntomas (p. ej. «dolor pecho»)."); return; }
+        searchSeq++;
+
+        int levelFilter = cmbSymptomLevel.getSelectionModel().getSelectedIndex();
+        int minLevel = levelFilter >= 1 && levelFilter <= 5 ? levelFilter : 1;
+        int maxLevel = levelFilter >= 1 && levelFilter <= 5 ? levelFilter : levelFilter == 6 ? 2 : 5;
+
+        LocalDateTime now  = LocalDateTime.now();
+        LocalDateTime from = switch (cmbSymptomWindow.getSelectionModel().getSelectedIndex()) {
+            case 0  -> LocalDate.now().atStartOfDay();
+            case 1  -> now.minusHours(24);
+            case 2  -> now.minusDays(7);
+            default -> null;
+        };
+
+        Patient[] results = service.searchSymptoms(text, minLevel, maxLevel, from, null,
+                                                   TriageService.SEARCH_LIMIT);
+        String partial = service.isTextIndexReady() ? "" : " (índice cargando el historial)";
         if (results.length == 0) {
             hidePanels();
-            showStatus("No se encontraron pacientes con nombre que contenga «" + text + "».");
-        } else if (results.length == 1) {
-            showSingleResult(results[0]);
-            showStatus("1 resultado encontrado (traversal AVL + filtro).");
+            showStatus("Sin pacientes con síntomas «" + text + "» para los filtros elegidos" + partial + ".");
         } else {
+            // Siempre en tabla: el orden (relevancia BM25) es parte del resultado
             showMultipleResults(results);
-            showStatus(results.length + " resultados encontrados (traversal AVL + filtro).");
+            showStatus(results.length + " resultado(s) por relevancia (índice invertido, BM25)" + partial + ".");
         }
     }
 
     @FXML
     private void onClearSearch() {
+        searchSeq++;
         txtSearch.clear();
         hidePanels();
         lblSearchStatus.setText("");
@@ -152,6 +296,11 @@ public class SearchController implements Initializable {
         lblSearchStatus.setText(msg);
     }
 
+    private static boolean isNumeric(String text) {
+        for (int i = 0; i < text.length(); i++) if (!Character.isDigit(text.charAt(i))) return false;
+        return true;
+    }
+
     // Configurar tabla de resultados múltiples
     private void setupTableColumns() {
         colResId.setCellValueFactory(d ->
@@ -166,6 +315,8 @@ public class SearchController implements Initializable {
             ));
         colResStatus.setCellValueFactory(d ->
             new javafx.beans.property.SimpleStringProperty(d.getValue().getStatus()));
+        colResSymptoms.setCellValueFactory(d ->
+            new javafx.beans.property.SimpleStringProperty(d.getValue().getSymptoms()));
 
         tableResults.setPlaceholder(new Label("Sin resultados."));
     }
@@ -0,0 +1,175 @@
+package com.meditriage.controller;
+
+import com.meditriage.AppConfig;
+import com.meditriage.database.AttendedQuery;
+import com.meditriage.model.Patient;
+import com.meditriage.service.TriageService;
+import com.meditriage.service.TriageStats;
+import com.meditriage.structures.HashTable;
+import javafx.application.Platform;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fachada asíncrona del TriageService para los controladores.
+ *
+ * El hilo de JavaFX nunca espera a MySQL ni al hilo escritor:
+ *   • Lecturas que pueden ir a la BD (ficha por ID, nombre mientras el índice
+ *     de texto carga, páginas del historial, exportación) y las métricas
+ *     corren en un pool acotado de hilos daemon ({@code ui.ioThreads}).
+ *   • Las mutaciones usan las variantes *Async del servicio; el registro
+ *     reserva su ID (que puede ir a la BD) dentro del pool.
+ *   • {@link #onFx} entrega el resultado en el hilo de JavaFX con
+ *     Platform.runLater, ya sin el envoltorio CompletionException.
+ *
+ * Coalescencia: mientras una lectura con la misma clave está en curso, las
+ * peticiones iguales reciben ese mismo resultado en lugar de lanzar otra
+ * consulta (diez clics en "Aplicar" son una consulta). La clave se libera
+ * antes de completar, así que la petición siguiente ya trae datos nuevos.
+ *
+ * Java 17 no tiene hilos virtuales: el pool es fijo y conviene que no pase de
+ * db.pool.maxSize, o los hilos de más solo esperarían una conexión.
+ */
+public final class TriageAsync {
+
+    /** Trabajo bloqueante (JDBC, archivos) que corre fuera del hilo de JavaFX. */
+    public interface Task<T> {
+        T call() throws Exception;
+    }
+
+    /** Recibe el resultado en el hilo de JavaFX; {@code error} es null si salió bien. */
+    public interface UiCallback<T> {
+        void done(T value, Throwable error);
+    }
+
+    private static TriageAsync instance;
+
+    public static synchronized TriageAsync getInstance() {
+        if (instance == null) instance = new TriageAsync();
+        return instance;
+    }
+
+    // Campos
+    private final ExecutorService io;
+
+    // Lecturas en curso por clave; protegida por su propio monitor
+    private final HashTable<Object, CompletableFuture<?>> inFlight = new HashTable<>();
+
+    private TriageAsync() {
+        int           threads = Math.max(1, AppConfig.getInt("ui.ioThreads", 4));
+        AtomicInteger counter = new AtomicInteger();
+        io = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "meditriage-io-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Lecturas (coalescidas)
+
+    /** Métricas del Dashboard. */
+    public CompletableFuture<TriageStats> stats() {
+        return read("stats", () -> service().getStats());
+    }
+
+    /** Paciente por ID: foto en memoria y, si no está en espera, la BD. */
+    public CompletableFuture<Patient> searchById(int id) {
+        return read("id:" + id, () -> service().searchById(id));
+    }
+
+    /** Nombres que contienen el texto (trie / trigramas, o LIKE en BD mientras el índice carga). */
+    public CompletableFuture<Patient[]> searchByNameContains(String text) {
+        return read("name:" + text, () -> service().searchByNameContains(text));
+    }
+
+    /** Página del historial a partir del cursor de {@code query}. */
+    public CompletableFuture<Patient[]> historyPage(AttendedQuery query, int pageSize) {
+        AttendedQuery page = query.limit(pageSize);
+        return read(page, () -> service().getDao().pageAttended(page, pageSize));
+    }
+
+    /**
+     * Ejecuta {@code task} en el pool de I/O. Si ya hay una con una clave
+     * igual (equals) en curso, devuelve su resultado en vez de repetirla.
+     * Cada llamador recibe su propia copia del futuro: cancelarla no afecta a
+     * los demás.
+     *
+     * @param key Identidad de la consulta; null = no coalescer.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> read(Object key, Task<T> task) {
+        CompletableFuture<T> created = new CompletableFuture<>();
+        if (key != null) {
+            synchronized (inFlight) {
+                CompletableFuture<?> running = inFlight.get(key);
+                if (running != null) return (CompletableFuture<T>) running.copy();
+                inFlight.put(key, created);
+            }
+        }
+
+        io.execute(() -> {
+            T         value = null;
+            Throwable error = null;
+            try {
+                value = task.call();
+            } catch (Throwable e) {
+                error = e;
+            }
+            if (key != null) {
+                synchronized (inFlight) {
+                    inFlight.remove(key);
+                }
+            }
+            if (error != null) created.completeExceptionally(error);
+            else               created.complete(value);
+        });
+        return created.copy();
+    }
+
+    // Mutaciones (nunca se coalescen: cada una es una acción distinta)
+
+    public CompletableFuture<Patient> registerPatient(String name, int age, String symptoms, int level) {
+        return CompletableFuture
+            .supplyAsync(() -> service().registerPatientAsync(name, age, symptoms, level), io)
+            .thenCompose(f -> f);
+    }
+
+    public CompletableFuture<Patient> attendNext() {
+        return service().attendNextAsync();
+    }
+
+    public CompletableFuture<Patient> retriage(int id, int level) {
+        return service().retriageAsync(id, level);
+    }
+
+    public CompletableFuture<String> undoLastAction() {
+        return service().undoLastActionAsync();
+    }
+
+    /** Se resuelve en cada uso: crear la fachada no fuerza la carga inicial del servicio. */
+    private static TriageService service() {
+        return TriageService.getInstance();
+    }
+
+    // Vuelta al hilo de JavaFX
+
+    /** Llama a {@code callback} en el hilo de JavaFX cuando {@code future} termina. */
+    public static <T> void onFx(CompletableFuture<T> future, UiCallback<T> callback) {
+        future.whenComplete((value, error) ->
+            Platform.runLater(() -> callback.done(value, unwrap(error))));
+    }
+
+    /** Mensaje legible de un error devuelto por {@link #onFx}. */
+    public static String message(Throwable error) {
+        return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) error = error.getCause();
+        return error;
+    }
+}
@@ -0,0 +1,110 @@
+package com.meditriage.controller;
+
+import com.meditriage.model.TriageEvent;
+import com.meditriage.service.TriageEventBus;
+import com.meditriage.service.TriageService;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+/**
+ * Puente entre el TriageEventBus y las vistas: junta los eventos que llegan
+ * del hilo escritor y los entrega en el hilo de JavaFX como máximo una vez
+ * por frame (pulso).
+ *
+ *   hilo escritor ──onEvents──▶ [ pendientes ] ──AnimationTimer──▶ vistas
+ *
+ * Una ráfaga (simulador, registro masivo, varios puestos) que cae entre dos
+ * frames se entrega como un solo arreglo: cada vista aplica sus cambios y la
+ * tabla se redibuja una vez, no una por evento. Sin eventos el temporizador
+ * está detenido y no cuesta nada.
+ *
+ * Las vistas se suscriben y desuscriben desde el hilo de JavaFX.
+ */
+public final class UiEventPump implements TriageEventBus.Listener {
+
+    private static UiEventPump instance;
+
+    /** La primera llamada suscribe el puente al bus del servicio. */
+    public static synchronized UiEventPump getInstance() {
+        if (instance == null) {
+            instance = new UiEventPump();
+            TriageService.getInstance().getEvents().subscribe(instance);
+        }
+        return instance;
+    }
+
+    // Pendientes: los escribe el hilo escritor y los vacía el de JavaFX (monitor: this)
+    private TriageEvent[] pending = new TriageEvent[64];
+    private int           pendingCount;
+    private boolean       scheduled;   // hay un pulso pedido que aún no entregó
+
+    // Vistas suscritas (solo hilo de JavaFX)
+    private TriageEventBus.Listener[] views = new TriageEventBus.Listener[0];
+
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            stop();
+            deliver();
+        }
+    };
+
+    private UiEventPump() { }
+
+    public void subscribe(TriageEventBus.Listener view) {
+        for (TriageEventBus.Listener v : views) if (v == view) return;
+        TriageEventBus.Listener[] next = new TriageEventBus.Listener[views.length + 1];
+        for (int i = 0; i < views.length; i++) next[i] = views[i];
+        next[views.length] = view;
+        views = next;
+    }
+
+    public void unsubscribe(TriageEventBus.Listener view) {
+        int at = -1;
+        for (int i = 0; i < views.length; i++) if (views[i] == view) at = i;
+        if (at < 0) return;
+        TriageEventBus.Listener[] next = new TriageEventBus.Listener[views.length - 1];
+        for (int i = 0, j = 0; i < views.length; i++) if (i != at) next[j++] = views[i];
+        views = next;
+    }
+
+    /** Hilo escritor: solo encola y, si no hay pulso pedido, pide uno. */
+    @Override
+    public void onEvents(TriageEvent[] events) {
+        boolean schedule;
+        synchronized (this) {
+            if (pendingCount + events.length > pending.length) {
+                TriageEvent[] grown = new TriageEvent[Math.max(pending.length * 2, pendingCount + events.length)];
+                for (int i = 0; i < pendingCount; i++) grown[i] = pending[i];
+                pending = grown;
+            }
+            for (TriageEvent e : events) pending[pendingCount++] = e;
+            schedule  = !scheduled;
+            scheduled = true;
+        }
+        // start() debe llamarse en el hilo de JavaFX; el timer dispara en el próximo frame
+        if (schedule) Platform.runLater(pulse::start);
+    }
+
+    /** Hilo de JavaFX, una vez por frame con eventos: entrega todo lo acumulado. */
+    private void deliver() {
+        TriageEvent[] batch;
+        synchronized (this) {
+            batch = new TriageEvent[pendingCount];
+            for (int i = 0; i < pendingCount; i++) {
+                batch[i]   = pending[i];
+                pending[i] = null;
+            }
+            pendingCount = 0;
+            scheduled    = false;
+        }
+        if (batch.length == 0) return;
+        for (TriageEventBus.Listener view : views) {
+            try {
+                view.onEvents(batch);
+            } catch (RuntimeException e) {
+                System.err.println("[UiEventPump] Error actualizando vista: " + e.getMessage());
+            }
+        }
+    }
+}
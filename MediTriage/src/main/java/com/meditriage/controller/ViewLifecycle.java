@@ -0,0 +1,14 @@
+package com.meditriage.controller;
+
+/**
+ * Ciclo de vida de una vista cacheada por MainController.
+ *
+ * Cada vista se construye una sola vez y se reutiliza al navegar: onShow()
+ * se llama al ponerla en pantalla (antes de refresh(), si es Refreshable) y
+ * onHide() al reemplazarla por otra. Entre ambas la vista puede tener
+ * temporizadores y suscripciones a eventos; oculta no debe tener ninguno.
+ */
+public interface ViewLifecycle {
+    void onShow();
+    void onHide();
+}
@@ -0,0 +1,215 @@
+package com.meditriage.database;
+
+import com.meditriage.model.Patient;
+import com.meditriage.structures.TextNormalizer;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Consulta tipada sobre el historial de atendidos.
+ *
+ *   AttendedQuery q = AttendedQuery.all()
+ *                                  .level(2)
+ *                                  .nameContains("lopez")
+ *                                  .period(HistoryPeriod.TODAY, LocalDateTime.now());
+ *   dao.pageAttended(q.after(cursor), 200);
+ *
+ * Genera SQL parametrizado con predicados que MySQL puede resolver por índice:
+ * igualdad sobre status/level y rango semiabierto sobre la columna sin
+ * funciones ({@code attended_at >= ? AND attended_at < ?}). Los valores nunca
+ * se concatenan: cada combinación de filtros presentes (la "forma") produce
+ * siempre el mismo texto SQL, que se arma una sola vez y la caché de
+ * statements del pool prepara una sola vez por conexión.
+ *
+ * Inmutable: cada método devuelve una copia, así una consulta con su ventana
+ * de tiempo ya resuelta sirve para todas las páginas y para la exportación.
+ */
+public final class AttendedQuery {
+
+    // Bits de forma: qué predicados lleva el SQL
+    private static final int LEVEL = 1;
+    private static final int NAME  = 2;
+    private static final int FROM  = 4;
+    private static final int TO    = 8;
+    private static final int AFTER = 16;
+    private static final int LIMIT = 32;
+
+    private static final String[] SQL_BY_SHAPE = new String[64];
+
+    private static final AttendedQuery ALL = new AttendedQuery(0, null, null, null, null, null, 0);
+
+    // Campos
+    private final int           level;        // 0 = todos
+    private final String        namePattern;  // patrón LIKE ya escapado, o null
+    private final String        nameFolded;   // el mismo texto plegado, para matches()
+    private final LocalDateTime from;         // inclusive, o null
+    private final LocalDateTime to;           // exclusivo, o null
+    private final HistoryCursor after;        // null = desde el principio
+    private final int           limit;        // 0 = sin límite
+
+    private AttendedQuery(int level, String namePattern, String nameFolded, LocalDateTime from,
+                          LocalDateTime to, HistoryCursor after, int limit) {
+        this.level       = level;
+        this.namePattern = namePattern;
+        this.nameFolded  = nameFolded;
+        this.from        = from;
+        this.to          = to;
+        this.after       = after;
+        this.limit       = limit;
+    }
+
+    /** Todos los atendidos, sin filtros. */
+    public static AttendedQuery all() { return ALL; }
+
+    // Filtros
+
+    /** 0 = todos los niveles; 1-5 = nivel exacto. */
+    public AttendedQuery level(int level) {
+        if (level < 0 || level > 5) throw new IllegalArgumentException("Nivel inválido: " + level);
+        return new AttendedQuery(level, namePattern, nameFolded, from, to, after, limit);
+    }
+
+    /** Nombre que contiene {@code text} (null o vacío = sin filtro); % y _ se toman literales. */
+    public AttendedQuery nameContains(String text) {
+        if (text == null || text.isBlank()) return new AttendedQuery(level, null, null, from, to, after, limit);
+        String pattern = "%" + escapeLike(text.trim()) + "%";
+        return new AttendedQuery(level, pattern, TextNormalizer.fold(text.trim()), from, to, after, limit);
+    }
+
+    /** Atendidos en [from, to); cualquiera de los dos puede ser null (sin límite). */
+    public AttendedQuery attendedBetween(LocalDateTime from, LocalDateTime to) {
+        return new AttendedQuery(level, namePattern, nameFolded, from, to, after, limit);
+    }
+
+    /** Período relativo a {@code now}, resuelto a un rango fijo en este momento. */
+    public AttendedQuery period(HistoryPeriod period, LocalDateTime now) {
+        return attendedBetween(period.from(now), period.to(now));
+    }
+
+    /** Solo filas posteriores a {@code cursor} en el orden del historial. */
+    public AttendedQuery after(HistoryCursor cursor) {
+        return new AttendedQuery(level, namePattern, nameFolded, from, to, cursor, limit);
+    }
+
+    /** Máximo de filas; 0 = sin límite. */
+    public AttendedQuery limit(int limit) {
+        if (limit < 0) throw new IllegalArgumentException("limit debe ser >= 0");
+        return new AttendedQuery(level, namePattern, nameFolded, from, to, after, limit);
+    }
+
+    public HistoryCursor getAfter() { return after; }
+    public int           getLimit() { return limit; }
+
+    /**
+     * Evalúa los filtros (nivel, nombre, rango de atención) sobre un paciente
+     * en memoria, sin cursor ni límite: sirve para decidir si una atención
+     * recién ocurrida entra en la vista. El nombre se compara plegado
+     * (minúsculas, sin tildes), como lo hace la intercalación de MySQL.
+     */
+    public boolean matches(Patient p) {
+        if (!"ATTENDED".equals(p.getStatus()) || p.getAttendedAt() == null) return false;
+        if (level > 0 && p.getLevel() != level)                             return false;
+        if (from != null && p.getAttendedAt().isBefore(from))               return false;
+        if (to != null && !p.getAttendedAt().isBefore(to))                  return false;
+        return nameFolded == null || TextNormalizer.fold(p.getName()).contains(nameFolded);
+    }
+
+    // SQL
+
+    /** Texto SQL de esta forma de consulta (el mismo para iguales filtros presentes). */
+    public String sql() {
+        int shape = shape();
+        String sql = SQL_BY_SHAPE[shape];
+        if (sql == null) {
+            sql = buildSql(shape);
+            SQL_BY_SHAPE[shape] = sql;   // carrera benigna: todos calculan el mismo String
+        }
+        return sql;
+    }
+
+    /** Asigna los parámetros en el mismo orden en que {@link #sql()} los declara. */
+    public void bind(PreparedStatement ps) throws SQLException {
+        int i = 1;
+        if (level > 0)           ps.setInt(i++, level);
+        if (from != null)        ps.setTimestamp(i++, Timestamp.valueOf(from));
+        if (to != null)          ps.setTimestamp(i++, Timestamp.valueOf(to));
+        if (after != null) {
+            Timestamp at = Timestamp.valueOf(after.getAttendedAt());
+            ps.setTimestamp(i++, at);
+            ps.setTimestamp(i++, at);
+            ps.setInt      (i++, after.getId());
+        }
+        if (namePattern != null) ps.setString(i++, namePattern);
+        if (limit > 0)           ps.setInt(i, limit);
+    }
+
+    private int shape() {
+        return (level > 0           ? LEVEL : 0)
+             | (namePattern != null ? NAME  : 0)
+             | (from != null        ? FROM  : 0)
+             | (to != null          ? TO    : 0)
+             | (after != null       ? AFTER : 0)
+             | (limit > 0           ? LIMIT : 0);
+    }
+
+    /**
+     * Los predicados de índice van primero (status, level, rango de
+     * attended_at, keyset); el LIKE '%...%' no puede usar índice y queda como
+     * filtro sobre las filas ya acotadas por el rango.
+     */
+    private static String buildSql(int shape) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(PatientDAO.SELECT_COLS)
+            .append(" FROM patients WHERE status='ATTENDED'");
+        if ((shape & LEVEL) != 0) sql.append(" AND level = ?");
+        if ((shape & FROM)  != 0) sql.append(" AND attended_at >= ?");
+        if ((shape & TO)    != 0) sql.append(" AND attended_at < ?");
+        if ((shape & AFTER) != 0) sql.append(" AND (attended_at < ? OR (attended_at = ? AND id < ?))");
+        if ((shape & NAME)  != 0) sql.append(" AND name LIKE ? ESCAPE '!'");
+        sql.append(" ORDER BY attended_at DESC, id DESC");
+        if ((shape & LIMIT) != 0) sql.append(" LIMIT ?");
+        return sql.toString();
+    }
+
+    /** Escapa los comodines de LIKE con '!' (no depende de NO_BACKSLASH_ESCAPES). */
+    private static String escapeLike(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 4);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '!' || c == '%' || c == '_') sb.append('!');
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /** Iguales si generan el mismo SQL con los mismos valores (sirve de clave de caché). */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AttendedQuery q)) return false;
+        return level == q.level && limit == q.limit
+            && same(namePattern, q.namePattern) && same(from, q.from)
+            && same(to, q.to) && same(after, q.after);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = level;
+        h = 31 * h + (namePattern == null ? 0 : namePattern.hashCode());
+        h = 31 * h + (from        == null ? 0 : from.hashCode());
+        h = 31 * h + (to          == null ? 0 : to.hashCode());
+        h = 31 * h + (after       == null ? 0 : after.hashCode());
+        return 31 * h + limit;
+    }
+
+    private static boolean same(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    @Override
+    public String toString() {
+        return "AttendedQuery{" + sql() + "}";
+    }
+}
@@ -0,0 +1,420 @@
+package com.meditriage.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool acotado de conexiones JDBC implementado desde cero.
+ *
+ * Las conexiones físicas se reutilizan entre llamadas del DAO, evitando el
+ * handshake TCP + autenticación de MySQL en cada insert/update/consulta.
+ * Almacenamiento en arreglos nativos (sin java.util), sincronización con el
+ * monitor del propio pool.
+ *
+ *   • borrow()  — entrega una conexión ociosa (validada) o crea una nueva
+ *                 mientras no se supere maxSize; si no, espera hasta maxWaitMs.
+ *   • close()   — sobre la conexión entregada la devuelve al pool.
+ *   • Hilo de mantenimiento: desaloja conexiones ociosas (idleTimeoutMs),
+ *     repone el mínimo (minSize) y detecta fugas (leakThresholdMs). La
+ *     detección solo usa la hora del préstamo; la pila de quien la pidió
+ *     (un Throwable por préstamo) se captura solo con leakTraces.
+ *   • Cada conexión física lleva su StatementCache (LRU de PreparedStatement).
+ */
+final class ConnectionPool {
+
+    // Configuración
+    private final String     url;
+    private final Properties driverProps;  // user/password + opciones del driver
+    private final int    minSize;
+    private final int    maxSize;
+    private final long   maxWaitMs;
+    private final long   idleTimeoutMs;
+    private final long   leakThresholdMs;
+    private final boolean leakTraces;      // capturar la pila de cada préstamo
+    private final long   validationIntervalMs;
+    private final int    validationTimeoutSec;
+    private final int    statementCacheSize;
+
+    // Estado (protegido por el monitor del pool)
+    private final PooledConnection[] idle;    // pila LIFO de conexiones ociosas
+    private final PooledConnection[] active;  // conexiones prestadas (para fugas)
+    private int     idleCount;
+    private int     activeCount;
+    private int     totalCount;               // ociosas + prestadas + en creación
+    private boolean closed;
+
+    // Métricas
+    private long borrowCount;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private int  timeouts;
+    private int  leaksDetected;
+    private int  evictedCount;
+    private final AtomicLong stmtCacheHits   = new AtomicLong();
+    private final AtomicLong stmtCacheMisses = new AtomicLong();
+
+    ConnectionPool(String url, String user, String password,
+                   int minSize, int maxSize, long maxWaitMs, long idleTimeoutMs,
+                   long leakThresholdMs, boolean leakTraces, long validationIntervalMs, int validationTimeoutSec,
+                   int statementCacheSize, boolean serverPrepStmts, boolean rewriteBatches,
+                   boolean cursorFetch) {
+        if (maxSize < 1) throw new IllegalArgumentException("db.pool.maxSize debe ser >= 1");
+        this.url         = url;
+        this.driverProps = new Properties();
+        if (user     != null) driverProps.setProperty("user",     user);
+        if (password != null) driverProps.setProperty("password", password);
+        // Prepares en el servidor (Connector/J): combinados con la caché, el
+        // SQL se parsea una sola vez por conexión y cada ejecución envía solo parámetros
+        if (serverPrepStmts) driverProps.setProperty("useServerPrepStmts", "true");
+        // executeBatch de INSERT se reescribe como un único INSERT multi-fila
+        if (rewriteBatches)  driverProps.setProperty("rewriteBatchedStatements", "true");
+        // Un setFetchSize positivo abre un cursor en el servidor; solo lo fijan
+        // los recorridos en streaming (DatabaseConnection.fetchSize), el resto
+        // de las consultas se trae entera como siempre
+        if (cursorFetch)     driverProps.setProperty("useCursorFetch", "true");
+        this.maxSize              = maxSize;
+        this.minSize              = Math.max(0, Math.min(minSize, maxSize));
+        this.maxWaitMs            = maxWaitMs;
+        this.idleTimeoutMs        = idleTimeoutMs;
+        this.leakThresholdMs      = leakThresholdMs;
+        this.leakTraces           = leakTraces && leakThresholdMs > 0;
+        this.validationIntervalMs = validationIntervalMs;
+        this.validationTimeoutSec = validationTimeoutSec;
+        this.statementCacheSize   = statementCacheSize;
+        this.idle   = new PooledConnection[maxSize];
+        this.active = new PooledConnection[maxSize];
+    }
+
+    // API
+
+    /**
+     * Presta una conexión del pool.
+     * El llamador debe cerrarla (try-with-resources) para devolverla.
+     *
+     * @throws SQLException si no hay conexión disponible dentro de maxWaitMs.
+     */
+    Connection borrow() throws SQLException {
+        long start    = System.nanoTime();
+        long deadline = start + maxWaitMs * 1_000_000L;
+
+        PooledConnection pc = null;
+        while (pc == null) {
+            boolean create = false;
+            synchronized (this) {
+                if (closed) throw new SQLException("El pool de conexiones está cerrado");
+                while (idleCount == 0 && totalCount >= maxSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts++;
+                        throw new SQLException("Tiempo de espera agotado (" + maxWaitMs
+                            + " ms) esperando una conexión del pool (máx " + maxSize + ")");
+                    }
+                    try {
+                        wait(Math.max(1, remaining / 1_000_000L));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrumpido esperando una conexión del pool", e);
+                    }
+                }
+                if (idleCount > 0) {
+                    pc = idle[--idleCount];
+                    idle[idleCount] = null;
+                } else {
+                    totalCount++;
+                    create = true;
+                }
+            }
+
+            if (create) {
+                pc = openPhysical();
+            } else if (!isAlive(pc)) {
+                discard(pc);
+                pc = null;
+            }
+        }
+
+        long waited = System.nanoTime() - start;
+        synchronized (this) {
+            pc.borrowedAt   = System.currentTimeMillis();
+            pc.borrowTrace  = leakTraces ? new Throwable("Conexión prestada aquí") : null;
+            pc.leakReported = false;
+            active[activeCount++] = pc;
+            borrowCount++;
+            totalWaitNanos += waited;
+            if (waited > maxWaitNanos) maxWaitNanos = waited;
+        }
+        return pc.newLease();
+    }
+
+    /** Retorna una instantánea de las métricas del pool. */
+    synchronized PoolStats stats() {
+        double avgWaitMs = borrowCount == 0 ? 0 : (totalWaitNanos / (double) borrowCount) / 1_000_000.0;
+        return new PoolStats(activeCount, idleCount, totalCount, maxSize, borrowCount,
+                avgWaitMs, maxWaitNanos / 1_000_000.0, timeouts, leaksDetected, evictedCount,
+                stmtCacheHits.get(), stmtCacheMisses.get());
+    }
+
+    /** Arranca el hilo de mantenimiento (desalojo, mínimo y detección de fugas). */
+    void startHousekeeping() {
+        long period = 5_000;
+        if (idleTimeoutMs   > 0) period = Math.min(period, Math.max(250, idleTimeoutMs / 2));
+        if (leakThresholdMs > 0) period = Math.min(period, Math.max(250, leakThresholdMs / 2));
+        final long sleepMs = period;
+
+        Thread t = new Thread(() -> {
+            while (true) {
+                housekeep();
+                try {
+                    Thread.sleep(sleepMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                synchronized (this) {
+                    if (closed) return;
+                }
+            }
+        }, "meditriage-pool-housekeeper");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** Cierra todas las conexiones ociosas; las prestadas se cierran al devolverse. */
+    void close() {
+        PooledConnection[] toClose;
+        synchronized (this) {
+            closed  = true;
+            toClose = new PooledConnection[idleCount];
+            for (int i = 0; i < idleCount; i++) { toClose[i] = idle[i]; idle[i] = null; }
+            totalCount -= idleCount;
+            idleCount = 0;
+            notifyAll();
+        }
+        for (PooledConnection pc : toClose) closeQuietly(pc);
+    }
+
+    // Préstamo / devolución
+
+    /** Devuelve la conexión al pool (invocado por close() del proxy). */
+    private void release(PooledConnection pc) {
+        boolean reusable = resetState(pc);
+        synchronized (this) {
+            removeActive(pc);
+            pc.borrowTrace = null;
+            if (reusable && !closed) {
+                pc.lastUsedAt = System.currentTimeMillis();
+                idle[idleCount++] = pc;
+                notifyAll();
+                return;
+            }
+            totalCount--;
+            notifyAll();
+        }
+        closeQuietly(pc);
+    }
+
+    /** Deja la conexión lista para el siguiente préstamo. */
+    private boolean resetState(PooledConnection pc) {
+        try {
+            if (pc.physical.isClosed()) return false;
+            if (!pc.physical.getAutoCommit()) {
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+            pc.physical.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection openPhysical() throws SQLException {
+        try {
+            return new PooledConnection(DriverManager.getConnection(url, driverProps));
+        } catch (SQLException e) {
+            synchronized (this) {
+                totalCount--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    /** Validación al prestar; se omite si la conexión se usó hace muy poco. */
+    private boolean isAlive(PooledConnection pc) {
+        if (System.currentTimeMillis() - pc.lastUsedAt < validationIntervalMs) return true;
+        try {
+            return pc.physical.isValid(validationTimeoutSec);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection pc) {
+        closeQuietly(pc);
+        synchronized (this) {
+            totalCount--;
+            notifyAll();
+        }
+    }
+
+    private void removeActive(PooledConnection pc) {
+        for (int i = 0; i < activeCount; i++) {
+            if (active[i] == pc) {
+                active[i] = active[--activeCount];
+                active[activeCount] = null;
+                return;
+            }
+        }
+    }
+
+    // Mantenimiento
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        // 1) Desalojo de ociosas por encima del mínimo
+        PooledConnection[] evicted = new PooledConnection[maxSize];
+        int evictedNow = 0;
+        synchronized (this) {
+            if (idleTimeoutMs > 0) {
+                // El fondo de la pila LIFO contiene las menos usadas recientemente
+                int i = 0;
+                while (i < idleCount && totalCount > minSize) {
+                    if (now - idle[i].lastUsedAt >= idleTimeoutMs) {
+                        evicted[evictedNow++] = idle[i];
+                        for (int j = i; j < idleCount - 1; j++) idle[j] = idle[j + 1];
+                        idle[--idleCount] = null;
+                        totalCount--;
+                    } else {
+                        i++;
+                    }
+                }
+                evictedCount += evictedNow;
+            }
+
+            // 2) Detección de fugas
+            if (leakThresholdMs > 0) {
+                for (int i = 0; i < activeCount; i++) {
+                    PooledConnection pc = active[i];
+                    if (!pc.leakReported && now - pc.borrowedAt >= leakThresholdMs) {
+                        pc.leakReported = true;
+                        leaksDetected++;
+                        System.err.println("[Pool] Posible fuga: conexión prestada hace "
+                            + (now - pc.borrowedAt) + " ms sin devolverse.");
+                        if (pc.borrowTrace != null) pc.borrowTrace.printStackTrace();
+                        else System.err.println("[Pool] Activar db.pool.leakTraces para ver dónde se pidió.");
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < evictedNow; i++) closeQuietly(evicted[i]);
+
+        // 3) Reponer el mínimo de conexiones
+        while (true) {
+            synchronized (this) {
+                if (closed || totalCount >= minSize) return;
+                totalCount++;
+            }
+            PooledConnection pc;
+            try {
+                pc = openPhysical();
+            } catch (SQLException e) {
+                return; // BD no disponible: se reintenta en el próximo ciclo
+            }
+            synchronized (this) {
+                pc.lastUsedAt = System.currentTimeMillis();
+                idle[idleCount++] = pc;
+                notifyAll();
+            }
+        }
+    }
+
+    private static void closeQuietly(PooledConnection pc) {
+        pc.statements.closeAll();
+        try {
+            pc.physical.close();
+        } catch (SQLException ignored) {
+            // la conexión ya no es utilizable
+        }
+    }
+
+    // Conexión física + préstamos
+
+    /** Conexión física gestionada por el pool. */
+    private final class PooledConnection {
+        final Connection     physical;
+        final StatementCache statements;
+        long      lastUsedAt;
+        long      borrowedAt;
+        Throwable borrowTrace;
+        boolean   leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical   = physical;
+            this.statements = new StatementCache(statementCacheSize, stmtCacheHits, stmtCacheMisses);
+            this.lastUsedAt = System.currentTimeMillis();
+        }
+
+        /** Crea un proxy nuevo por préstamo: un proxy cerrado no puede reutilizarse. */
+        Connection newLease() {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new Lease(this));
+        }
+    }
+
+    /**
+     * Manejador del proxy: close() devuelve al pool, prepareStatement(sql) y
+     * prepareStatement(sql, autoGeneratedKeys) pasan por la caché; el resto delega.
+     */
+    private final class Lease implements InvocationHandler {
+        private PooledConnection pc;
+
+        Lease(PooledConnection pc) { this.pc = pc; }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (pc != null) {
+                        PooledConnection owned = pc;
+                        pc = null;
+                        release(owned);
+                    }
+                    return null;
+                case "isClosed":
+                    return pc == null || pc.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + (pc == null ? "devuelta" : pc.physical) + "]";
+                default:
+                    break;
+            }
+            if (pc == null) throw new SQLException("La conexión ya fue devuelta al pool");
+            if ("prepareStatement".equals(name) && args[0] instanceof String sql) {
+                if (args.length == 1)
+                    return pc.statements.prepare(pc.physical, sql, Statement.NO_GENERATED_KEYS);
+                if (args.length == 2 && args[1] instanceof Integer keys)
+                    return pc.statements.prepare(pc.physical, sql, keys);
+            }
+            try {
+                return method.invoke(pc.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.meditriage.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Origen de conexiones para los componentes que escriben en segundo plano
+ * (journal, asignador de IDs). En la aplicación es el pool
+ * ({@code DatabaseConnection::getConnection}); las pruebas pasan uno propio.
+ */
+interface ConnectionSource {
+    Connection get() throws SQLException;
+}
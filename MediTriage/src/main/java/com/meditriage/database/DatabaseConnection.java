@@ -1,52 +1,78 @@
 package com.meditriage.database;
 
-import java.io.IOException;
-import java.io.InputStream;
+import com.meditriage.AppConfig;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.Properties;
 
 /**
  * Gestiona la conexión JDBC a MySQL.
  *
- * Las credenciales se leen de {@code /app.properties} en el classpath,
- * evitando hard-code de contraseñas en el código fuente.
+ * Las credenciales y el tamaño del pool se leen de {@code /app.properties}
+ * (vía AppConfig), evitando hard-code de contraseñas en el código fuente.
  *
- * Patrón: conexión directa (sin pool) adecuada para aplicaciones de escritorio
- * con un único usuario concurrente.
+ * Patrón: pool acotado propio (ConnectionPool). Cada getConnection() presta una
+ * conexión física ya abierta; cerrarla la devuelve al pool en lugar de
+ * cortar la sesión con MySQL. Cada conexión cachea sus PreparedStatement.
  */
 public class DatabaseConnection {
 
-    private static String url;
-    private static String user;
-    private static String password;
+    private static final ConnectionPool pool;
+
+    // Filas por viaje en los recorridos en streaming (con useCursorFetch del driver)
+    private static final int FETCH_SIZE = AppConfig.getInt("db.fetchSize", 500);
 
-    // Carga las propiedades una sola vez al inicializar la clase
+    // Crea el pool una sola vez al inicializar la clase
     static {
-        try (InputStream is = DatabaseConnection.class
-                .getResourceAsStream("/app.properties")) {
-            if (is == null) {
-                throw new RuntimeException(
-                    "No se encontró /app.properties en el classpath. " +
-                    "Copia src/main/resources/app.properties y configura las credenciales.");
-            }
-            Properties props = new Properties();
-            props.load(is);
-            url      = props.getProperty("db.url");
-            user     = props.getProperty("db.user");
-            password = props.getProperty("db.password");
-        } catch (IOException e) {
-            throw new RuntimeException("Error leyendo app.properties: " + e.getMessage(), e);
-        }
+        pool = new ConnectionPool(
+            AppConfig.get("db.url"),
+            AppConfig.get("db.user"),
+            AppConfig.get("db.password"),
+            AppConfig.getInt ("db.pool.minSize",              2),
+            AppConfig.getInt ("db.pool.maxSize",              8),
+            AppConfig.getLong("db.pool.maxWaitMs",            5_000),
+            AppConfig.getLong("db.pool.idleTimeoutMs",        300_000),
+            AppConfig.getLong("db.pool.leakThresholdMs",      30_000),
+            Boolean.parseBoolean(AppConfig.get("db.pool.leakTraces", "false")),
+            AppConfig.getLong("db.pool.validationIntervalMs", 500),
+            AppConfig.getInt ("db.pool.validationTimeoutSec", 2),
+            AppConfig.getInt ("db.statementCache.size",       32),
+            Boolean.parseBoolean(AppConfig.get("db.serverPrepStmts", "true")),
+            Boolean.parseBoolean(AppConfig.get("db.rewriteBatchedStatements", "true")),
+            Boolean.parseBoolean(AppConfig.get("db.useCursorFetch", "true"))
+        );
+        pool.startHousekeeping();
     }
 
     /**
-     * Abre y retorna una nueva conexión a la base de datos.
-     * El llamador es responsable de cerrarla (try-with-resources recomendado).
+     * Presta una conexión del pool.
+     * El llamador es responsable de cerrarla (try-with-resources recomendado);
+     * cerrar la conexión la devuelve al pool.
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url, user, password);
+        return pool.borrow();
+    }
+
+    /**
+     * Fetch size para un recorrido en streaming de a lo sumo {@code limit}
+     * filas (0 = sin límite). Con useCursorFetch un fetch size positivo abre
+     * un cursor en el servidor y trae las filas por bloques, así la memoria
+     * queda acotada aunque el resultado tenga millones de filas. Si el
+     * resultado cabe en un bloque devuelve 0: se trae entero en un viaje, sin
+     * cursor. Las sentencias se cachean, así que hay que fijarlo siempre.
+     */
+    public static int fetchSize(int limit) {
+        return limit == 0 || limit > FETCH_SIZE ? FETCH_SIZE : 0;
+    }
+
+    /** Métricas actuales del pool (activas, ociosas, tiempos de espera). */
+    public static PoolStats poolStats() {
+        return pool.stats();
+    }
+
+    /** Cierra las conexiones ociosas del pool (al salir de la aplicación). */
+    public static void shutdown() {
+        pool.close();
     }
 
     /**
@@ -0,0 +1,51 @@
+package com.meditriage.database;
+
+import com.meditriage.model.Patient;
+
+import java.time.LocalDateTime;
+
+/**
+ * Posición en el historial de atendidos, ordenado por
+ * (attended_at DESC, id DESC): la última fila ya entregada.
+ *
+ * La página siguiente pide las filas estrictamente posteriores a esta
+ * posición (keyset), de modo que el costo no crece con la profundidad como
+ * con OFFSET y las altas concurrentes no duplican ni saltan filas.
+ * Inmutable.
+ */
+public final class HistoryCursor {
+
+    private final LocalDateTime attendedAt;
+    private final int           id;
+
+    public HistoryCursor(LocalDateTime attendedAt, int id) {
+        if (attendedAt == null) throw new IllegalArgumentException("attendedAt no puede ser null");
+        this.attendedAt = attendedAt;
+        this.id         = id;
+    }
+
+    /** Cursor situado justo después del paciente dado. */
+    public static HistoryCursor after(Patient p) {
+        return new HistoryCursor(p.getAttendedAt(), p.getId());
+    }
+
+    public LocalDateTime getAttendedAt() { return attendedAt; }
+    public int           getId()         { return id; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HistoryCursor c)) return false;
+        return id == c.id && attendedAt.equals(c.attendedAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * attendedAt.hashCode() + id;
+    }
+
+    @Override
+    public String toString() {
+        return "HistoryCursor{" + attendedAt + ", id=" + id + "}";
+    }
+}
@@ -0,0 +1,48 @@
+package com.meditriage.database;
+
+import java.time.LocalDateTime;
+
+/**
+ * Período de atención para filtrar el historial.
+ *
+ * Se traduce a un rango semiabierto [desde, hasta) calculado en la aplicación,
+ * así la consulta compara la columna tal cual ({@code attended_at >= ? AND
+ * attended_at < ?}) y MySQL puede recorrer el índice, en lugar de aplicar
+ * {@code DATE(attended_at)} a cada fila. Las fechas se calculan con el mismo
+ * reloj con el que se guardan (LocalDateTime.now()).
+ */
+public enum HistoryPeriod {
+
+    TODAY("Hoy"),
+    LAST_HOUR("Última hora"),
+    ALL("Todo");
+
+    private final String label;
+
+    HistoryPeriod(String label) {
+        this.label = label;
+    }
+
+    /** Texto para la UI. */
+    public String getLabel() { return label; }
+
+    /** Inicio del rango (inclusive), o null si no hay límite inferior. */
+    public LocalDateTime from(LocalDateTime now) {
+        return switch (this) {
+            case TODAY     -> now.toLocalDate().atStartOfDay();
+            case LAST_HOUR -> now.minusHours(1);
+            case ALL       -> null;
+        };
+    }
+
+    /** Fin del rango (exclusivo), o null si no hay límite superior. */
+    public LocalDateTime to(LocalDateTime now) {
+        return this == TODAY ? now.toLocalDate().plusDays(1).atStartOfDay() : null;
+    }
+
+    /** Período cuyo texto es {@code label}; ALL si no coincide ninguno. */
+    public static HistoryPeriod fromLabel(String label) {
+        for (HistoryPeriod p : values()) if (p.label.equals(label)) return p;
+        return ALL;
+    }
+}
@@ -0,0 +1,223 @@
+package com.meditriage.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Asignador de IDs hi/lo respaldado por la tabla {@code id_sequences}.
+ *
+ * Reserva bloques de {@code blockSize} IDs con una sola transacción
+ * (SELECT ... FOR UPDATE + UPDATE) y los entrega localmente sin tocar la BD.
+ * Siempre intenta tener un bloque de repuesto pre-reservado en segundo plano:
+ * al agotarse el actual se pasa al repuesto sin esperar a MySQL, y una caída
+ * de la BD no corta los registros mientras quede repuesto. La pre-reserva
+ * corre en un único hilo daemon y, si falla, no se reintenta hasta pasado
+ * {@code PREFETCH_RETRY_MS}: durante una caída cada registro no lanza su
+ * propio intento.
+ *
+ * El monitor solo protege los contadores: ninguna ida a la BD ocurre con él
+ * tomado. Si se agotan ambos bloques, un solo llamador reserva (fuera del
+ * monitor) y los demás esperan ese resultado; si falla y la BD sigue en su
+ * ventana de reintento, fallan de inmediato en lugar de repetir el intento.
+ *
+ * Reinicios: la tabla siempre guarda el primer ID no reservado, así que un
+ * bloque nunca se entrega dos veces (los IDs no usados de un bloque se pierden,
+ * como en todo esquema hi/lo). recover() eleva además la secuencia por encima
+ * del mayor ID existente (filas creadas con AUTO_INCREMENT o por el journal).
+ */
+public class IdAllocator {
+
+    private static final long PREFETCH_RETRY_MS = 2000;
+
+    private final String           sequence;
+    private final int              blockSize;
+    private final ConnectionSource connections;
+
+    // Bloque actual [next, limit) y bloque de repuesto (protegidos por el monitor)
+    private long    next;
+    private long    limit;
+    private long    prefetchedStart = -1;
+    private boolean reserving;         // hay una reserva en curso (pre-reserva o síncrona)
+    private long    prefetchRetryAt;   // System.nanoTime() desde el que se puede reintentar
+    private ExecutorService prefetcher;
+
+    // Marca de agua pendiente si la BD no estaba disponible al arrancar
+    private long    pendingFloor = -1;
+
+    public IdAllocator(String sequence, int blockSize) {
+        this(sequence, blockSize, DatabaseConnection::getConnection);
+    }
+
+    IdAllocator(String sequence, int blockSize, ConnectionSource connections) {
+        this.sequence        = sequence;
+        this.blockSize       = Math.max(1, blockSize);
+        this.connections     = connections;
+        this.prefetchRetryAt = System.nanoTime();   // nanoTime puede ser negativo: no partir de 0
+    }
+
+    /**
+     * Recupera la marca de agua al arrancar: garantiza que la secuencia entregue
+     * IDs mayores o iguales a {@code floor}. Si la BD no responde, se reintenta
+     * antes de la primera reserva.
+     */
+    public void recover(long floor) {
+        try (Connection conn = connections.get()) {
+            raiseFloor(conn, floor);
+            synchronized (this) { pendingFloor = -1; }
+        } catch (SQLException e) {
+            System.err.println("[IdAllocator] No se pudo recuperar la secuencia '" + sequence
+                + "'; se reintentará: " + e.getMessage());
+            synchronized (this) { pendingFloor = floor; }
+        }
+    }
+
+    /**
+     * Entrega el siguiente ID. Solo consulta la BD si el bloque actual y el de
+     * repuesto se agotaron, y nunca con el monitor tomado.
+     *
+     * @throws SQLException si hace falta reservar y la BD no está disponible.
+     */
+    public int nextId() throws SQLException {
+        while (true) {
+            synchronized (this) {
+                while (next >= limit) {
+                    if (prefetchedStart >= 0) {
+                        install(prefetchedStart);
+                        prefetchedStart = -1;
+                    } else if (reserving) {
+                        awaitReservation();
+                    } else if (System.nanoTime() - prefetchRetryAt < 0) {
+                        throw unavailable();    // falló hace poco: no reintentar en cada registro
+                    } else {
+                        break;                  // nadie trae un bloque: reserva este llamador
+                    }
+                }
+                if (next < limit) {
+                    int id = (int) next++;
+                    if (prefetchedStart < 0 && !reserving && System.nanoTime() - prefetchRetryAt >= 0) {
+                        startPrefetch();
+                    }
+                    return id;
+                }
+                reserving = true;
+            }
+            reserveNow();
+        }
+    }
+
+    /** Espera la reserva en curso (con el monitor tomado, que wait() suelta). */
+    private void awaitReservation() throws SQLException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando la reserva de IDs", e);
+        }
+    }
+
+    private SQLException unavailable() {
+        return new SQLTransientConnectionException(
+            "BD no disponible para reservar IDs de '" + sequence + "'", "08001");
+    }
+
+    /** Reserva síncrona, fuera del monitor; quien la lanza marcó {@code reserving}. */
+    private void reserveNow() throws SQLException {
+        long start = -1;
+        try {
+            start = reserveBlock();
+        } finally {
+            synchronized (this) {
+                if (start >= 0) install(start);
+                else            prefetchRetryAt = System.nanoTime() + PREFETCH_RETRY_MS * 1_000_000L;
+                reserving = false;
+                notifyAll();
+            }
+        }
+    }
+
+    // Reserva de bloques
+
+    private void install(long start) {
+        next  = start;
+        limit = start + blockSize;
+    }
+
+    /** Pre-reserva el bloque de repuesto en el hilo daemon (con el monitor tomado). */
+    private void startPrefetch() {
+        reserving = true;
+        if (prefetcher == null) {
+            prefetcher = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "meditriage-id-prefetch");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        prefetcher.execute(() -> {
+            long start = -1;
+            try {
+                start = reserveBlock();
+            } catch (SQLException e) {
+                System.err.println("[IdAllocator] Pre-reserva fallida: " + e.getMessage());
+            }
+            synchronized (this) {
+                if (start >= 0) prefetchedStart = start;
+                else            prefetchRetryAt = System.nanoTime() + PREFETCH_RETRY_MS * 1_000_000L;
+                reserving = false;
+                notifyAll();
+            }
+        });
+    }
+
+    /** Reserva {@code blockSize} IDs y retorna el primero del bloque. */
+    private long reserveBlock() throws SQLException {
+        String select = "SELECT next_val FROM id_sequences WHERE name=? FOR UPDATE";
+        String update = "UPDATE id_sequences SET next_val = next_val + ? WHERE name=?";
+
+        try (Connection conn = connections.get()) {
+            long floor;
+            synchronized (this) { floor = pendingFloor; }
+            if (floor >= 0) {
+                raiseFloor(conn, floor);
+                synchronized (this) { if (pendingFloor == floor) pendingFloor = -1; }
+            }
+
+            conn.setAutoCommit(false);
+            try {
+                long start;
+                try (PreparedStatement ps = conn.prepareStatement(select)) {
+                    ps.setString(1, sequence);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) throw new SQLException("Secuencia inexistente: " + sequence);
+                        start = rs.getLong(1);
+                    }
+                }
+                try (PreparedStatement ps = conn.prepareStatement(update)) {
+                    ps.setInt   (1, blockSize);
+                    ps.setString(2, sequence);
+                    ps.executeUpdate();
+                }
+                conn.commit();
+                return start;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /** Crea la fila de la secuencia si falta y la eleva a {@code floor} como mínimo. */
+    private void raiseFloor(Connection conn, long floor) throws SQLException {
+        String upsert = "INSERT INTO id_sequences (name, next_val) VALUES (?, ?) " +
+                        "ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val))";
+        try (PreparedStatement ps = conn.prepareStatement(upsert)) {
+            ps.setString(1, sequence);
+            ps.setLong  (2, Math.max(1, floor));
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.meditriage.database;
+
+import com.meditriage.model.Patient;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registro inmutable del journal de persistencia (write-behind).
+ *
+ * Cada mutación del TriageService se describe con uno de estos registros antes
+ * de llegar a MySQL. Todas las operaciones son idempotentes, de modo que
+ * reaplicar el journal completo en orden deja la BD en el mismo estado.
+ *
+ *   INSERT → upsert del paciente completo (ID asignado en la aplicación)
+ *   ATTEND → status ATTENDED + attended_at
+ *   REVERT → status WAITING + attended_at NULL (undo de ATTEND)
+ *   DELETE → borrado físico (undo de REGISTER)
+ *   RETRIAGE → nuevo nivel de triage (también su undo, con el nivel anterior)
+ */
+public final class JournalRecord {
+
+    public enum Type { INSERT, ATTEND, REVERT, DELETE, RETRIAGE }
+
+    // Campos
+    private final Type          type;
+    private final long          seq;        // orden total dentro del journal
+    private final int           patientId;
+    private final Patient       patient;    // solo INSERT (copia al momento del append)
+    private final LocalDateTime attendedAt; // solo ATTEND
+    private final int           level;      // solo RETRIAGE
+
+    JournalRecord(Type type, long seq, int patientId, Patient patient, LocalDateTime attendedAt) {
+        this(type, seq, patientId, patient, attendedAt, 0);
+    }
+
+    JournalRecord(Type type, long seq, int patientId, Patient patient,
+                  LocalDateTime attendedAt, int level) {
+        this.type       = type;
+        this.seq        = seq;
+        this.patientId  = patientId;
+        this.patient    = patient;
+        this.attendedAt = attendedAt;
+        this.level      = level;
+    }
+
+    // Getters
+    public Type          getType()       { return type; }
+    public long          getSeq()        { return seq; }
+    public int           getPatientId()  { return patientId; }
+    public Patient       getPatient()    { return patient; }
+    public LocalDateTime getAttendedAt() { return attendedAt; }
+    public int           getLevel()      { return level; }
+
+    /** Copia del paciente para que mutaciones posteriores no alteren el registro. */
+    static Patient copyOf(Patient p) {
+        return new Patient(p.getId(), p.getName(), p.getAge(), p.getSymptoms(), p.getLevel(),
+                p.getStatus(), p.getArrivalAt(), p.getAttendedAt(), p.getCreatedAt());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("JournalRecord[%s, seq=%d, id=%d]", type, seq, patientId);
+    }
+}
@@ -9,31 +9,46 @@ import java.time.LocalDateTime;
  * Data Access Object para la entidad Patient.
  *
  * Todas las operaciones usan PreparedStatement para prevenir SQL Injection.
+ * Los SQL son constantes: la caché de statements del pool los prepara una sola
+ * vez por conexión y las llamadas siguientes solo envían parámetros.
  * Los arreglos nativos Patient[] se usan en lugar de ArrayList (regla del proyecto).
  */
 public class PatientDAO {
 
-    // Columnas comunes
-    private static final String SELECT_COLS =
+    /** Recibe las filas de una consulta en streaming; retornar false detiene la lectura. */
+    public interface RowHandler {
+        boolean accept(Patient p);
+    }
+
+    // Columnas comunes (también las usa AttendedQuery)
+    static final String SELECT_COLS =
         "id, name, age, symptoms, level, status, arrival_at, attended_at, created_at";
 
+    // Sentencias reutilizadas por las variantes individuales y por lotes
+    private static final String INSERT_AUTO_SQL =
+        "INSERT INTO patients (name, age, symptoms, level, status, arrival_at, created_at) " +
+        "VALUES (?, ?, ?, ?, 'WAITING', ?, ?)";
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO patients (id, name, age, symptoms, level, status, " +
+        "arrival_at, attended_at, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE name=VALUES(name), age=VALUES(age), " +
+        "symptoms=VALUES(symptoms), level=VALUES(level), status=VALUES(status), " +
+        "arrival_at=VALUES(arrival_at), attended_at=VALUES(attended_at)";
+
+    private static final String ATTEND_SQL =
+        "UPDATE patients SET status='ATTENDED', attended_at=? WHERE id=?";
+
     // INSERT
 
     /**
      * Persiste un nuevo paciente y retorna el ID generado por AUTO_INCREMENT.
      */
     public int insertPatient(Patient p) {
-        String sql = "INSERT INTO patients (name, age, symptoms, level, status, arrival_at, created_at) " +
-                     "VALUES (?, ?, ?, ?, 'WAITING', ?, ?)";
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            ps.setString(1, p.getName());
-            ps.setInt   (2, p.getAge());
-            ps.setString(3, p.getSymptoms());
-            ps.setInt   (4, p.getLevel());
-            ps.setTimestamp(5, Timestamp.valueOf(p.getArrivalAt()));
-            ps.setTimestamp(6, Timestamp.valueOf(p.getCreatedAt()));
+             PreparedStatement ps = conn.prepareStatement(INSERT_AUTO_SQL, Statement.RETURN_GENERATED_KEYS)) {
+
+            bindInsertAuto(ps, p);
             ps.executeUpdate();
 
             try (ResultSet rs = ps.getGeneratedKeys()) {
@@ -45,23 +60,148 @@ public class PatientDAO {
         return -1;
     }
 
+    /**
+     * Inserta un paciente con ID ya asignado por la aplicación, o lo actualiza si
+     * ya existe. Idempotente: usado al vaciar/reproducir el journal.
+     */
+    public boolean upsertPatient(Patient p) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return upsertPatient(conn, p);
+        } catch (SQLException e) {
+            System.err.println("[DAO] Error upsertPatient: " + e.getMessage());
+            return false;
+        }
+    }
+
+    boolean upsertPatient(Connection conn, Patient p) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(UPSERT_SQL)) {
+            bindUpsert(ps, p);
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    // INSERT / UPDATE por lotes
+
+    /**
+     * Persiste varios pacientes con addBatch/executeBatch en una transacción.
+     * Con rewriteBatchedStatements el driver envía un único INSERT multi-fila.
+     *
+     * Pacientes con ID &gt; 0 (asignado por la aplicación) se insertan con ese ID;
+     * los de ID 0 usan AUTO_INCREMENT.
+     *
+     * @return Los IDs en el mismo orden que {@code patients}; -1 en todas las
+     *         posiciones si el lote falla (se revierte completo).
+     */
+    public int[] insertPatients(Patient[] patients) {
+        int[] keys = new int[patients.length];
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                insertPatients(conn, patients, patients.length, keys);
+                conn.commit();
+                return keys;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("[DAO] Error insertPatients: " + e.getMessage());
+            for (int i = 0; i < keys.length; i++) keys[i] = -1;
+            return keys;
+        }
+    }
+
+    /** Variante dentro de una conexión/transacción existente (journal). */
+    void insertPatients(Connection conn, Patient[] patients, int n, int[] keys) throws SQLException {
+        int autoCount = 0;
+        for (int i = 0; i < n; i++) if (patients[i].getId() <= 0) autoCount++;
+
+        // 1) IDs asignados por la aplicación → upsert idempotente
+        if (autoCount < n) {
+            try (PreparedStatement ps = conn.prepareStatement(UPSERT_SQL)) {
+                for (int i = 0; i < n; i++) {
+                    if (patients[i].getId() <= 0) continue;
+                    bindUpsert(ps, patients[i]);
+                    ps.addBatch();
+                    keys[i] = patients[i].getId();
+                }
+                ps.executeBatch();
+            }
+        }
+
+        // 2) Sin ID → AUTO_INCREMENT, claves generadas en el orden del lote
+        if (autoCount > 0) {
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_AUTO_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < n; i++) {
+                    if (patients[i].getId() > 0) continue;
+                    bindInsertAuto(ps, patients[i]);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    for (int i = 0; i < n; i++) {
+                        if (patients[i].getId() > 0) continue;
+                        keys[i] = rs.next() ? rs.getInt(1) : -1;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Marca varios pacientes como ATTENDED en un solo lote.
+     * {@code attendedAt[i]} corresponde a {@code ids[i]}.
+     */
+    public boolean markAttended(int[] ids, LocalDateTime[] attendedAt) {
+        if (ids.length != attendedAt.length)
+            throw new IllegalArgumentException("ids y attendedAt deben tener el mismo tamaño");
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                markAttended(conn, ids, attendedAt, ids.length);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("[DAO] Error markAttended: " + e.getMessage());
+            return false;
+        }
+    }
+
+    void markAttended(Connection conn, int[] ids, LocalDateTime[] attendedAt, int n) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(ATTEND_SQL)) {
+            for (int i = 0; i < n; i++) {
+                ps.setTimestamp(1, Timestamp.valueOf(attendedAt[i]));
+                ps.setInt      (2, ids[i]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
     // UPDATE
 
     /**
      * Marca un paciente como ATTENDED y registra la hora de atención.
      */
     public boolean updateStatusToAttended(int id, LocalDateTime attendedAt) {
-        String sql = "UPDATE patients SET status='ATTENDED', attended_at=? WHERE id=?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return updateStatusToAttended(conn, id, attendedAt);
+        } catch (SQLException e) {
+            System.err.println("[DAO] Error updateStatusToAttended: " + e.getMessage());
+            return false;
+        }
+    }
 
+    boolean updateStatusToAttended(Connection conn, int id, LocalDateTime attendedAt)
+            throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(ATTEND_SQL)) {
             ps.setTimestamp(1, Timestamp.valueOf(attendedAt));
             ps.setInt      (2, id);
             return ps.executeUpdate() > 0;
-
-        } catch (SQLException e) {
-            System.err.println("[DAO] Error updateStatusToAttended: " + e.getMessage());
-            return false;
         }
     }
 
@@ -70,35 +210,109 @@ public class PatientDAO {
      * Pone attended_at = NULL y status = 'WAITING'.
      */
     public boolean revertToWaiting(int id) {
-        String sql = "UPDATE patients SET status='WAITING', attended_at=NULL WHERE id=?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return revertToWaiting(conn, id);
+        } catch (SQLException e) {
+            System.err.println("[DAO] Error revertToWaiting: " + e.getMessage());
+            return false;
+        }
+    }
 
+    boolean revertToWaiting(Connection conn, int id) throws SQLException {
+        String sql = "UPDATE patients SET status='WAITING', attended_at=NULL WHERE id=?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
+        }
+    }
 
+    /**
+     * Cambia el nivel de triage de un paciente en espera (re-triage).
+     */
+    public boolean updateLevel(int id, int level) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return updateLevel(conn, id, level);
         } catch (SQLException e) {
-            System.err.println("[DAO] Error revertToWaiting: " + e.getMessage());
+            System.err.println("[DAO] Error updateLevel: " + e.getMessage());
             return false;
         }
     }
 
+    boolean updateLevel(Connection conn, int id, int level) throws SQLException {
+        String sql = "UPDATE patients SET level=? WHERE id=?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, level);
+            ps.setInt(2, id);
+            return ps.executeUpdate() > 0;
+        }
+    }
+
     // DELETE
 
     /**
      * Elimina físicamente un paciente (para undo de REGISTER).
      */
     public boolean deletePatient(int id) {
-        String sql = "DELETE FROM patients WHERE id=?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return deletePatient(conn, id);
+        } catch (SQLException e) {
+            System.err.println("[DAO] Error deletePatient: " + e.getMessage());
+            return false;
+        }
+    }
 
+    boolean deletePatient(Connection conn, int id) throws SQLException {
+        String sql = "DELETE FROM patients WHERE id=?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
+        }
+    }
 
-        } catch (SQLException e) {
-            System.err.println("[DAO] Error deletePatient: " + e.getMessage());
-            return false;
+    // JOURNAL
+
+    /**
+     * Aplica un registro del journal dentro de la conexión (y transacción) dada.
+     * Propaga la SQLException para que el escritor decida si reintentar.
+     */
+    void apply(Connection conn, JournalRecord r) throws SQLException {
+        switch (r.getType()) {
+            case INSERT -> upsertPatient(conn, r.getPatient());
+            case ATTEND -> updateStatusToAttended(conn, r.getPatientId(), r.getAttendedAt());
+            case REVERT -> revertToWaiting(conn, r.getPatientId());
+            case DELETE -> deletePatient(conn, r.getPatientId());
+            case RETRIAGE -> updateLevel(conn, r.getPatientId(), r.getLevel());
+        }
+    }
+
+    /**
+     * Aplica {@code n} registros en orden. Las rachas consecutivas de INSERT y de
+     * ATTEND se envían con executeBatch; el resto, una sentencia por registro.
+     */
+    void applyAll(Connection conn, JournalRecord[] records, int n) throws SQLException {
+        int i = 0;
+        while (i < n) {
+            JournalRecord.Type type = records[i].getType();
+            int end = i + 1;
+            while (end < n && records[end].getType() == type) end++;
+            int run = end - i;
+
+            if (type == JournalRecord.Type.INSERT && run > 1) {
+                Patient[] patients = new Patient[run];
+                for (int k = 0; k < run; k++) patients[k] = records[i + k].getPatient();
+                insertPatients(conn, patients, run, new int[run]);
+            } else if (type == JournalRecord.Type.ATTEND && run > 1) {
+                int[]           ids = new int[run];
+                LocalDateTime[] at  = new LocalDateTime[run];
+                for (int k = 0; k < run; k++) {
+                    ids[k] = records[i + k].getPatientId();
+                    at[k]  = records[i + k].getAttendedAt();
+                }
+                markAttended(conn, ids, at, run);
+            } else {
+                for (int k = i; k < end; k++) apply(conn, records[k]);
+            }
+            i = end;
         }
     }
 
@@ -138,86 +352,118 @@ public class PatientDAO {
     }
 
     /**
-     * Lista pacientes ATTENDED con filtros opcionales.
+     * Recorre los pacientes ATTENDED que cumplen {@code query}, del más reciente
+     * al más antiguo (attended_at DESC, id DESC), entregando cada fila al
+     * {@code handler} sin acumular el resultado: el driver trae las filas por
+     * bloques de {@link DatabaseConnection#fetchSize(int)} (con cursor en el
+     * servidor solo si el límite no cabe en un bloque).
+     *
+     * Paginación por clave (keyset): con {@code query.after(cursor)} solo se
+     * leen filas posteriores a esa posición; el costo de una página no depende
+     * de su profundidad. El SQL depende solo de qué filtros hay, no de sus
+     * valores (ver {@link AttendedQuery}), así que la caché lo reutiliza.
      *
-     * @param level      0 = todos los niveles; 1-5 = filtro exacto.
-     * @param nameFilter null o vacío = sin filtro de nombre.
-     * @param timeFilter "TODAY" | "LAST_HOUR" | "ALL"
+     * @return Posición de la última fila entregada (o la de partida si no hubo filas).
+     * @throws SQLException para que el llamador distinga "sin filas" de un fallo.
      */
-    public Patient[] listAttendedWithFilters(int level, String nameFilter, String timeFilter) {
-        StringBuilder sql = new StringBuilder(
-            "SELECT " + SELECT_COLS + " FROM patients WHERE status='ATTENDED'"
-        );
-
-        if (level > 0)
-            sql.append(" AND level=").append(level);
-
-        if (nameFilter != null && !nameFilter.isBlank())
-            sql.append(" AND name LIKE '%").append(nameFilter.replace("'", "''")).append("%'");
-
-        if ("TODAY".equals(timeFilter))
-            sql.append(" AND DATE(attended_at) = CURDATE()");
-        else if ("LAST_HOUR".equals(timeFilter))
-            sql.append(" AND attended_at >= NOW() - INTERVAL 1 HOUR");
+    public HistoryCursor streamAttended(AttendedQuery query, RowHandler handler) throws SQLException {
+        HistoryCursor last = query.getAfter();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(query.sql())) {
+            query.bind(ps);
+            ps.setFetchSize(DatabaseConnection.fetchSize(query.getLimit()));
 
-        sql.append(" ORDER BY attended_at DESC LIMIT 500");
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Patient p = mapRow(rs);
+                    last = HistoryCursor.after(p);
+                    if (!handler.accept(p)) break;
+                }
+            }
+        }
+        return last;
+    }
 
-        return queryMultiple(sql.toString(), null);
+    /**
+     * Una página del historial de atendidos (ver {@link #streamAttended}).
+     * Hay más páginas si se recibieron {@code pageSize} filas; la siguiente
+     * es {@code query.after(HistoryCursor.after(último))}.
+     */
+    public Patient[] pageAttended(AttendedQuery query, int pageSize) throws SQLException {
+        if (pageSize < 1) throw new IllegalArgumentException("pageSize debe ser >= 1");
+        Patient[] page  = new Patient[pageSize];
+        int[]     count = { 0 };
+        streamAttended(query.limit(pageSize), p -> {
+            page[count[0]++] = p;
+            return true;
+        });
+        if (count[0] == pageSize) return page;
+        Patient[] result = new Patient[count[0]];
+        for (int i = 0; i < count[0]; i++) result[i] = page[i];
+        return result;
     }
 
-    /** Cuenta pacientes ATTENDED hoy (para KPI del Dashboard). */
-    public int countAttendedToday() {
-        String sql = "SELECT COUNT(*) FROM patients WHERE status='ATTENDED' AND DATE(attended_at)=CURDATE()";
+    /**
+     * Página de pacientes (cualquier estado) con ID mayor que {@code afterId},
+     * en orden de ID. Paginación por clave (keyset) sobre la PK: cada página es
+     * un range scan, sin OFFSET. Usada para construir índices en memoria.
+     *
+     * @throws SQLException para que el llamador distinga "sin más filas" de un fallo.
+     */
+    public Patient[] listSinceId(int afterId, int limit) throws SQLException {
+        String sql = "SELECT " + SELECT_COLS + " FROM patients WHERE id > ? ORDER BY id LIMIT ?";
+        Patient[] temp = new Patient[limit];
+        int count = 0;
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-
-            if (rs.next()) return rs.getInt(1);
-        } catch (SQLException e) {
-            System.err.println("[DAO] Error countAttendedToday: " + e.getMessage());
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            ps.setFetchSize(DatabaseConnection.fetchSize(limit));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) temp[count++] = mapRow(rs);
+            }
         }
-        return 0;
+        if (count == limit) return temp;
+        Patient[] result = new Patient[count];
+        for (int i = 0; i < count; i++) result[i] = temp[i];
+        return result;
     }
 
-    /**
-     * Tiempo promedio de espera (minutos) de los últimos 100 pacientes atendidos hoy.
-     */
-    public double avgWaitMinutesToday() {
-        String sql = "SELECT AVG(TIMESTAMPDIFF(MINUTE, arrival_at, attended_at)) " +
-                     "FROM patients WHERE status='ATTENDED' AND DATE(attended_at)=CURDATE() LIMIT 100";
+    /** Mayor ID persistido (0 si la tabla está vacía). */
+    public int maxPatientId() {
+        String sql = "SELECT COALESCE(MAX(id), 0) FROM patients";
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
 
-            if (rs.next()) return rs.getDouble(1);
+            if (rs.next()) return rs.getInt(1);
         } catch (SQLException e) {
-            System.err.println("[DAO] Error avgWaitMinutesToday: " + e.getMessage());
+            System.err.println("[DAO] Error maxPatientId: " + e.getMessage());
         }
         return 0;
     }
 
     // Helpers
 
-    /** Ejecuta una consulta que puede retornar múltiples filas. */
+    /** Ejecuta una consulta que puede retornar múltiples filas (todas, sin truncar). */
     private Patient[] queryMultiple(String sql, String param) {
-        // Primera pasada: recolectar en arreglo temporal de tamaño fijo
-        Patient[] temp = new Patient[512];
+        // Arreglo temporal que se duplica al llenarse
+        Patient[] temp = new Patient[64];
         int count = 0;
 
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            PreparedStatement ps;
-            if (param != null) {
-                ps = conn.prepareStatement(sql);
-                ps.setString(1, param);
-            } else {
-                ps = conn.prepareStatement(sql);
-            }
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (param != null) ps.setString(1, param);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next() && count < temp.length) {
+                while (rs.next()) {
+                    if (count == temp.length) {
+                        Patient[] bigger = new Patient[count * 2];
+                        for (int i = 0; i < count; i++) bigger[i] = temp[i];
+                        temp = bigger;
+                    }
                     temp[count++] = mapRow(rs);
                 }
             }
-            ps.close();
         } catch (SQLException e) {
             System.err.println("[DAO] Error queryMultiple: " + e.getMessage());
         }
@@ -228,6 +474,27 @@ public class PatientDAO {
         return result;
     }
 
+    private static void bindInsertAuto(PreparedStatement ps, Patient p) throws SQLException {
+        ps.setString   (1, p.getName());
+        ps.setInt      (2, p.getAge());
+        ps.setString   (3, p.getSymptoms());
+        ps.setInt      (4, p.getLevel());
+        ps.setTimestamp(5, Timestamp.valueOf(p.getArrivalAt()));
+        ps.setTimestamp(6, Timestamp.valueOf(p.getCreatedAt()));
+    }
+
+    private static void bindUpsert(PreparedStatement ps, Patient p) throws SQLException {
+        ps.setInt      (1, p.getId());
+        ps.setString   (2, p.getName());
+        ps.setInt      (3, p.getAge());
+        ps.setString   (4, p.getSymptoms());
+        ps.setInt      (5, p.getLevel());
+        ps.setString   (6, p.getStatus() != null ? p.getStatus() : "WAITING");
+        ps.setTimestamp(7, Timestamp.valueOf(p.getArrivalAt()));
+        ps.setTimestamp(8, p.getAttendedAt() != null ? Timestamp.valueOf(p.getAttendedAt()) : null);
+        ps.setTimestamp(9, Timestamp.valueOf(p.getCreatedAt()));
+    }
+
     /** Mapea una fila del ResultSet a un objeto Patient. */
     private Patient mapRow(ResultSet rs) throws SQLException {
         Timestamp arrTs  = rs.getTimestamp("arrival_at");
@@ -0,0 +1,520 @@
+package com.meditriage.database;
+
+import com.meditriage.model.Patient;
+import com.meditriage.structures.DoublyLinkedList;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32;
+
+/**
+ * Journal de persistencia write-behind.
+ *
+ * Las mutaciones del TriageService se agregan primero a un archivo local de
+ * solo-anexado y un hilo escritor las vuelca a MySQL (PatientDAO) por lotes,
+ * cada lote en una transacción y con executeBatch para las rachas de altas y
+ * atenciones. Así registrar/atender no espera a la BD.
+ *
+ * Formato de cada registro en disco:
+ *   [int longitud][int CRC32 del payload][payload]
+ * Un registro truncado o con CRC inválido marca el final lógico del archivo
+ * (escritura interrumpida por un corte) y se descarta en la recuperación.
+ *
+ * Durabilidad: sync(seq) fuerza el archivo a disco con group commit; el primer
+ * hilo que llega hace el fsync por todos los registros anexados hasta ese
+ * momento y los demás solo esperan su resultado.
+ *
+ * Cuando el escritor vacía la cola, el archivo se trunca: lo ya aplicado a
+ * MySQL no necesita reproducirse. Como todos los registros son idempotentes,
+ * reproducir de más tras un corte tampoco altera el estado final.
+ */
+public class PersistenceJournal {
+
+    private static final int MAX_RECORD_BYTES = 1 << 20; // cota de cordura al leer
+
+    // Archivo
+    private final Path        path;
+    private final FileChannel channel;
+    private final PatientDAO       dao;
+    private final ConnectionSource connections;
+    private final int              batchSize;
+
+    // Cola de registros pendientes de aplicar (protegida por el monitor del journal)
+    private final DoublyLinkedList<JournalRecord> pending = new DoublyLinkedList<>();
+    private long    appendedSeq;   // último seq anexado
+    private long    appliedSeq;    // último seq aplicado en MySQL
+    private boolean running;
+    private Thread  writer;
+
+    // Group commit
+    private final Object syncLock = new Object();
+    private long    durableSeq;    // último seq garantizado en disco
+    private boolean syncInProgress;
+
+    /**
+     * Abre (o crea) el journal en {@code path}.
+     * No aplica nada todavía: llamar a recover() y luego start().
+     */
+    public PersistenceJournal(Path path, PatientDAO dao, int batchSize) throws IOException {
+        this(path, dao, batchSize, DatabaseConnection::getConnection);
+    }
+
+    PersistenceJournal(Path path, PatientDAO dao, int batchSize, ConnectionSource connections)
+            throws IOException {
+        this.path        = path;
+        this.dao         = dao;
+        this.connections = connections;
+        this.batchSize   = Math.max(1, batchSize);
+        Path dir = path.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // Recuperación
+
+    /**
+     * Lee los registros válidos que quedaron sin vaciar en una ejecución anterior,
+     * descarta la cola corrupta y los aplica a MySQL.
+     * Si la BD no está disponible, quedan en la cola para que el escritor reintente.
+     *
+     * @return Los registros recuperados, en orden, para reconstruir la memoria.
+     */
+    public synchronized JournalRecord[] recover() throws IOException {
+        DoublyLinkedList<JournalRecord> recovered = new DoublyLinkedList<>();
+        long validEnd = 0;
+
+        channel.position(0);
+        InputStream is = new BufferedInputStream(Channels.newInputStream(channel));
+        DataInputStream in = new DataInputStream(is);
+        while (true) {
+            try {
+                int len = in.readInt();
+                int crc = in.readInt();
+                if (len <= 0 || len > MAX_RECORD_BYTES) break;
+                byte[] payload = new byte[len];
+                in.readFully(payload);
+                if (crc32(payload) != crc) break;
+                JournalRecord r = decode(payload);
+                recovered.addLast(r);
+                validEnd += 8 + len;
+                if (r.getSeq() > appendedSeq) appendedSeq = r.getSeq();
+            } catch (EOFException e) {
+                break;
+            }
+        }
+
+        if (validEnd < channel.size()) {
+            System.err.println("[Journal] Cola corrupta descartada: "
+                + (channel.size() - validEnd) + " bytes en " + path);
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+        durableSeq = appendedSeq;
+
+        Object[] raw = recovered.toArray();
+        JournalRecord[] records = new JournalRecord[raw.length];
+        for (int i = 0; i < raw.length; i++) records[i] = (JournalRecord) raw[i];
+        if (records.length == 0) return records;
+
+        System.out.println("[Journal] Reproduciendo " + records.length + " registro(s) pendientes.");
+        try {
+            applyBatch(records, records.length);
+            appliedSeq = appendedSeq;
+            truncateIfDrained();
+        } catch (SQLException e) {
+            // El escritor reintenta (y aísla registros inválidos si los hubiera)
+            System.err.println("[Journal] No se pudo reproducir ahora; se reintentará: "
+                + e.getMessage());
+            for (JournalRecord r : records) pending.addLast(r);
+        }
+        return records;
+    }
+
+    // Escritura
+
+    /** Anexa el alta de un paciente (con su ID ya asignado). */
+    public long appendInsert(Patient p) throws IOException {
+        return append(JournalRecord.Type.INSERT, p.getId(), JournalRecord.copyOf(p), null);
+    }
+
+    /**
+     * Anexa el alta de varios pacientes con una sola escritura al archivo.
+     * @return El seq del último registro (sync(seq) cubre todo el lote).
+     */
+    public synchronized long appendInserts(Patient[] patients) throws IOException {
+        if (patients.length == 0) return appendedSeq;
+        JournalRecord[] records = new JournalRecord[patients.length];
+        byte[][]        payloads = new byte[patients.length][];
+        int total = 0;
+        for (int i = 0; i < patients.length; i++) {
+            Patient p = patients[i];
+            records[i]  = new JournalRecord(JournalRecord.Type.INSERT, appendedSeq + 1 + i,
+                                            p.getId(), JournalRecord.copyOf(p), null);
+            payloads[i] = encode(records[i]);
+            total += 8 + payloads[i].length;
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(total);
+        for (byte[] payload : payloads) buf.putInt(payload.length).putInt(crc32(payload)).put(payload);
+        buf.flip();
+        while (buf.hasRemaining()) channel.write(buf);
+
+        for (JournalRecord r : records) pending.addLast(r);
+        appendedSeq += patients.length;
+        notifyAll(); // despertar al escritor
+        return appendedSeq;
+    }
+
+    /** Anexa la atención de un paciente. */
+    public long appendAttend(int id, LocalDateTime attendedAt) throws IOException {
+        return append(JournalRecord.Type.ATTEND, id, null, attendedAt);
+    }
+
+    /** Anexa la reversión ATTENDED → WAITING (undo de ATTEND). */
+    public long appendRevert(int id) throws IOException {
+        return append(JournalRecord.Type.REVERT, id, null, null);
+    }
+
+    /** Anexa el borrado de un paciente (undo de REGISTER). */
+    public long appendDelete(int id) throws IOException {
+        return append(JournalRecord.Type.DELETE, id, null, null);
+    }
+
+    /** Anexa el cambio de nivel de un paciente en espera (re-triage o su undo). */
+    public long appendRetriage(int id, int level) throws IOException {
+        return append(JournalRecord.Type.RETRIAGE, id, null, null, level);
+    }
+
+    private long append(JournalRecord.Type type, int id, Patient p,
+                        LocalDateTime attendedAt) throws IOException {
+        return append(type, id, p, attendedAt, 0);
+    }
+
+    private synchronized long append(JournalRecord.Type type, int id, Patient p,
+                                     LocalDateTime attendedAt, int level) throws IOException {
+        long seq = appendedSeq + 1;
+        JournalRecord r = new JournalRecord(type, seq, id, p, attendedAt, level);
+        byte[] payload = encode(r);
+
+        ByteBuffer buf = ByteBuffer.allocate(8 + payload.length);
+        buf.putInt(payload.length).putInt(crc32(payload)).put(payload).flip();
+        while (buf.hasRemaining()) channel.write(buf);
+
+        appendedSeq = seq;
+        pending.addLast(r);
+        notifyAll(); // despertar al escritor
+        return seq;
+    }
+
+    /**
+     * Garantiza que el registro {@code seq} está en disco (group commit).
+     * Un solo fsync cubre todos los registros anexados antes de iniciarlo.
+     */
+    public void sync(long seq) throws IOException {
+        while (true) {
+            long target;
+            synchronized (syncLock) {
+                while (durableSeq < seq && syncInProgress) {
+                    try {
+                        syncLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrumpido esperando fsync del journal", e);
+                    }
+                }
+                if (durableSeq >= seq) return;
+                syncInProgress = true;
+            }
+            synchronized (this) { target = appendedSeq; }
+
+            boolean ok = false;
+            try {
+                channel.force(false);
+                ok = true;
+            } finally {
+                synchronized (syncLock) {
+                    syncInProgress = false;
+                    if (ok && target > durableSeq) durableSeq = target;
+                    syncLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /** Registros anexados que aún no llegaron a MySQL. */
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    // Hilo escritor
+
+    /** Arranca el hilo que vacía el journal hacia MySQL. */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        writer = new Thread(this::writerLoop, "meditriage-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Detiene el escritor tras intentar vaciar lo pendiente (hasta {@code timeoutMs})
+     * y cierra el archivo. Lo que no se haya aplicado se reproducirá al reiniciar.
+     */
+    public void close(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (this) {
+            while (!pending.isEmpty() && writer != null && writer.isAlive()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) break;
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            running = false;
+            notifyAll();
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("[Journal] Error cerrando " + path + ": " + e.getMessage());
+        }
+    }
+
+    private void writerLoop() {
+        JournalRecord[] batch = new JournalRecord[batchSize];
+        long backoffMs = 500;
+
+        while (true) {
+            int n = 0;
+            synchronized (this) {
+                while (pending.isEmpty() && running) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) return;
+                while (n < batchSize && !pending.isEmpty()) batch[n++] = pending.removeFirst();
+            }
+
+            int done;
+            try {
+                applyBatch(batch, n);
+                done = n;
+            } catch (SQLException e) {
+                if (isConnectionProblem(e)) {
+                    System.err.println("[Journal] BD no disponible (" + e.getMessage() + ").");
+                    done = 0;
+                } else {
+                    // Error de datos: aplicar uno a uno y descartar solo el registro inválido
+                    done = applyIndividually(batch, n);
+                }
+            }
+
+            synchronized (this) {
+                // Lo no aplicado (BD caída, también a mitad del uno a uno) vuelve al frente
+                for (int i = n - 1; i >= done; i--) pending.addFirst(batch[i]);
+                if (done > 0) {
+                    appliedSeq = batch[done - 1].getSeq();
+                    truncateIfDrained();
+                    notifyAll(); // close() espera a que la cola se vacíe
+                }
+            }
+            clear(batch, n);
+
+            if (done < n) {
+                System.err.println("[Journal] " + (n - done) + " registro(s) pendientes; reintento en "
+                    + backoffMs + " ms.");
+                sleep(backoffMs);
+                backoffMs = Math.min(backoffMs * 2, 30_000);
+            } else {
+                backoffMs = 500;
+            }
+        }
+    }
+
+    /** Aplica {@code n} registros en una sola transacción. */
+    private void applyBatch(JournalRecord[] batch, int n) throws SQLException {
+        try (Connection conn = connections.get()) {
+            conn.setAutoCommit(false);
+            try {
+                dao.applyAll(conn, batch, n);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Aplica los registros de a uno: el que falla por sus datos se descarta;
+     * si se cae la conexión, se detiene sin descartar nada más.
+     *
+     * @return Cuántos registros del principio quedaron resueltos (aplicados o
+     *         descartados); los demás siguen pendientes.
+     */
+    private int applyIndividually(JournalRecord[] batch, int n) {
+        for (int i = 0; i < n; i++) {
+            try (Connection conn = connections.get()) {
+                dao.apply(conn, batch[i]);
+            } catch (SQLException e) {
+                if (isConnectionProblem(e)) {
+                    System.err.println("[Journal] BD no disponible en " + batch[i] + " (" + e.getMessage() + ").");
+                    return i;
+                }
+                System.err.println("[Journal] Registro descartado " + batch[i] + ": " + e.getMessage());
+            }
+        }
+        return n;
+    }
+
+    /** Trunca el archivo si todo lo anexado ya está en MySQL (llamar con el monitor). */
+    private void truncateIfDrained() {
+        if (!pending.isEmpty() || appliedSeq != appendedSeq) return;
+        try {
+            if (channel.size() > 0) channel.truncate(0);
+        } catch (IOException e) {
+            System.err.println("[Journal] No se pudo truncar " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean isConnectionProblem(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransientException
+            || e instanceof SQLRecoverableException
+            || e instanceof SQLNonTransientConnectionException
+            || (state != null && state.startsWith("08"));
+    }
+
+    private static void clear(JournalRecord[] batch, int n) {
+        for (int i = 0; i < n; i++) batch[i] = null;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Codificación
+
+    private static byte[] encode(JournalRecord r) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(r.getType().ordinal());
+        out.writeLong(r.getSeq());
+        out.writeInt(r.getPatientId());
+        switch (r.getType()) {
+            case INSERT -> {
+                Patient p = r.getPatient();
+                writeString(out, p.getName());
+                out.writeInt(p.getAge());
+                writeString(out, p.getSymptoms());
+                out.writeInt(p.getLevel());
+                writeString(out, p.getStatus());
+                writeTime(out, p.getArrivalAt());
+                writeTime(out, p.getAttendedAt());
+                writeTime(out, p.getCreatedAt());
+            }
+            case ATTEND   -> writeTime(out, r.getAttendedAt());
+            case RETRIAGE -> out.writeInt(r.getLevel());
+            default -> { /* REVERT / DELETE: solo el ID */ }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static JournalRecord decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int typeIdx = in.readUnsignedByte();
+        JournalRecord.Type[] types = JournalRecord.Type.values();
+        if (typeIdx >= types.length) throw new EOFException("Tipo de registro desconocido");
+        JournalRecord.Type type = types[typeIdx];
+        long seq = in.readLong();
+        int  id  = in.readInt();
+
+        Patient       p     = null;
+        LocalDateTime at    = null;
+        int           level = 0;
+        switch (type) {
+            case INSERT -> {
+                String name     = readString(in);
+                int    age      = in.readInt();
+                String symptoms = readString(in);
+                int    lvl      = in.readInt();
+                String status   = readString(in);
+                p = new Patient(id, name, age, symptoms, lvl, status,
+                        readTime(in), readTime(in), readTime(in));
+            }
+            case ATTEND   -> at = readTime(in);
+            case RETRIAGE -> level = in.readInt();
+            default -> { /* REVERT / DELETE: solo el ID */ }
+        }
+        return new JournalRecord(type, seq, id, p, at, level);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) { out.writeInt(-1); return; }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) return null;
+        byte[] b = new byte[len];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime t) throws IOException {
+        if (t == null) { out.writeBoolean(false); return; }
+        out.writeBoolean(true);
+        out.writeLong(t.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(t.getNano());
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        long secs = in.readLong();
+        int  nano = in.readInt();
+        return LocalDateTime.ofEpochSecond(secs, nano, ZoneOffset.UTC);
+    }
+
+    private static int crc32(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+}
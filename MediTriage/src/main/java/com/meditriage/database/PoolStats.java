@@ -0,0 +1,68 @@
+package com.meditriage.database;
+
+/**
+ * DTO inmutable con las métricas del pool de conexiones.
+ * Lo retorna DatabaseConnection.poolStats() para TriageStats / Dashboard.
+ */
+public class PoolStats {
+
+    private final int    active;        // conexiones prestadas
+    private final int    idle;          // conexiones ociosas
+    private final int    total;         // conexiones físicas abiertas
+    private final int    maxSize;       // tope configurado
+    private final long   borrowCount;   // préstamos acumulados
+    private final double avgWaitMs;     // espera promedio por préstamo
+    private final double maxWaitMs;     // peor espera registrada
+    private final int    timeouts;      // préstamos que agotaron maxWaitMs
+    private final int    leaks;         // fugas detectadas
+    private final int    evicted;       // conexiones desalojadas por inactividad
+    private final long   stmtCacheHits;   // PreparedStatement reutilizados
+    private final long   stmtCacheMisses; // PreparedStatement preparados de nuevo
+
+    public PoolStats(int active, int idle, int total, int maxSize, long borrowCount,
+                     double avgWaitMs, double maxWaitMs, int timeouts, int leaks, int evicted,
+                     long stmtCacheHits, long stmtCacheMisses) {
+        this.active      = active;
+        this.idle        = idle;
+        this.total       = total;
+        this.maxSize     = maxSize;
+        this.borrowCount = borrowCount;
+        this.avgWaitMs   = avgWaitMs;
+        this.maxWaitMs   = maxWaitMs;
+        this.timeouts    = timeouts;
+        this.leaks       = leaks;
+        this.evicted     = evicted;
+        this.stmtCacheHits   = stmtCacheHits;
+        this.stmtCacheMisses = stmtCacheMisses;
+    }
+
+    // ── Getters ───────────────────────────────────────────────────────────────
+    public int    getActive()      { return active; }
+    public int    getIdle()        { return idle; }
+    public int    getTotal()       { return total; }
+    public int    getMaxSize()     { return maxSize; }
+    public long   getBorrowCount() { return borrowCount; }
+    public double getAvgWaitMs()   { return avgWaitMs; }
+    public double getMaxWaitMs()   { return maxWaitMs; }
+    public int    getTimeouts()    { return timeouts; }
+    public int    getLeaks()       { return leaks; }
+    public int    getEvicted()     { return evicted; }
+    public long   getStmtCacheHits()   { return stmtCacheHits; }
+    public long   getStmtCacheMisses() { return stmtCacheMisses; }
+
+    /** Proporción de aciertos de la caché de statements (0..1). */
+    public double getStmtCacheHitRatio() {
+        long total = stmtCacheHits + stmtCacheMisses;
+        return total == 0 ? 0 : (double) stmtCacheHits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "Pool[active=%d, idle=%d, total=%d/%d, avgWait=%.2f ms, maxWait=%.2f ms, " +
+            "timeouts=%d, leaks=%d, evicted=%d, stmtCache=%d hit / %d miss]",
+            active, idle, total, maxSize, avgWaitMs, maxWaitMs, timeouts, leaks, evicted,
+            stmtCacheHits, stmtCacheMisses
+        );
+    }
+}
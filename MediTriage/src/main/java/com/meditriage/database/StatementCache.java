@@ -0,0 +1,166 @@
+package com.meditriage.database;
+
+import com.meditriage.structures.HashTable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché LRU de PreparedStatement ligada a una conexión física del pool.
+ *
+ * Clave: texto SQL (+ si pide claves generadas). En un acierto se reutiliza el
+ * statement ya preparado, evitando el parseo en el servidor y, con
+ * useServerPrepStmts, el round trip de COM_STMT_PREPARE.
+ *
+ * Estructura: HashTable propia (clave → entrada) + lista doble intrusiva en
+ * orden de uso (head = más reciente, tail = candidato a desalojo).
+ * Una conexión la usa un solo hilo a la vez (la del préstamo), por lo que la
+ * caché no necesita sincronización; los contadores son compartidos por el pool.
+ */
+final class StatementCache {
+
+    // Entrada de la caché (nodo de la lista LRU)
+    private static final class Entry {
+        final String            key;
+        final PreparedStatement physical;
+        final PreparedStatement proxy;
+        Entry prev, next;
+
+        Entry(String key, PreparedStatement physical, PreparedStatement proxy) {
+            this.key      = key;
+            this.physical = physical;
+            this.proxy    = proxy;
+        }
+    }
+
+    // Campos
+    private final HashTable<String, Entry> index = new HashTable<>();
+    private final int        capacity;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private Entry head, tail;
+    private int   size;
+
+    StatementCache(int capacity, AtomicLong hits, AtomicLong misses) {
+        this.capacity = capacity;
+        this.hits     = hits;
+        this.misses   = misses;
+    }
+
+    /**
+     * Retorna un PreparedStatement para {@code sql}, reutilizándolo si ya estaba
+     * en caché. El close() del statement retornado solo limpia parámetros.
+     */
+    PreparedStatement prepare(Connection physical, String sql, int autoGeneratedKeys)
+            throws SQLException {
+        boolean withKeys = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS;
+        if (capacity <= 0) {
+            // Caché desactivada: statement normal
+            return withKeys ? physical.prepareStatement(sql, autoGeneratedKeys)
+                            : physical.prepareStatement(sql);
+        }
+
+        String key = (withKeys ? "K|" : "N|") + sql;
+        Entry e = index.get(key);
+        if (e != null) {
+            hits.incrementAndGet();
+            moveToFront(e);
+            return e.proxy;
+        }
+
+        misses.incrementAndGet();
+        PreparedStatement ps = withKeys ? physical.prepareStatement(sql, autoGeneratedKeys)
+                                        : physical.prepareStatement(sql);
+        e = new Entry(key, ps, wrap(ps));
+        index.put(key, e);
+        addFirst(e);
+        size++;
+
+        if (size > capacity) {
+            Entry lru = tail;
+            unlink(lru);
+            index.remove(lru.key);
+            size--;
+            closeQuietly(lru.physical);
+        }
+        return e.proxy;
+    }
+
+    /** Cierra todos los statements (antes de cerrar la conexión física). */
+    void closeAll() {
+        for (Entry e = head; e != null; e = e.next) {
+            index.remove(e.key);
+            closeQuietly(e.physical);
+        }
+        head = tail = null;
+        size = 0;
+    }
+
+    int size() { return size; }
+
+    // Lista LRU
+
+    private void addFirst(Entry e) {
+        e.prev = null;
+        e.next = head;
+        if (head != null) head.prev = e;
+        head = e;
+        if (tail == null) tail = e;
+    }
+
+    private void unlink(Entry e) {
+        if (e.prev != null) e.prev.next = e.next;
+        else                head = e.next;
+        if (e.next != null) e.next.prev = e.prev;
+        else                tail = e.prev;
+        e.prev = e.next = null;
+    }
+
+    private void moveToFront(Entry e) {
+        if (e == head) return;
+        unlink(e);
+        addFirst(e);
+    }
+
+    // Proxy del statement: close() lo devuelve a la caché
+
+    private static PreparedStatement wrap(PreparedStatement ps) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+            PreparedStatement.class.getClassLoader(),
+            new Class<?>[] { PreparedStatement.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "close":
+                        // Se conserva preparado; solo se limpia el estado de la ejecución
+                        ps.clearParameters();
+                        ps.clearBatch();
+                        return null;
+                    case "isClosed":
+                        return ps.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        try {
+                            return method.invoke(ps, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getCause();
+                        }
+                }
+            });
+    }
+
+    private static void closeQuietly(Statement st) {
+        try {
+            st.close();
+        } catch (SQLException ignored) {
+            // el statement ya no es utilizable
+        }
+    }
+}
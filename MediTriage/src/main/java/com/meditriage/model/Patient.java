@@ -77,6 +77,11 @@ public class Patient {
 
     // Métodos de utilidad
 
+    /** Copia independiente con los mismos valores (fotos de lectura del servicio). */
+    public Patient copy() {
+        return new Patient(id, name, age, symptoms, level, status, arrivalAt, attendedAt, createdAt);
+    }
+
     /** Descripción textual del nivel de urgencia. */
     public String getLevelDescription() {
         return switch (level) {
@@ -89,6 +94,21 @@ public class Patient {
         };
     }
 
+    /**
+     * Meta de atención del nivel en minutos (tabla del encabezado; nivel 1 =
+     * inmediata = 0). Referencia para los percentiles de espera del Dashboard.
+     */
+    public static int targetMinutes(int level) {
+        return switch (level) {
+            case 1 -> 0;
+            case 2 -> 10;
+            case 3 -> 30;
+            case 4 -> 120;
+            case 5 -> 240;
+            default -> throw new IllegalArgumentException("Nivel inválido: " + level);
+        };
+    }
+
     /** Clase CSS correspondiente al nivel (p. ej. "level-1"). */
     public String getLevelCssClass() {
         return "level-" + level;
@@ -0,0 +1,72 @@
+package com.meditriage.model;
+
+/**
+ * Evento de dominio: una mutación del triaje ya aplicada, publicada y durable.
+ *
+ * PATIENT_REGISTERED → alta en la cola.
+ * PATIENT_ATTENDED   → salió de la cola hacia el historial.
+ * RETRIAGED          → cambió de nivel; {@code previousLevel} es el anterior.
+ * ACTION_UNDONE      → se deshizo una acción {@code undone} sobre el paciente;
+ *                      en RETRIAGE, {@code previousLevel} es el nivel que tenía
+ *                      antes del undo.
+ *
+ * El paciente que se entrega es una copia congelada (la de la foto publicada
+ * con el lote, si la hay): nadie la modifica después, y sus campos reflejan el
+ * estado al cerrar el lote, que puede ser posterior al evento.
+ */
+public class TriageEvent {
+
+    public enum Type {
+        PATIENT_REGISTERED,
+        PATIENT_ATTENDED,
+        RETRIAGED,
+        ACTION_UNDONE
+    }
+
+    // Campos
+    private final Type                  type;
+    private final Patient               patient;
+    private final int                   previousLevel; // RETRIAGE y undo de RETRIAGE
+    private final UndoAction.ActionType undone;        // solo ACTION_UNDONE
+
+    private TriageEvent(Type type, Patient patient, int previousLevel, UndoAction.ActionType undone) {
+        this.type          = type;
+        this.patient       = patient;
+        this.previousLevel = previousLevel;
+        this.undone        = undone;
+    }
+
+    // Fábricas
+    public static TriageEvent registered(Patient p) {
+        return new TriageEvent(Type.PATIENT_REGISTERED, p, 0, null);
+    }
+
+    public static TriageEvent attended(Patient p) {
+        return new TriageEvent(Type.PATIENT_ATTENDED, p, 0, null);
+    }
+
+    public static TriageEvent retriaged(Patient p, int previousLevel) {
+        return new TriageEvent(Type.RETRIAGED, p, previousLevel, null);
+    }
+
+    public static TriageEvent undone(UndoAction.ActionType action, Patient p, int previousLevel) {
+        return new TriageEvent(Type.ACTION_UNDONE, p, previousLevel, action);
+    }
+
+    /** El mismo evento sobre otro objeto del paciente (la copia congelada). */
+    public TriageEvent withPatient(Patient p) {
+        return new TriageEvent(type, p, previousLevel, undone);
+    }
+
+    // Getters
+    public Type                  getType()          { return type; }
+    public Patient               getPatient()       { return patient; }
+    public int                   getPreviousLevel() { return previousLevel; }
+    public UndoAction.ActionType getUndone()        { return undone; }
+
+    @Override
+    public String toString() {
+        return "TriageEvent[" + type + (undone != null ? " " + undone : "")
+             + ", patient=" + patient.getId() + "]";
+    }
+}
@@ -7,12 +7,14 @@ package com.meditriage.model;
  *            estructuras y de la BD.
  * ATTEND   → guardar referencia al paciente para poder reinsertarlo en la cola
  *            y quitarlo del historial, revirtiendo también la BD.
+ * RETRIAGE → guardar el nivel anterior para restaurarlo en la cola y en la BD.
  */
 public class UndoAction {
 
     public enum ActionType {
         REGISTER("Registrar"),
-        ATTEND  ("Atender");
+        ATTEND  ("Atender"),
+        RETRIAGE("Re-triage");
 
         private final String label;
         ActionType(String label) { this.label = label; }
@@ -22,18 +24,25 @@ public class UndoAction {
     // Campos
     private final ActionType actionType;
     private final Patient    patient;
+    private final int        previousLevel; // solo RETRIAGE
     private final long       timestampMs; // para logs
 
-    // Constructor
+    // Constructores
     public UndoAction(ActionType actionType, Patient patient) {
-        this.actionType  = actionType;
-        this.patient     = patient;
-        this.timestampMs = System.currentTimeMillis();
+        this(actionType, patient, 0);
+    }
+
+    public UndoAction(ActionType actionType, Patient patient, int previousLevel) {
+        this.actionType    = actionType;
+        this.patient       = patient;
+        this.previousLevel = previousLevel;
+        this.timestampMs   = System.currentTimeMillis();
     }
 
     // Getters
     public ActionType getActionType()  { return actionType; }
     public Patient    getPatient()     { return patient; }
+    public int        getPreviousLevel() { return previousLevel; }
     public long       getTimestampMs() { return timestampMs; }
 
     @Override
@@ -0,0 +1,58 @@
+package com.meditriage.service;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Fases de bloqueo de cada lote del CommandLoop, en el hilo escritor:
+ *
+ *   exclusiva   → bloqueo de escritura mientras corren los comandos: las
+ *                 búsquedas sobre las estructuras vivas (trie, AVL) esperan.
+ *   compartida  → el bloqueo se degrada a lectura sin soltarlo para armar la
+ *                 foto: las búsquedas ya entran y nadie modifica nada.
+ *   sin bloqueo → fsync del journal y entrega de eventos, que no deben
+ *                 demorar a ninguna búsqueda.
+ *
+ * El bloqueo se suelta y la fase sin bloqueo corre aunque la fase
+ * compartida falle: si no, el lote se daría por durable sin fsync y sus
+ * eventos saldrían con el lote siguiente.
+ */
+final class BatchLock implements CommandLoop.Hooks {
+
+    /** Trabajo de una fase del lote. */
+    interface Phase {
+        void run();
+    }
+
+    private final StampedLock lock;
+    private final Phase       onStart;    // con el bloqueo de escritura recién tomado
+    private final Phase       shared;
+    private final Phase       unlocked;
+    private long              stamp;      // solo hilo escritor
+
+    BatchLock(StampedLock lock, Phase onStart, Phase shared, Phase unlocked) {
+        this.lock     = lock;
+        this.onStart  = onStart;
+        this.shared   = shared;
+        this.unlocked = unlocked;
+    }
+
+    @Override
+    public void beforeBatch() {
+        stamp = lock.writeLock();
+        onStart.run();
+    }
+
+    @Override
+    public void afterBatch() {
+        stamp = lock.tryConvertToReadLock(stamp);   // con escritura tomada siempre convierte
+        try {
+            try {
+                shared.run();
+            } finally {
+                lock.unlock(stamp);
+            }
+        } finally {
+            unlocked.run();   // los comandos ya corrieron: su fsync y sus eventos van igual
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.meditriage.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bucle de escritor único (estilo LMAX): todas las mutaciones del
+ * TriageService entran como comandos a un anillo acotado y preasignado, y un
+ * solo hilo los ejecuta en orden.
+ *
+ *   productores (UI, simulador, pool async) ──▶ [ anillo ] ──▶ hilo escritor
+ *
+ * Productores: reservan una secuencia con CAS sobre un contador atómico, llenan
+ * la casilla {@code seq % capacidad} y la marcan como publicada. Si el anillo
+ * está lleno esperan (contrapresión) a que el escritor libere casillas.
+ *
+ * Escritor: toma todas las casillas publicadas consecutivas (hasta
+ * {@code capacidad}) como un lote; llama a {@link Hooks#beforeBatch()},
+ * ejecuta los comandos, llama a {@link Hooks#afterBatch()} (una foto y un
+ * fsync por lote, no por comando) y recién entonces libera las casillas y
+ * completa los futuros. Bajo carga los lotes crecen solos: mientras el escritor
+ * hace un fsync, los productores siguen llenando el anillo.
+ *
+ * El orden de ejecución es el de las secuencias: determinista y el mismo que
+ * queda en el journal. Los futuros se completan en el hilo escritor; para
+ * trabajo no trivial encadenar con las variantes *Async de CompletableFuture.
+ */
+final class CommandLoop {
+
+    /** Mutación que corre en el hilo escritor. */
+    interface Command<T> {
+        T run();
+    }
+
+    /** Fases del lote, ejecutadas en el hilo escritor. */
+    interface Hooks {
+        void beforeBatch();
+        void afterBatch();
+    }
+
+    /** Casilla preasignada; sus campos solo se tocan entre reserva y liberación. */
+    private static final class Slot {
+        Command<?>                command;
+        CompletableFuture<Object> future;
+        Object                    result;
+        Throwable                 error;
+    }
+
+    private final Slot[]          slots;
+    private final int             mask;
+    private final AtomicLong      claimed   = new AtomicLong(-1);   // última secuencia reservada
+    private final AtomicLongArray published;                        // secuencia lista en cada casilla
+    private volatile long         consumed  = -1;                   // última secuencia liberada
+    private final Hooks           hooks;
+    private final Thread          writer;
+
+    private volatile boolean      sleeping;   // el escritor está (o va a estar) parqueado
+    private volatile boolean      running = true;
+    private final AtomicInteger   entering  = new AtomicInteger();  // productores entre la comprobación y la publicación
+
+    /** @param capacity Casillas del anillo; se redondea a potencia de dos. */
+    CommandLoop(int capacity, Hooks hooks) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        slots     = new Slot[size];
+        mask      = size - 1;
+        published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            published.set(i, -1);
+        }
+        this.hooks  = hooks;
+        this.writer = new Thread(this::writerLoop, "triage-writer");
+        writer.setDaemon(true);
+    }
+
+    void start() {
+        writer.start();
+    }
+
+    /** true si quien llama es el hilo escritor (un comando no debe esperar a otro). */
+    boolean isWriterThread() {
+        return Thread.currentThread() == writer;
+    }
+
+    /** Encola un comando; el futuro se completa tras el fin de su lote. */
+    <T> CompletableFuture<T> submit(Command<T> command) {
+        // Anunciarse antes de mirar running: close() baja running y el escritor no
+        // sale mientras haya alguien aquí, así que lo reservado siempre se ejecuta
+        entering.incrementAndGet();
+        try {
+            if (!running) throw new IllegalStateException("El bucle de comandos está detenido");
+            return claimAndPublish(command);
+        } finally {
+            entering.decrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> claimAndPublish(Command<T> command) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+
+        // Reservar solo si hay casilla libre: una secuencia reservada siempre se publica
+        long seq;
+        while (true) {
+            long current = claimed.get();
+            seq = current + 1;
+            if (seq - slots.length > consumed) {              // anillo lleno: esperar
+                if (isWriterThread()) throw new IllegalStateException("Anillo lleno desde el hilo escritor");
+                LockSupport.parkNanos(10_000);
+            } else if (claimed.compareAndSet(current, seq)) {
+                break;
+            }
+        }
+        Slot slot    = slots[(int) seq & mask];
+        slot.command = command;
+        slot.future  = future;
+        published.set((int) seq & mask, seq);             // escritura volatile: publica la casilla
+
+        if (sleeping) LockSupport.unpark(writer);
+        return (CompletableFuture<T>) future;
+    }
+
+    /**
+     * Deja de aceptar comandos, espera a que se ejecuten los pendientes (con
+     * tope) y detiene el hilo escritor.
+     */
+    void close(long timeoutMs) {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Hilo escritor
+
+    private void writerLoop() {
+        while (true) {
+            long first = consumed + 1;
+            if (published.get((int) first & mask) != first) {
+                if (closedAndEmpty(first)) return;
+                sleeping = true;
+                if (published.get((int) first & mask) != first && !closedAndEmpty(first)) {
+                    LockSupport.parkNanos(running ? 1_000_000_000L : 1_000_000L);
+                }
+                sleeping = false;
+                continue;
+            }
+
+            // Lote: todas las casillas publicadas consecutivas
+            long last = first;
+            while (last - first + 1 < slots.length
+                   && published.get((int) (last + 1) & mask) == last + 1) {
+                last++;
+            }
+
+            runBatch(first, last);
+        }
+    }
+
+    /**
+     * Cerrado, sin productores a medio encolar y sin nada reservado desde
+     * {@code first}. El orden importa: un productor que entra después de leer
+     * {@code entering} en cero ya ve running en false y no reserva.
+     */
+    private boolean closedAndEmpty(long first) {
+        return !running && entering.get() == 0 && claimed.get() < first;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runBatch(long first, long last) {
+        int n = (int) (last - first + 1);
+        hooks.beforeBatch();
+        try {
+            for (long seq = first; seq <= last; seq++) {
+                Slot slot = slots[(int) seq & mask];
+                try {
+                    slot.result = slot.command.run();
+                } catch (Throwable e) {
+                    slot.error = e;
+                }
+            }
+        } finally {
+            try {
+                hooks.afterBatch();
+            } catch (RuntimeException e) {
+                System.err.println("[CommandLoop] Error al cerrar el lote: " + e.getMessage());
+            }
+        }
+
+        // Copiar y liberar las casillas antes de completar: un callback puede encolar otro comando
+        CompletableFuture<Object>[] futures = (CompletableFuture<Object>[]) new CompletableFuture<?>[n];
+        Object[]    results = new Object[n];
+        Throwable[] errors  = new Throwable[n];
+        for (int i = 0; i < n; i++) {
+            Slot slot  = slots[(int) (first + i) & mask];
+            futures[i] = slot.future;
+            results[i] = slot.result;
+            errors[i]  = slot.error;
+            slot.command = null;
+            slot.future  = null;
+            slot.result  = null;
+            slot.error   = null;
+        }
+        consumed = last;
+
+        for (int i = 0; i < n; i++) {
+            if (errors[i] != null) futures[i].completeExceptionally(errors[i]);
+            else                   futures[i].complete(results[i]);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.meditriage.service;
+
+import com.meditriage.model.Patient;
+import com.meditriage.structures.QuantileHistogram;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Agregados de espera en memoria: atendidos, suma de minutos y percentiles
+ * por nivel, para hoy y para la última hora. Reemplaza las consultas COUNT /
+ * AVG que el Dashboard lanzaba en cada refresco: getStats() solo lee estos
+ * contadores, sin I/O.
+ *
+ * Percentiles: un QuantileHistogram por nivel (memoria fija, error ≤ 3 %)
+ * sobre la espera en segundos. Hoy es un histograma que se vacía a
+ * medianoche; la última hora es un anillo de {@value #SLOTS} tramos de
+ * {@value #SLOT_MINUTES} min que se mezclan al consultar (cubre entre 55 y
+ * 60 min hacia atrás según el momento del tramo actual).
+ *
+ * Se siembra una vez desde la BD al iniciar y luego lo actualiza el
+ * TriageService (atención, undo de atención, undo de re-triage). Tiene su
+ * propio monitor, de retención breve, para que getStats() no necesite el del
+ * servicio. Al cambiar la fecha los contadores de hoy vuelven a cero; un undo
+ * de una atención que ya salió de una ventana no la toca.
+ *
+ * La espera media se cuenta en minutos enteros (Patient.getWaitMinutes()),
+ * igual que TIMESTAMPDIFF(MINUTE, ...) en SQL. La hora actual sale de un
+ * Clock (el del sistema salvo en las pruebas).
+ */
+class DailyStats {
+
+    static final int SLOT_MINUTES = 5;
+    static final int SLOTS        = 12;
+
+    // Hoy
+    private LocalDate                 day;
+    private final int[]               attended = new int[6];   // por nivel (índice 1-5)
+    private final long[]              waitSum  = new long[6];  // minutos de espera por nivel
+    private int                       total;
+    private long                      totalWait;
+    private final QuantileHistogram[] today    = newHistograms();
+
+    // Última hora: anillo de tramos; slotId = número de tramo desde la época
+    private final QuantileHistogram[][] slots  = new QuantileHistogram[SLOTS][];
+    private final long[]                slotId = new long[SLOTS];
+    private final QuantileHistogram     merged = new QuantileHistogram(); // temporal de consulta
+
+    private final Clock clock;
+
+    DailyStats(LocalDate day) {
+        this(day, Clock.systemDefaultZone());
+    }
+
+    DailyStats(LocalDate day, Clock clock) {
+        this.day   = day;
+        this.clock = clock;
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i]  = newHistograms();
+            slotId[i] = -1;
+        }
+    }
+
+    /** Inicio de lo que hay que sembrar desde la BD para cubrir ambas ventanas. */
+    static LocalDateTime seedFrom(LocalDateTime now) {
+        LocalDateTime startOfDay = now.toLocalDate().atStartOfDay();
+        LocalDateTime hourAgo    = now.minusMinutes((long) SLOT_MINUTES * SLOTS);
+        return hourAgo.isBefore(startOfDay) ? hourAgo : startOfDay;
+    }
+
+    /** Paciente atendido (en vivo o leído de la BD al sembrar). */
+    synchronized void recordAttend(Patient p) {
+        LocalDateTime at = p.getAttendedAt();
+        if (at == null) return;
+        int  level = p.getLevel();
+        long secs  = waitSeconds(p);
+        if (isToday(at)) {
+            add(level, 1, p.getWaitMinutes());
+            today[level].record(secs);
+        }
+        QuantileHistogram[] slot = slotFor(at, true);
+        if (slot != null) slot[level].record(secs);
+    }
+
+    /** Undo de una atención: llamar antes de limpiar attendedAt. */
+    synchronized void revertAttend(Patient p) {
+        LocalDateTime at = p.getAttendedAt();
+        if (at == null) return;
+        int  level = p.getLevel();
+        long secs  = waitSeconds(p);
+        if (isToday(at)) {
+            add(level, -1, -p.getWaitMinutes());
+            today[level].remove(secs);
+        }
+        QuantileHistogram[] slot = slotFor(at, false);
+        if (slot != null) slot[level].remove(secs);
+    }
+
+    /** Un paciente atendido cambió de nivel (undo de re-triage tras atenderlo). */
+    synchronized void moveLevel(Patient p, int from, int to) {
+        LocalDateTime at = p.getAttendedAt();
+        if (at == null) return;
+        long wait = p.getWaitMinutes();
+        long secs = waitSeconds(p);
+        if (isToday(at)) {
+            add(from, -1, -wait);
+            add(to,    1,  wait);
+            today[from].remove(secs);
+            today[to].record(secs);
+        }
+        QuantileHistogram[] slot = slotFor(at, false);
+        if (slot != null) {
+            slot[from].remove(secs);
+            slot[to].record(secs);
+        }
+    }
+
+    synchronized int attendedToday() {
+        rollover(LocalDate.now(clock));
+        return total;
+    }
+
+    synchronized int attendedToday(int level) {
+        rollover(LocalDate.now(clock));
+        return attended[level];
+    }
+
+    synchronized double avgWaitMinutes() {
+        rollover(LocalDate.now(clock));
+        return total == 0 ? 0 : (double) totalWait / total;
+    }
+
+    /** Percentiles de espera de hoy para un nivel. */
+    synchronized WaitQuantiles todayQuantiles(int level) {
+        rollover(LocalDate.now(clock));
+        return quantiles(today[level], level);
+    }
+
+    /** Percentiles de espera de la última hora para un nivel. */
+    synchronized WaitQuantiles lastHourQuantiles(int level) {
+        long current = slotNumber(LocalDateTime.now(clock));
+        merged.clear();
+        for (int i = 0; i < SLOTS; i++) {
+            if (slotId[i] > current - SLOTS && slotId[i] <= current) merged.merge(slots[i][level]);
+        }
+        return quantiles(merged, level);
+    }
+
+    // Operaciones internas
+
+    private void add(int level, int count, long wait) {
+        attended[level] += count;
+        waitSum[level]  += wait;
+        total           += count;
+        totalWait       += wait;
+    }
+
+    /**
+     * Histogramas del tramo de {@code at}, o null si ya salió de la ventana.
+     * Con {@code claim} el tramo se recicla si guardaba uno más antiguo.
+     */
+    private QuantileHistogram[] slotFor(LocalDateTime at, boolean claim) {
+        long n = slotNumber(at);
+        if (n <= slotNumber(LocalDateTime.now(clock)) - SLOTS) return null;
+        int i = (int) Math.floorMod(n, (long) SLOTS);
+        if (slotId[i] == n) return slots[i];
+        if (!claim || slotId[i] > n) return null;
+        for (int level = 1; level <= 5; level++) slots[i][level].clear();
+        slotId[i] = n;
+        return slots[i];
+    }
+
+    private static long slotNumber(LocalDateTime at) {
+        return at.toEpochSecond(ZoneOffset.UTC) / (SLOT_MINUTES * 60L);
+    }
+
+    private static long waitSeconds(Patient p) {
+        if (p.getArrivalAt() == null) return 0;
+        return Math.max(0, Duration.between(p.getArrivalAt(), p.getAttendedAt()).getSeconds());
+    }
+
+    private static WaitQuantiles quantiles(QuantileHistogram h, int level) {
+        return new WaitQuantiles(
+            h.count(),
+            h.quantile(0.50) / 60.0,
+            h.quantile(0.90) / 60.0,
+            h.quantile(0.99) / 60.0,
+            Patient.targetMinutes(level));
+    }
+
+    /** true si {@code at} cae en el día en curso (haciendo el corte de medianoche si toca). */
+    private boolean isToday(LocalDateTime at) {
+        rollover(LocalDate.now(clock));
+        return at.toLocalDate().equals(day);
+    }
+
+    private void rollover(LocalDate date) {
+        if (date.equals(day)) return;
+        day = date;
+        for (int level = 1; level <= 5; level++) {
+            attended[level] = 0;
+            waitSum[level]  = 0;
+            today[level].clear();
+        }
+        total     = 0;
+        totalWait = 0;
+    }
+
+    private static QuantileHistogram[] newHistograms() {
+        QuantileHistogram[] byLevel = new QuantileHistogram[6];
+        for (int level = 1; level <= 5; level++) byLevel[level] = new QuantileHistogram();
+        return byLevel;
+    }
+}
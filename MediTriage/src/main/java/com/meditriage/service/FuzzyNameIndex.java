@@ -0,0 +1,77 @@
+package com.meditriage.service;
+
+import com.meditriage.model.Patient;
+import com.meditriage.structures.FuzzyNameMatcher;
+
+/**
+ * Búsqueda aproximada de nombres ("Maria Lopes" → "María López") sobre los
+ * pacientes en espera y los últimos atendidos.
+ *
+ * Los activos entran al registrarse y se quedan al ser atendidos; los
+ * atendidos ocupan una ventana circular de {@code recentSize} pacientes y el
+ * más antiguo sale del índice cuando llega uno nuevo. Un undo de atención
+ * saca al paciente de la ventana (vuelve a ser activo), así que atender,
+ * deshacer y atender de nuevo no lo deja dos veces en ella.
+ *
+ * Solo lo modifica el hilo escritor del TriageService, así que la ventana no
+ * necesita sincronización; search corre en cualquier hilo y solo toca el
+ * matcher, que tiene su propio monitor.
+ */
+class FuzzyNameIndex {
+
+    private final FuzzyNameMatcher matcher = new FuzzyNameMatcher();
+    private final Patient[]        recent;   // ventana circular de atendidos
+    private int                    head;     // próxima posición a escribir
+    private int                    count;
+
+    FuzzyNameIndex(int recentSize) {
+        recent = new Patient[Math.max(1, recentSize)];
+    }
+
+    /** Paciente en espera (registro, carga inicial o undo de atención). */
+    void addActive(Patient p) {
+        matcher.insert(p);
+    }
+
+    /** Undo de registro: el paciente deja de existir. */
+    void remove(Patient p) {
+        matcher.remove(p);
+    }
+
+    /** Paciente atendido: sigue buscable mientras esté en la ventana. */
+    void addAttended(Patient p) {
+        matcher.insert(p);
+        Patient evicted = recent[head];
+        recent[head] = p;
+        head = (head + 1) % recent.length;
+        if (count < recent.length) count++;
+        else if (evicted != null) matcher.remove(evicted);
+    }
+
+    /**
+     * Undo de atención: el paciente vuelve a la cola y deja la ventana; los
+     * más recientes que él retroceden una posición. O(recentSize), solo en undo.
+     */
+    void reactivate(Patient p) {
+        matcher.insert(p);
+        int oldest = (head - count + recent.length) % recent.length;
+        for (int i = count - 1; i >= 0; i--) {
+            int at = (oldest + i) % recent.length;
+            if (recent[at] == null || recent[at].getId() != p.getId()) continue;
+            for (int j = i; j < count - 1; j++) {
+                recent[(oldest + j) % recent.length] = recent[(oldest + j + 1) % recent.length];
+            }
+            head = (head - 1 + recent.length) % recent.length;
+            recent[head] = null;
+            count--;
+            return;
+        }
+    }
+
+    int size()           { return matcher.size(); }
+    int recentCapacity() { return recent.length; }
+
+    Patient[] search(String text, int limit) {
+        return matcher.search(text, limit);
+    }
+}
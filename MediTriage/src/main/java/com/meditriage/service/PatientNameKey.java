@@ -0,0 +1,41 @@
+package com.meditriage.service;
+
+/**
+ * Clave compuesta (nombre, ID) del índice AVL por nombre.
+ *
+ * Dos pacientes con el mismo nombre tienen claves distintas, así que el AVL
+ * (que sobreescribe en claves iguales) los conserva a ambos. Todos los
+ * pacientes de un nombre quedan contiguos en el recorrido in-order y se
+ * obtienen con un rango [(nombre, MIN), (nombre, MAX)].
+ */
+final class PatientNameKey implements Comparable<PatientNameKey> {
+
+    private final String name;
+    private final int    id;
+
+    PatientNameKey(String name, int id) {
+        this.name = name;
+        this.id   = id;
+    }
+
+    /** Límite inferior del rango de un nombre. */
+    static PatientNameKey first(String name) {
+        return new PatientNameKey(name, Integer.MIN_VALUE);
+    }
+
+    /** Límite superior del rango de un nombre. */
+    static PatientNameKey last(String name) {
+        return new PatientNameKey(name, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int compareTo(PatientNameKey o) {
+        int c = name.compareTo(o.name);
+        return c != 0 ? c : Integer.compare(id, o.id);
+    }
+
+    @Override
+    public String toString() {
+        return name + "#" + id;
+    }
+}
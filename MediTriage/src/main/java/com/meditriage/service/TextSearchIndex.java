@@ -0,0 +1,177 @@
+package com.meditriage.service;
+
+import com.meditriage.database.PatientDAO;
+import com.meditriage.model.Patient;
+import com.meditriage.structures.SymptomIndex;
+import com.meditriage.structures.TrigramIndex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Índices de texto de todos los pacientes, activos e historial:
+ *   • TrigramIndex — subcadenas de nombre y síntomas ("contiene").
+ *   • SymptomIndex — texto completo de síntomas con ranking BM25.
+ *
+ * Arranque en segundo plano, sin bloquear la UI:
+ *   1. Lee el snapshot local (si existe): documentos ya indexados. El índice
+ *      de síntomas no se guarda; se reconstruye a partir de esos documentos.
+ *   2. Reemplaza a los pacientes en espera por los objetos vivos del servicio.
+ *   3. Completa desde MySQL por páginas de ID (keyset) a partir del mayor ID
+ *      del snapshot, sin recorrer de nuevo toda la tabla.
+ *
+ * El TriageService lo mantiene al día en registro, atención y undo. Al cerrar,
+ * si la construcción terminó, se guarda un snapshot nuevo (archivo temporal +
+ * renombrado atómico).
+ *
+ * El snapshot se consume al leerlo: solo un cierre limpio deja otro. Si la
+ * aplicación cae, el siguiente arranque no lo encuentra y reconstruye desde
+ * MySQL (ya con el journal aplicado), en lugar de recuperar estados y niveles
+ * viejos o registros que un undo había borrado.
+ */
+class TextSearchIndex {
+
+    private final TrigramIndex index    = new TrigramIndex();
+    private final SymptomIndex symptoms = new SymptomIndex();
+    private final PatientDAO   dao;
+    private final Path         snapshot;
+    private final int          pageSize;
+
+    private volatile boolean ready;
+
+    TextSearchIndex(PatientDAO dao, Path snapshot, int pageSize) {
+        this.dao      = dao;
+        this.snapshot = snapshot;
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    /** Lanza la construcción; {@code active} son los pacientes en espera ya cargados. */
+    void start(Patient[] active) {
+        Thread t = new Thread(() -> build(active), "meditriage-text-index");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    boolean isReady() { return ready; }
+
+    // Sincronizados: los dos índices cambian juntos frente al hilo de construcción
+    synchronized void put(Patient p) {
+        index.put(p);
+        symptoms.add(p);
+    }
+
+    synchronized void remove(int id) {
+        index.remove(id);
+        symptoms.remove(id);
+    }
+
+    int size() { return index.size(); }
+
+    Patient[] search(String text, int limit, boolean includeSymptoms) {
+        return index.search(text, limit, includeSymptoms);
+    }
+
+    Patient[] searchSymptoms(String query, int minLevel, int maxLevel,
+                             LocalDateTime from, LocalDateTime to, int limit) {
+        return symptoms.search(query, minLevel, maxLevel, from, to, limit);
+    }
+
+    /** Guarda el snapshot si el índice está completo. */
+    void save() {
+        if (!ready) return;
+        try {
+            Files.createDirectories(snapshot.toAbsolutePath().getParent());
+            Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                index.writeTo(out);
+            }
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[TextIndex] No se pudo guardar el snapshot: " + e.getMessage());
+        }
+    }
+
+    // Construcción
+
+    private void build(Patient[] active) {
+        long start = System.currentTimeMillis();
+        // El cursor sale del snapshot, no del índice: el servicio puede haber
+        // indexado altas nuevas (IDs mayores) mientras tanto
+        int cursor = loadSnapshot();
+
+        // Los objetos vivos reemplazan a las copias del snapshot (estado al día)
+        for (Patient p : active) index.put(p);
+
+        // Síntomas: mismos documentos, en orden de ID (anexan al final de cada lista)
+        synchronized (this) {
+            for (Patient p : index.toArray()) symptoms.add(p);
+        }
+
+        int loaded = 0;
+        while (true) {
+            Patient[] page;
+            try {
+                page = dao.listSinceId(cursor, pageSize);
+            } catch (SQLException e) {
+                System.err.println("[TextIndex] Construcción detenida en ID " + cursor
+                    + "; la búsqueda usará MySQL: " + e.getMessage());
+                return;
+            }
+            synchronized (this) {
+                for (Patient p : page) {
+                    if (index.putIfAbsent(p)) symptoms.add(p);
+                }
+            }
+            loaded += page.length;
+            if (page.length < pageSize) break;
+            cursor = page[page.length - 1].getId();
+        }
+
+        ready = true;
+        System.out.println("[TextIndex] " + index.size() + " pacientes indexados (" + loaded
+            + " desde MySQL), " + symptoms.termCount() + " términos de síntomas ("
+            + symptoms.postingBytes() + " bytes comprimidos) en "
+            + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Lee y consume el snapshot: primero lo renombra a {@code .loading} (si no
+     * se puede, no se usa), lo lee y lo borra. Un {@code .loading} que quedó
+     * de un arranque interrumpido se descarta sin leerlo.
+     *
+     * @return El mayor ID cubierto por el snapshot (0 = reconstruir todo).
+     */
+    private int loadSnapshot() {
+        Path claimed = snapshot.resolveSibling(snapshot.getFileName() + ".loading");
+        try {
+            Files.deleteIfExists(claimed);
+            if (!Files.exists(snapshot)) return 0;
+            Files.move(snapshot, claimed, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[TextIndex] No se pudo tomar el snapshot, se reconstruye desde MySQL: " + e.getMessage());
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(claimed)))) {
+            return index.readFrom(in);
+        } catch (IOException e) {
+            System.err.println("[TextIndex] Snapshot ilegible, se reconstruye desde MySQL: " + e.getMessage());
+            return 0;
+        } finally {
+            try {
+                Files.deleteIfExists(claimed);
+            } catch (IOException e) {
+                System.err.println("[TextIndex] No se pudo borrar el snapshot leído: " + e.getMessage());
+            }
+        }
+    }
+}
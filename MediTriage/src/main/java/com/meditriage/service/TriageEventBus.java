@@ -0,0 +1,55 @@
+package com.meditriage.service;
+
+import com.meditriage.model.TriageEvent;
+
+/**
+ * Bus de eventos en proceso del TriageService.
+ *
+ * El hilo escritor entrega los eventos de cada lote de una vez, cuando la
+ * foto de lectura ya está publicada y el journal sincronizado: un suscriptor
+ * que lea el servicio al recibirlos ve el estado que los incluye.
+ *
+ * Los suscriptores corren en el hilo escritor y lo demoran mientras tanto:
+ * deben limitarse a encolar (p. ej. UiEventPump junta los eventos y los pasa
+ * a la UI una vez por frame). Suscribir y desuscribir copia el arreglo; la
+ * entrega lo recorre sin bloqueo.
+ */
+public final class TriageEventBus {
+
+    /** Recibe los eventos de un lote, en el orden en que se aplicaron. */
+    public interface Listener {
+        void onEvents(TriageEvent[] events);
+    }
+
+    private volatile Listener[] listeners = new Listener[0];
+
+    public synchronized void subscribe(Listener listener) {
+        Listener[] current = listeners;
+        for (Listener l : current) if (l == listener) return;
+        Listener[] next = new Listener[current.length + 1];
+        for (int i = 0; i < current.length; i++) next[i] = current[i];
+        next[current.length] = listener;
+        listeners = next;
+    }
+
+    public synchronized void unsubscribe(Listener listener) {
+        Listener[] current = listeners;
+        int at = -1;
+        for (int i = 0; i < current.length; i++) if (current[i] == listener) at = i;
+        if (at < 0) return;
+        Listener[] next = new Listener[current.length - 1];
+        for (int i = 0, j = 0; i < current.length; i++) if (i != at) next[j++] = current[i];
+        listeners = next;
+    }
+
+    /** Entrega un lote a todos; el fallo de un suscriptor no afecta a los demás. */
+    void publish(TriageEvent[] events) {
+        for (Listener l : listeners) {
+            try {
+                l.onEvents(events);
+            } catch (RuntimeException e) {
+                System.err.println("[TriageEventBus] Error en suscriptor: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -1,32 +1,75 @@
 package com.meditriage.service;
 
+import com.meditriage.AppConfig;
+import com.meditriage.database.AttendedQuery;
+import com.meditriage.database.DatabaseConnection;
+import com.meditriage.database.HistoryPeriod;
+import com.meditriage.database.IdAllocator;
+import com.meditriage.database.JournalRecord;
 import com.meditriage.database.PatientDAO;
+import com.meditriage.database.PersistenceJournal;
+import com.meditriage.database.PoolStats;
 import com.meditriage.model.Patient;
+import com.meditriage.model.TriageEvent;
 import com.meditriage.model.UndoAction;
 import com.meditriage.structures.AVLTree;
+import com.meditriage.structures.BucketPriorityQueue;
 import com.meditriage.structures.DoublyLinkedList;
-import com.meditriage.structures.HashTable;
+import com.meditriage.structures.IntObjectHashTable;
 import com.meditriage.structures.MinHeap;
+import com.meditriage.structures.PriorityQueueEngine;
+import com.meditriage.structures.RankedPatientTree;
+import com.meditriage.structures.TokenTrie;
 import com.meditriage.structures.Stack;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * Cerebro del sistema de triaje.
  *
  * Centraliza toda la lógica de negocio manteniendo coherencia entre:
- *   • MinHeap         — cola de prioridad
- *   • AVLTree (×2)    — índice por ID y por nombre
- *   • HashTable       — acceso O(1) a pacientes activos
+ *   • PriorityQueueEngine — cola de prioridad (MinHeap o BucketPriorityQueue)
+ *   • RankedPatientTree — vista ordenada de la cola (paginable, incremental)
+ *   • AVLTree (×2)    — índice por ID y por (nombre, ID), admite nombres repetidos
+ *   • TokenTrie       — palabras normalizadas del nombre (búsqueda por prefijo)
+ *   • TrigramIndex    — subcadenas de nombre y síntomas, activos e historial
+ *   • FuzzyNameIndex  — nombres por distancia de edición (búsqueda aproximada)
+ *   • IntObjectHashTable — acceso O(1) a pacientes activos (claves int sin boxing)
  *   • DoublyLinkedList— historial en memoria
  *   • Stack           — pila de undo
- *   • PatientDAO      — persistencia en MySQL
+ *   • PersistenceJournal — persistencia write-behind hacia MySQL (PatientDAO)
  *
  * La UI nunca manipula estructuras directamente; siempre a través de este servicio.
- * Singleton thread-safe por sincronización simple (aplicación de escritorio).
+ * Concurrencia (varios puestos de triaje a la vez): escritor único.
+ *   • Toda mutación (registrar, atender, re-triage, deshacer) entra como
+ *     comando al anillo del CommandLoop y la ejecuta un solo hilo, dueño de
+ *     heap, AVL, hash, trie, historial y pila de undo: entre mutaciones no
+ *     hay contención y el orden es determinista (el mismo del journal).
+ *   • Los comandos consecutivos forman un lote: una sola foto publicada y un
+ *     solo fsync del journal por lote. Cada método tiene su variante *Async
+ *     (CompletableFuture); la síncrona espera el futuro.
+ *   • Las lecturas de la cola, del historial, de activos por ID y de métricas
+ *     leen la TriageSnapshot (campo volatile) sin bloquear. Las búsquedas
+ *     sobre las estructuras vivas (trie, AVL por nombre, rangos) toman el
+ *     bloqueo de lectura de un StampedLock que el escritor toma en escritura
+ *     durante cada lote.
+ *   • El ID hi/lo se reserva en el hilo que llama (puede ir a la BD); MySQL
+ *     se actualiza en segundo plano desde el journal.
+ *   • Cada mutación deja un TriageEvent; al cerrar el lote (foto publicada y
+ *     fsync hecho) los eventos del lote salen juntos por el TriageEventBus.
  */
 public class TriageService {
 
+    /** Máximo de resultados de búsqueda por nombre (igual que el LIMIT del DAO). */
+    public static final int SEARCH_LIMIT = 50;
+
     // Singleton
     private static TriageService instance;
 
@@ -35,43 +78,140 @@ public class TriageService {
         return instance;
     }
 
+    /** Ejecuta los comandos pendientes, vacía el journal hacia MySQL (con tope de espera) y lo cierra. */
+    public static synchronized void shutdown() {
+        if (instance == null) return;
+        instance.close();
+    }
+
+    /** Cierre de esta instancia (ver {@link #shutdown()}). */
+    void close() {
+        commands.close(5_000);
+        journal.close(5_000);
+        textIndex.save();
+    }
+
     // Estructuras de datos
-    private final MinHeap                      queue;          // cola de prioridad
+    private final PriorityQueueEngine          queue;          // cola de prioridad
+    private final RankedPatientTree            sortedQueue;    // misma cola, en orden
     private final AVLTree<Integer, Patient>    avlById;        // índice por ID
-    private final AVLTree<String,  Patient>    avlByName;      // índice por nombre
-    private final HashTable<Integer, Patient>  activePatients; // acceso O(1) por ID
+    private final AVLTree<PatientNameKey, Patient> avlByName;  // índice por nombre (+ ID)
+    private final TokenTrie                    nameTrie;       // prefijos de palabras del nombre
+    private final TextSearchIndex              textIndex;      // trigramas de activos + historial
+    private final FuzzyNameIndex               fuzzyNames;     // nombres aproximados: activos + atendidos recientes
+    private final IntObjectHashTable<Patient>  activePatients; // acceso O(1) por ID
     private final DoublyLinkedList<Patient>    history;        // historial atendidos
     private final Stack<UndoAction>            undoStack;      // pila de deshacer
+    private final DailyStats                   daily;          // agregados de hoy por nivel
+
+    // Lecturas sin bloqueo: foto inmutable publicada tras cada lote
+    private volatile TriageSnapshot snapshot = TriageSnapshot.EMPTY;
+    private long                    version;   // solo lo escribe el hilo escritor
+    private IntObjectHashTable<Patient> frozen = new IntObjectHashTable<>();   // copias de la última foto, por ID
+
+    // Escritor único (ver encabezado)
+    private final CommandLoop commands;
+    private final StampedLock lock = new StampedLock();   // lotes del escritor vs. búsquedas
+    private long              batchSeq;                   // mayor seq del journal del lote en curso
+
+    // Eventos de dominio: se acumulan durante el lote y se entregan al cerrarlo
+    private final TriageEventBus events      = new TriageEventBus();
+    private TriageEvent[]        batchEvents = new TriageEvent[16];   // solo hilo escritor
+    private int                  batchEventCount;
 
     // Persistencia
-    private final PatientDAO dao;
+    private final PatientDAO         dao;
+    private final PersistenceJournal journal;
+    private final IdAllocator        ids;     // IDs hi/lo asignados localmente
 
     // Constructor privado
     private TriageService() {
-        queue          = new MinHeap();
+        this(new PatientDAO());
+    }
+
+    private TriageService(PatientDAO dao) {
+        this(createQueueEngine(AppConfig.get("queue.engine", "HEAP")),
+             dao,
+             openJournal(dao),
+             new IdAllocator("patients", AppConfig.getInt("id.blockSize", 50)),
+             Path.of(AppConfig.get("textIndex.snapshotPath",
+                 System.getProperty("user.home") + "/.meditriage/text-index.snapshot")));
+    }
+
+    /**
+     * Servicio sobre la persistencia dada (las pruebas pasan una BD en
+     * memoria). Carga el estado inicial y arranca el hilo escritor, el
+     * journal y la construcción del índice de texto.
+     */
+    TriageService(PriorityQueueEngine queue, PatientDAO dao, PersistenceJournal journal,
+                  IdAllocator ids, Path textIndexSnapshot) {
+        this.queue     = queue;
+        sortedQueue    = new RankedPatientTree();
         avlById        = new AVLTree<>();
         avlByName      = new AVLTree<>();
-        activePatients = new HashTable<>();
+        nameTrie       = new TokenTrie();
+        activePatients = new IntObjectHashTable<>();
         history        = new DoublyLinkedList<>(200); // últimos 200 en memoria
         undoStack      = new Stack<>();
-        dao            = new PatientDAO();
+        daily          = new DailyStats(LocalDate.now());
+        fuzzyNames     = new FuzzyNameIndex(AppConfig.getInt("fuzzy.recentSize", 5000));
+        this.dao       = dao;
+        this.journal   = journal;
+        this.ids       = ids;
+        textIndex      = new TextSearchIndex(dao, textIndexSnapshot, AppConfig.getInt("textIndex.pageSize", 1000));
 
         // Cargar pacientes WAITING desde BD al iniciar (por si la app se reinicia)
         loadWaitingFromDb();
+        loadRecentNames();
+        seedDailyStats();
+        publish();
+        commands = new CommandLoop(AppConfig.getInt("writer.ringSize", 1024), batchPhases());
+        commands.start();
+        journal.start();
+        textIndex.start(queue.getSortedSnapshot());
+    }
+
+    private static PersistenceJournal openJournal(PatientDAO dao) {
+        String defaultJournal = System.getProperty("user.home") + "/.meditriage/triage.journal";
+        try {
+            return new PersistenceJournal(
+                Path.of(AppConfig.get("journal.path", defaultJournal)),
+                dao,
+                AppConfig.getInt("journal.batchSize", 100));
+        } catch (IOException e) {
+            throw new RuntimeException("No se pudo abrir el journal de persistencia: " + e.getMessage(), e);
+        }
+    }
+
+    /** Motor de cola según {@code queue.engine}: HEAP (por defecto) o BUCKET. */
+    private static PriorityQueueEngine createQueueEngine(String name) {
+        return switch (name.trim().toUpperCase()) {
+            case "HEAP"   -> new MinHeap();
+            case "BUCKET" -> new BucketPriorityQueue();
+            default -> throw new IllegalArgumentException("queue.engine desconocido: " + name);
+        };
     }
 
     // Registro
 
     /**
      * Registra un nuevo paciente:
-     *   1. Persiste en BD → obtiene ID generado.
-     *   2. Inserta en heap, hash y ambos AVL.
-     *   3. Empuja acción REGISTER al stack de undo.
+     *   1. Toma un ID del bloque hi/lo local (en el hilo que llama).
+     *   2. En el hilo escritor: anexa el alta al journal (MySQL se actualiza
+     *      en segundo plano), inserta en heap, hash, ambos AVL e índices y
+     *      empuja la acción REGISTER al stack de undo.
+     *   3. Espera el fin del lote: foto publicada y fsync del journal.
      *
-     * @return El paciente con el ID asignado por la BD.
+     * @return El paciente con el ID asignado.
      */
-    public synchronized Patient registerPatient(String name, int age,
-                                                 String symptoms, int level) {
+    public Patient registerPatient(String name, int age,
+                                   String symptoms, int level) {
+        return await(registerPatientAsync(name, age, symptoms, level));
+    }
+
+    /** Variante asíncrona de {@link #registerPatient}: el futuro se completa ya durable. */
+    public CompletableFuture<Patient> registerPatientAsync(String name, int age,
+                                                           String symptoms, int level) {
         Patient p = new Patient();
         p.setName(name.trim());
         p.setAge(age);
@@ -81,23 +221,99 @@ public class TriageService {
         p.setArrivalAt(LocalDateTime.now());
         p.setCreatedAt(LocalDateTime.now());
 
-        // Persistir y obtener ID
-        int generatedId = dao.insertPatient(p);
-        if (generatedId <= 0) throw new RuntimeException("Error al persistir paciente en BD");
-        p.setId(generatedId);
+        // El asignador tiene su propio monitor y puede ir a la BD: fuera del hilo escritor
+        try {
+            p.setId(ids.nextId());
+        } catch (SQLException e) {
+            throw new RuntimeException("No se pudo reservar un ID de paciente: " + e.getMessage(), e);
+        }
+        return commands.submit(() -> applyRegister(p));
+    }
+
+    private Patient applyRegister(Patient p) {
+        // Registrar en el journal antes de tocar la memoria
+        try {
+            touched(journal.appendInsert(p));
+        } catch (IOException e) {
+            throw new RuntimeException("Error al persistir paciente en el journal: " + e.getMessage(), e);
+        }
 
         // Insertar en estructuras en memoria
         queue.push(p);
+        sortedQueue.insert(p);
         activePatients.put(p.getId(), p);
         avlById.insert(p.getId(), p);
-        avlByName.insert(p.getName(), p);
+        avlByName.insert(nameKey(p), p);
+        nameTrie.insert(p);
+        textIndex.put(p);
+        fuzzyNames.addActive(p);
 
         // Guardar acción para posible undo
         undoStack.push(new UndoAction(UndoAction.ActionType.REGISTER, p));
-
+        emit(TriageEvent.registered(p));
         return p;
     }
 
+    /**
+     * Registro masivo (p. ej. incidente con múltiples víctimas).
+     * Cada borrador trae name/age/symptoms/level; el servicio completa el resto.
+     *
+     * A diferencia de N llamadas a registerPatient: una sola escritura al
+     * journal, un solo fsync, un único build-heap y un INSERT por lotes en MySQL.
+     * Cada alta queda en el stack de undo por separado.
+     *
+     * @return Los pacientes registrados, en el mismo orden que {@code drafts}.
+     */
+    public Patient[] registerPatients(Patient[] drafts) {
+        return await(registerPatientsAsync(drafts));
+    }
+
+    /** Variante asíncrona de {@link #registerPatients}. */
+    public CompletableFuture<Patient[]> registerPatientsAsync(Patient[] drafts) {
+        LocalDateTime now = LocalDateTime.now();
+        Patient[] batch = new Patient[drafts.length];
+        for (int i = 0; i < drafts.length; i++) {
+            Patient d = drafts[i];
+            Patient p = new Patient();
+            p.setName(d.getName().trim());
+            p.setAge(d.getAge());
+            p.setSymptoms(d.getSymptoms().trim());
+            p.setLevel(d.getLevel());
+            p.setStatus("WAITING");
+            p.setArrivalAt(now);
+            p.setCreatedAt(now);
+            try {
+                p.setId(ids.nextId());
+            } catch (SQLException e) {
+                throw new RuntimeException("No se pudo reservar un ID de paciente: " + e.getMessage(), e);
+            }
+            batch[i] = p;
+        }
+        return commands.submit(() -> applyRegisterAll(batch));
+    }
+
+    private Patient[] applyRegisterAll(Patient[] batch) {
+        try {
+            touched(journal.appendInserts(batch));
+        } catch (IOException e) {
+            throw new RuntimeException("Error al persistir el lote en el journal: " + e.getMessage(), e);
+        }
+
+        queue.addAll(batch);
+        sortedQueue.insertAll(batch);
+        for (Patient p : batch) {
+            activePatients.put(p.getId(), p);
+            avlById.insert(p.getId(), p);
+            avlByName.insert(nameKey(p), p);
+            nameTrie.insert(p);
+            textIndex.put(p);
+            fuzzyNames.addActive(p);
+            undoStack.push(new UndoAction(UndoAction.ActionType.REGISTER, p));
+            emit(TriageEvent.registered(p));
+        }
+        return batch;
+    }
+
     // Atender
 
     /**
@@ -105,198 +321,719 @@ public class TriageService {
      *   1. Pop del heap.
      *   2. Actualiza estructuras (hash, AVL) → paciente sale de activos.
      *   3. Agrega al historial en memoria.
-     *   4. Actualiza BD (status ATTENDED + attended_at).
+     *   4. Anexa al journal (status ATTENDED + attended_at) → MySQL en segundo plano.
      *   5. Empuja acción ATTEND al stack de undo.
      *
      * @return El paciente atendido, o null si la cola está vacía.
      */
-    public synchronized Patient attendNext() {
+    public Patient attendNext() {
+        return await(attendNextAsync());
+    }
+
+    /** Variante asíncrona de {@link #attendNext}; el futuro trae null si la cola estaba vacía. */
+    public CompletableFuture<Patient> attendNextAsync() {
+        return commands.submit(this::applyAttend);
+    }
+
+    private Patient applyAttend() {
         if (queue.isEmpty()) return null;
 
+        // Journal primero: si falla, la memoria queda intacta
+        LocalDateTime attendedAt = LocalDateTime.now();
+        try {
+            touched(journal.appendAttend(queue.peek().getId(), attendedAt));
+        } catch (IOException e) {
+            throw new RuntimeException("Error al persistir atención en el journal: " + e.getMessage(), e);
+        }
+
         Patient p = queue.pop();
+        sortedQueue.remove(p);
         p.setStatus("ATTENDED");
-        p.setAttendedAt(LocalDateTime.now());
+        p.setAttendedAt(attendedAt);
 
         // Sacar de activos
         activePatients.remove(p.getId());
         avlById.delete(p.getId());
-        avlByName.delete(p.getName());
+        avlByName.delete(nameKey(p));
+        nameTrie.remove(p);
+        fuzzyNames.addAttended(p);
+        // El índice de texto ya lo contiene (mismo objeto): pasa a historial sin re-indexar
 
         // Agregar al historial en memoria
         history.addLast(p);
-
-        // Persistir cambio
-        dao.updateStatusToAttended(p.getId(), p.getAttendedAt());
+        daily.recordAttend(p);
 
         // Guardar acción para posible undo
         undoStack.push(new UndoAction(UndoAction.ActionType.ATTEND, p));
+        emit(TriageEvent.attended(p));
+        return p;
+    }
+
+    // Re-triage
 
+    /**
+     * Cambia el nivel de un paciente en espera sin vaciar ni reconstruir la cola:
+     * el heap indexado lo reubica en O(log n). Anexa el cambio al journal y deja
+     * una acción RETRIAGE (con el nivel anterior) en el stack de undo.
+     *
+     * @return El paciente re-triado, o null si no está en espera.
+     */
+    public Patient retriage(int id, int level) {
+        return await(retriageAsync(id, level));
+    }
+
+    /** Variante asíncrona de {@link #retriage}. */
+    public CompletableFuture<Patient> retriageAsync(int id, int level) {
+        if (level < 1 || level > 5)
+            throw new IllegalArgumentException("Nivel de triage inválido: " + level);
+        return commands.submit(() -> applyRetriage(id, level));
+    }
+
+    private Patient applyRetriage(int id, int level) {
+        Patient p = queue.get(id);
+        if (p == null) return null;
+        int previous = p.getLevel();
+        if (previous == level) return p;
+
+        try {
+            touched(journal.appendRetriage(id, level));
+        } catch (IOException e) {
+            throw new RuntimeException("Error al persistir re-triage en el journal: " + e.getMessage(), e);
+        }
+
+        changeLevel(p, level);
+        undoStack.push(new UndoAction(UndoAction.ActionType.RETRIAGE, p, previous));
+        emit(TriageEvent.retriaged(p, previous));
         return p;
     }
 
     // Deshacer
 
     /**
-     * Deshace la última acción (REGISTER o ATTEND) de forma coherente.
+     * Deshace la última acción (REGISTER, ATTEND o RETRIAGE) de forma coherente.
      *
      * Undo de REGISTER:
-     *   → Elimina el paciente del heap, hash, AVL y BD.
+     *   → Elimina el paciente del heap, hash, AVL y BD (vía journal).
      *
      * Undo de ATTEND:
      *   → Revierte el paciente: reinsertar en heap/hash/AVL,
-     *     quitar del historial y actualizar BD (status WAITING, attended_at NULL).
+     *     quitar del historial y actualizar BD vía journal (status WAITING, attended_at NULL).
+     *
+     * Undo de RETRIAGE:
+     *   → Restaura el nivel anterior en el heap (O(log n)) y en BD vía journal.
+     *
+     * "Última" es la última ejecutada por el hilo escritor: con varios puestos
+     * a la vez, el orden es el de llegada al anillo de comandos.
      *
      * @return Mensaje descriptivo de la operación realizada.
      */
-    public synchronized String undoLastAction() {
+    public String undoLastAction() {
+        return await(undoLastActionAsync());
+    }
+
+    /** Variante asíncrona de {@link #undoLastAction}. */
+    public CompletableFuture<String> undoLastActionAsync() {
+        return commands.submit(this::applyUndo);
+    }
+
+    private String applyUndo() {
         if (undoStack.isEmpty()) return "No hay acciones para deshacer.";
 
-        UndoAction action  = undoStack.pop();
-        Patient    patient = action.getPatient();
+        UndoAction            action  = undoStack.peek();
+        Patient               patient = action.getPatient();
+        UndoAction.ActionType type    = action.getActionType();
 
-        if (action.getActionType() == UndoAction.ActionType.REGISTER) {
+        // Journal primero: si falla, la acción sigue en la pila
+        try {
+            touched(switch (type) {
+                case REGISTER -> journal.appendDelete(patient.getId());
+                case ATTEND   -> journal.appendRevert(patient.getId());
+                case RETRIAGE -> journal.appendRetriage(patient.getId(), action.getPreviousLevel());
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Error al persistir undo en el journal: " + e.getMessage(), e);
+        }
+        undoStack.pop();
+
+        if (type == UndoAction.ActionType.RETRIAGE) {
+            // Deshacer RE-TRIAGE
+            int current = patient.getLevel();
+            if (queue.contains(patient.getId())) {
+                changeLevel(patient, action.getPreviousLevel());
+            } else {
+                patient.setLevel(action.getPreviousLevel());
+                if ("ATTENDED".equals(patient.getStatus()))
+                    daily.moveLevel(patient, current, action.getPreviousLevel());
+            }
+            emit(TriageEvent.undone(type, patient, current));
+            return "✓ Re-triage de «" + patient.getName() + "» (ID " + patient.getId() + ") deshecho: nivel "
+                 + current + " → " + action.getPreviousLevel() + ".";
+
+        } else if (type == UndoAction.ActionType.REGISTER) {
             // Deshacer REGISTRO
             queue.removeById(patient.getId());
+            sortedQueue.remove(patient);
             activePatients.remove(patient.getId());
             avlById.delete(patient.getId());
-            avlByName.delete(patient.getName());
-            dao.deletePatient(patient.getId());
+            avlByName.delete(nameKey(patient));
+            nameTrie.remove(patient);
+            textIndex.remove(patient.getId());
+            fuzzyNames.remove(patient);
+            emit(TriageEvent.undone(type, patient, 0));
             return "✓ Registro de «" + patient.getName() + "» (ID " + patient.getId() + ") deshecho.";
 
         } else {
             // Deshacer ATENCIÓN
+            daily.revertAttend(patient);
             patient.setStatus("WAITING");
             patient.setAttendedAt(null);
 
             // Reinsertar en estructuras
             queue.push(patient);
+            sortedQueue.insert(patient);
             activePatients.put(patient.getId(), patient);
             avlById.insert(patient.getId(), patient);
-            avlByName.insert(patient.getName(), patient);
+            avlByName.insert(nameKey(patient), patient);
+            nameTrie.insert(patient);
+            fuzzyNames.reactivate(patient);
 
             // Quitar del historial en memoria
             history.removeElement(patient);
-
-            // Revertir en BD
-            dao.revertToWaiting(patient.getId());
+            emit(TriageEvent.undone(type, patient, 0));
             return "✓ Atención de «" + patient.getName() + "» (ID " + patient.getId() + ") deshecha.";
         }
     }
 
+    // Lotes del hilo escritor
+
+    /** Un comando anexó al journal hasta {@code seq}: el lote publica y hace fsync. */
+    private void touched(long seq) {
+        batchSeq = Math.max(batchSeq, seq);
+    }
+
+    /** Acumula un evento del lote en curso (hilo escritor). */
+    private void emit(TriageEvent e) {
+        if (batchEventCount == batchEvents.length) {
+            TriageEvent[] grown = new TriageEvent[batchEventCount * 2];
+            for (int i = 0; i < batchEventCount; i++) grown[i] = batchEvents[i];
+            batchEvents = grown;
+        }
+        batchEvents[batchEventCount++] = e;
+    }
+
+    /**
+     * Fases de cada lote del CommandLoop (ver BatchLock): al empezar se
+     * reinicia la secuencia del lote; en la fase compartida se publica una
+     * sola foto; ya sin bloqueo, un solo fsync para todo el lote (group
+     * commit) y la entrega de sus eventos. Los futuros del lote se completan
+     * después: el llamador ve su mutación publicada y durable.
+     */
+    private BatchLock batchPhases() {
+        return new BatchLock(lock,
+            () -> batchSeq = -1,
+            () -> { if (batchSeq >= 0) publish(); },
+            () -> {
+                if (batchSeq >= 0) awaitDurable(batchSeq);
+                dispatchEvents();
+            });
+    }
+
+    /**
+     * Entrega los eventos del lote por el bus y vacía el búfer. Los eventos
+     * salen con las copias de la foto recién publicada, no con los objetos
+     * que el escritor sigue modificando: las vistas guardan filas congeladas.
+     */
+    private void dispatchEvents() {
+        if (batchEventCount == 0) return;
+        TriageEvent[] out = new TriageEvent[batchEventCount];
+        for (int i = 0; i < batchEventCount; i++) {
+            out[i]         = batchEvents[i].withPatient(eventCopy(batchEvents[i].getPatient()));
+            batchEvents[i] = null;
+        }
+        batchEventCount = 0;
+        events.publish(out);
+    }
+
+    /**
+     * Espera un resultado del hilo escritor y relanza su excepción tal cual
+     * (los llamadores síncronos ven el mismo RuntimeException que antes).
+     */
+    private <T> T await(CompletableFuture<T> future) {
+        if (commands.isWriterThread())
+            throw new IllegalStateException("El hilo escritor no puede esperar a sus propios comandos");
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err)           throw err;
+            throw e;
+        }
+    }
+
+    /**
+     * Cambia el nivel de un paciente en espera manteniendo heap y vista ordenada:
+     * la clave del árbol es el nivel, así que se quita antes y se reinserta después.
+     */
+    private void changeLevel(Patient p, int level) {
+        sortedQueue.remove(p);
+        queue.changeLevel(p.getId(), level);
+        sortedQueue.insert(p);
+    }
+
+    /** Concatena dos resultados sin repetir IDs, hasta {@code limit}. */
+    private static Patient[] merge(Patient[] first, Patient[] second, int limit) {
+        IntObjectHashTable<Patient> seen = new IntObjectHashTable<>();
+        Patient[] buffer = new Patient[Math.min(limit, first.length + second.length)];
+        int n = 0;
+        for (Patient[] part : new Patient[][] { first, second }) {
+            for (Patient p : part) {
+                if (n == buffer.length) break;
+                if (seen.containsKey(p.getId())) continue;
+                seen.put(p.getId(), p);
+                buffer[n++] = p;
+            }
+        }
+        if (n == buffer.length) return buffer;
+        Patient[] out = new Patient[n];
+        for (int i = 0; i < n; i++) out[i] = buffer[i];
+        return out;
+    }
+
+    /**
+     * Arma y publica la foto de lectura del estado actual. La llama el hilo
+     * escritor al final de cada lote (o el constructor antes de arrancarlo):
+     * hay un solo publicador y la foto es coherente; la escritura volatile
+     * hace visible todo lo anterior a quien lea {@code snapshot}. O(n) en la
+     * cola, una vez por lote.
+     *
+     * La foto guarda copias de los Patient, no los objetos de las estructuras,
+     * que el escritor sigue modificando. Un paciente sin cambios desde la foto
+     * anterior reutiliza su copia: solo se copian los tocados en el lote, y las
+     * vistas pueden comparar filas por identidad entre dos fotos.
+     */
+    private void publish() {
+        IntObjectHashTable<Patient> copies = new IntObjectHashTable<>();
+
+        DoublyLinkedList<Patient> byId = new DoublyLinkedList<>();
+        avlById.collectAllInto(byId);
+        Object[]  raw        = byId.toArray();
+        Patient[] activeById = new Patient[raw.length];
+        for (int i = 0; i < raw.length; i++) activeById[i] = frozenCopy((Patient) raw[i], copies);
+
+        Patient[] queued = sortedQueue.toArray();
+        for (int i = 0; i < queued.length; i++) queued[i] = frozenCopy(queued[i], copies);
+
+        Patient[] attended = historyArray();
+        for (int i = 0; i < attended.length; i++) attended[i] = frozenCopy(attended[i], copies);
+        frozen = copies;
+
+        snapshot = new TriageSnapshot(
+            ++version,
+            queued,
+            activeById,
+            attended,
+            undoStack.size(),
+            activePatients.size(),
+            activePatients.loadFactor(),
+            activePatients.collisionsCount(),
+            activePatients.maxProbeLength(),
+            avlById.height(),
+            avlByName.height());
+    }
+
+    /** Copia de {@code live} para la foto: la de la foto anterior si no cambió, o una nueva. */
+    private Patient frozenCopy(Patient live, IntObjectHashTable<Patient> copies) {
+        Patient copy = copies.get(live.getId());
+        if (copy != null) return copy;
+        copy = frozen.get(live.getId());
+        if (copy == null || !sameValues(copy, live)) copy = live.copy();
+        copies.put(live.getId(), copy);
+        return copy;
+    }
+
+    /**
+     * Copia de {@code live} para un evento: la de la foto si coincide con su
+     * estado actual; si no está en ella (p. ej. un alta deshecha), una nueva.
+     */
+    private Patient eventCopy(Patient live) {
+        Patient copy = frozen.get(live.getId());
+        return copy != null && sameValues(copy, live) ? copy : live.copy();
+    }
+
+    /** Compara por referencia: el escritor reemplaza los valores, no los modifica. */
+    private static boolean sameValues(Patient copy, Patient live) {
+        return copy.getLevel()      == live.getLevel()
+            && copy.getAge()        == live.getAge()
+            && copy.getStatus()     == live.getStatus()
+            && copy.getName()       == live.getName()
+            && copy.getSymptoms()   == live.getSymptoms()
+            && copy.getArrivalAt()  == live.getArrivalAt()
+            && copy.getAttendedAt() == live.getAttendedAt()
+            && copy.getCreatedAt()  == live.getCreatedAt();
+    }
+
+    private Patient[] historyArray() {
+        Object[]  raw    = history.toArray();
+        Patient[] result = new Patient[raw.length];
+        for (int i = 0; i < raw.length; i++) result[i] = (Patient) raw[i];
+        return result;
+    }
+
+    private static PatientNameKey nameKey(Patient p) {
+        return new PatientNameKey(p.getName(), p.getId());
+    }
+
+    /**
+     * Espera el fsync del journal (al final del lote, ya sin el bloqueo).
+     * La mutación ya es visible en memoria; un fallo de disco solo se reporta.
+     */
+    private void awaitDurable(long seq) {
+        try {
+            journal.sync(seq);
+        } catch (IOException e) {
+            System.err.println("[TriageService] fsync del journal falló (seq " + seq + "): " + e.getMessage());
+        }
+    }
+
     // Búsquedas
 
     /**
-     * Busca paciente activo por ID usando el AVL (O(log n)).
-     * Si no está en estructuras en memoria, consulta la BD.
+     * Busca paciente por ID en la foto de lectura, sin bloquear: primero en
+     * espera (búsqueda binaria, O(log n)), luego en el historial en memoria.
+     * Solo si no está en ninguno consulta la BD: con escritura diferida, un
+     * alta o una atención recientes pueden no haber llegado aún a MySQL.
      */
     public Patient searchById(int id) {
-        Patient p = avlById.search(id);
+        TriageSnapshot s = snapshot;
+        Patient p = s.findActive(id);
+        if (p == null) p = s.findAttended(id);
         if (p == null) p = dao.findById(id);
         return p;
     }
 
     /**
      * Busca paciente activo por nombre exacto usando el AVL (O(log n)).
+     * Si hay varios con ese nombre, retorna el de menor ID.
      */
     public Patient searchByNameExact(String name) {
-        return avlByName.search(name.trim());
+        Patient[] all = searchAllByName(name);
+        return all.length == 0 ? null : all[0];
     }
 
     /**
-     * Busca pacientes activos cuyo nombre contenga el texto dado.
-     * Realiza traversal in-order del AVL de nombres y filtra.
-     * Para búsqueda en BD (incluyendo historial) usa findByNameLike de DAO.
+     * Todos los pacientes activos con el nombre exacto dado, ordenados por ID.
+     * Escaneo de rango sobre el AVL (nombre, ID): O(log n + k).
      */
-    public Patient[] searchByNameContains(String text) {
-        // Recolectar todos los pacientes activos en una lista propia
-        DoublyLinkedList<Patient> all = new DoublyLinkedList<>();
-        avlByName.collectAllInto(all);
-
-        String lowerText = text.trim().toLowerCase();
-
-        // Filtrar sin java.util: doble pasada sobre DoublyLinkedList
-        Patient[] allArr   = all.toArray();
-        int count = 0;
-        for (Object obj : allArr) {
-            Patient p = (Patient) obj;
-            if (p.getName().toLowerCase().contains(lowerText)) count++;
-        }
-        Patient[] result = new Patient[count];
-        int idx = 0;
-        for (Object obj : allArr) {
-            Patient p = (Patient) obj;
-            if (p.getName().toLowerCase().contains(lowerText)) result[idx++] = p;
+    public Patient[] searchAllByName(String name) {
+        String key = name.trim();
+        DoublyLinkedList<Patient> found = new DoublyLinkedList<>();
+        long stamp = lock.readLock();
+        try {
+            avlByName.collectRange(PatientNameKey.first(key), PatientNameKey.last(key), found);
+        } finally {
+            lock.unlockRead(stamp);
         }
 
-        // Si no encontramos nada en memoria, buscar en BD
-        if (count == 0) return dao.findByNameLike(text);
+        Object[]  raw    = found.toArray();
+        Patient[] result = new Patient[raw.length];
+        for (int i = 0; i < raw.length; i++) result[i] = (Patient) raw[i];
         return result;
     }
 
+    /**
+     * Busca pacientes (activos e historial) por nombre, sin distinguir
+     * mayúsculas ni tildes:
+     *   1. Trie de palabras de activos ("mar lo" → "María López").
+     *   2. Índice de trigramas: nombres que contienen el texto, incluido el
+     *      historial completo, sin {@code LIKE '%x%'} en MySQL.
+     * Mientras el índice se construye (arranque), completa con BD.
+     */
+    public Patient[] searchByNameContains(String text) {
+        Patient[] byPrefix = searchByNamePrefix(text, SEARCH_LIMIT);
+        if (!textIndex.isReady()) {
+            return byPrefix.length == 0 ? dao.findByNameLike(text) : byPrefix;
+        }
+        return merge(byPrefix, textIndex.search(text, SEARCH_LIMIT, false), SEARCH_LIMIT);
+    }
+
+    /**
+     * Pacientes (activos e historial) cuyo nombre o síntomas contienen el texto.
+     * Más recientes primero. Mientras el índice se construye, consulta BD por nombre.
+     */
+    public Patient[] searchText(String text, int limit) {
+        if (!textIndex.isReady()) return dao.findByNameLike(text);
+        return textIndex.search(text, limit, true);
+    }
+
+    /**
+     * Búsqueda aproximada por nombre (errores de tipeo, sin tildes): pacientes
+     * en espera y atendidos recientes, del más parecido al menos parecido.
+     */
+    public Patient[] searchByNameFuzzy(String text, int limit) {
+        return fuzzyNames.search(text, limit);
+    }
+
+    /**
+     * Búsqueda de texto completo en los síntomas (activos e historial), por
+     * relevancia BM25: "dolor pecho" encuentra también "dolores en el pecho".
+     *
+     * @param minLevel / maxLevel Rango de niveles (1–5, inclusive).
+     * @param from / to           Ventana de llegada; null = sin límite.
+     */
+    public Patient[] searchSymptoms(String text, int minLevel, int maxLevel,
+                                    LocalDateTime from, LocalDateTime to, int limit) {
+        return textIndex.searchSymptoms(text, minLevel, maxLevel, from, to, limit);
+    }
+
+    /** Indica si los índices de texto ya cubren todo el historial de MySQL. */
+    public boolean isTextIndexReady() {
+        return textIndex.isReady();
+    }
+
+    /**
+     * Búsqueda por inicio de palabra solo en memoria (para búsqueda mientras
+     * se escribe: nunca consulta MySQL).
+     */
+    public Patient[] searchByNamePrefix(String text, int limit) {
+        long stamp = lock.readLock();
+        try {
+            return nameTrie.search(text, limit);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
     // Snapshots para UI
 
     /**
-     * Retorna los pacientes de la cola ordenados por prioridad,
-     * sin modificar el heap original.
+     * Retorna los pacientes de la cola ordenados por prioridad.
+     * Copia de la foto de lectura (O(n)), sin bloquear ni tocar el heap.
      */
     public Patient[] getQueueSnapshotSorted() {
-        return queue.getSortedSnapshot();
+        return snapshot.page(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Retorna una página de la cola ordenada: hasta {@code limit} pacientes a
+     * partir de la posición {@code offset} (0 = más urgente). O(limit), sin bloquear.
+     */
+    public Patient[] getQueuePage(int offset, int limit) {
+        return snapshot.page(offset, limit);
+    }
+
+    /**
+     * Posición del paciente en la cola (0 = siguiente), o -1 si no está en espera.
+     * Usa los tamaños de subárbol del árbol ordenado (O(log n)) bajo el bloqueo
+     * de lectura, no la foto.
+     */
+    public int getQueuePosition(int id) {
+        long stamp = lock.readLock();
+        try {
+            Patient p = queue.get(id);
+            return p == null ? -1 : sortedQueue.rankOf(p);
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     /**
      * Retorna todos los pacientes del historial en memoria (más reciente al final).
      */
     public Patient[] getHistorySnapshot() {
-        Object[] raw    = history.toArray();
-        Patient[] result = new Patient[raw.length];
-        for (int i = 0; i < raw.length; i++) result[i] = (Patient) raw[i];
+        Patient[] history = snapshot.history;
+        Patient[] result  = new Patient[history.length];
+        for (int i = 0; i < history.length; i++) result[i] = history[i];
         return result;
     }
 
-    /** Retorna el paciente más urgente sin extraerlo del heap. */
+    /** Foto de lectura vigente (una sola lectura volatile: coherente consigo misma). */
+    TriageSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /** Retorna el paciente más urgente sin extraerlo del heap (foto de lectura). */
     public Patient peekNext() {
-        return queue.peek();
+        Patient[] queue = snapshot.queue;
+        return queue.length == 0 ? null : queue[0];
     }
 
     // Estadísticas
 
     /**
      * Construye y retorna el DTO de métricas del sistema.
-     * Las métricas de BD (attendedToday, avgWait) se consultan con una sola
-     * query adicional por llamada; no son costosas con índices correctos.
+     * Todo se lee en memoria, sin I/O y sin el bloqueo del servicio: las
+     * métricas de estructuras salen de la foto de lectura; los atendidos, la
+     * espera media y los percentiles, de los agregados (con su propio monitor,
+     * de retención breve); las del pool y el journal, de sus contadores.
      */
     public TriageStats getStats() {
+        TriageSnapshot snap = snapshot;
+        PoolStats      pool = DatabaseConnection.poolStats();
+        int[]           attendedByLevel = new int[6];
+        WaitQuantiles[] waitToday       = new WaitQuantiles[6];
+        WaitQuantiles[] waitLastHour    = new WaitQuantiles[6];
+        for (int level = 1; level <= 5; level++) {
+            attendedByLevel[level] = daily.attendedToday(level);
+            waitToday[level]       = daily.todayQuantiles(level);
+            waitLastHour[level]    = daily.lastHourQuantiles(level);
+        }
         return new TriageStats(
-            queue.size(),
-            dao.countAttendedToday(),
-            dao.avgWaitMinutesToday(),
-            undoStack.size(),
-            activePatients.size(),
-            activePatients.loadFactor(),
-            activePatients.collisionsCount(),
-            avlById.height(),
-            avlByName.height(),
-            history.size()
+            snap.queue.length,
+            daily.attendedToday(),
+            daily.avgWaitMinutes(),
+            attendedByLevel,
+            waitToday,
+            waitLastHour,
+            snap.undoStackSize,
+            snap.hashTableSize,
+            snap.hashLoadFactor,
+            snap.hashCollisions,
+            snap.hashMaxProbe,
+            snap.avlByIdHeight,
+            snap.avlByNameHeight,
+            snap.history.length,
+            pool.getActive(),
+            pool.getIdle(),
+            pool.getAvgWaitMs(),
+            pool.getStmtCacheHitRatio(),
+            journal.pendingCount()
         );
     }
 
+    /** Bus de eventos de dominio (registro, atención, re-triage, undo). */
+    public TriageEventBus getEvents() { return events; }
+
     /** Expone el PatientDAO para consultas extendidas del HistoryController. */
     public PatientDAO getDao() { return dao; }
 
+    /** Filas por página en la vista de historial (history.pageSize). */
+    public int getHistoryPageSize() {
+        return Math.max(1, AppConfig.getInt("history.pageSize", 200));
+    }
+
     // Carga inicial
 
+    /** Atendidos de hoy (hasta llenar la ventana) para la búsqueda aproximada. */
+    private void loadRecentNames() {
+        Patient[] recent;
+        try {
+            recent = dao.pageAttended(
+                AttendedQuery.all().period(HistoryPeriod.TODAY, LocalDateTime.now()),
+                fuzzyNames.recentCapacity());
+        } catch (SQLException e) {
+            System.err.println("[Service] No se pudieron cargar los atendidos recientes: " + e.getMessage());
+            return;
+        }
+        // Llegan del más reciente al más antiguo; la ventana se llena en orden de atención
+        for (int i = recent.length - 1; i >= 0; i--) fuzzyNames.addAttended(recent[i]);
+    }
+
+    /**
+     * Siembra los agregados con lo ya atendido en la BD: hoy y la última hora
+     * (que a primera hora del día empieza ayer), en streaming, una sola vez.
+     * Va después de reproducir el journal, así la BD ya incluye las atenciones
+     * de la ejecución anterior.
+     */
+    private void seedDailyStats() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            dao.streamAttended(AttendedQuery.all().attendedBetween(DailyStats.seedFrom(now), null), p -> {
+                daily.recordAttend(p);
+                return true;
+            });
+        } catch (SQLException e) {
+            System.err.println("[Service] No se pudieron cargar los atendidos de hoy: " + e.getMessage());
+        }
+    }
+
     /**
      * Al iniciar la aplicación, carga en memoria los pacientes WAITING de la BD
      * (por si la app se cerró y se reinicia).
+     *
+     * Antes se reproduce el journal: lo que no llegó a MySQL en la ejecución
+     * anterior se aplica primero. Si la BD no acepta la reproducción, los
+     * registros se superponen a lo leído de la BD para no perder ningún alta.
      */
     private void loadWaitingFromDb() {
+        JournalRecord[] replayed;
+        try {
+            replayed = journal.recover();
+        } catch (IOException e) {
+            throw new RuntimeException("No se pudo leer el journal de persistencia: " + e.getMessage(), e);
+        }
+
         Patient[] waiting = dao.listWaiting();
+        if (journal.pendingCount() > 0) waiting = overlay(waiting, replayed);
+
+        // Marca de agua: la secuencia hi/lo debe superar todo lo visto en BD y journal
+        int maxId = dao.maxPatientId();
+        for (Patient p : waiting)        maxId = Math.max(maxId, p.getId());
+        for (JournalRecord r : replayed) maxId = Math.max(maxId, r.getPatientId());
+        ids.recover(maxId + 1L);
+
+        // Heap en bloque (Floyd, O(n)) en lugar de n push
+        queue.addAll(waiting);
+        sortedQueue.insertAll(waiting);
         for (Patient p : waiting) {
-            queue.push(p);
             activePatients.put(p.getId(), p);
             avlById.insert(p.getId(), p);
-            avlByName.insert(p.getName(), p);
+            avlByName.insert(nameKey(p), p);
+            nameTrie.insert(p);
+            fuzzyNames.addActive(p);
         }
         System.out.println("[TriageService] Cargados " + waiting.length + " pacientes WAITING desde BD.");
     }
+
+    /** Aplica en orden los registros del journal sobre la lista WAITING leída de la BD. */
+    private Patient[] overlay(Patient[] fromDb, JournalRecord[] records) {
+        AVLTree<Integer, Patient> waitingById = new AVLTree<>();
+        AVLTree<Integer, Patient> known       = new AVLTree<>(); // incluye atendidos
+        for (Patient p : fromDb) {
+            waitingById.insert(p.getId(), p);
+            known.insert(p.getId(), p);
+        }
+
+        for (JournalRecord r : records) {
+            int id = r.getPatientId();
+            switch (r.getType()) {
+                case INSERT -> {
+                    Patient p = r.getPatient();
+                    known.insert(id, p);
+                    if ("ATTENDED".equals(p.getStatus())) waitingById.delete(id);
+                    else                                  waitingById.insert(id, p);
+                }
+                case ATTEND -> {
+                    Patient p = known.search(id);
+                    if (p != null) {
+                        p.setStatus("ATTENDED");
+                        p.setAttendedAt(r.getAttendedAt());
+                    }
+                    waitingById.delete(id);
+                }
+                case REVERT -> {
+                    Patient p = known.search(id);
+                    if (p != null) {
+                        p.setStatus("WAITING");
+                        p.setAttendedAt(null);
+                        waitingById.insert(id, p);
+                    }
+                }
+                case DELETE -> {
+                    known.delete(id);
+                    waitingById.delete(id);
+                }
+                case RETRIAGE -> {
+                    Patient p = known.search(id);
+                    if (p != null) p.setLevel(r.getLevel());
+                }
+            }
+        }
+
+        DoublyLinkedList<Patient> list = new DoublyLinkedList<>();
+        waitingById.collectAllInto(list);
+        Object[]  raw    = list.toArray();
+        Patient[] result = new Patient[raw.length];
+        for (int i = 0; i < raw.length; i++) result[i] = (Patient) raw[i];
+        return result;
+    }
 }
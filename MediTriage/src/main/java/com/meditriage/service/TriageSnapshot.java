@@ -0,0 +1,86 @@
+package com.meditriage.service;
+
+import com.meditriage.model.Patient;
+
+/**
+ * Foto inmutable del estado en memoria del TriageService, para lecturas sin
+ * bloqueo.
+ *
+ * El hilo escritor arma una nueva al final de cada lote (con el bloqueo ya
+ * degradado a lectura) y la publica en un campo volatile: quien la lee ve
+ * arreglos completos y coherentes entre sí sin tomar ningún bloqueo, así que
+ * un refresco del Dashboard nunca demora una atención. Cada versión reemplaza a la anterior;
+ * los arreglos no se modifican después de publicados.
+ *
+ * Los Patient son copias hechas al publicar, no los objetos de las
+ * estructuras: sus campos (nivel, estado, hora de atención) son los de
+ * {@code version} aunque el escritor ya haya aplicado otro lote. Un paciente
+ * que no cambió entre dos versiones conserva la misma copia. Nadie debe
+ * modificarlas.
+ */
+final class TriageSnapshot {
+
+    static final TriageSnapshot EMPTY = new TriageSnapshot(
+        0, new Patient[0], new Patient[0], new Patient[0], 0, 0, 0f, 0, 0, 0, 0);
+
+    final long      version;
+    final Patient[] queue;       // en espera, por prioridad (0 = siguiente)
+    final Patient[] activeById;  // los mismos, por ID ascendente
+    final Patient[] history;     // atendidos en memoria, más reciente al final
+
+    // Métricas de estructuras para TriageStats
+    final int   undoStackSize;
+    final int   hashTableSize;
+    final float hashLoadFactor;
+    final int   hashCollisions;
+    final int   hashMaxProbe;
+    final int   avlByIdHeight;
+    final int   avlByNameHeight;
+
+    TriageSnapshot(long version, Patient[] queue, Patient[] activeById, Patient[] history,
+                   int undoStackSize, int hashTableSize, float hashLoadFactor,
+                   int hashCollisions, int hashMaxProbe,
+                   int avlByIdHeight, int avlByNameHeight) {
+        this.version         = version;
+        this.queue           = queue;
+        this.activeById      = activeById;
+        this.history         = history;
+        this.undoStackSize   = undoStackSize;
+        this.hashTableSize   = hashTableSize;
+        this.hashLoadFactor  = hashLoadFactor;
+        this.hashCollisions  = hashCollisions;
+        this.hashMaxProbe    = hashMaxProbe;
+        this.avlByIdHeight   = avlByIdHeight;
+        this.avlByNameHeight = avlByNameHeight;
+    }
+
+    /** Paciente en espera con ese ID (búsqueda binaria), o null. */
+    Patient findActive(int id) {
+        int lo = 0, hi = activeById.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cur = activeById[mid].getId();
+            if      (cur < id) lo = mid + 1;
+            else if (cur > id) hi = mid - 1;
+            else               return activeById[mid];
+        }
+        return null;
+    }
+
+    /** Paciente atendido en memoria con ese ID (del más reciente hacia atrás), o null. O(n). */
+    Patient findAttended(int id) {
+        for (int i = history.length - 1; i >= 0; i--) {
+            if (history[i].getId() == id) return history[i];
+        }
+        return null;
+    }
+
+    /** Hasta {@code limit} pacientes desde {@code offset}, en orden de prioridad. O(limit). */
+    Patient[] page(int offset, int limit) {
+        if (offset < 0) offset = 0;
+        int k = Math.max(0, Math.min(limit, queue.length - offset));
+        Patient[] out = new Patient[k];
+        for (int i = 0; i < k; i++) out[i] = queue[offset + i];
+        return out;
+    }
+}
@@ -7,51 +7,84 @@ package com.meditriage.service;
 public class TriageStats {
 
     private final int    queueSize;        // pacientes en espera (heap)
-    private final int    attendedToday;    // atendidos hoy (BD)
-    private final double avgWaitMinutes;   // promedio espera hoy (BD)
+    private final int    attendedToday;    // atendidos hoy (memoria)
+    private final double avgWaitMinutes;   // promedio espera hoy (memoria)
+    private final int[]  attendedByLevel;  // atendidos hoy por nivel (índice 1-5)
+    private final WaitQuantiles[] waitToday;     // percentiles de espera hoy, por nivel
+    private final WaitQuantiles[] waitLastHour;  // ídem, última hora
     private final int    undoStackSize;    // acciones deshaciables
     private final int    hashTableSize;    // pacientes activos en hash
     private final float  hashLoadFactor;   // factor de carga del hash
     private final int    hashCollisions;   // colisiones acumuladas
+    private final int    hashMaxProbe;     // sondeo más largo (direccionamiento abierto)
     private final int    avlByIdHeight;    // altura del AVL por ID
     private final int    avlByNameHeight;  // altura del AVL por nombre
     private final int    historySize;      // pacientes en historial memoria
+    private final int    poolActive;       // conexiones JDBC prestadas
+    private final int    poolIdle;         // conexiones JDBC ociosas
+    private final double poolAvgWaitMs;    // espera promedio por conexión
+    private final double stmtCacheHitRatio;// aciertos caché PreparedStatement (0..1)
+    private final int    journalPending;   // registros del journal aún no aplicados en BD
 
     public TriageStats(int queueSize, int attendedToday, double avgWaitMinutes,
-                       int undoStackSize, int hashTableSize, float hashLoadFactor,
-                       int hashCollisions, int avlByIdHeight, int avlByNameHeight,
-                       int historySize) {
+                       int[] attendedByLevel, WaitQuantiles[] waitToday,
+                       WaitQuantiles[] waitLastHour, int undoStackSize, int hashTableSize, float hashLoadFactor,
+                       int hashCollisions, int hashMaxProbe,
+                       int avlByIdHeight, int avlByNameHeight,
+                       int historySize, int poolActive, int poolIdle,
+                       double poolAvgWaitMs, double stmtCacheHitRatio,
+                       int journalPending) {
         this.queueSize       = queueSize;
         this.attendedToday   = attendedToday;
         this.avgWaitMinutes  = avgWaitMinutes;
+        this.attendedByLevel = attendedByLevel.clone();
+        this.waitToday       = waitToday.clone();
+        this.waitLastHour    = waitLastHour.clone();
         this.undoStackSize   = undoStackSize;
         this.hashTableSize   = hashTableSize;
         this.hashLoadFactor  = hashLoadFactor;
         this.hashCollisions  = hashCollisions;
+        this.hashMaxProbe    = hashMaxProbe;
         this.avlByIdHeight   = avlByIdHeight;
         this.avlByNameHeight = avlByNameHeight;
         this.historySize     = historySize;
+        this.poolActive      = poolActive;
+        this.poolIdle        = poolIdle;
+        this.poolAvgWaitMs   = poolAvgWaitMs;
+        this.stmtCacheHitRatio = stmtCacheHitRatio;
+        this.journalPending    = journalPending;
     }
 
     // ── Getters ───────────────────────────────────────────────────────────────
     public int    getQueueSize()       { return queueSize; }
     public int    getAttendedToday()   { return attendedToday; }
     public double getAvgWaitMinutes()  { return avgWaitMinutes; }
+    public int    getAttendedToday(int level) { return attendedByLevel[level]; }
+    public WaitQuantiles getWaitToday(int level)    { return waitToday[level]; }
+    public WaitQuantiles getWaitLastHour(int level) { return waitLastHour[level]; }
     public int    getUndoStackSize()   { return undoStackSize; }
     public int    getHashTableSize()   { return hashTableSize; }
     public float  getHashLoadFactor()  { return hashLoadFactor; }
     public int    getHashCollisions()  { return hashCollisions; }
+    public int    getHashMaxProbe()    { return hashMaxProbe; }
     public int    getAvlByIdHeight()   { return avlByIdHeight; }
     public int    getAvlByNameHeight() { return avlByNameHeight; }
     public int    getHistorySize()     { return historySize; }
+    public int    getPoolActive()      { return poolActive; }
+    public int    getPoolIdle()        { return poolIdle; }
+    public double getPoolAvgWaitMs()   { return poolAvgWaitMs; }
+    public double getStmtCacheHitRatio() { return stmtCacheHitRatio; }
+    public int    getJournalPending()    { return journalPending; }
 
     @Override
     public String toString() {
         return String.format(
             "Stats[queue=%d, attendedToday=%d, avgWait=%.1f min, " +
-            "hash=%.2f LF / %d col, avlId h=%d, avlName h=%d]",
+            "hash=%.2f LF / %d col / probe %d, avlId h=%d, avlName h=%d, " +
+            "pool=%d act / %d idle / %.2f ms]",
             queueSize, attendedToday, avgWaitMinutes,
-            hashLoadFactor, hashCollisions, avlByIdHeight, avlByNameHeight
+            hashLoadFactor, hashCollisions, hashMaxProbe, avlByIdHeight, avlByNameHeight,
+            poolActive, poolIdle, poolAvgWaitMs
         );
     }
 }
@@ -0,0 +1,38 @@
+package com.meditriage.service;
+
+/**
+ * DTO inmutable: percentiles de espera (minutos) de un nivel en una ventana
+ * de tiempo, junto con la meta de atención del nivel.
+ */
+public class WaitQuantiles {
+
+    private final long   count;          // pacientes en la ventana
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final int    targetMinutes;  // Patient.targetMinutes(nivel)
+
+    public WaitQuantiles(long count, double p50, double p90, double p99, int targetMinutes) {
+        this.count         = count;
+        this.p50           = p50;
+        this.p90           = p90;
+        this.p99           = p99;
+        this.targetMinutes = targetMinutes;
+    }
+
+    // ── Getters ───────────────────────────────────────────────────────────────
+    public long   getCount()         { return count; }
+    public double getP50()           { return p50; }
+    public double getP90()           { return p90; }
+    public double getP99()           { return p99; }
+    public int    getTargetMinutes() { return targetMinutes; }
+
+    /** true si el p90 supera la meta del nivel (sin datos: false). */
+    public boolean isP90OverTarget() { return count > 0 && p90 > targetMinutes; }
+
+    @Override
+    public String toString() {
+        return String.format("p50=%.1f p90=%.1f p99=%.1f min (n=%d, meta %d min)",
+            p50, p90, p99, count, targetMinutes);
+    }
+}
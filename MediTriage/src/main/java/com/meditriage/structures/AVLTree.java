@@ -13,7 +13,7 @@ import com.meditriage.structures.DoublyLinkedList;
  *
  * Usos en MediTriage:
  *   AVLTree&lt;Integer, Patient&gt; — índice por ID
- *   AVLTree&lt;String,  Patient&gt; — índice por nombre
+ *   AVLTree&lt;PatientNameKey, Patient&gt; — índice por nombre (clave nombre + ID)
  */
 public class AVLTree<K extends Comparable<K>, V> {
 
@@ -69,6 +69,14 @@ public class AVLTree<K extends Comparable<K>, V> {
         inOrderCollect(root, list);
     }
 
+    /**
+     * Agrega in-order a la lista los valores con clave en [from, to] (inclusive).
+     * Solo desciende a los subárboles que pueden intersectar el rango: O(log n + k).
+     */
+    public void collectRange(K from, K to, DoublyLinkedList<V> list) {
+        rangeCollect(root, from, to, list);
+    }
+
     /**
      * Retorna la altura del árbol (0 si vacío).
      * Usada para diagnóstico/visualización académica.
@@ -218,6 +226,15 @@ public class AVLTree<K extends Comparable<K>, V> {
         inOrderCollect(node.right, list);
     }
 
+    private void rangeCollect(Node<K, V> node, K from, K to, DoublyLinkedList<V> list) {
+        if (node == null) return;
+        int cmpFrom = from.compareTo(node.key);
+        int cmpTo   = to.compareTo(node.key);
+        if (cmpFrom < 0) rangeCollect(node.left, from, to, list);
+        if (cmpFrom <= 0 && cmpTo >= 0) list.addLast(node.value);
+        if (cmpTo > 0) rangeCollect(node.right, from, to, list);
+    }
+
     // Debug
     @Override
     public String toString() {
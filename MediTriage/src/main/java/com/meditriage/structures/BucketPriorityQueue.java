@@ -0,0 +1,220 @@
+package com.meditriage.structures;
+
+import com.meditriage.model.Patient;
+
+/**
+ * Cola de prioridad por cubetas: un FIFO circular (arreglo nativo) por nivel.
+ *
+ * El triage solo tiene 5 niveles y dentro de cada uno el orden es de llegada,
+ * así que no hace falta comparar fechas en un heap:
+ *   push      → O(1) amortizado: se anexa al final del FIFO de su nivel.
+ *   pop/peek  → O(1): primer FIFO no vacío (a lo sumo 5 revisiones).
+ *   removeById / changeLevel → O(k) del nivel afectado (desplaza el hueco).
+ *
+ * Los pacientes que no llegan en orden (undo de ATTEND, re-triage de alguien que
+ * esperaba desde antes) se insertan en su posición por llegada dentro del FIFO,
+ * de modo que el orden es idéntico al del MinHeap.
+ *
+ * Los anillos solo reservan memoria al crecer y el índice ID → paciente es una
+ * IntObjectHashTable (sin nodos ni boxing), así que push/pop no asignan memoria
+ * en régimen estable. No usa ninguna colección de java.util.
+ */
+public class BucketPriorityQueue implements PriorityQueueEngine {
+
+    public static final int LEVELS = 5;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // Un anillo por nivel: ring[l][(head[l] + i) % capacidad] es el i-ésimo en espera
+    private final Patient[][] ring  = new Patient[LEVELS][];
+    private final int[]       head  = new int[LEVELS];
+    private final int[]       count = new int[LEVELS];
+    private int               size;
+
+    // ID de paciente → paciente en cola
+    private final IntObjectHashTable<Patient> index = new IntObjectHashTable<>();
+
+    public BucketPriorityQueue() {
+        for (int l = 0; l < LEVELS; l++) ring[l] = new Patient[DEFAULT_CAPACITY];
+    }
+
+    // API pública
+
+    @Override
+    public void push(Patient patient) {
+        if (patient == null) throw new IllegalArgumentException("Patient no puede ser null");
+        if (contains(patient.getId()))
+            throw new IllegalArgumentException("El paciente " + patient.getId() + " ya está en la cola");
+        enqueue(patient, bucketOf(patient.getLevel()));
+        index.put(patient.getId(), patient);
+        size++;
+    }
+
+    @Override
+    public void addAll(Patient[] patients) {
+        IntObjectHashTable<Boolean> seen = new IntObjectHashTable<>();
+        for (Patient p : patients) {
+            if (p == null) throw new IllegalArgumentException("Patient no puede ser null");
+            if (contains(p.getId()) || seen.containsKey(p.getId()))
+                throw new IllegalArgumentException("El paciente " + p.getId() + " ya está en la cola");
+            bucketOf(p.getLevel());
+            seen.put(p.getId(), Boolean.TRUE);
+        }
+        for (Patient p : patients) push(p);
+    }
+
+    @Override
+    public Patient pop() {
+        int l = firstNonEmpty();
+        if (l < 0) throw new RuntimeException("La cola está vacía");
+        Patient[] r = ring[l];
+        Patient top = r[head[l]];
+        r[head[l]] = null;
+        head[l] = (head[l] + 1) & (r.length - 1);
+        count[l]--;
+        size--;
+        index.remove(top.getId());
+        return top;
+    }
+
+    @Override
+    public Patient peek() {
+        int l = firstNonEmpty();
+        return l < 0 ? null : ring[l][head[l]];
+    }
+
+    @Override
+    public boolean removeById(int id) {
+        Patient p = index.get(id);
+        if (p == null) return false;
+        removeAt(bucketOf(p.getLevel()), positionOf(p));
+        index.remove(id);
+        size--;
+        return true;
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return index.containsKey(id);
+    }
+
+    @Override
+    public Patient get(int id) {
+        return index.get(id);
+    }
+
+    @Override
+    public boolean changeLevel(int id, int newLevel) {
+        Patient p = index.get(id);
+        if (p == null) return false;
+        int to = bucketOf(newLevel);
+        int from = bucketOf(p.getLevel());
+        if (from == to) return true;
+        removeAt(from, positionOf(p));
+        p.setLevel(newLevel);
+        enqueue(p, to);
+        return true;
+    }
+
+    @Override public int     size()    { return size; }
+    @Override public boolean isEmpty() { return size == 0; }
+
+    /** Concatena los FIFO del nivel 1 al 5. O(n), sin reordenar. */
+    @Override
+    public Patient[] getSortedSnapshot() {
+        Patient[] out = new Patient[size];
+        int pos = 0;
+        for (int l = 0; l < LEVELS; l++) {
+            Patient[] r = ring[l];
+            int mask = r.length - 1;
+            for (int i = 0; i < count[l]; i++) out[pos++] = r[(head[l] + i) & mask];
+        }
+        return out;
+    }
+
+    /** Pacientes en espera de un nivel (1..5). O(1). */
+    public int sizeOfLevel(int level) {
+        return count[bucketOf(level)];
+    }
+
+    // Operaciones internas
+
+    /**
+     * Anexa al final del FIFO; si el paciente llegó antes que el último,
+     * desplaza hacia atrás hasta su posición por llegada.
+     */
+    private void enqueue(Patient p, int l) {
+        ensureCapacity(l);
+        Patient[] r = ring[l];
+        int mask = r.length - 1;
+        int i = count[l];
+        while (i > 0) {
+            Patient prev = r[(head[l] + i - 1) & mask];
+            if (MinHeap.comparePriority(prev, p) <= 0) break;
+            r[(head[l] + i) & mask] = prev;
+            i--;
+        }
+        r[(head[l] + i) & mask] = p;
+        count[l]++;
+    }
+
+    /** Quita la posición lógica {@code i} del FIFO {@code l} cerrando el hueco. */
+    private void removeAt(int l, int i) {
+        Patient[] r = ring[l];
+        int mask = r.length - 1;
+        int last = count[l] - 1;
+        if (i < last - i) {
+            // Más cerca de la cabeza: correr la cabeza hacia adelante
+            for (int j = i; j > 0; j--) r[(head[l] + j) & mask] = r[(head[l] + j - 1) & mask];
+            r[head[l]] = null;
+            head[l] = (head[l] + 1) & mask;
+        } else {
+            for (int j = i; j < last; j++) r[(head[l] + j) & mask] = r[(head[l] + j + 1) & mask];
+            r[(head[l] + last) & mask] = null;
+        }
+        count[l]--;
+    }
+
+    /** Posición lógica del paciente dentro del FIFO de su nivel. */
+    private int positionOf(Patient p) {
+        int l = bucketOf(p.getLevel());
+        Patient[] r = ring[l];
+        int mask = r.length - 1;
+        for (int i = 0; i < count[l]; i++)
+            if (r[(head[l] + i) & mask] == p) return i;
+        throw new IllegalStateException("Índice inconsistente para el paciente " + p.getId());
+    }
+
+    private int firstNonEmpty() {
+        for (int l = 0; l < LEVELS; l++) if (count[l] > 0) return l;
+        return -1;
+    }
+
+    /** Duplica el anillo (capacidad siempre potencia de 2) dejando la cabeza en 0. */
+    private void ensureCapacity(int l) {
+        Patient[] r = ring[l];
+        if (count[l] < r.length) return;
+        Patient[] bigger = new Patient[r.length * 2];
+        for (int i = 0; i < count[l]; i++) bigger[i] = r[(head[l] + i) & (r.length - 1)];
+        ring[l] = bigger;
+        head[l] = 0;
+    }
+
+    private static int bucketOf(int level) {
+        if (level < 1 || level > LEVELS)
+            throw new IllegalArgumentException("Nivel de triage inválido: " + level);
+        return level - 1;
+    }
+
+
+    // Debug
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("BucketPriorityQueue[");
+        for (int l = 0; l < LEVELS; l++) {
+            sb.append("L").append(l + 1).append("=").append(count[l]);
+            if (l < LEVELS - 1) sb.append(", ");
+        }
+        return sb.append("]").toString();
+    }
+}
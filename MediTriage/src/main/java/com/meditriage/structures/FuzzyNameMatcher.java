@@ -0,0 +1,194 @@
+package com.meditriage.structures;
+
+import com.meditriage.model.Patient;
+
+/**
+ * Búsqueda aproximada de nombres tolerante a errores de tipeo y tildes:
+ * "Maria Lopes" encuentra a "María López" (y a "María López García").
+ *
+ * Los nombres se dividen en palabras plegadas (TextNormalizer) y se guardan
+ * en un TokenTrie propio: cada palabra apunta a los pacientes que la llevan.
+ * Una consulta busca, para cada una de sus palabras, las palabras del trie a
+ * distancia de edición acotada según su largo (TokenTrie.searchWithin):
+ *
+ *   1–3 letras → exacta · 4–6 → 1 error · 7 o más → 2 errores
+ *
+ * Los candidatos salen de la palabra de la consulta con menos pacientes y
+ * deben cumplir todas las demás (en cualquier orden). Puntuación: suma de las
+ * distancias; resultados de la más baja a la más alta.
+ *
+ * El vocabulario de palabras es mucho menor que el de nombres completos y el
+ * trie comparte prefijos, así que el recorrido toca pocos nodos aunque haya
+ * cientos de miles de pacientes.
+ *
+ * Thread-safe (monitor propio). No usa ninguna colección de java.util.
+ */
+public class FuzzyNameMatcher {
+
+    // Campos
+    private final TokenTrie                    words    = new TokenTrie();
+    private final IntObjectHashTable<String[]> tokensOf = new IntObjectHashTable<>(); // palabras por paciente
+
+    // API pública
+
+    public synchronized void insert(Patient p) {
+        if (tokensOf.containsKey(p.getId())) return;
+        String[] tokens = distinctTokens(p.getName());
+        if (tokens.length == 0) return;
+        tokensOf.put(p.getId(), tokens);
+        words.insert(p);
+    }
+
+    public synchronized void remove(Patient p) {
+        if (!tokensOf.remove(p.getId())) return;
+        words.remove(p);
+    }
+
+    public synchronized int size() { return tokensOf.size(); }
+
+    /** Errores de tipeo tolerados en una palabra de {@code length} letras. */
+    public static int maxEdits(int length) {
+        return length <= 3 ? 0 : length <= 6 ? 1 : 2;
+    }
+
+    /**
+     * Pacientes cuyo nombre tiene, para cada palabra de la consulta, una
+     * palabra parecida; del más parecido al menos parecido.
+     */
+    public synchronized Patient[] search(String query, int limit) {
+        String[] q = distinctTokens(query);
+        if (q.length == 0 || limit <= 0) return new Patient[0];
+
+        // Palabras del vocabulario cercanas a cada palabra de la consulta
+        int maxScore = 0;
+        int pivot    = -1;
+        long pivotCost = Long.MAX_VALUE;
+        HashTable<String, Integer>[] near = newTables(q.length);
+        String[][] nearWords = new String[q.length][];
+        int[]      minDist   = new int[q.length];
+        for (int j = 0; j < q.length; j++) {
+            int k = maxEdits(q[j].length());
+            maxScore += k;
+            DoublyLinkedList<String> found = new DoublyLinkedList<>();
+            HashTable<String, Integer> table = near[j];
+            words.searchWithin(q[j], k, (word, d) -> {
+                table.put(word, d);
+                found.addLast(word);
+            });
+            if (found.isEmpty()) return new Patient[0];
+
+            Object[] raw = found.toArray();
+            nearWords[j] = new String[raw.length];
+            minDist[j]   = k;
+            long cost = 0;
+            for (int i = 0; i < raw.length; i++) {
+                nearWords[j][i] = (String) raw[i];
+                minDist[j] = Math.min(minDist[j], table.get(nearWords[j][i]));
+                cost += words.countWithWord(nearWords[j][i]);
+            }
+            if (cost < pivotCost) {
+                pivotCost = cost;
+                pivot     = j;
+            }
+        }
+
+        // Candidatos de la palabra pivote, agrupados por puntuación. Las palabras
+        // pivote van de la más cercana a la más lejana: un candidato nunca puntúa
+        // menos que la distancia de su palabra pivote más la mínima posible de
+        // las demás, así que al llenarse los cubos hasta esa cota el resto ya no
+        // puede entrar al resultado.
+        int others = 0;
+        for (int j = 0; j < q.length; j++) if (j != pivot) others += minDist[j];
+        String[] pivots = sortByDistance(nearWords[pivot], near[pivot]);
+        DoublyLinkedList<Patient>[] byScore = newBuckets(maxScore + 1);
+        IntObjectHashTable<Patient> seen = new IntObjectHashTable<>();
+        for (String word : pivots) {
+            int floor = near[pivot].get(word) + others;
+            if (countUpTo(byScore, floor) >= limit) break;
+            words.forEachWithWord(word, (id, p) -> {
+                if (seen.containsKey(id) || countUpTo(byScore, floor) >= limit) return;
+                seen.put(id, p);
+                int score = score(tokensOf.get(id), near);
+                if (score >= 0) byScore[score].addLast(p);
+            });
+        }
+
+        int total = 0;
+        for (DoublyLinkedList<Patient> b : byScore) total += b.size();
+        Patient[] out = new Patient[Math.min(limit, total)];
+        int n = 0;
+        for (int s = 0; s <= maxScore && n < out.length; s++) {
+            Object[] raw = byScore[s].toArray();
+            for (int i = 0; i < raw.length && n < out.length; i++) out[n++] = (Patient) raw[i];
+        }
+        return out;
+    }
+
+    // Operaciones internas
+
+    /** Suma de la mejor distancia por palabra de la consulta, o -1 si alguna no aparece. */
+    private static int score(String[] tokens, HashTable<String, Integer>[] near) {
+        int score = 0;
+        for (int j = 0; j < near.length; j++) {
+            int best = Integer.MAX_VALUE;
+            for (String t : tokens) {
+                Integer d = near[j].get(t);
+                if (d != null && d < best) best = d;
+            }
+            if (best == Integer.MAX_VALUE) return -1;
+            score += best;
+        }
+        return score;
+    }
+
+    /** Resultados acumulados con puntuación ≤ {@code score}. */
+    private static int countUpTo(DoublyLinkedList<Patient>[] byScore, int score) {
+        int n = 0;
+        for (int s = 0; s <= score; s++) n += byScore[s].size();
+        return n;
+    }
+
+    /** Copia de {@code words} ordenada por distancia (inserción: son pocas). */
+    private static String[] sortByDistance(String[] words, HashTable<String, Integer> distance) {
+        String[] out = new String[words.length];
+        for (int i = 0; i < words.length; i++) {
+            int d = distance.get(words[i]);
+            int j = i;
+            while (j > 0 && distance.get(out[j - 1]) > d) {
+                out[j] = out[j - 1];
+                j--;
+            }
+            out[j] = words[i];
+        }
+        return out;
+    }
+
+    /** Palabras plegadas del texto, sin repetir. */
+    private static String[] distinctTokens(String text) {
+        String[] tokens = TextNormalizer.tokens(text);
+        int n = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            boolean dup = false;
+            for (int j = 0; j < n && !dup; j++) dup = tokens[j].equals(tokens[i]);
+            if (!dup) tokens[n++] = tokens[i];
+        }
+        if (n == tokens.length) return tokens;
+        String[] out = new String[n];
+        for (int i = 0; i < n; i++) out[i] = tokens[i];
+        return out;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HashTable<String, Integer>[] newTables(int n) {
+        HashTable<String, Integer>[] tables = (HashTable<String, Integer>[]) new HashTable<?, ?>[n];
+        for (int i = 0; i < n; i++) tables[i] = new HashTable<>();
+        return tables;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static DoublyLinkedList<Patient>[] newBuckets(int n) {
+        DoublyLinkedList<Patient>[] buckets = (DoublyLinkedList<Patient>[]) new DoublyLinkedList<?>[n];
+        for (int i = 0; i < n; i++) buckets[i] = new DoublyLinkedList<>();
+        return buckets;
+    }
+}
@@ -0,0 +1,140 @@
+package com.meditriage.structures;
+
+/**
+ * Tabla hash int → int sin boxing, con direccionamiento abierto.
+ *
+ * Misma organización que IntObjectHashTable (sondeo lineal, capacidad potencia
+ * de 2, borrado por desplazamiento hacia atrás), pero los valores también son
+ * {@code int}: actualizar una entrada existente no asigna nada. Como cualquier
+ * int es un valor válido, la ocupación de cada celda va en un arreglo aparte.
+ *
+ * No usa ninguna colección de java.util.
+ *
+ * Uso en MediTriage:
+ *   MinHeap — ID de paciente → posición en el arreglo, reescrita en cada swap.
+ */
+public class IntIntHashTable {
+
+    // Constantes
+    private static final int   DEFAULT_CAPACITY  = 32;
+    private static final float LOAD_FACTOR_LIMIT = 0.7f;
+    private static final float SHRINK_LIMIT      = 0.15f;
+
+    // Campos
+    private int[]     keys;
+    private int[]     values;
+    private boolean[] used;
+    private int       mask;   // capacidad - 1
+    private int       size;
+
+    // Constructor
+    public IntIntHashTable() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    // API pública
+
+    /** Inserta o actualiza la clave {@code key} con {@code value}. */
+    public void put(int key, int value) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i]   = key;
+        values[i] = value;
+        used[i]   = true;
+        size++;
+        if (size > (mask + 1) * LOAD_FACTOR_LIMIT) rehash((mask + 1) * 2);
+    }
+
+    /** Retorna el valor asociado a {@code key}, o {@code absent} si no existe. */
+    public int get(int key, int absent) {
+        int i = indexOf(key);
+        return i < 0 ? absent : values[i];
+    }
+
+    /** Indica si la clave existe en la tabla. */
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Elimina la entrada con {@code key} (sin lápidas, ver IntObjectHashTable).
+     * @return true si existía y fue eliminada.
+     */
+    public boolean remove(int key) {
+        int hole = indexOf(key);
+        if (hole < 0) return false;
+
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (!used[i]) break;
+            int ideal = slot(keys[i]);
+            if (((i - ideal) & mask) >= ((i - hole) & mask)) {
+                keys[hole]   = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        used[hole] = false;
+        size--;
+
+        if (mask + 1 > DEFAULT_CAPACITY && size < (mask + 1) * SHRINK_LIMIT) rehash((mask + 1) / 2);
+        return true;
+    }
+
+    public int     size()     { return size; }
+    public boolean isEmpty()  { return size == 0; }
+    public int     capacity() { return mask + 1; }
+
+    // Operaciones internas
+
+    private int indexOf(int key) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** Celda ideal: mezcla de bits (constante de Fibonacci) y máscara. */
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys   = new int[capacity];
+        values = new int[capacity];
+        used   = new boolean[capacity];
+        mask   = capacity - 1;
+    }
+
+    /** Reubica todas las entradas en una tabla de la capacidad dada. */
+    private void rehash(int capacity) {
+        int[]     oldKeys   = keys;
+        int[]     oldValues = values;
+        boolean[] oldUsed   = used;
+        allocate(Math.max(DEFAULT_CAPACITY, capacity));
+        for (int j = 0; j < oldUsed.length; j++) {
+            if (!oldUsed[j]) continue;
+            int i = slot(oldKeys[j]);
+            while (used[i]) i = (i + 1) & mask;
+            keys[i]   = oldKeys[j];
+            values[i] = oldValues[j];
+            used[i]   = true;
+        }
+    }
+
+    // Debug
+    @Override
+    public String toString() {
+        return String.format("IntIntHashTable[size=%d, capacity=%d]", size, mask + 1);
+    }
+}
@@ -0,0 +1,171 @@
+package com.meditriage.structures;
+
+/**
+ * Tabla hash especializada en claves int (sin boxing) con direccionamiento abierto.
+ *
+ * Claves y valores viven en arreglos paralelos {@code int[]} / {@code Object[]};
+ * una celda está ocupada si su valor no es null (no se admiten valores null).
+ * Capacidad siempre potencia de 2: el índice se obtiene con una máscara en lugar
+ * de {@code %} y {@code Math.abs}.
+ *
+ *   Sondeo lineal: get/put/remove O(1) promedio, sin nodos por entrada.
+ *   Borrado por desplazamiento hacia atrás (backward shift): no deja lápidas,
+ *   así las búsquedas no se degradan tras muchos altas/bajas.
+ *   Crece al superar LOAD_FACTOR_LIMIT y se encoge al bajar de SHRINK_LIMIT.
+ *
+ * No usa ninguna colección de java.util.
+ *
+ * Uso en MediTriage:
+ *   IntObjectHashTable&lt;Patient&gt; — acceso O(1) a pacientes activos por ID.
+ */
+public class IntObjectHashTable<V> {
+
+    /** Visitante de entradas (clave int sin boxing). */
+    public interface Visitor<V> {
+        void visit(int key, V value);
+    }
+
+    // Constantes
+    private static final int   DEFAULT_CAPACITY  = 32;
+    private static final float LOAD_FACTOR_LIMIT = 0.7f;
+    private static final float SHRINK_LIMIT      = 0.15f;
+
+    // Campos
+    private int[]    keys;
+    private Object[] values;
+    private int      mask;       // capacidad - 1
+    private int      size;
+    private int      collisions; // inserciones que no cayeron en su celda ideal (métrica)
+
+    // Constructor
+    public IntObjectHashTable() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    // API pública
+
+    /** Inserta o actualiza la clave {@code key} con {@code value} (no null). */
+    public void put(int key, V value) {
+        if (value == null) throw new IllegalArgumentException("Valor no puede ser null");
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        if (i != slot(key)) collisions++;
+        keys[i]   = key;
+        values[i] = value;
+        size++;
+        if (size > (mask + 1) * LOAD_FACTOR_LIMIT) rehash((mask + 1) * 2);
+    }
+
+    /** Retorna el valor asociado a {@code key}, o null si no existe. */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int i = indexOf(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    /** Indica si la clave existe en la tabla. */
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Elimina la entrada con {@code key}. Las entradas siguientes del mismo
+     * racimo retroceden para cerrar el hueco (sin lápidas).
+     * @return true si existía y fue eliminada.
+     */
+    public boolean remove(int key) {
+        int hole = indexOf(key);
+        if (hole < 0) return false;
+
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == null) break;
+            // Mover i al hueco solo si su celda ideal no queda entre hueco e i
+            int ideal = slot(keys[i]);
+            if (((i - ideal) & mask) >= ((i - hole) & mask)) {
+                keys[hole]   = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        values[hole] = null;
+        size--;
+
+        if (mask + 1 > DEFAULT_CAPACITY && size < (mask + 1) * SHRINK_LIMIT) rehash((mask + 1) / 2);
+        return true;
+    }
+
+    public int     size()            { return size; }
+    public boolean isEmpty()         { return size == 0; }
+    public float   loadFactor()      { return (float) size / (mask + 1); }
+    public int     collisionsCount() { return collisions; }
+    public int     capacity()        { return mask + 1; }
+
+    /** Recorre todas las entradas en orden de celda (no por clave). */
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor) {
+        for (int i = 0; i <= mask; i++) {
+            if (values[i] != null) visitor.visit(keys[i], (V) values[i]);
+        }
+    }
+
+    /** Distancia de sondeo más larga entre las entradas actuales (0 = celda ideal). O(capacidad). */
+    public int maxProbeLength() {
+        int max = 0;
+        for (int i = 0; i <= mask; i++) {
+            if (values[i] != null) max = Math.max(max, (i - slot(keys[i])) & mask);
+        }
+        return max;
+    }
+
+    // Operaciones internas
+
+    private int indexOf(int key) {
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** Celda ideal: mezcla de bits (constante de Fibonacci) y máscara. */
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys   = new int[capacity];
+        values = new Object[capacity];
+        mask   = capacity - 1;
+    }
+
+    /** Reubica todas las entradas en una tabla de la capacidad dada. */
+    private void rehash(int capacity) {
+        int[]    oldKeys   = keys;
+        Object[] oldValues = values;
+        allocate(Math.max(DEFAULT_CAPACITY, capacity));
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] == null) continue;
+            int i = slot(oldKeys[j]);
+            while (values[i] != null) i = (i + 1) & mask;
+            keys[i]   = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    // Debug
+    @Override
+    public String toString() {
+        return String.format("IntObjectHashTable[size=%d, capacity=%d, loadFactor=%.2f, collisions=%d]",
+                size, mask + 1, loadFactor(), collisions);
+    }
+}
@@ -9,26 +9,52 @@ import com.meditriage.model.Patient;
  *   1) Level más bajo = más urgente (level 1 > level 5 en urgencia).
  *   2) Desempate: arrivalAt más antiguo primero (FIFO dentro del mismo nivel).
  *
- * Operaciones: push O(log n), pop O(log n), peek O(1).
+ * Operaciones: push O(log n), pop O(log n), peek O(1),
+ * of / addAll O(n) mediante build-heap de Floyd.
+ *
+ * Heap indexado: un mapa ID → posición (IntIntHashTable, sin boxing) se
+ * actualiza en cada swap, de modo que removeById, changeLevel y contains no
+ * recorren el arreglo.
+ * Un mismo ID no puede estar dos veces en la cola.
  * No usa ninguna clase de java.util.
  */
-public class MinHeap {
+public class MinHeap implements PriorityQueueEngine {
 
     private static final int DEFAULT_CAPACITY = 64;
 
     private Patient[] heap;
     private int       size;
 
+    // ID de paciente → índice en heap[] (null en los heaps temporales de snapshot)
+    private final IntIntHashTable positions;
+
     // Constructores
     public MinHeap() {
-        heap = new Patient[DEFAULT_CAPACITY];
-        size = 0;
+        this(DEFAULT_CAPACITY);
     }
 
     /** Constructor con capacidad inicial. */
     public MinHeap(int initialCapacity) {
         heap = new Patient[Math.max(initialCapacity, 4)];
         size = 0;
+        positions = new IntIntHashTable();
+    }
+
+    /** Heap temporal sin índice sobre una copia que ya cumple la propiedad de heap. */
+    private MinHeap(Patient[] copy, int size) {
+        this.heap      = copy;
+        this.size      = size;
+        this.positions = null;
+    }
+
+    /**
+     * Construye un heap con todos los pacientes dados en O(n) (build-heap de Floyd),
+     * en lugar de O(n log n) con n push. El arreglo recibido no se modifica.
+     */
+    public static MinHeap of(Patient[] patients) {
+        MinHeap h = new MinHeap(patients.length);
+        h.addAll(patients);
+        return h;
     }
 
     // API pública
@@ -37,69 +63,136 @@ public class MinHeap {
      * Inserta un paciente en el heap.
      * Coloca al final y sube hasta restaurar la propiedad de heap.
      */
+    @Override
     public void push(Patient patient) {
         if (patient == null) throw new IllegalArgumentException("Patient no puede ser null");
+        if (contains(patient.getId()))
+            throw new IllegalArgumentException("El paciente " + patient.getId() + " ya está en la cola");
         ensureCapacity();
         heap[size] = patient;
-        heapifyUp(size);
+        place(size);
         size++;
+        heapifyUp(size - 1);
+    }
+
+    /**
+     * Inserta varios pacientes de una vez.
+     * Si el lote es grande respecto del heap, los agrega al final y reconstruye
+     * el heap de abajo hacia arriba (Floyd, O(n + k)); si es pequeño, conviene
+     * subir cada uno (O(k log n)).
+     */
+    @Override
+    public void addAll(Patient[] patients) {
+        int k = patients.length;
+        if (k == 0) return;
+        IntObjectHashTable<Boolean> seen = new IntObjectHashTable<>();
+        for (Patient p : patients) {
+            if (p == null) throw new IllegalArgumentException("Patient no puede ser null");
+            if (contains(p.getId()) || seen.containsKey(p.getId()))
+                throw new IllegalArgumentException("El paciente " + p.getId() + " ya está en la cola");
+            seen.put(p.getId(), Boolean.TRUE);
+        }
+
+        int total = size + k;
+        if (total > heap.length) {
+            Patient[] bigger = new Patient[Math.max(total, heap.length * 2)];
+            for (int i = 0; i < size; i++) bigger[i] = heap[i];
+            heap = bigger;
+        }
+
+        // k·log2(n+k) subidas vs. n+k comparaciones del build-heap
+        int log = 32 - Integer.numberOfLeadingZeros(total);
+        if ((long) k * log < total) {
+            for (Patient p : patients) {
+                heap[size] = p;
+                place(size);
+                size++;
+                heapifyUp(size - 1);
+            }
+        } else {
+            for (Patient p : patients) {
+                heap[size] = p;
+                place(size);
+                size++;
+            }
+            buildHeap();
+        }
     }
 
     /**
      * Extrae y retorna el paciente más urgente.
      * Mueve el último elemento a la raíz y baja para restaurar el heap.
      */
+    @Override
     public Patient pop() {
         if (isEmpty()) throw new RuntimeException("El heap está vacío");
         Patient top = heap[0];
-        size--;
-        heap[0] = heap[size];
-        heap[size] = null;
-        if (size > 0) heapifyDown(0);
+        removeAt(0);
         return top;
     }
 
     /** Retorna el paciente más urgente sin extraerlo. */
+    @Override
     public Patient peek() {
         return isEmpty() ? null : heap[0];
     }
 
-    /** Elimina el paciente con el ID dado. O(n) búsqueda + O(log n) heapify. */
+    /** Elimina el paciente con el ID dado. O(1) ubicación + O(log n) heapify. */
+    @Override
     public boolean removeById(int id) {
-        int index = -1;
-        for (int i = 0; i < size; i++) {
-            if (heap[i].getId() == id) { index = i; break; }
-        }
+        int index = indexOf(id);
         if (index == -1) return false;
+        removeAt(index);
+        return true;
+    }
 
-        size--;
-        heap[index] = heap[size];
-        heap[size] = null;
+    /** Indica si el paciente con el ID dado está en la cola. O(1). */
+    @Override
+    public boolean contains(int id) {
+        return indexOf(id) != -1;
+    }
 
-        if (index < size) {
-            heapifyUp(index);
-            heapifyDown(index);
-        }
+    /** Retorna el paciente en cola con el ID dado, o null. O(1). */
+    @Override
+    public Patient get(int id) {
+        int index = indexOf(id);
+        return index == -1 ? null : heap[index];
+    }
+
+    /**
+     * Re-triage: cambia el nivel del paciente y lo reubica en O(log n).
+     * Un nivel menor (más urgente) lo sube; uno mayor lo baja.
+     *
+     * @return false si el paciente no está en la cola.
+     */
+    @Override
+    public boolean changeLevel(int id, int newLevel) {
+        int index = indexOf(id);
+        if (index == -1) return false;
+        Patient p = heap[index];
+        int old = p.getLevel();
+        p.setLevel(newLevel);
+        if (newLevel < old)      heapifyUp(index);
+        else if (newLevel > old) heapifyDown(index);
         return true;
     }
 
-    public int     size()    { return size; }
-    public boolean isEmpty() { return size == 0; }
+    @Override public int     size()    { return size; }
+    @Override public boolean isEmpty() { return size == 0; }
 
     /**
      * Retorna una copia ordenada por prioridad sin modificar el heap original.
-     * Se construye un heap temporal y se extrae todo.
+     * El arreglo interno ya cumple la propiedad de heap, así que se copia tal
+     * cual (sin reconstruir) y se extrae todo del heap temporal.
      */
+    @Override
     public Patient[] getSortedSnapshot() {
         if (size == 0) return new Patient[0];
 
-        // Copiar arreglo interno
+        // Copiar arreglo interno: la copia ya es un heap válido (sin índice)
         Patient[] copy = new Patient[size];
         for (int i = 0; i < size; i++) copy[i] = heap[i];
-
-        // Construir heap temporal y extraer en orden
-        MinHeap temp = new MinHeap(size);
-        for (int i = 0; i < size; i++) temp.push(copy[i]);
+        MinHeap temp = new MinHeap(copy, size);
 
         Patient[] sorted = new Patient[size];
         for (int i = 0; i < size; i++) sorted[i] = temp.pop();
@@ -108,13 +201,46 @@ public class MinHeap {
 
     // Operaciones internas
 
+    private int indexOf(int id) {
+        if (positions == null) {
+            for (int i = 0; i < size; i++) if (heap[i].getId() == id) return i;
+            return -1;
+        }
+        return positions.get(id, -1);
+    }
+
+    /** Quita el elemento en {@code index}: lo reemplaza por el último y reubica. */
+    private void removeAt(int index) {
+        if (positions != null) positions.remove(heap[index].getId());
+        size--;
+        if (index < size) {
+            heap[index] = heap[size];
+            place(index);
+        }
+        heap[size] = null;
+        if (index < size) {
+            heapifyUp(index);
+            heapifyDown(index);
+        }
+    }
+
+    /** Registra en el índice la posición actual de heap[i]. */
+    private void place(int i) {
+        if (positions != null) positions.put(heap[i].getId(), i);
+    }
+
+    /** Build-heap de Floyd: baja cada nodo interno desde el último hasta la raíz. */
+    private void buildHeap() {
+        for (int i = size / 2 - 1; i >= 0; i--) heapifyDown(i);
+    }
+
     /**
      * Sube el elemento en posición {@code i} mientras sea menor que su padre.
      */
     public void heapifyUp(int i) {
         while (i > 0) {
             int parent = (i - 1) / 2;
-            if (compare(heap[i], heap[parent]) < 0) {
+            if (comparePriority(heap[i], heap[parent]) < 0) {
                 swap(i, parent);
                 i = parent;
             } else {
@@ -132,8 +258,8 @@ public class MinHeap {
             int right    = 2 * i + 2;
             int smallest = i;
 
-            if (left  < size && compare(heap[left],  heap[smallest]) < 0) smallest = left;
-            if (right < size && compare(heap[right], heap[smallest]) < 0) smallest = right;
+            if (left  < size && comparePriority(heap[left],  heap[smallest]) < 0) smallest = left;
+            if (right < size && comparePriority(heap[right], heap[smallest]) < 0) smallest = right;
 
             if (smallest != i) {
                 swap(i, smallest);
@@ -145,27 +271,37 @@ public class MinHeap {
     }
 
     /**
-     * Comparador de prioridad:
+     * Comparador de prioridad, orden total compartido por todos los motores y
+     * por la vista ordenada (RankedPatientTree):
      *   Negativo → a es más urgente que b.
      *   Positivo → b es más urgente que a.
-     *   Cero     → igual urgencia.
+     *   Cero     → mismo paciente (mismo ID).
+     *
+     * Sin el desempate por ID, dos pacientes con igual nivel y llegada (lote
+     * registrado en el mismo instante, DATETIME sin fracciones tras un
+     * reinicio) podían salir en un orden en el heap y en otro en la vista:
+     * el "siguiente" anunciado no era el atendido.
      */
-    private int compare(Patient a, Patient b) {
+    static int comparePriority(Patient a, Patient b) {
         // 1) Nivel más bajo = más urgente
         if (a.getLevel() != b.getLevel()) {
             return Integer.compare(a.getLevel(), b.getLevel());
         }
         // 2) Desempate: llegó antes = más urgente
         if (a.getArrivalAt() != null && b.getArrivalAt() != null) {
-            return a.getArrivalAt().compareTo(b.getArrivalAt());
+            int c = a.getArrivalAt().compareTo(b.getArrivalAt());
+            if (c != 0) return c;
         }
-        return 0;
+        // 3) Igual nivel y llegada: menor ID (registrado antes)
+        return Integer.compare(a.getId(), b.getId());
     }
 
     private void swap(int i, int j) {
         Patient tmp = heap[i];
         heap[i] = heap[j];
         heap[j] = tmp;
+        place(i);
+        place(j);
     }
 
     private void ensureCapacity() {
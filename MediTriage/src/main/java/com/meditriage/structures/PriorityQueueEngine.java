@@ -0,0 +1,62 @@
+package com.meditriage.structures;
+
+import com.meditriage.model.Patient;
+
+/**
+ * Contrato de la cola de prioridad de triage.
+ *
+ * Orden: nivel más bajo primero (1 = Resucitación) y, dentro del mismo nivel,
+ * llegada más antigua primero. Cada paciente (por ID) está a lo sumo una vez.
+ *
+ * Implementaciones (seleccionables con {@code queue.engine} en app.properties):
+ *   MinHeap             — heap binario indexado, O(log n) general.
+ *   BucketPriorityQueue — un FIFO circular por nivel, O(1) en push/pop/peek.
+ */
+public interface PriorityQueueEngine {
+
+    /** Inserta un paciente. Lanza IllegalArgumentException si es null o ya está. */
+    void push(Patient patient);
+
+    /** Inserta varios pacientes (carga inicial, registro por lotes). */
+    void addAll(Patient[] patients);
+
+    /** Extrae el paciente más urgente. Lanza RuntimeException si está vacía. */
+    Patient pop();
+
+    /** Paciente más urgente sin extraerlo, o null si está vacía. */
+    Patient peek();
+
+    /** Elimina el paciente con el ID dado. @return false si no estaba. */
+    boolean removeById(int id);
+
+    /** Indica si el paciente con el ID dado está en la cola. */
+    boolean contains(int id);
+
+    /** Paciente en cola con el ID dado, o null. */
+    Patient get(int id);
+
+    /**
+     * Cambia el nivel del paciente y lo reubica (re-triage).
+     * @return false si el paciente no está en la cola.
+     */
+    boolean changeLevel(int id, int newLevel);
+
+    /**
+     * decrease-key clásico: solo admite aumentar la urgencia (nivel menor o igual).
+     * @throws IllegalArgumentException si {@code newLevel} es menos urgente.
+     */
+    default boolean decreaseKey(int id, int newLevel) {
+        Patient p = get(id);
+        if (p == null) return false;
+        if (newLevel > p.getLevel())
+            throw new IllegalArgumentException("decreaseKey no puede bajar la urgencia");
+        return changeLevel(id, newLevel);
+    }
+
+    int size();
+
+    boolean isEmpty();
+
+    /** Copia de la cola en orden de prioridad; no modifica la cola. */
+    Patient[] getSortedSnapshot();
+}
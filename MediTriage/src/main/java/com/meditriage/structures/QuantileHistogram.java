@@ -0,0 +1,104 @@
+package com.meditriage.structures;
+
+/**
+ * Histograma log-lineal para percentiles en streaming (estilo HDR).
+ *
+ * Los valores (enteros ≥ 0, p. ej. segundos de espera) caen en cubetas de
+ * ancho creciente: exactas hasta 63 y luego 32 cubetas por potencia de dos,
+ * así el error relativo de cualquier percentil es ≤ 1/32 (~3 %) sin importar
+ * cuántos valores se registren. Memoria fija: {@value #BUCKETS} contadores
+ * cubren de 0 a 2^22 (≈ 48 días en segundos); lo mayor se satura al tope.
+ *
+ *   record / remove → O(1)      quantile → O(cubetas)      merge → O(cubetas)
+ *
+ * remove permite deshacer un registro; merge suma histogramas (ventanas
+ * deslizantes hechas de varios tramos). No es thread-safe.
+ */
+public class QuantileHistogram {
+
+    private static final int  SUB_BITS  = 5;
+    private static final int  SUB       = 1 << SUB_BITS;   // cubetas por octava
+    private static final int  MAX_EXP   = 22;              // valores < 2^22
+    private static final long MAX_VALUE = (1L << MAX_EXP) - 1;
+
+    /** Cubetas exactas (0..2·SUB-1) + SUB por cada octava restante. */
+    public static final int BUCKETS = 2 * SUB + (MAX_EXP - SUB_BITS - 1) * SUB;
+
+    // Campos
+    private final int[] counts = new int[BUCKETS];
+    private long        total;
+
+    // API pública
+
+    public void record(long value) {
+        counts[indexOf(value)]++;
+        total++;
+    }
+
+    /** Quita un valor registrado antes; ignorado si su cubeta está vacía. */
+    public void remove(long value) {
+        int i = indexOf(value);
+        if (counts[i] == 0) return;
+        counts[i]--;
+        total--;
+    }
+
+    /** Suma los conteos de {@code other} a este histograma. */
+    public void merge(QuantileHistogram other) {
+        if (other.total == 0) return;
+        for (int i = 0; i < BUCKETS; i++) counts[i] += other.counts[i];
+        total += other.total;
+    }
+
+    public void clear() {
+        for (int i = 0; i < BUCKETS; i++) counts[i] = 0;
+        total = 0;
+    }
+
+    public long count() { return total; }
+
+    /**
+     * Valor en el percentil {@code q} (0..1): el punto medio de la cubeta que
+     * contiene el elemento de rango ⌈q·n⌉. 0 si está vacío.
+     */
+    public long quantile(double q) {
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return lowerBound(i) + (width(i) - 1) / 2;
+        }
+        return lowerBound(BUCKETS - 1);
+    }
+
+    /** Cantidad de valores ≤ {@code value} (aproximada a la cubeta). */
+    public long countAtOrBelow(long value) {
+        int  last = indexOf(value);
+        long n    = 0;
+        for (int i = 0; i <= last; i++) n += counts[i];
+        return n;
+    }
+
+    // Operaciones internas
+
+    /** Cubeta de un valor: exacta bajo 2·SUB; después, octava + 5 bits de mantisa. */
+    private static int indexOf(long value) {
+        long v = Math.max(0, Math.min(value, MAX_VALUE));
+        if (v < 2 * SUB) return (int) v;
+        int  shift    = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;   // ≥ 1
+        long mantissa = v >> shift;                                      // SUB..2·SUB-1
+        return 2 * SUB + (shift - 1) * SUB + (int) (mantissa - SUB);
+    }
+
+    private static long lowerBound(int index) {
+        if (index < 2 * SUB) return index;
+        int  shift    = (index - 2 * SUB) / SUB + 1;
+        long mantissa = SUB + (index - 2 * SUB) % SUB;
+        return mantissa << shift;
+    }
+
+    private static long width(int index) {
+        return index < 2 * SUB ? 1 : 1L << ((index - 2 * SUB) / SUB + 1);
+    }
+}
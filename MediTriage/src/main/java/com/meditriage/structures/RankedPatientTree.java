@@ -0,0 +1,215 @@
+package com.meditriage.structures;
+
+import com.meditriage.model.Patient;
+
+/**
+ * Árbol AVL de estadísticos de orden sobre los pacientes en espera.
+ *
+ * Usa el mismo orden total que el MinHeap (MinHeap.comparePriority: nivel,
+ * llegada, ID), y guarda en cada nodo el tamaño de su subárbol. Así la vista
+ * ordenada de la cola no se reconstruye: se actualiza en O(log n) con cada
+ * push/pop/remove y una página de k pacientes cuesta O(log n + k).
+ *
+ * Importante: la clave de un paciente es su nivel/llegada actual. Antes de
+ * cambiar el nivel (re-triage) hay que quitarlo y volver a insertarlo.
+ *
+ * No usa ninguna colección de java.util.
+ */
+public class RankedPatientTree {
+
+    // Nodo interno
+    private static class Node {
+        Patient patient;
+        Node    left, right;
+        int     height; // altura del subárbol
+        int     count;  // cantidad de nodos del subárbol
+
+        Node(Patient patient) {
+            this.patient = patient;
+            this.height  = 1;
+            this.count   = 1;
+        }
+    }
+
+    // Campos
+    private Node root;
+
+    // API pública
+
+    /** Inserta un paciente. Un paciente con el mismo ID y prioridad se ignora. */
+    public void insert(Patient patient) {
+        if (patient == null) throw new IllegalArgumentException("Patient no puede ser null");
+        root = insertRec(root, patient);
+    }
+
+    /** Inserta varios pacientes (carga inicial y registro por lotes). */
+    public void insertAll(Patient[] patients) {
+        for (Patient p : patients) insert(p);
+    }
+
+    /**
+     * Elimina al paciente según su prioridad actual.
+     * @return true si estaba en el árbol.
+     */
+    public boolean remove(Patient patient) {
+        if (patient == null) return false;
+        int before = size();
+        root = deleteRec(root, patient);
+        return size() < before;
+    }
+
+    public int     size()    { return count(root); }
+    public boolean isEmpty() { return root == null; }
+
+    /** Paciente en la posición {@code index} (0 = más urgente). O(log n). */
+    public Patient get(int index) {
+        if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Índice: " + index);
+        Node n = root;
+        while (true) {
+            int leftCount = count(n.left);
+            if (index < leftCount)       n = n.left;
+            else if (index == leftCount) return n.patient;
+            else {
+                index -= leftCount + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    /** Posición del paciente en la cola (0 = más urgente), o -1 si no está. O(log n). */
+    public int rankOf(Patient patient) {
+        int rank = 0;
+        Node n = root;
+        while (n != null) {
+            int c = MinHeap.comparePriority(patient, n.patient);
+            if (c < 0) {
+                n = n.left;
+            } else if (c > 0) {
+                rank += count(n.left) + 1;
+                n = n.right;
+            } else {
+                return rank + count(n.left);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retorna hasta {@code limit} pacientes a partir de la posición {@code offset},
+     * en orden de prioridad. O(log n + k).
+     */
+    public Patient[] page(int offset, int limit) {
+        int total = size();
+        if (offset < 0) offset = 0;
+        int k = Math.max(0, Math.min(limit, total - offset));
+        Patient[] out = new Patient[k];
+        if (k > 0) collectRange(root, offset, k, out, 0);
+        return out;
+    }
+
+    /** Todos los pacientes en orden de prioridad. O(n). */
+    public Patient[] toArray() {
+        return page(0, size());
+    }
+
+    public void clear() {
+        root = null;
+    }
+
+    // Recorrido por rango
+
+    /**
+     * Llena {@code out[pos..]} con los nodos del subárbol {@code n} cuyo rango
+     * local está en [from, from + k). Solo desciende a los subárboles que tocan
+     * el rango. Retorna la siguiente posición libre de {@code out}.
+     */
+    private int collectRange(Node n, int from, int k, Patient[] out, int pos) {
+        if (n == null || k <= 0) return pos;
+        int leftCount = count(n.left);
+        if (from < leftCount) {
+            int fromLeft = Math.min(k, leftCount - from);
+            pos = collectRange(n.left, from, fromLeft, out, pos);
+            k  -= fromLeft;
+            from = leftCount;
+        }
+        if (k > 0 && from == leftCount) {
+            out[pos++] = n.patient;
+            k--;
+            from++;
+        }
+        if (k > 0) pos = collectRange(n.right, from - leftCount - 1, k, out, pos);
+        return pos;
+    }
+
+    // Inserción y borrado
+
+    private Node insertRec(Node node, Patient p) {
+        if (node == null) return new Node(p);
+        int cmp = MinHeap.comparePriority(p, node.patient);
+        if      (cmp < 0) node.left  = insertRec(node.left,  p);
+        else if (cmp > 0) node.right = insertRec(node.right, p);
+        else              return node;
+        return balance(node);
+    }
+
+    private Node deleteRec(Node node, Patient p) {
+        if (node == null) return null;
+        int cmp = MinHeap.comparePriority(p, node.patient);
+        if (cmp < 0) {
+            node.left = deleteRec(node.left, p);
+        } else if (cmp > 0) {
+            node.right = deleteRec(node.right, p);
+        } else {
+            if (node.left == null)  return node.right;
+            if (node.right == null) return node.left;
+            Node min = node.right;
+            while (min.left != null) min = min.left;
+            node.patient = min.patient;
+            node.right   = deleteRec(node.right, min.patient);
+        }
+        return balance(node);
+    }
+
+    // Balanceo
+
+    private Node balance(Node n) {
+        update(n);
+        int bf = height(n.left) - height(n.right);
+        if (bf > 1) {
+            if (height(n.left.left) < height(n.left.right)) n.left = rotateLeft(n.left);
+            return rotateRight(n);
+        }
+        if (bf < -1) {
+            if (height(n.right.right) < height(n.right.left)) n.right = rotateRight(n.right);
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private Node rotateRight(Node y) {
+        Node x = y.left;
+        y.left  = x.right;
+        x.right = y;
+        update(y);
+        update(x);
+        return x;
+    }
+
+    private Node rotateLeft(Node x) {
+        Node y = x.right;
+        x.right = y.left;
+        y.left  = x;
+        update(x);
+        update(y);
+        return y;
+    }
+
+    private void update(Node n) {
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+        n.count  = 1 + count(n.left) + count(n.right);
+    }
+
+    private int height(Node n) { return n == null ? 0 : n.height; }
+    private int count(Node n)  { return n == null ? 0 : n.count; }
+
+}
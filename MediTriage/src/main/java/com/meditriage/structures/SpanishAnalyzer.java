@@ -0,0 +1,81 @@
+package com.meditriage.structures;
+
+/**
+ * Analizador de texto clínico en español para el índice de síntomas.
+ *
+ *   terms("Dolor en el pecho y dolores de cabeza") → ["dolor", "pech", "dolor", "cabez"]
+ *
+ * Pasos: palabras plegadas (TextNormalizer) → descarte de palabras vacías
+ * ("de", "el", "con"...) → lematización ligera: quita sufijos adverbiales,
+ * plurales y la vocal final de género, de modo que "dolor" / "dolores" y
+ * "dolorosa" / "dolorosos" caen cada par en la misma raíz. Es deliberadamente
+ * conservadora: prefiere no unir dos palabras distintas antes que separar dos
+ * formas de la misma.
+ *
+ * No usa ninguna colección de java.util.
+ */
+public final class SpanishAnalyzer {
+
+    private static final String[] NO_TERMS = new String[0];
+
+    // Palabras vacías (ya plegadas: sin tildes)
+    private static final String[] STOPWORDS = {
+        "a", "al", "ante", "como", "con", "contra", "cual", "de", "del", "desde",
+        "donde", "durante", "e", "el", "ella", "ellos", "en", "entre", "es", "esta",
+        "este", "esto", "ha", "hace", "hasta", "hay", "la", "las", "le", "les", "lo",
+        "los", "mas", "me", "mi", "muy", "ni", "no", "o", "para", "pero", "por",
+        "que", "se", "sin", "sobre", "su", "sus", "tambien", "te", "tiene", "u",
+        "un", "una", "uno", "unos", "unas", "y", "ya"
+    };
+
+    private static final HashTable<String, Boolean> STOP = new HashTable<>();
+    static {
+        for (String w : STOPWORDS) STOP.put(w, Boolean.TRUE);
+    }
+
+    /** Términos indexables del texto, en orden y con repeticiones. */
+    public static String[] terms(String text) {
+        String[] tokens = TextNormalizer.tokens(text);
+        int n = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (STOP.containsKey(tokens[i])) continue;
+            tokens[n++] = stem(tokens[i]);
+        }
+        if (n == 0) return NO_TERMS;
+        if (n == tokens.length) return tokens;
+        String[] out = new String[n];
+        for (int i = 0; i < n; i++) out[i] = tokens[i];
+        return out;
+    }
+
+    /** Raíz de una palabra plegada; las de 3 letras o menos y los números no cambian. */
+    public static String stem(String w) {
+        if (w.length() <= 3 || Character.isDigit(w.charAt(0))) return w;
+
+        // Adverbios: "rapidamente" → "rapida"
+        if (w.length() > 7 && w.endsWith("mente")) w = w.substring(0, w.length() - 5);
+
+        // Plurales: "luces" → "luz", "dolores" → "dolor", "mareos" → "mareo"
+        if (w.length() > 4 && w.endsWith("ces")) {
+            w = w.substring(0, w.length() - 3) + "z";
+        } else if (w.length() > 4 && w.endsWith("es") && !isVowel(w.charAt(w.length() - 3))) {
+            w = w.substring(0, w.length() - 2);
+        } else if (w.length() > 3 && w.endsWith("s") && isVowel(w.charAt(w.length() - 2))) {
+            w = w.substring(0, w.length() - 1);
+        }
+
+        // Vocal final (género / número ya quitado): "dolorosa" → "doloros"
+        if (w.length() > 4) {
+            char last = w.charAt(w.length() - 1);
+            if (last == 'a' || last == 'o' || last == 'e') w = w.substring(0, w.length() - 1);
+        }
+        return w;
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+    }
+
+    // No instanciable
+    private SpanishAnalyzer() {}
+}
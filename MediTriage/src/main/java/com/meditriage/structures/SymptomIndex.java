@@ -0,0 +1,376 @@
+package com.meditriage.structures;
+
+import com.meditriage.model.Patient;
+
+import java.time.LocalDateTime;
+
+/**
+ * Índice invertido de texto completo sobre los síntomas, con ranking BM25.
+ *
+ * Los síntomas pasan por SpanishAnalyzer (palabras vacías + raíces) y cada
+ * término apunta a una lista de apariciones comprimida: pares (ID, frecuencia)
+ * en orden de ID, con el ID codificado como diferencia respecto del anterior
+ * y ambos números en varint (1 byte para valores menores que 128). Las altas
+ * en orden de ID (el caso normal) solo anexan bytes al final; las que llegan
+ * fuera de orden (carga del historial mientras se registran pacientes nuevos)
+ * esperan en un pequeño búfer que se fusiona antes de leer la lista.
+ *
+ * search("dolor pecho", ...) recorre las listas de los términos en paralelo
+ * (documento a documento, por ID), aplica los filtros de nivel y de llegada y
+ * conserva los {@code limit} de mayor puntuación:
+ *
+ *   BM25(d) = Σ idf(t) · tf·(k1+1) / (tf + k1·(1 − b + b·|d|/avgdl))
+ *   idf(t)  = ln(1 + (N − df + 0.5) / (df + 0.5))
+ *
+ * Thread-safe (monitor propio). No usa ninguna colección de java.util.
+ */
+public class SymptomIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B  = 0.75;
+
+    // Altas fuera de orden toleradas por lista antes de recomprimirla
+    private static final int MAX_PENDING = 64;
+
+    // Lista de apariciones de un término
+    private static final class Posting {
+        byte[] buf = new byte[8];
+        int    len;       // bytes usados
+        int    df;        // documentos (comprimidos + pendientes)
+        int    lastId;    // último ID comprimido
+        int[]  pendIds;   // altas fuera de orden (sin ordenar)
+        int[]  pendTf;
+        int    pendN;
+
+        void add(int id, int tf) {
+            df++;
+            if (len == 0 || id > lastId) {
+                writeVarint(id - lastId);
+                writeVarint(tf);
+                lastId = id;
+                return;
+            }
+            if (pendIds == null) {
+                pendIds = new int[MAX_PENDING];
+                pendTf  = new int[MAX_PENDING];
+            }
+            pendIds[pendN] = id;
+            pendTf[pendN++] = tf;
+            if (pendN == MAX_PENDING) compact();
+        }
+
+        /** Fusiona el búfer de pendientes en la parte comprimida. */
+        void compact() {
+            if (pendN == 0) return;
+            int[] ids = new int[df];
+            int[] tfs = new int[df];
+            int   n   = decodeInto(ids, tfs);
+
+            // Inserción ordenada de cada pendiente (pocos, sobre un arreglo ya ordenado)
+            for (int p = 0; p < pendN; p++) {
+                int i = n++;
+                while (i > 0 && ids[i - 1] > pendIds[p]) {
+                    ids[i] = ids[i - 1];
+                    tfs[i] = tfs[i - 1];
+                    i--;
+                }
+                ids[i] = pendIds[p];
+                tfs[i] = pendTf[p];
+            }
+            pendIds = null;
+            pendTf  = null;
+            pendN   = 0;
+            encode(ids, tfs, n);
+        }
+
+        /**
+         * Quita un documento (solo para undo de registro). El undo deshace el
+         * alta más reciente, que es el último par comprimido o un pendiente:
+         * esos casos no recorren la lista; el resto la reescribe entera.
+         */
+        boolean remove(int id) {
+            for (int p = 0; p < pendN; p++) {
+                if (pendIds[p] != id) continue;
+                pendIds[p] = pendIds[--pendN];
+                pendTf[p]  = pendTf[pendN];
+                df--;
+                return true;
+            }
+            if (len > 0 && id == lastId) {
+                truncateLast();
+                return true;
+            }
+            compact();
+            int[] ids = new int[df];
+            int[] tfs = new int[df];
+            int   n   = decodeInto(ids, tfs);
+            int   k   = 0;
+            for (int i = 0; i < n; i++) {
+                if (ids[i] == id) continue;
+                ids[k] = ids[i];
+                tfs[k++] = tfs[i];
+            }
+            if (k == n) return false;
+            encode(ids, tfs, k);
+            return true;
+        }
+
+        /**
+         * Quita el último par (diferencia, frecuencia) leyendo hacia atrás: el
+         * byte final de cada varint es el único con el bit alto en 0.
+         */
+        private void truncateLast() {
+            int start = len - 1;                 // último byte de la frecuencia
+            for (int ends = 0; start > 0; start--) {
+                if (buf[start - 1] >= 0 && ++ends == 2) break;
+            }
+            int delta = 0, shift = 0, pos = start;
+            while (true) {
+                byte b = buf[pos++];
+                delta |= (b & 0x7F) << shift;
+                if (b >= 0) break;
+                shift += 7;
+            }
+            len     = start;
+            lastId -= delta;
+            df--;
+        }
+
+        private int decodeInto(int[] ids, int[] tfs) {
+            int n = 0;
+            for (Cursor c = new Cursor(this, 0); c.id != Integer.MAX_VALUE; c.advance()) {
+                ids[n] = c.id;
+                tfs[n++] = c.tf;
+            }
+            return n;
+        }
+
+        private void encode(int[] ids, int[] tfs, int n) {
+            buf    = new byte[Math.max(8, n * 2)];
+            len    = 0;
+            lastId = 0;
+            df     = n;
+            for (int i = 0; i < n; i++) {
+                writeVarint(ids[i] - lastId);
+                writeVarint(tfs[i]);
+                lastId = ids[i];
+            }
+        }
+
+        private void writeVarint(int v) {
+            if (len + 5 > buf.length) {
+                byte[] bigger = new byte[buf.length * 2 + 5];
+                for (int i = 0; i < len; i++) bigger[i] = buf[i];
+                buf = bigger;
+            }
+            while ((v & ~0x7F) != 0) {
+                buf[len++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[len++] = (byte) v;
+        }
+    }
+
+    // Recorrido de una lista comprimida durante la búsqueda
+    private static final class Cursor {
+        final Posting posting;
+        final double  idf;
+        int pos;
+        int id;   // documento actual (Integer.MAX_VALUE = agotado)
+        int tf;
+
+        Cursor(Posting posting, double idf) {
+            this.posting = posting;
+            this.idf     = idf;
+            advance();
+        }
+
+        void advance() {
+            if (pos >= posting.len) { id = Integer.MAX_VALUE; return; }
+            id += readVarint();
+            tf  = readVarint();
+        }
+
+        private int readVarint() {
+            int v = 0, shift = 0;
+            while (true) {
+                byte b = posting.buf[pos++];
+                v |= (b & 0x7F) << shift;
+                if (b >= 0) return v;
+                shift += 7;
+            }
+        }
+    }
+
+    // Documento indexado: el paciente y su cantidad de términos
+    private static final class Doc {
+        final Patient patient;
+        final int     length;
+
+        Doc(Patient patient, int length) {
+            this.patient = patient;
+            this.length  = length;
+        }
+    }
+
+    // Campos
+    private final IntObjectHashTable<Doc>    docs     = new IntObjectHashTable<>();
+    private final HashTable<String, Posting> postings = new HashTable<>();
+    private long totalLength;   // suma de |d| (para avgdl)
+    private long postingBytes;  // tamaño comprimido aproximado (métrica)
+
+    // API pública
+
+    /** Indexa los síntomas del paciente; no hace nada si ya estaba (los síntomas no cambian). */
+    public synchronized boolean add(Patient p) {
+        if (docs.containsKey(p.getId())) return false;
+        String[] terms = SpanishAnalyzer.terms(p.getSymptoms());
+        docs.put(p.getId(), new Doc(p, terms.length));
+        totalLength += terms.length;
+
+        forEachDistinct(terms, (term, tf) -> {
+            Posting posting = postings.get(term);
+            if (posting == null) {
+                posting = new Posting();
+                postings.put(term, posting);
+            }
+            int before = posting.len;
+            posting.add(p.getId(), tf);
+            postingBytes += posting.len - before;
+        });
+        return true;
+    }
+
+    /** Quita al paciente del índice (undo de registro). */
+    public synchronized boolean remove(int id) {
+        Doc d = docs.get(id);
+        if (d == null) return false;
+        docs.remove(id);
+        totalLength -= d.length;
+
+        forEachDistinct(SpanishAnalyzer.terms(d.patient.getSymptoms()), (term, tf) -> {
+            Posting posting = postings.get(term);
+            if (posting == null) return;
+            int before = posting.len;
+            posting.remove(id);
+            postingBytes += posting.len - before;
+            if (posting.df == 0) postings.remove(term);
+        });
+        return true;
+    }
+
+    public synchronized int  size()         { return docs.size(); }
+    public synchronized int  termCount()    { return postings.size(); }
+    public synchronized long postingBytes() { return postingBytes; }
+
+    /**
+     * Pacientes cuyos síntomas contienen alguno de los términos de la consulta,
+     * de mayor a menor puntuación BM25 (a igualdad, el más reciente primero).
+     *
+     * @param minLevel / maxLevel Rango de niveles aceptados (inclusive).
+     * @param from / to           Ventana de llegada; null = sin límite.
+     * @param limit               Máximo de resultados.
+     */
+    public synchronized Patient[] search(String query, int minLevel, int maxLevel,
+                                         LocalDateTime from, LocalDateTime to, int limit) {
+        String[] terms = SpanishAnalyzer.terms(query);
+        if (terms.length == 0 || limit <= 0 || docs.isEmpty()) return new Patient[0];
+
+        // Un cursor por término distinto presente en el índice
+        Cursor[] cursors = new Cursor[terms.length];
+        int[] count = { 0 };
+        int n = docs.size();
+        forEachDistinct(terms, (term, qtf) -> {
+            Posting posting = postings.get(term);
+            if (posting == null) return;
+            int before = posting.len;
+            posting.compact();
+            postingBytes += posting.len - before;
+            double idf = Math.log(1 + (n - posting.df + 0.5) / (posting.df + 0.5));
+            cursors[count[0]++] = new Cursor(posting, idf);
+        });
+        if (count[0] == 0) return new Patient[0];
+
+        double avgdl = (double) totalLength / n;
+        TopK top = new TopK(limit);
+
+        // Documento a documento: el menor ID entre los cursores
+        while (true) {
+            int id = Integer.MAX_VALUE;
+            for (int i = 0; i < count[0]; i++) id = Math.min(id, cursors[i].id);
+            if (id == Integer.MAX_VALUE) break;
+
+            Doc d = docs.get(id);
+            double score = 0;
+            for (int i = 0; i < count[0]; i++) {
+                Cursor c = cursors[i];
+                if (c.id != id) continue;
+                if (d != null) {
+                    double norm = K1 * (1 - B + B * d.length / avgdl);
+                    score += c.idf * c.tf * (K1 + 1) / (c.tf + norm);
+                }
+                c.advance();
+            }
+            if (d != null && accepts(d.patient, minLevel, maxLevel, from, to)) top.offer(score, d.patient);
+        }
+        return top.toArray();
+    }
+
+    // Operaciones internas
+
+    private interface TermVisitor {
+        void visit(String term, int tf);
+    }
+
+    /** Visita cada término distinto de la lista con su frecuencia. */
+    private static void forEachDistinct(String[] terms, TermVisitor visitor) {
+        for (int i = 0; i < terms.length; i++) {
+            boolean seen = false;
+            for (int j = 0; j < i && !seen; j++) seen = terms[j].equals(terms[i]);
+            if (seen) continue;
+            int tf = 1;
+            for (int j = i + 1; j < terms.length; j++) if (terms[j].equals(terms[i])) tf++;
+            visitor.visit(terms[i], tf);
+        }
+    }
+
+    private static boolean accepts(Patient p, int minLevel, int maxLevel,
+                                   LocalDateTime from, LocalDateTime to) {
+        if (p.getLevel() < minLevel || p.getLevel() > maxLevel) return false;
+        LocalDateTime at = p.getArrivalAt();
+        if (from != null && (at == null || at.isBefore(from))) return false;
+        if (to   != null && (at == null || !at.isBefore(to)))  return false;
+        return true;
+    }
+
+    /** Los {@code k} mejores: arreglo ordenado por puntuación (k pequeño). */
+    private static final class TopK {
+        final double[]  scores;
+        final Patient[] patients;
+        int n;
+
+        TopK(int k) {
+            scores   = new double[k];
+            patients = new Patient[k];
+        }
+
+        void offer(double score, Patient p) {
+            // Los IDs llegan en orden creciente: a igual puntuación gana el posterior
+            if (n == scores.length && score < scores[n - 1]) return;
+            int i = n < scores.length ? n++ : n - 1;
+            while (i > 0 && scores[i - 1] <= score) {
+                scores[i]   = scores[i - 1];
+                patients[i] = patients[i - 1];
+                i--;
+            }
+            scores[i]   = score;
+            patients[i] = p;
+        }
+
+        Patient[] toArray() {
+            Patient[] out = new Patient[n];
+            for (int i = 0; i < n; i++) out[i] = patients[i];
+            return out;
+        }
+    }
+}
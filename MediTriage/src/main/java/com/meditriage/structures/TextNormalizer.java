@@ -0,0 +1,62 @@
+package com.meditriage.structures;
+
+import java.text.Normalizer;
+
+/**
+ * Normalización de texto para los índices de búsqueda.
+ *
+ *   fold("María  López") → "maria  lopez"   (minúsculas, sin tildes ni diéresis)
+ *   tokens("María-José López") → ["maria", "jose", "lopez"]
+ *
+ * Las marcas diacríticas se eliminan tras la descomposición NFD
+ * (java.text.Normalizer), de modo que "ñ" se pliega a "n".
+ * No usa ninguna colección de java.util.
+ */
+public final class TextNormalizer {
+
+    private static final String[] NO_TOKENS = new String[0];
+
+    /** Minúsculas y sin diacríticos; conserva el resto de caracteres. */
+    public static String fold(String text) {
+        if (text == null) return "";
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    /** Palabras plegadas: secuencias de letras o dígitos. */
+    public static String[] tokens(String text) {
+        String folded = fold(text);
+        int count = 0;
+        for (int i = 0; i < folded.length(); ) {
+            while (i < folded.length() && !isWordChar(folded.charAt(i))) i++;
+            if (i == folded.length()) break;
+            count++;
+            while (i < folded.length() && isWordChar(folded.charAt(i))) i++;
+        }
+        if (count == 0) return NO_TOKENS;
+
+        String[] out = new String[count];
+        int k = 0;
+        for (int i = 0; i < folded.length(); ) {
+            while (i < folded.length() && !isWordChar(folded.charAt(i))) i++;
+            if (i == folded.length()) break;
+            int start = i;
+            while (i < folded.length() && isWordChar(folded.charAt(i))) i++;
+            out[k++] = folded.substring(start, i);
+        }
+        return out;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    // No instanciable
+    private TextNormalizer() {}
+}
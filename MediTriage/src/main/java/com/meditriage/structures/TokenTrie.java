@@ -0,0 +1,265 @@
+package com.meditriage.structures;
+
+import com.meditriage.model.Patient;
+
+/**
+ * Trie de palabras normalizadas de los nombres de pacientes activos.
+ *
+ * Cada nombre se divide en palabras plegadas (TextNormalizer: minúsculas, sin
+ * tildes) y cada palabra se inserta como un camino del trie; el nodo final
+ * guarda los pacientes que contienen esa palabra. Cada nodo lleva además la
+ * cantidad de entradas de su subárbol, lo que permite podar ramas vacías al
+ * borrar y cortar el recorrido en cuanto se alcanza el límite.
+ *
+ *   insert / remove → O(largo del nombre)
+ *   search("mar lo") → pacientes con una palabra que empieza por "mar" y otra
+ *                      que empieza por "lo": O(prefijo + k) sobre el subárbol.
+ *   searchWithin("lopes", 1) → palabras a distancia de edición ≤ 1 ("lopez"):
+ *                      recorrido con una fila de Levenshtein por nivel que poda
+ *                      las ramas cuyo mínimo ya supera el límite.
+ *
+ * No usa ninguna colección de java.util.
+ */
+public class TokenTrie {
+
+    /** Recibe cada palabra encontrada con su distancia a la consulta. */
+    public interface WordVisitor {
+        void visit(String word, int distance);
+    }
+
+    // Nodo interno: hijos en arreglos paralelos (alfabeto pequeño, búsqueda lineal)
+    private static class Node {
+        char[] labels = new char[2];
+        Node[] kids   = new Node[2];
+        int    degree;
+        IntObjectHashTable<Patient> patients; // pacientes cuya palabra termina aquí
+        int    count;                         // entradas (palabra, paciente) del subárbol
+
+        Node child(char c) {
+            for (int i = 0; i < degree; i++) if (labels[i] == c) return kids[i];
+            return null;
+        }
+
+        Node addChild(char c) {
+            if (degree == labels.length) {
+                char[] l = new char[degree * 2];
+                Node[] k = new Node[degree * 2];
+                for (int i = 0; i < degree; i++) { l[i] = labels[i]; k[i] = kids[i]; }
+                labels = l;
+                kids   = k;
+            }
+            Node n = new Node();
+            labels[degree] = c;
+            kids[degree++] = n;
+            return n;
+        }
+
+        void removeChild(char c) {
+            for (int i = 0; i < degree; i++) {
+                if (labels[i] != c) continue;
+                degree--;
+                labels[i] = labels[degree];
+                kids[i]   = kids[degree];
+                kids[degree] = null;
+                return;
+            }
+        }
+    }
+
+    // Campos
+    private final Node root = new Node();
+    private int        size; // pacientes indexados
+
+    // API pública
+
+    /** Indexa todas las palabras del nombre del paciente. */
+    public void insert(Patient p) {
+        String[] tokens = TextNormalizer.tokens(p.getName());
+        boolean added = false;
+        for (String t : tokens) added |= insertToken(t, p);
+        if (added) size++;
+    }
+
+    /** Quita al paciente de todas las palabras de su nombre. */
+    public void remove(Patient p) {
+        String[] tokens = TextNormalizer.tokens(p.getName());
+        boolean removed = false;
+        for (String t : tokens) removed |= removeToken(t, p.getId());
+        if (removed) size--;
+    }
+
+    public int     size()    { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    /** Nodos del trie sin contar la raíz (las ramas vacías se podan al borrar). O(n). */
+    int nodeCount() {
+        return nodesBelow(root);
+    }
+
+    /**
+     * Búsqueda por inicio de palabra. Cada palabra de la consulta debe ser
+     * prefijo de alguna palabra del nombre (en cualquier orden).
+     *
+     * @param query Texto libre; se normaliza igual que los nombres.
+     * @param limit Máximo de resultados.
+     */
+    public Patient[] search(String query, int limit) {
+        String[] q = TextNormalizer.tokens(query);
+        if (q.length == 0 || limit <= 0) return new Patient[0];
+
+        // La palabra más larga es la más selectiva: se recorre su subárbol
+        int pivot = 0;
+        for (int i = 1; i < q.length; i++) if (q[i].length() > q[pivot].length()) pivot = i;
+
+        Node start = find(q[pivot]);
+        if (start == null) return new Patient[0];
+
+        Patient[] buffer = new Patient[Math.min(limit, start.count)];
+        IntObjectHashTable<Patient> seen = new IntObjectHashTable<>();
+        int found = collect(start, q, pivot, buffer, 0, seen);
+
+        if (found == buffer.length) return buffer;
+        Patient[] out = new Patient[found];
+        for (int i = 0; i < found; i++) out[i] = buffer[i];
+        return out;
+    }
+
+    /**
+     * Visita las palabras indexadas a distancia de Levenshtein ≤ {@code maxEdits}
+     * de {@code word} (ya plegada). Cada nivel del trie calcula una fila de la
+     * matriz de distancias a partir de la del padre; si el mínimo de la fila
+     * supera el límite, ninguna palabra de ese subárbol puede cumplirlo.
+     */
+    public void searchWithin(String word, int maxEdits, WordVisitor visitor) {
+        int maxDepth = word.length() + maxEdits;
+        int[][] rows = new int[maxDepth + 1][word.length() + 1];
+        for (int j = 0; j <= word.length(); j++) rows[0][j] = j;
+        char[] path = new char[maxDepth];
+        for (int i = 0; i < root.degree; i++)
+            walk(root.kids[i], root.labels[i], 1, word, maxEdits, rows, path, visitor);
+    }
+
+    /** Cantidad de pacientes con la palabra exacta {@code word} (ya plegada). */
+    public int countWithWord(String word) {
+        Node n = find(word);
+        return n == null || n.patients == null ? 0 : n.patients.size();
+    }
+
+    /** Recorre los pacientes con la palabra exacta {@code word} (ya plegada). */
+    public void forEachWithWord(String word, IntObjectHashTable.Visitor<Patient> visitor) {
+        Node n = find(word);
+        if (n != null && n.patients != null) n.patients.forEach(visitor);
+    }
+
+    // Operaciones internas
+
+    private void walk(Node n, char c, int depth, String word, int maxEdits,
+                      int[][] rows, char[] path, WordVisitor visitor) {
+        int[] prev = rows[depth - 1];
+        int[] row  = rows[depth];
+        row[0] = depth;
+        int rowMin = depth;
+        for (int j = 1; j <= word.length(); j++) {
+            int cost = word.charAt(j - 1) == c ? 0 : 1;
+            row[j] = Math.min(prev[j - 1] + cost, Math.min(prev[j] + 1, row[j - 1] + 1));
+            rowMin = Math.min(rowMin, row[j]);
+        }
+        if (rowMin > maxEdits) return;
+
+        path[depth - 1] = c;
+        int d = row[word.length()];
+        if (d <= maxEdits && n.patients != null) visitor.visit(new String(path, 0, depth), d);
+        if (depth == rows.length - 1) return;
+        for (int i = 0; i < n.degree; i++)
+            walk(n.kids[i], n.labels[i], depth + 1, word, maxEdits, rows, path, visitor);
+    }
+
+    private boolean insertToken(String token, Patient p) {
+        Node n = root;
+        for (int i = 0; i < token.length(); i++) {
+            Node next = n.child(token.charAt(i));
+            n = next != null ? next : n.addChild(token.charAt(i));
+        }
+        if (n.patients == null) n.patients = new IntObjectHashTable<>();
+        if (n.patients.containsKey(p.getId())) return false; // palabra repetida en el nombre
+        n.patients.put(p.getId(), p);
+
+        // Incrementar contadores del camino
+        Node m = root;
+        m.count++;
+        for (int i = 0; i < token.length(); i++) {
+            m = m.child(token.charAt(i));
+            m.count++;
+        }
+        return true;
+    }
+
+    private boolean removeToken(String token, int id) {
+        Node[] path = new Node[token.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < token.length(); i++) {
+            path[i + 1] = path[i].child(token.charAt(i));
+            if (path[i + 1] == null) return false;
+        }
+        Node end = path[token.length()];
+        if (end.patients == null || !end.patients.remove(id)) return false;
+        if (end.patients.isEmpty()) end.patients = null;
+
+        // Decrementar contadores y podar ramas que quedan vacías
+        for (int i = token.length(); i >= 0; i--) {
+            path[i].count--;
+            if (i > 0 && path[i].count == 0) path[i - 1].removeChild(token.charAt(i - 1));
+        }
+        return true;
+    }
+
+    private static int nodesBelow(Node n) {
+        int total = n.degree;
+        for (int i = 0; i < n.degree; i++) total += nodesBelow(n.kids[i]);
+        return total;
+    }
+
+    private Node find(String prefix) {
+        Node n = root;
+        for (int i = 0; i < prefix.length() && n != null; i++) n = n.child(prefix.charAt(i));
+        return n;
+    }
+
+    /** Recorre el subárbol en profundidad hasta llenar {@code out}. */
+    private int collect(Node n, String[] q, int pivot, Patient[] out, int pos,
+                        IntObjectHashTable<Patient> seen) {
+        if (pos == out.length) return pos;
+        if (n.patients != null) {
+            Patient[] here = valuesOf(n.patients);
+            for (Patient p : here) {
+                if (pos == out.length) return pos;
+                if (seen.containsKey(p.getId())) continue;
+                seen.put(p.getId(), p);
+                if (matchesOthers(p, q, pivot)) out[pos++] = p;
+            }
+        }
+        for (int i = 0; i < n.degree && pos < out.length; i++)
+            pos = collect(n.kids[i], q, pivot, out, pos, seen);
+        return pos;
+    }
+
+    /** Verifica las palabras de la consulta distintas del pivote. */
+    private static boolean matchesOthers(Patient p, String[] q, int pivot) {
+        if (q.length == 1) return true;
+        String[] tokens = TextNormalizer.tokens(p.getName());
+        for (int j = 0; j < q.length; j++) {
+            if (j == pivot) continue;
+            boolean ok = false;
+            for (String t : tokens) if (t.startsWith(q[j])) { ok = true; break; }
+            if (!ok) return false;
+        }
+        return true;
+    }
+
+    private static Patient[] valuesOf(IntObjectHashTable<Patient> table) {
+        Patient[] out = new Patient[table.size()];
+        int[] k = { 0 };
+        table.forEach((id, p) -> out[k[0]++] = p);
+        return out;
+    }
+}
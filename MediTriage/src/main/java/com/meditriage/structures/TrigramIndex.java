@@ -0,0 +1,282 @@
+package com.meditriage.structures;
+
+import com.meditriage.model.Patient;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Índice invertido de trigramas sobre nombre y síntomas de todos los pacientes
+ * (en espera e historial), para búsquedas "contiene" sin {@code LIKE '%x%'}.
+ *
+ * Cada campo se pliega (TextNormalizer.fold) y se descompone en trigramas
+ * ("maria" → mar, ari, ria). Cada trigrama apunta a una lista ordenada de IDs.
+ * Una consulta de 3+ caracteres intersecta las listas de sus trigramas (de la
+ * más corta a la más larga) y verifica la subcadena en los candidatos; las de
+ * 1–2 caracteres recorren la lista de documentos. Resultados: ID descendente
+ * (más recientes primero).
+ *
+ * Thread-safe (monitor propio): lo alimentan el TriageService y el hilo que lo
+ * construye desde MySQL. writeTo/readFrom guardan y restauran los documentos;
+ * las listas de trigramas se reconstruyen en memoria al leer.
+ *
+ * No usa ninguna colección de java.util.
+ */
+public class TrigramIndex {
+
+    private static final int SNAPSHOT_MAGIC = 0x54524731; // "TRG1"
+
+    // Lista ordenada de IDs (posting list)
+    private static final class IntList {
+        int[] a = new int[4];
+        int   n;
+
+        int indexOf(int id) {
+            int lo = 0, hi = n - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if      (a[mid] < id) lo = mid + 1;
+                else if (a[mid] > id) hi = mid - 1;
+                else return mid;
+            }
+            return -(lo + 1);
+        }
+
+        /** Inserta manteniendo el orden; los IDs nuevos casi siempre van al final. */
+        boolean add(int id) {
+            if (n > 0 && a[n - 1] < id) {
+                append(id);
+                return true;
+            }
+            int pos = indexOf(id);
+            if (pos >= 0) return false;
+            pos = -pos - 1;
+            append(0);
+            for (int i = n - 1; i > pos; i--) a[i] = a[i - 1];
+            a[pos] = id;
+            return true;
+        }
+
+        boolean remove(int id) {
+            int pos = indexOf(id);
+            if (pos < 0) return false;
+            for (int i = pos; i < n - 1; i++) a[i] = a[i + 1];
+            n--;
+            return true;
+        }
+
+        private void append(int id) {
+            if (n == a.length) {
+                int[] bigger = new int[n * 2];
+                for (int i = 0; i < n; i++) bigger[i] = a[i];
+                a = bigger;
+            }
+            a[n++] = id;
+        }
+    }
+
+    // Documento indexado: el paciente y sus campos ya plegados
+    private static final class Doc {
+        final Patient patient;
+        final String  name;
+        final String  symptoms;
+
+        Doc(Patient patient) {
+            this.patient  = patient;
+            this.name     = TextNormalizer.fold(patient.getName());
+            this.symptoms = TextNormalizer.fold(patient.getSymptoms());
+        }
+    }
+
+    // Campos
+    private final IntObjectHashTable<Doc>  docs     = new IntObjectHashTable<>();
+    private final IntList                  allIds   = new IntList();
+    private final HashTable<String, IntList> postings = new HashTable<>();
+    private int                            trigrams; // listas no vacías
+
+    // API pública
+
+    /** Indexa (o re-indexa) un paciente; el documento pasa a ser este objeto. */
+    public synchronized void put(Patient p) {
+        if (docs.containsKey(p.getId())) remove(p.getId());
+        Doc d = new Doc(p);
+        docs.put(p.getId(), d);
+        allIds.add(p.getId());
+        indexField(d.name, p.getId());
+        indexField(d.symptoms, p.getId());
+    }
+
+    /** Indexa solo si el ID aún no está (no pisa al objeto vivo del servicio). */
+    public synchronized boolean putIfAbsent(Patient p) {
+        if (docs.containsKey(p.getId())) return false;
+        put(p);
+        return true;
+    }
+
+    public synchronized boolean remove(int id) {
+        Doc d = docs.get(id);
+        if (d == null) return false;
+        unindexField(d.name, id);
+        unindexField(d.symptoms, id);
+        allIds.remove(id);
+        docs.remove(id);
+        return true;
+    }
+
+    public synchronized int size()         { return docs.size(); }
+    public synchronized int trigramCount() { return trigrams; }
+
+    /** Pacientes indexados, por ID ascendente. */
+    public synchronized Patient[] toArray() {
+        Patient[] out = new Patient[allIds.n];
+        for (int i = 0; i < allIds.n; i++) out[i] = docs.get(allIds.a[i]).patient;
+        return out;
+    }
+
+    /** Mayor ID indexado (0 si vacío). */
+    public synchronized int maxId() {
+        return allIds.n == 0 ? 0 : allIds.a[allIds.n - 1];
+    }
+
+    /**
+     * Pacientes cuyo nombre (o síntomas, si {@code includeSymptoms}) contiene
+     * el texto, sin distinguir mayúsculas ni tildes. Más recientes primero.
+     */
+    public synchronized Patient[] search(String text, int limit, boolean includeSymptoms) {
+        String q = TextNormalizer.fold(text).trim();
+        if (q.isEmpty() || limit <= 0) return new Patient[0];
+
+        Patient[] buffer = new Patient[Math.min(limit, docs.size())];
+        int found = 0;
+
+        if (q.length() < 3) {
+            // Demasiado corto para trigramas: recorrer documentos
+            for (int i = allIds.n - 1; i >= 0 && found < buffer.length; i--) {
+                Doc d = docs.get(allIds.a[i]);
+                if (matches(d, q, includeSymptoms)) buffer[found++] = d.patient;
+            }
+            return trim(buffer, found);
+        }
+
+        // Listas de los trigramas de la consulta; la más corta guía la intersección
+        int count = q.length() - 2;
+        IntList[] lists = new IntList[count];
+        int shortest = 0;
+        for (int i = 0; i < count; i++) {
+            lists[i] = postings.get(q.substring(i, i + 3));
+            if (lists[i] == null) return new Patient[0];
+            if (lists[i].n < lists[shortest].n) shortest = i;
+        }
+
+        IntList guide = lists[shortest];
+        for (int i = guide.n - 1; i >= 0 && found < buffer.length; i--) {
+            int id = guide.a[i];
+            boolean inAll = true;
+            for (int j = 0; j < count && inAll; j++) {
+                if (j != shortest && lists[j].indexOf(id) < 0) inAll = false;
+            }
+            if (!inAll) continue;
+            Doc d = docs.get(id);
+            if (matches(d, q, includeSymptoms)) buffer[found++] = d.patient;
+        }
+        return trim(buffer, found);
+    }
+
+    // Snapshot
+
+    /** Escribe todos los documentos (los trigramas se recalculan al leer). */
+    public synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(allIds.n);
+        for (int i = 0; i < allIds.n; i++) {
+            Patient p = docs.get(allIds.a[i]).patient;
+            out.writeInt(p.getId());
+            out.writeUTF(nullToEmpty(p.getName()));
+            out.writeInt(p.getAge());
+            out.writeUTF(nullToEmpty(p.getSymptoms()));
+            out.writeInt(p.getLevel());
+            out.writeUTF(nullToEmpty(p.getStatus()));
+            writeTime(out, p.getArrivalAt());
+            writeTime(out, p.getAttendedAt());
+            writeTime(out, p.getCreatedAt());
+        }
+    }
+
+    /**
+     * Agrega los documentos de un snapshot (sin pisar los ya presentes).
+     * @return El mayor ID leído del snapshot (0 si vacío).
+     * @throws IOException si el formato no es válido.
+     */
+    public synchronized int readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC) throw new IOException("Snapshot de índice inválido");
+        int n = in.readInt();
+        int max = 0;
+        for (int i = 0; i < n; i++) {
+            int    id       = in.readInt();
+            String name     = in.readUTF();
+            int    age      = in.readInt();
+            String symptoms = in.readUTF();
+            int    level    = in.readInt();
+            String status   = in.readUTF();
+            putIfAbsent(new Patient(id, name, age, symptoms, level, status,
+                    readTime(in), readTime(in), readTime(in)));
+            max = Math.max(max, id);
+        }
+        return max;
+    }
+
+    // Operaciones internas
+
+    private void indexField(String field, int id) {
+        for (int i = 0; i + 3 <= field.length(); i++) {
+            String tri = field.substring(i, i + 3);
+            IntList list = postings.get(tri);
+            if (list == null) {
+                list = new IntList();
+                postings.put(tri, list);
+                trigrams++;
+            }
+            list.add(id);
+        }
+    }
+
+    private void unindexField(String field, int id) {
+        for (int i = 0; i + 3 <= field.length(); i++) {
+            String tri = field.substring(i, i + 3);
+            IntList list = postings.get(tri);
+            if (list != null && list.remove(id) && list.n == 0) {
+                postings.remove(tri);
+                trigrams--;
+            }
+        }
+    }
+
+    private static boolean matches(Doc d, String q, boolean includeSymptoms) {
+        return d.name.contains(q) || (includeSymptoms && d.symptoms.contains(q));
+    }
+
+    private static Patient[] trim(Patient[] buffer, int found) {
+        if (found == buffer.length) return buffer;
+        Patient[] out = new Patient[found];
+        for (int i = 0; i < found; i++) out[i] = buffer[i];
+        return out;
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime t) throws IOException {
+        out.writeLong(t == null ? Long.MIN_VALUE : t.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt (t == null ? 0 : t.getNano());
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        long sec  = in.readLong();
+        int  nano = in.readInt();
+        return sec == Long.MIN_VALUE ? null : LocalDateTime.ofEpochSecond(sec, nano, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,328 @@
+package com.meditriage.database;
+
+import com.meditriage.model.Patient;
+import com.meditriage.structures.TextNormalizer;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SQL y parámetros de AttendedQuery sin MySQL: cada {@code ?} del texto recibe
+ * el valor que le corresponde y bind() no asigna nada de más; además, el WHERE
+ * generado se evalúa sobre filas en memoria (un intérprete mínimo de la
+ * gramática que produce buildSql) y la paginación por cursor debe recorrer
+ * exactamente las filas que filtran los mismos criterios en Java.
+ */
+class AttendedQueryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 15, 30);
+
+    // Texto y parámetros
+
+    @Test
+    void cadaCombinacionDeFiltrosAsignaUnParametroPorMarcadorEnOrden() throws SQLException {
+        HistoryCursor cursor = new HistoryCursor(NOW.minusMinutes(20), 42);
+        for (int shape = 0; shape < 64; shape++) {
+            for (HistoryPeriod period : HistoryPeriod.values()) {
+                AttendedQuery q = query(shape, period, cursor);
+                String sql = q.sql();
+                Map<Integer, Object> bound = bind(q);
+
+                // texto → parámetros: un valor por marcador, índices 1..n sin huecos
+                List<String> markers = markers(sql);
+                assertEquals(markers.size(), bound.size(), sql);
+                for (int i = 1; i <= markers.size(); i++) assertTrue(bound.containsKey(i), "falta el " + i + " en " + sql);
+
+                // parámetros → texto: cada marcador recibe el valor de su predicado
+                for (int i = 0; i < markers.size(); i++) {
+                    assertEquals(expectedValue(markers.get(i), i, markers, (shape & 1) != 0 ? 3 : 0, period, cursor, shape),
+                                 bound.get(i + 1), markers.get(i) + " en " + sql);
+                }
+            }
+        }
+    }
+
+    @Test
+    void laMismaFormaReusaElMismoTextoYLosValoresNoSeConcatenan() {
+        AttendedQuery a = AttendedQuery.all().level(2).nameContains("O'Brien 100%_");
+        AttendedQuery b = AttendedQuery.all().level(4).nameContains("lopez");
+
+        assertSame(a.sql(), b.sql(), "misma forma, mismo String cacheado");
+        assertFalse(a.sql().contains("Brien") || a.sql().contains("2"), a.sql());
+        assertTrue(a.sql().contains("status='ATTENDED'"));
+        assertFalse(a.sql().contains("DATE("), "el rango compara la columna sin funciones");
+        assertEquals(AttendedQuery.all().level(2), AttendedQuery.all().level(2));
+    }
+
+    @Test
+    void elPatronLikeEscapaComodinesYElSignoDeEscape() throws SQLException {
+        Map<Integer, Object> bound = bind(AttendedQuery.all().nameContains("  50%_a!b  "));
+        assertEquals("%50!%!_a!!b%", bound.get(1));
+        assertEquals(AttendedQuery.all().sql(), AttendedQuery.all().nameContains("   ").sql());
+    }
+
+    // Semántica del WHERE y del cursor
+
+    @Test
+    void paginarConCursorRecorreCadaFiltroSinSaltosNiRepetidos() throws SQLException {
+        List<Patient> table = table(new Random(3));
+        for (int shape = 0; shape < 32; shape++) {          // sin LIMIT: lo pone la paginación
+            for (HistoryPeriod period : HistoryPeriod.values()) {
+                AttendedQuery base = query(shape & ~16, period, null);
+                List<Integer> expected = reference(table, base);
+
+                for (int pageSize : new int[] { 1, 3, 50 }) {
+                    List<Integer> got  = new ArrayList<>();
+                    HistoryCursor cur  = null;
+                    while (true) {
+                        List<Patient> page = run(table, (cur == null ? base : base.after(cur)).limit(pageSize));
+                        for (Patient p : page) got.add(p.getId());
+                        if (page.size() < pageSize) break;
+                        cur = HistoryCursor.after(page.get(page.size() - 1));
+                    }
+                    assertEquals(expected, got, base + " página " + pageSize);
+                }
+            }
+        }
+    }
+
+    @Test
+    void elCursorDesempataPorIdHaciaAmbosLados() throws SQLException {
+        LocalDateTime t = NOW.minusMinutes(5);
+        List<Patient> table = List.of(
+            attended(10, "A", 3, t.plusSeconds(1)),   // más nuevo: queda antes del cursor
+            attended(9,  "B", 3, t),                  // mismo instante, ID mayor: ya entregado
+            attended(7,  "C", 3, t),                  // el cursor
+            attended(5,  "D", 3, t),                  // mismo instante, ID menor: sigue
+            attended(8,  "E", 3, t.minusSeconds(1))); // más viejo, aunque su ID sea mayor
+
+        List<Patient> after = run(table, AttendedQuery.all().after(new HistoryCursor(t, 7)));
+        assertEquals(List.of(5, 8), ids(after));
+    }
+
+    // Auxiliares: consultas y referencia
+
+    /** Bits: 1 nivel, 2 nombre, 4 período, 8 rango fijo, 16 cursor, 32 límite. */
+    private static AttendedQuery query(int shape, HistoryPeriod period, HistoryCursor cursor) {
+        AttendedQuery q = AttendedQuery.all();
+        if ((shape & 1)  != 0) q = q.level(3);
+        if ((shape & 2)  != 0) q = q.nameContains("Lopez");
+        if ((shape & 4)  != 0) q = q.period(period, NOW);
+        if ((shape & 8)  != 0) q = q.attendedBetween(NOW.minusHours(30), NOW.minusMinutes(10));
+        if ((shape & 16) != 0 && cursor != null) q = q.after(cursor);
+        if ((shape & 32) != 0) q = q.limit(25);
+        return q;
+    }
+
+    private static Object expectedValue(String marker, int index, List<String> markers, int level,
+                                        HistoryPeriod period, HistoryCursor cursor, int shape) {
+        switch (marker) {
+            case "level = ?":       return level;
+            case "LIKE":            return "%Lopez%";
+            case "LIMIT":           return 25;
+            case "id < ?":          return cursor.getId();
+            case "attended_at = ?": return Timestamp.valueOf(cursor.getAttendedAt());
+            case "attended_at >= ?": {
+                LocalDateTime from = (shape & 8) != 0 ? NOW.minusHours(30) : period.from(NOW);
+                return Timestamp.valueOf(from);
+            }
+            default: { // attended_at < ?: fin del rango o el primero del cursor
+                boolean keyset = index + 1 < markers.size() && markers.get(index + 1).equals("attended_at = ?");
+                if (keyset) return Timestamp.valueOf(cursor.getAttendedAt());
+                LocalDateTime to = (shape & 8) != 0 ? NOW.minusMinutes(10) : period.to(NOW);
+                return Timestamp.valueOf(to);
+            }
+        }
+    }
+
+    /** Predicado de cada marcador, en orden de aparición. */
+    private static List<String> markers(String sql) {
+        List<String> out = new ArrayList<>();
+        var m = Pattern.compile("(level = \\?|attended_at >= \\?|attended_at < \\?|attended_at = \\?|id < \\?"
+                                + "|LIKE \\?|LIMIT \\?)").matcher(sql);
+        while (m.find()) {
+            String s = m.group(1);
+            out.add(s.startsWith("LIKE") ? "LIKE" : s.startsWith("LIMIT") ? "LIMIT" : s);
+        }
+        assertEquals(sql.chars().filter(c -> c == '?').count(), out.size(), "marcador sin reconocer en " + sql);
+        return out;
+    }
+
+    private static List<Integer> reference(List<Patient> table, AttendedQuery q) {
+        List<Integer> out = new ArrayList<>();
+        for (Patient p : sorted(table)) if (q.matches(p)) out.add(p.getId());
+        return out;
+    }
+
+    private static List<Patient> table(Random rnd) {
+        String[] names = { "Ana López", "Luis LOPEZ", "Marta Ruiz", "Lopezino", "Juan Pérez" };
+        List<Patient> rows = new ArrayList<>();
+        for (int id = 1; id <= 300; id++) {
+            // Instantes de a minuto sobre dos días: muchos empates de attended_at
+            LocalDateTime at = NOW.minusMinutes(rnd.nextInt(48 * 60 / 10) * 10L).plusMinutes(rnd.nextInt(3) * 10L);
+            Patient p = attended(id, names[rnd.nextInt(names.length)], 1 + rnd.nextInt(5), at);
+            if (rnd.nextInt(10) == 0) p.setStatus("WAITING");
+            rows.add(p);
+        }
+        return rows;
+    }
+
+    // Ejecución en memoria del SQL generado
+
+    private static List<Patient> run(List<Patient> table, AttendedQuery q) throws SQLException {
+        String sql = q.sql();
+        Map<Integer, Object> params = bind(q);
+        String where = sql.substring(sql.indexOf(" WHERE ") + 7, sql.indexOf(" ORDER BY "));
+        assertTrue(sql.contains("ORDER BY attended_at DESC, id DESC"));
+
+        List<Patient> out = new ArrayList<>();
+        for (Patient p : sorted(table)) if (new Where(where, params, p).eval()) out.add(p);
+        if (sql.endsWith("LIMIT ?")) {
+            int limit = (Integer) params.get(params.size());
+            if (out.size() > limit) out = new ArrayList<>(out.subList(0, limit));
+        }
+        Set<Integer> unique = new HashSet<>(ids(out));
+        assertEquals(out.size(), unique.size());
+        return out;
+    }
+
+    private static List<Patient> sorted(List<Patient> table) {
+        List<Patient> rows = new ArrayList<>(table);
+        rows.sort(Comparator.comparing(Patient::getAttendedAt).thenComparingInt(Patient::getId).reversed());
+        return rows;
+    }
+
+    /**
+     * Evalúa la gramática de buildSql sobre una fila:
+     *   expr := and ( OR and )* ; and := term ( AND term )*
+     *   term := '(' expr ')' | columna op ( ? | 'literal' ) [ ESCAPE '!' ]
+     */
+    private static final class Where {
+        private final String[]             tokens;
+        private final Map<Integer, Object> params;
+        private final Patient              row;
+        private int pos;
+        private int param = 1;
+
+        Where(String where, Map<Integer, Object> params, Patient row) {
+            this.tokens = where.replace("(", " ( ").replace(")", " ) ").trim().split("\\s+");
+            this.params = params;
+            this.row    = row;
+        }
+
+        boolean eval() {
+            boolean v = or();
+            assertEquals(tokens.length, pos, "WHERE sin consumir");
+            return v;
+        }
+
+        private boolean or() {
+            boolean v = and();
+            while (pos < tokens.length && tokens[pos].equals("OR")) {
+                pos++;
+                v |= and();                       // sin cortocircuito: los ? se consumen en orden
+            }
+            return v;
+        }
+
+        private boolean and() {
+            boolean v = term();
+            while (pos < tokens.length && tokens[pos].equals("AND")) {
+                pos++;
+                v &= term();
+            }
+            return v;
+        }
+
+        private boolean term() {
+            if (tokens[pos].equals("(")) {
+                pos++;
+                boolean v = or();
+                assertEquals(")", tokens[pos++]);
+                return v;
+            }
+            if (tokens[pos].startsWith("status=")) {
+                return tokens[pos++].equals("status='ATTENDED'") && "ATTENDED".equals(row.getStatus());
+            }
+            String column = tokens[pos++];
+            String op     = tokens[pos++];
+            assertEquals("?", tokens[pos++]);
+            Object value = params.get(param++);
+            if (op.equals("LIKE")) {
+                assertEquals("ESCAPE", tokens[pos++]);
+                assertEquals("'!'", tokens[pos++]);
+                return like(row.getName(), (String) value);
+            }
+            int c = switch (column) {
+                case "level"       -> Integer.compare(row.getLevel(), (Integer) value);
+                case "id"          -> Integer.compare(row.getId(), (Integer) value);
+                case "attended_at" -> row.getAttendedAt().compareTo(((Timestamp) value).toLocalDateTime());
+                default            -> throw new AssertionError("columna " + column);
+            };
+            return switch (op) {
+                case "="  -> c == 0;
+                case "<"  -> c < 0;
+                case ">=" -> c >= 0;
+                default   -> throw new AssertionError("operador " + op);
+            };
+        }
+
+        /** LIKE con '!' de escape; sin distinguir mayúsculas ni tildes, como la intercalación. */
+        private static boolean like(String text, String pattern) {
+            pattern = TextNormalizer.fold(pattern);
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < pattern.length(); i++) {
+                char ch = pattern.charAt(i);
+                if (ch == '!')      regex.append(Pattern.quote(String.valueOf(pattern.charAt(++i))));
+                else if (ch == '%') regex.append(".*");
+                else if (ch == '_') regex.append('.');
+                else                regex.append(Pattern.quote(String.valueOf(ch)));
+            }
+            return Pattern.matches(regex.toString(), TextNormalizer.fold(text));
+        }
+    }
+
+    // Captura de parámetros
+
+    private static Map<Integer, Object> bind(AttendedQuery q) throws SQLException {
+        Map<Integer, Object> bound = new TreeMap<>();
+        PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(
+            PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+            (proxy, method, args) -> {
+                if (!method.getName().startsWith("set")) throw new AssertionError(method.getName());
+                Object previous = bound.put((Integer) args[0], args[1]);
+                if (previous != null) throw new AssertionError("parámetro " + args[0] + " asignado dos veces");
+                return null;
+            });
+        q.bind(ps);
+        return bound;
+    }
+
+    private static Patient attended(int id, String name, int level, LocalDateTime at) {
+        return new Patient(id, name, 40, "tos", level, "ATTENDED", at.minusMinutes(30), at, at.minusMinutes(30));
+    }
+
+    private static List<Integer> ids(List<Patient> patients) {
+        List<Integer> out = new ArrayList<>();
+        for (Patient p : patients) out.add(p.getId());
+        return out;
+    }
+}
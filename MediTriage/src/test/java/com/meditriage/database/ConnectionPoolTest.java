@@ -0,0 +1,166 @@
+package com.meditriage.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Pool de conexiones sobre un driver JDBC simulado (sin MySQL). */
+class ConnectionPoolTest {
+
+    private static final String URL = "jdbc:meditriage-fake:pool";
+
+    /** Driver registrado en DriverManager; cada conexión es un proxy que cuenta aperturas y cierres. */
+    static final class FakeDriver implements Driver {
+        final AtomicInteger opened = new AtomicInteger();
+        final AtomicInteger closed = new AtomicInteger();
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) return null;
+            opened.incrementAndGet();
+            boolean[] isClosed = new boolean[1];
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "close"         -> { if (!isClosed[0]) closed.incrementAndGet(); isClosed[0] = true; yield null; }
+                    case "isClosed"      -> isClosed[0];
+                    case "isValid"       -> !isClosed[0];
+                    case "getAutoCommit" -> true;
+                    case "hashCode"      -> System.identityHashCode(proxy);
+                    case "equals"        -> proxy == args[0];
+                    default              -> null;
+                });
+        }
+
+        @Override public boolean acceptsURL(String url) { return url.startsWith("jdbc:meditriage-fake:"); }
+        @Override public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) { return new DriverPropertyInfo[0]; }
+        @Override public int getMajorVersion() { return 1; }
+        @Override public int getMinorVersion() { return 0; }
+        @Override public boolean jdbcCompliant() { return false; }
+        @Override public Logger getParentLogger() { return Logger.getGlobal(); }
+    }
+
+    private FakeDriver     driver;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void register() throws SQLException {
+        driver = new FakeDriver();
+        DriverManager.registerDriver(driver);
+    }
+
+    @AfterEach
+    void deregister() throws SQLException {
+        if (pool != null) pool.close();
+        DriverManager.deregisterDriver(driver);
+    }
+
+    @Test
+    void devolverLaConexionLaReutilizaSinAbrirOtra() throws SQLException {
+        pool = pool(2, 60_000, false);
+
+        Connection first = pool.borrow();
+        assertEquals(1, pool.stats().getActive());
+        first.close();
+        first.close();                                   // cerrar dos veces no la devuelve dos veces
+        assertTrue(first.isClosed());
+        assertThrows(SQLException.class, first::createStatement, "un préstamo cerrado no se usa");
+
+        try (Connection second = pool.borrow()) {
+            assertFalse(second.isClosed());
+        }
+        PoolStats stats = pool.stats();
+        assertEquals(1, driver.opened.get(), "la física se reutiliza");
+        assertEquals(0, stats.getActive());
+        assertEquals(1, stats.getIdle());
+        assertEquals(2, stats.getBorrowCount());
+    }
+
+    @Test
+    void agotadoEsperaUnaDevolucionYSinoCortaPorTiempo() throws Exception {
+        pool = pool(1, 60_000, false);
+        Connection held = pool.borrow();
+
+        long start = System.nanoTime();
+        assertThrows(SQLException.class, pool::borrow);
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(waitedMs >= 150, "espera maxWaitMs antes de rendirse: " + waitedMs + " ms");
+        assertEquals(1, pool.stats().getTimeouts());
+
+        // Una devolución durante la espera despierta al que espera
+        CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+        held.close();
+        waiter.get(5, TimeUnit.SECONDS).close();
+        assertEquals(1, driver.opened.get());
+        assertEquals(1, pool.stats().getTimeouts());
+
+        pool.close();
+        assertThrows(SQLException.class, pool::borrow, "cerrado no presta");
+        assertEquals(1, driver.closed.get(), "al cerrar se cierran las ociosas");
+    }
+
+    @Test
+    void reportaLaFugaUnaVezYSoloCapturaLaPilaSiSePide() throws Exception {
+        String withoutTrace = leakReport(false);
+        assertTrue(withoutTrace.contains("Posible fuga"), withoutTrace);
+        assertTrue(withoutTrace.contains("db.pool.leakTraces"), withoutTrace);
+        assertFalse(withoutTrace.contains("Conexión prestada aquí"), withoutTrace);
+
+        String withTrace = leakReport(true);
+        assertTrue(withTrace.contains("Conexión prestada aquí"), withTrace);
+        assertTrue(withTrace.contains(ConnectionPoolTest.class.getName()), "la pila señala a quien la pidió");
+    }
+
+    /** Presta sin devolver, espera el reporte del mantenimiento y retorna lo escrito en stderr. */
+    private String leakReport(boolean traces) throws Exception {
+        pool = pool(2, 300, traces);
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream original = System.err;
+        System.setErr(new PrintStream(err, true, StandardCharsets.UTF_8));
+        try {
+            Connection leaked = pool.borrow();
+            pool.startHousekeeping();
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (pool.stats().getLeaks() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(20);
+            Thread.sleep(700);                             // más ciclos: no se vuelve a reportar
+            assertEquals(1, pool.stats().getLeaks());
+            leaked.close();
+        } finally {
+            System.setErr(original);
+            pool.close();
+        }
+        return err.toString(StandardCharsets.UTF_8);
+    }
+
+    private static ConnectionPool pool(int maxSize, long leakThresholdMs, boolean leakTraces) {
+        return new ConnectionPool(URL, "u", "p", 0, maxSize, 200, 0, leakThresholdMs, leakTraces,
+                                  0, 1, 4, false, false, false);
+    }
+}
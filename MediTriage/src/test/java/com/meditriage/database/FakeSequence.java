@@ -0,0 +1,76 @@
+package com.meditriage.database;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tabla id_sequences de una sola fila: atiende el upsert de recover(), el
+ * SELECT ... FOR UPDATE y el UPDATE de la reserva, o rechaza la conexión.
+ */
+final class FakeSequence implements ConnectionSource {
+
+    volatile boolean    down;
+    volatile long       nextVal = 1;
+    final AtomicInteger attempts     = new AtomicInteger();
+    final AtomicInteger reservations = new AtomicInteger();
+
+    @Override
+    public Connection get() throws SQLException {
+        attempts.incrementAndGet();
+        if (down) throw new SQLNonTransientConnectionException("Connection refused", "08S01");
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+                if (method.getName().equals("prepareStatement")) return statement((String) args[0]);
+                return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+            });
+    }
+
+    private PreparedStatement statement(String sql) {
+        long[] params = new long[3];
+        return (PreparedStatement) Proxy.newProxyInstance(
+            PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "setInt":  params[(Integer) args[0]] = (Integer) args[1]; return null;
+                    case "setLong": params[(Integer) args[0]] = (Long) args[1];    return null;
+                    case "executeQuery":  return row(nextVal);
+                    case "executeUpdate": return execute(sql, params);
+                    default: return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+                }
+            });
+    }
+
+    private synchronized int execute(String sql, long[] params) {
+        if (sql.startsWith("INSERT")) {
+            nextVal = Math.max(nextVal, params[2]);
+        } else {
+            nextVal += params[1];
+            reservations.incrementAndGet();
+        }
+        return 1;
+    }
+
+    private static ResultSet row(long value) {
+        boolean[] read = new boolean[1];
+        return (ResultSet) Proxy.newProxyInstance(
+            ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "next":    { boolean first = !read[0]; read[0] = true; return first; }
+                    case "getLong": return value;
+                    default: return method.getReturnType() == boolean.class ? Boolean.FALSE : null;
+                }
+            });
+    }
+
+    void awaitReservations(int n) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (reservations.get() < n && System.currentTimeMillis() < deadline) Thread.sleep(5);
+    }
+}
@@ -0,0 +1,75 @@
+package com.meditriage.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Bloques hi/lo sobre una tabla id_sequences simulada en memoria. */
+class IdAllocatorTest {
+
+    private static final long TIMEOUT_MS = 10_000;
+
+    @Test
+    void alAgotarseElBloqueSigueConElRepuestoAunqueLaBdCaiga() throws Exception {
+        FakeSequence db = new FakeSequence();
+        IdAllocator ids = new IdAllocator("patients", 4, db);
+        ids.recover(100);
+
+        assertEquals(100, ids.nextId());             // reserva [100,104) y pre-reserva [104,108)
+        db.awaitReservations(2);
+        db.down = true;
+
+        for (int expected = 101; expected < 108; expected++) assertEquals(expected, ids.nextId());
+        assertThrows(SQLException.class, ids::nextId, "sin bloque ni repuesto, con la BD caída");
+        assertEquals(108, db.nextVal, "la tabla guarda el primer ID no reservado");
+    }
+
+    @Test
+    void conLaBdCaidaFallaSinReintentarEnCadaRegistro() throws Exception {
+        FakeSequence db = new FakeSequence();
+        db.down = true;
+        IdAllocator ids = new IdAllocator("patients", 4, db);
+
+        for (int i = 0; i < 5; i++) {
+            SQLException e = assertThrows(SQLException.class, ids::nextId);
+            assertTrue(e.getSQLState().startsWith("08"), "se reporta como problema de conexión: " + e);
+        }
+        assertEquals(1, db.attempts.get(), "un intento por ventana de reintento, no uno por registro");
+    }
+
+    @Test
+    void variosHilosNuncaRecibenElMismoId() throws Exception {
+        FakeSequence db = new FakeSequence();
+        IdAllocator ids = new IdAllocator("patients", 16, db);
+        ids.recover(1);
+
+        int threads = 4, perThread = 5000;
+        ConcurrentHashMap<Integer, Boolean> seen = new ConcurrentHashMap<>();
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicInteger failures   = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    try {
+                        if (seen.putIfAbsent(ids.nextId(), Boolean.TRUE) != null) duplicates.incrementAndGet();
+                    } catch (SQLException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) w.join(TIMEOUT_MS);
+
+        assertEquals(0, failures.get());
+        assertEquals(0, duplicates.get());
+        assertEquals(threads * perThread, seen.size());
+    }
+}
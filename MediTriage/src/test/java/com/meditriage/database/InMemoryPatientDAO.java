@@ -0,0 +1,107 @@
+package com.meditriage.database;
+
+import com.meditriage.model.Patient;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tabla patients en memoria para probar el servicio sin MySQL. El journal le
+ * aplica sus registros (INSERT, ATTEND, REVERT, DELETE, RETRIAGE) igual que a
+ * la BD real; las consultas de arranque leen de esa tabla. El historial de
+ * atendidos y la construcción del índice de texto no traen filas.
+ *
+ * Pública para las pruebas de otros paquetes: los constructores con
+ * ConnectionSource del journal y del asignador de IDs son del paquete.
+ */
+public final class InMemoryPatientDAO extends PatientDAO {
+
+    private final Map<Integer, Patient> rows = new HashMap<>();
+
+    /** Journal en {@code file} que drena hacia esta tabla. */
+    public PersistenceJournal openJournal(Path file) throws IOException {
+        return new PersistenceJournal(file, this, 100, InMemoryPatientDAO::connection);
+    }
+
+    /** Asignador hi/lo sobre una secuencia en memoria. */
+    public static IdAllocator idAllocator(int blockSize) {
+        return new IdAllocator("patients", blockSize, new FakeSequence());
+    }
+
+    /** Copia de la fila con ese ID, o null. */
+    public synchronized Patient row(int id) {
+        Patient p = rows.get(id);
+        return p == null ? null : p.copy();
+    }
+
+    public synchronized int rowCount() {
+        return rows.size();
+    }
+
+    // Escritura (journal)
+
+    @Override
+    synchronized void apply(Connection conn, JournalRecord r) {
+        Patient p = rows.get(r.getPatientId());
+        switch (r.getType()) {
+            case INSERT   -> rows.put(r.getPatientId(), r.getPatient().copy());
+            case DELETE   -> rows.remove(r.getPatientId());
+            case ATTEND   -> { if (p != null) { p.setStatus("ATTENDED"); p.setAttendedAt(r.getAttendedAt()); } }
+            case REVERT   -> { if (p != null) { p.setStatus("WAITING");  p.setAttendedAt(null); } }
+            case RETRIAGE -> { if (p != null) p.setLevel(r.getLevel()); }
+        }
+    }
+
+    @Override
+    synchronized void applyAll(Connection conn, JournalRecord[] records, int n) {
+        for (int i = 0; i < n; i++) apply(conn, records[i]);
+    }
+
+    // Lectura
+
+    @Override
+    public synchronized Patient findById(int id) {
+        return row(id);
+    }
+
+    @Override
+    public Patient[] findByNameLike(String nameLike) {
+        return new Patient[0];
+    }
+
+    @Override
+    public synchronized Patient[] listWaiting() {
+        return rows.values().stream()
+            .filter(p -> "WAITING".equals(p.getStatus()))
+            .map(Patient::copy)
+            .toArray(Patient[]::new);
+    }
+
+    @Override
+    public synchronized int maxPatientId() {
+        int max = 0;
+        for (int id : rows.keySet()) max = Math.max(max, id);
+        return max;
+    }
+
+    @Override
+    public HistoryCursor streamAttended(AttendedQuery query, RowHandler handler) {
+        return query.getAfter();
+    }
+
+    @Override
+    public Patient[] listSinceId(int afterId, int limit) {
+        return new Patient[0];
+    }
+
+    /** Conexión que no hace nada: esta tabla no pasa por JDBC. */
+    private static Connection connection() {
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+            (proxy, method, args) -> method.getReturnType() == boolean.class ? Boolean.FALSE : null);
+    }
+}
@@ -0,0 +1,189 @@
+package com.meditriage.database;
+
+import com.meditriage.model.Patient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Formato en disco, recuperación y vaciado del journal, con una BD simulada. */
+class PersistenceJournalTest {
+
+    private static final LocalDateTime T = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void unRegistroConCrcInvalidoCortaLaRecuperacion() throws Exception {
+        Path file = dir.resolve("triage.journal");
+        long[] ends = writeThree(file);
+
+        // Un byte alterado en el payload del segundo registro
+        flipByte(file, ends[0] + 8 + 3);
+
+        FakeDao dao = new FakeDao();
+        PersistenceJournal journal = new PersistenceJournal(file, dao, 10, FakeDb.up());
+        JournalRecord[] recovered = journal.recover();
+
+        assertEquals(1, recovered.length);
+        assertEquals(1, recovered[0].getPatientId());
+        assertEquals(0, Files.size(file), "lo válido se reprodujo y el archivo se vació");
+        assertEquals("INSERT:1", dao.applied());
+        journal.close(0);
+    }
+
+    @Test
+    void unaColaCortadaSeTruncaYElSeqContinua() throws Exception {
+        Path file = dir.resolve("triage.journal");
+        long[] ends = writeThree(file);
+
+        // Corte a mitad del tercer registro
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(ends[2] - 5);
+        }
+
+        PersistenceJournal journal = new PersistenceJournal(file, new FakeDao(), 10, FakeDb.down());
+        JournalRecord[] recovered = journal.recover();
+
+        assertEquals(2, recovered.length);
+        assertEquals(ends[1], Files.size(file), "la cola corrupta se descarta");
+        assertEquals(2, journal.pendingCount(), "con la BD caída quedan pendientes");
+        assertEquals(3, journal.appendAttend(9, T), "el siguiente seq sigue al último válido");
+        journal.close(0);
+    }
+
+    @Test
+    void laReproduccionAplicaEnOrdenYConservaLoPendienteSiLaBdNoResponde() throws Exception {
+        Path file = dir.resolve("triage.journal");
+        writeThree(file);
+
+        PersistenceJournal offline = new PersistenceJournal(file, new FakeDao(), 10, FakeDb.down());
+        assertEquals(3, offline.recover().length);
+        assertEquals(3, offline.pendingCount());
+        offline.close(0);
+        long size = Files.size(file);
+        assertTrue(size > 0, "sin BD el archivo se conserva");
+
+        FakeDao dao = new FakeDao();
+        PersistenceJournal online = new PersistenceJournal(file, dao, 10, FakeDb.up());
+        JournalRecord[] recovered = online.recover();
+
+        assertEquals(3, recovered.length);
+        assertEquals("INSERT:1 ATTEND:1 RETRIAGE:2", dao.applied());
+        assertEquals(0, online.pendingCount());
+        assertEquals(0, Files.size(file));
+        online.close(0);
+    }
+
+    @Test
+    void siLaBdCaeDuranteElUnoAUnoNoSePierdeNada() throws Exception {
+        Path    file = dir.resolve("triage.journal");
+        FakeDao dao  = new FakeDao();
+        dao.batchFails = true;            // error de datos en el lote: pasa al uno a uno
+        dao.dropConnectionAtId = 2;       // y la conexión cae al llegar al segundo
+
+        PersistenceJournal journal = new PersistenceJournal(file, dao, 10, FakeDb.up());
+        journal.recover();
+        journal.appendInsert(patient(1));
+        journal.appendInsert(patient(2));
+        journal.appendInsert(patient(3));
+        journal.start();
+
+        // La cola se vacía al tomar el lote, no al aplicarlo: esperar el resultado
+        long deadline = System.currentTimeMillis() + 10_000;
+        while ((dao.applied().length() < "INSERT:1 INSERT:2 INSERT:3".length() || Files.size(file) > 0)
+               && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(0, journal.pendingCount());
+        assertEquals("INSERT:1 INSERT:2 INSERT:3", dao.applied(), "el 2 y el 3 se reintentan, no se descartan");
+        assertEquals(0, Files.size(file));
+        journal.close(1000);
+    }
+
+    // Helpers
+
+    /** Escribe alta(1), atención(1), re-triage(2) y retorna el fin de cada registro en el archivo. */
+    private static long[] writeThree(Path file) throws IOException {
+        PersistenceJournal journal = new PersistenceJournal(file, new FakeDao(), 10, FakeDb.down());
+        long[] ends = new long[3];
+        journal.appendInsert(patient(1));
+        ends[0] = Files.size(file);
+        journal.appendAttend(1, T.plusMinutes(5));
+        ends[1] = Files.size(file);
+        journal.appendRetriage(2, 4);
+        ends[2] = Files.size(file);
+        journal.close(0);
+        return ends;
+    }
+
+    private static void flipByte(Path file, long position) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            ch.read(b, position);
+            b.put(0, (byte) (b.get(0) ^ 0x5A)).rewind();
+            ch.write(b, position);
+        }
+    }
+
+    private static Patient patient(int id) {
+        return new Patient(id, "Paciente " + id, 40, "fiebre", 3, "WAITING", T, null, T);
+    }
+
+    /** BD simulada: conexiones que aceptan transacciones y no hacen nada más. */
+    static final class FakeDb {
+        static ConnectionSource up() {
+            return () -> (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, method, args) -> method.getReturnType() == boolean.class ? Boolean.FALSE : null);
+        }
+
+        static ConnectionSource down() {
+            return () -> { throw new SQLNonTransientConnectionException("Connection refused", "08S01"); };
+        }
+    }
+
+    /** DAO que anota los registros aplicados; puede fallar a pedido. */
+    private static final class FakeDao extends PatientDAO {
+        private final StringBuilder log = new StringBuilder();
+        volatile boolean batchFails;
+        volatile int     dropConnectionAtId = -1;
+
+        @Override
+        void applyAll(Connection conn, JournalRecord[] records, int n) throws SQLException {
+            if (batchFails) throw new SQLException("Duplicate entry", "23000");
+            for (int i = 0; i < n; i++) apply(conn, records[i]);
+        }
+
+        @Override
+        void apply(Connection conn, JournalRecord r) throws SQLException {
+            if (r.getPatientId() == dropConnectionAtId) {
+                dropConnectionAtId = -1;   // solo la primera vez
+                throw new SQLNonTransientConnectionException("Communications link failure", "08S01");
+            }
+            synchronized (log) {
+                if (log.length() > 0) log.append(' ');
+                log.append(r.getType()).append(':').append(r.getPatientId());
+            }
+        }
+
+        String applied() {
+            synchronized (log) { return log.toString(); }
+        }
+    }
+}
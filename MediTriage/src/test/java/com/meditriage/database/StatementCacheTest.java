@@ -0,0 +1,161 @@
+package com.meditriage.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Caché LRU de statements sobre una conexión simulada (sin MySQL). */
+class StatementCacheTest {
+
+    private static final String A = "SELECT * FROM patients WHERE id=?";
+    private static final String B = "SELECT * FROM patients WHERE name=?";
+    private static final String C = "UPDATE patients SET level=? WHERE id=?";
+
+    private final AtomicLong hits   = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final FakeConnection conn = new FakeConnection();
+
+    @Test
+    void unAciertoDevuelveElMismoStatementSinPrepararOtro() throws SQLException {
+        StatementCache cache = new StatementCache(4, hits, misses);
+
+        PreparedStatement first  = cache.prepare(conn.connection, A, Statement.NO_GENERATED_KEYS);
+        PreparedStatement second = cache.prepare(conn.connection, A, Statement.NO_GENERATED_KEYS);
+
+        assertSame(first, second);
+        assertEquals(1, conn.prepared);
+        assertEquals(1, hits.get());
+        assertEquals(1, misses.get());
+    }
+
+    @Test
+    void desalojaElMenosUsadoRecientementeYLoCierra() throws SQLException {
+        StatementCache cache = new StatementCache(2, hits, misses);
+
+        cache.prepare(conn.connection, A, Statement.NO_GENERATED_KEYS);
+        cache.prepare(conn.connection, B, Statement.NO_GENERATED_KEYS);
+        cache.prepare(conn.connection, A, Statement.NO_GENERATED_KEYS);   // A pasa a ser el más reciente
+        cache.prepare(conn.connection, C, Statement.NO_GENERATED_KEYS);   // desaloja B
+
+        assertEquals(2, cache.size());
+        assertTrue(conn.physical(B).closed, "el desalojado se cierra");
+        assertFalse(conn.physical(A).closed);
+        assertFalse(conn.physical(C).closed);
+
+        int before = conn.prepared;
+        cache.prepare(conn.connection, A, Statement.NO_GENERATED_KEYS);
+        cache.prepare(conn.connection, C, Statement.NO_GENERATED_KEYS);
+        assertEquals(before, conn.prepared, "A y C siguen en caché");
+
+        cache.prepare(conn.connection, B, Statement.NO_GENERATED_KEYS);
+        assertEquals(before + 1, conn.prepared, "B se prepara de nuevo");
+        assertTrue(conn.physical(A).closed, "ahora A es el menos reciente");
+    }
+
+    @Test
+    void lasClavesGeneradasSonOtraEntrada() throws SQLException {
+        StatementCache cache = new StatementCache(4, hits, misses);
+
+        PreparedStatement plain = cache.prepare(conn.connection, A, Statement.NO_GENERATED_KEYS);
+        PreparedStatement keys  = cache.prepare(conn.connection, A, Statement.RETURN_GENERATED_KEYS);
+
+        assertNotSame(plain, keys);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void cerrarElProxySoloLimpiaParametros() throws SQLException {
+        StatementCache cache = new StatementCache(4, hits, misses);
+
+        PreparedStatement ps = cache.prepare(conn.connection, A, Statement.NO_GENERATED_KEYS);
+        ps.close();
+
+        FakeStatement physical = conn.physical(A);
+        assertFalse(physical.closed);
+        assertEquals(1, physical.clearedParameters);
+        assertSame(ps, cache.prepare(conn.connection, A, Statement.NO_GENERATED_KEYS));
+    }
+
+    @Test
+    void closeAllCierraTodosLosFisicos() throws SQLException {
+        StatementCache cache = new StatementCache(4, hits, misses);
+        cache.prepare(conn.connection, A, Statement.NO_GENERATED_KEYS);
+        cache.prepare(conn.connection, B, Statement.NO_GENERATED_KEYS);
+
+        cache.closeAll();
+
+        assertEquals(0, cache.size());
+        assertTrue(conn.physical(A).closed);
+        assertTrue(conn.physical(B).closed);
+        cache.prepare(conn.connection, A, Statement.NO_GENERATED_KEYS);
+        assertEquals(3, conn.prepared, "tras closeAll se vuelve a preparar");
+    }
+
+    @Test
+    void capacidadCeroNoGuardaNada() throws SQLException {
+        StatementCache cache = new StatementCache(0, hits, misses);
+
+        PreparedStatement first  = cache.prepare(conn.connection, A, Statement.NO_GENERATED_KEYS);
+        PreparedStatement second = cache.prepare(conn.connection, A, Statement.NO_GENERATED_KEYS);
+
+        assertNotSame(first, second);
+        assertEquals(0, cache.size());
+        assertEquals(0, hits.get() + misses.get());
+    }
+
+    // Conexión simulada
+
+    /** Estado de un PreparedStatement físico simulado. */
+    private static final class FakeStatement {
+        final String sql;
+        boolean      closed;
+        int          clearedParameters;
+
+        FakeStatement(String sql) { this.sql = sql; }
+    }
+
+    /** Connection que solo sabe preparar statements y registra su estado. */
+    private static final class FakeConnection {
+        final FakeStatement[] statements = new FakeStatement[16];
+        int                   prepared;
+        final Connection      connection = (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+                if (method.getName().equals("prepareStatement")) return newStatement((String) args[0]);
+                throw new UnsupportedOperationException(method.getName());
+            });
+
+        /** El último statement físico preparado para {@code sql}. */
+        FakeStatement physical(String sql) {
+            for (int i = prepared - 1; i >= 0; i--) if (statements[i].sql.equals(sql)) return statements[i];
+            throw new AssertionError("nunca se preparó: " + sql);
+        }
+
+        private PreparedStatement newStatement(String sql) {
+            FakeStatement state = new FakeStatement(sql);
+            statements[prepared++] = state;
+            return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":           state.closed = true;        return null;
+                        case "isClosed":        return state.closed;
+                        case "clearParameters": state.clearedParameters++;  return null;
+                        case "clearBatch":      return null;
+                        default: throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        }
+    }
+}
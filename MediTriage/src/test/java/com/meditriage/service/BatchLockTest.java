@@ -0,0 +1,122 @@
+package com.meditriage.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fases de bloqueo de un lote, medidas desde otro hilo (el de una búsqueda)
+ * mientras el escritor está dentro de cada fase.
+ */
+class BatchLockTest {
+
+    private static final long TIMEOUT_S = 10;
+
+    private final StampedLock lock = new StampedLock();
+    private CommandLoop       loop;
+
+    @AfterEach
+    void close() {
+        if (loop != null) loop.close(1000);
+    }
+
+    @Test
+    void cadaFaseDejaEntrarSoloALoQueCorresponde() throws Exception {
+        boolean[] seen = new boolean[6];
+        loop = new CommandLoop(8, new BatchLock(lock,
+            () -> {
+                seen[0] = !canRead();
+                seen[1] = !canWrite();
+            },
+            () -> {
+                seen[2] = canRead();      // la foto se arma con las búsquedas adentro
+                seen[3] = !canWrite();    // pero nadie más puede modificar
+            },
+            () -> {
+                seen[4] = canRead();
+                seen[5] = canWrite();     // el fsync no retiene el bloqueo
+            }));
+        loop.start();
+
+        boolean duringCommand = loop.submit(() -> !canRead()).get(TIMEOUT_S, TimeUnit.SECONDS);
+
+        assertTrue(duringCommand, "los comandos corren en la fase exclusiva");
+        assertTrue(seen[0] && seen[1], "al empezar el lote el bloqueo es de escritura");
+        assertTrue(seen[2], "en la fase compartida una búsqueda toma el bloqueo de lectura");
+        assertTrue(seen[3], "en la fase compartida no entra otro escritor");
+        assertTrue(seen[4] && seen[5], "después de la foto el bloqueo está libre");
+    }
+
+    @Test
+    void unaBusquedaEnCursoDemoraElLoteHastaTerminar() throws Exception {
+        loop = new CommandLoop(8, new BatchLock(lock, () -> { }, () -> { }, () -> { }));
+        loop.start();
+
+        long reading = lock.readLock();
+        CompletableFuture<Integer> f = loop.submit(() -> 1);
+        Thread.sleep(100);
+        assertFalse(f.isDone(), "el lote espera el bloqueo de escritura");
+
+        lock.unlockRead(reading);
+        assertEquals(1, f.get(TIMEOUT_S, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void elBloqueoSeSueltaYLaFaseSinBloqueoCorreAunqueFalleLaCompartida() throws Exception {
+        int[] unlockedRuns = new int[1];   // solo hilo escritor; se lee tras completar el futuro
+        loop = new CommandLoop(8, new BatchLock(lock,
+            () -> { },
+            () -> { throw new IllegalStateException("foto fallida"); },
+            () -> unlockedRuns[0]++));
+        loop.start();
+
+        assertEquals(1, loop.submit(() -> 1).get(TIMEOUT_S, TimeUnit.SECONDS));
+        assertTrue(canWrite(), "el bloqueo no queda tomado");
+        assertEquals(1, unlockedRuns[0], "el fsync y los eventos del lote no se saltan");
+        assertEquals(2, loop.submit(() -> 2).get(TIMEOUT_S, TimeUnit.SECONDS));
+        assertEquals(2, unlockedRuns[0]);
+    }
+
+    // Helpers: prueban el bloqueo desde otro hilo, como lo haría una búsqueda
+
+    private boolean canRead() {
+        return fromOtherThread(() -> {
+            long s = lock.tryReadLock();
+            if (s == 0) return false;
+            lock.unlockRead(s);
+            return true;
+        });
+    }
+
+    private boolean canWrite() {
+        return fromOtherThread(() -> {
+            long s = lock.tryWriteLock();
+            if (s == 0) return false;
+            lock.unlockWrite(s);
+            return true;
+        });
+    }
+
+    private interface Probe {
+        boolean run();
+    }
+
+    private static boolean fromOtherThread(Probe probe) {
+        boolean[] result = new boolean[1];
+        Thread t = new Thread(() -> result[0] = probe.run());
+        t.start();
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result[0];
+    }
+}
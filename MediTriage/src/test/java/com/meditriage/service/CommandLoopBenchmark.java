@@ -0,0 +1,162 @@
+package com.meditriage.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Escritor único contra el diseño anterior (cada mutación bajo synchronized,
+ * con su propio fsync). Mismo trabajo en ambos: un contador y una escritura
+ * de 64 bytes en un archivo; el fsync va por lote en el anillo y por operación
+ * en el monitor. Cada productor espera su resultado antes de encolar el
+ * siguiente (como la UI y el pool async).
+ *
+ * No corre con {@code mvn test}; se lanza a mano:
+ *   mvn test -Dtest=CommandLoopBenchmark -Dbench=true [-Dbench.ops=20000]
+ * Imprime operaciones por segundo y latencias p50 / p99 por cantidad de productores.
+ */
+@EnabledIfSystemProperty(named = "bench", matches = "true")
+class CommandLoopBenchmark {
+
+    private static final int[] PRODUCERS = { 1, 2, 4, 8 };
+
+    @TempDir Path dir;
+
+    @Test
+    void anilloContraSynchronized() throws Exception {
+        int ops = Integer.getInteger("bench.ops", 20_000);
+        System.out.printf("%-13s %9s %12s %10s %10s%n", "diseño", "hilos", "ops/s", "p50 µs", "p99 µs");
+        for (int producers : PRODUCERS) {
+            report("synchronized", producers, runSynchronized(producers, ops));
+            report("CommandLoop",  producers, runLoop(producers, ops));
+        }
+    }
+
+    // Diseño anterior: mutación + fsync dentro del monitor
+
+    private Result runSynchronized(int producers, int ops) throws Exception {
+        try (Journal journal = new Journal(dir.resolve("sync-" + producers))) {
+            Object monitor = new Object();
+            long[] counter = new long[1];
+            Result r = run(producers, ops, () -> {
+                synchronized (monitor) {
+                    counter[0]++;
+                    journal.append();
+                    journal.sync();
+                }
+            });
+            assertEquals(ops, counter[0]);
+            return r;
+        }
+    }
+
+    // Anillo: mutación en el escritor, un fsync por lote
+
+    private Result runLoop(int producers, int ops) throws Exception {
+        try (Journal journal = new Journal(dir.resolve("loop-" + producers))) {
+            CommandLoop loop = new CommandLoop(1024, new CommandLoop.Hooks() {
+                @Override public void beforeBatch() {}
+                @Override public void afterBatch()  { journal.sync(); }
+            });
+            loop.start();
+            long[] counter = new long[1];
+            try {
+                Result r = run(producers, ops, () -> {
+                    CompletableFuture<Long> f = loop.submit(() -> {
+                        journal.append();
+                        return ++counter[0];
+                    });
+                    try {
+                        f.get(30, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                assertEquals(ops, counter[0]);
+                return r;
+            } finally {
+                loop.close(5_000);
+            }
+        }
+    }
+
+    // Medición
+
+    private record Result(double opsPerSec, long p50Nanos, long p99Nanos) {}
+
+    /** {@code ops} llamadas repartidas entre {@code producers} hilos; latencia de cada una. */
+    private static Result run(int producers, int ops, Runnable op) throws InterruptedException {
+        int perThread = ops / producers;
+        long[][] latencies = new long[producers][perThread];
+        Thread[] threads = new Thread[producers];
+        long start = System.nanoTime();
+        for (int t = 0; t < producers; t++) {
+            long[] mine = latencies[t];
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    long t0 = System.nanoTime();
+                    op.run();
+                    mine[i] = System.nanoTime() - t0;
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+        long elapsed = System.nanoTime() - start;
+
+        long[] all = new long[producers * perThread];
+        for (int t = 0; t < producers; t++) System.arraycopy(latencies[t], 0, all, t * perThread, perThread);
+        Arrays.sort(all);
+        return new Result(all.length * 1e9 / elapsed, all[all.length / 2], all[(int) (all.length * 0.99)]);
+    }
+
+    private static void report(String design, int producers, Result r) {
+        System.out.printf("%-13s %9d %12.0f %10d %10d%n",
+                          design, producers, r.opsPerSec(), r.p50Nanos() / 1000, r.p99Nanos() / 1000);
+    }
+
+    /** Archivo de registros de 64 bytes con fsync explícito. */
+    private static final class Journal implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer  record = ByteBuffer.allocate(64);
+
+        Journal(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                       StandardOpenOption.APPEND);
+        }
+
+        void append() {
+            try {
+                record.clear();
+                channel.write(record);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void sync() {
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
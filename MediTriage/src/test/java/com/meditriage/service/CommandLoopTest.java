@@ -0,0 +1,217 @@
+package com.meditriage.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Anillo del escritor único: reserva y publicación, lotes y contrapresión. */
+class CommandLoopTest {
+
+    private static final long TIMEOUT_S = 10;
+
+    /** Cuenta las fases de lote; solo las toca el hilo escritor. */
+    private static final class CountingHooks implements CommandLoop.Hooks {
+        final AtomicInteger before = new AtomicInteger();
+        final AtomicInteger after  = new AtomicInteger();
+        @Override public void beforeBatch() { before.incrementAndGet(); }
+        @Override public void afterBatch()  { after.incrementAndGet(); }
+    }
+
+    private CommandLoop loop;
+
+    @AfterEach
+    void close() {
+        if (loop != null) loop.close(1000);
+    }
+
+    @Test
+    void variosProductoresEjecutanTodoEnOrdenDeSecuenciaPorProductor() throws Exception {
+        CountingHooks hooks = new CountingHooks();
+        loop = new CommandLoop(64, hooks);
+        loop.start();
+
+        int producers = 4, perProducer = 5000;
+        int[] counter = new int[1];                      // solo lo modifica el escritor
+        int[][] lastSeen = new int[producers][1];        // último índice ejecutado por productor
+        boolean[] outOfOrder = new boolean[1];
+        CompletableFuture<?>[] last = new CompletableFuture<?>[producers];
+        Thread[] threads = new Thread[producers];
+
+        for (int t = 0; t < producers; t++) {
+            final int producer = t;
+            lastSeen[producer][0] = -1;
+            threads[t] = new Thread(() -> {
+                CompletableFuture<Integer> f = null;
+                for (int i = 0; i < perProducer; i++) {
+                    final int index = i;
+                    f = loop.submit(() -> {
+                        if (lastSeen[producer][0] != index - 1) outOfOrder[0] = true;
+                        lastSeen[producer][0] = index;
+                        return ++counter[0];
+                    });
+                }
+                last[producer] = f;
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+        for (CompletableFuture<?> f : last) f.get(TIMEOUT_S, TimeUnit.SECONDS);
+
+        assertEquals(producers * perProducer, loop.submit(() -> counter[0]).get(TIMEOUT_S, TimeUnit.SECONDS));
+        assertFalse(outOfOrder[0], "cada productor debe ver sus comandos en el orden en que los encoló");
+        assertEquals(hooks.before.get(), hooks.after.get());
+    }
+
+    @Test
+    void losPendientesSeDrenanEnUnSoloLote() throws Exception {
+        CountingHooks hooks = new CountingHooks();
+        loop = new CommandLoop(16, hooks);
+        loop.start();
+
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> blocker = loop.submit(() -> {
+            running.countDown();
+            await(release);
+            return hooks.before.get();
+        });
+        assertTrue(running.await(TIMEOUT_S, TimeUnit.SECONDS));
+
+        // Con el escritor ocupado, estos cinco quedan publicados y forman el lote siguiente
+        CompletableFuture<?>[] queued = new CompletableFuture<?>[5];
+        for (int i = 0; i < queued.length; i++) queued[i] = loop.submit(() -> hooks.before.get());
+        release.countDown();
+
+        assertEquals(1, blocker.get(TIMEOUT_S, TimeUnit.SECONDS));
+        for (CompletableFuture<?> f : queued) assertEquals(2, f.get(TIMEOUT_S, TimeUnit.SECONDS));
+        assertEquals(2, hooks.after.get());
+    }
+
+    @Test
+    void losFuturosSeCompletanDespuesDeAfterBatch() throws Exception {
+        CountingHooks hooks = new CountingHooks();
+        loop = new CommandLoop(8, hooks);
+        loop.start();
+
+        for (int i = 0; i < 50; i++) {
+            CountDownLatch registered = new CountDownLatch(1);
+            CompletableFuture<Integer> f = loop.submit(() -> {
+                await(registered);
+                return hooks.after.get();
+            });
+            // Se registra antes de que el comando termine: corre en el escritor al completar
+            CompletableFuture<Boolean> check = f.thenApply(seenBefore -> hooks.after.get() > seenBefore);
+            registered.countDown();
+            assertTrue(check.get(TIMEOUT_S, TimeUnit.SECONDS), "futuro completado antes de afterBatch");
+        }
+    }
+
+    @Test
+    void unErrorSoloAfectaASuComando() throws Exception {
+        loop = new CommandLoop(8, new CountingHooks());
+        loop.start();
+
+        CompletableFuture<Integer> bad  = loop.submit(() -> { throw new IllegalArgumentException("nivel inválido"); });
+        CompletableFuture<Integer> good = loop.submit(() -> 7);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> bad.get(TIMEOUT_S, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+        assertEquals(7, good.get(TIMEOUT_S, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void conElAnilloLlenoElProductorEspera() throws Exception {
+        loop = new CommandLoop(4, new CountingHooks());   // 4 casillas
+        loop.start();
+
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        loop.submit(() -> {
+            running.countDown();
+            await(release);
+            return 0;
+        });
+        assertTrue(running.await(TIMEOUT_S, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) loop.submit(() -> 0);   // ocupa las casillas restantes
+
+        CountDownLatch submitted = new CountDownLatch(1);
+        CompletableFuture<?>[] overflow = new CompletableFuture<?>[1];
+        Thread producer = new Thread(() -> {
+            overflow[0] = loop.submit(() -> 5);
+            submitted.countDown();
+        });
+        producer.start();
+
+        assertFalse(submitted.await(200, TimeUnit.MILLISECONDS), "no debe reservar sin casilla libre");
+        release.countDown();
+        assertTrue(submitted.await(TIMEOUT_S, TimeUnit.SECONDS));
+        assertEquals(5, overflow[0].get(TIMEOUT_S, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void cerrarEjecutaLosPendientesYRechazaNuevos() throws Exception {
+        loop = new CommandLoop(8, new CountingHooks());
+        loop.start();
+
+        CompletableFuture<Integer> pending = loop.submit(() -> 1);
+        loop.close(TimeUnit.SECONDS.toMillis(TIMEOUT_S));
+
+        assertEquals(1, pending.get(TIMEOUT_S, TimeUnit.SECONDS));
+        assertThrows(IllegalStateException.class, () -> loop.submit(() -> 2));
+    }
+
+    @Test
+    void loQueSeAceptaDuranteElCierreSeCompleta() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            CommandLoop racing = new CommandLoop(8, new CountingHooks());
+            racing.start();
+
+            int producers = 4;
+            CompletableFuture<?>[][] accepted = new CompletableFuture<?>[producers][];
+            CountDownLatch go = new CountDownLatch(1);
+            Thread[] threads = new Thread[producers];
+            for (int t = 0; t < producers; t++) {
+                final int producer = t;
+                threads[t] = new Thread(() -> {
+                    CompletableFuture<?>[] mine = new CompletableFuture<?>[1000];
+                    await(go);
+                    try {
+                        for (int i = 0; i < mine.length; i++) mine[i] = racing.submit(() -> 0);
+                    } catch (IllegalStateException closed) {
+                        // rechazado tras el cierre: no quedó encolado ni hay futuro
+                    }
+                    accepted[producer] = mine;
+                });
+                threads[t].start();
+            }
+            go.countDown();
+            racing.close(TimeUnit.SECONDS.toMillis(TIMEOUT_S));
+            for (Thread t : threads) t.join();
+
+            // Todo submit que devolvió un futuro debe terminar aunque el cierre lo alcanzara
+            for (CompletableFuture<?>[] mine : accepted) {
+                for (CompletableFuture<?> f : mine) {
+                    if (f != null) assertEquals(0, f.get(TIMEOUT_S, TimeUnit.SECONDS));
+                }
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_S, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.meditriage.service;
+
+import com.meditriage.model.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Agregados de espera con un reloj controlado: corte de medianoche y vencimiento de tramos. */
+class DailyStatsTest {
+
+    /** Reloj que solo avanza cuando la prueba lo mueve. */
+    private static final class ManualClock extends Clock {
+        private Instant now;
+
+        ManualClock(LocalDateTime start) { set(start); }
+
+        void set(LocalDateTime at) { now = at.toInstant(ZoneOffset.UTC); }
+
+        @Override public Instant instant()            { return now; }
+        @Override public ZoneId  getZone()            { return ZoneOffset.UTC; }
+        @Override public Clock   withZone(ZoneId zone) { throw new UnsupportedOperationException(); }
+    }
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 6, 3, 0, 0);
+
+    @Test
+    void porNivelCuentaEsperaMediaYPercentiles() {
+        ManualClock clock = new ManualClock(DAY.plusHours(12));
+        DailyStats stats  = new DailyStats(DAY.toLocalDate(), clock);
+
+        stats.recordAttend(attended(1, 3, DAY.plusHours(11), 10));
+        stats.recordAttend(attended(2, 3, DAY.plusHours(11), 20));
+        stats.recordAttend(attended(3, 3, DAY.plusHours(11), 30));
+        stats.recordAttend(attended(4, 1, DAY.plusHours(11), 2));
+
+        assertEquals(4, stats.attendedToday());
+        assertEquals(3, stats.attendedToday(3));
+        assertEquals(62 / 4.0, stats.avgWaitMinutes(), 1e-9);
+
+        WaitQuantiles q = stats.todayQuantiles(3);
+        assertEquals(3, q.getCount());
+        assertEquals(20, q.getP50(), 20 * 0.03);
+        assertEquals(30, q.getP99(), 30 * 0.03);
+        assertEquals(30, q.getTargetMinutes());
+
+        // Undo de re-triage tras atender: pasa de nivel sin cambiar el total
+        Patient moved = attended(5, 3, DAY.plusHours(11).plusMinutes(30), 40);
+        stats.recordAttend(moved);
+        stats.moveLevel(moved, 3, 2);
+        assertEquals(3, stats.attendedToday(3));
+        assertEquals(1, stats.attendedToday(2));
+        assertEquals(1, stats.lastHourQuantiles(2).getCount());
+        assertEquals(5, stats.attendedToday());
+    }
+
+    @Test
+    void aMedianocheHoyVuelveACeroPeroLaUltimaHoraConservaLoReciente() {
+        ManualClock clock = new ManualClock(DAY.plusHours(23).plusMinutes(50));
+        DailyStats stats  = new DailyStats(DAY.toLocalDate(), clock);
+
+        Patient late = attended(1, 2, DAY.plusHours(23).plusMinutes(40), 8);
+        stats.recordAttend(late);
+        assertEquals(1, stats.attendedToday());
+        assertEquals(1, stats.lastHourQuantiles(2).getCount());
+
+        clock.set(DAY.plusDays(1).plusMinutes(5));
+        assertEquals(0, stats.attendedToday(), "día nuevo");
+        assertEquals(0, stats.attendedToday(2));
+        assertEquals(0, stats.avgWaitMinutes());
+        assertEquals(0, stats.todayQuantiles(2).getCount());
+        assertEquals(1, stats.lastHourQuantiles(2).getCount(), "la ventana de una hora cruza la medianoche");
+
+        // Undo de una atención de ayer: no descuenta de hoy, sí de la última hora
+        stats.revertAttend(late);
+        assertEquals(0, stats.attendedToday());
+        assertEquals(0, stats.attendedToday(2));
+        assertEquals(0, stats.lastHourQuantiles(2).getCount());
+
+        stats.recordAttend(attended(2, 2, DAY.plusDays(1).plusMinutes(4), 3));
+        assertEquals(1, stats.attendedToday());
+    }
+
+    @Test
+    void unTramoVenceAlCumplirseLaHoraYSuCasillaSeRecicla() {
+        LocalDateTime ten = DAY.plusHours(10);
+        ManualClock clock = new ManualClock(ten);
+        DailyStats stats  = new DailyStats(DAY.toLocalDate(), clock);
+
+        Patient early = attended(1, 4, ten.plusMinutes(2), 15);   // tramo 10:00-10:05
+        stats.recordAttend(early);
+
+        clock.set(ten.plusMinutes(59).plusSeconds(59));
+        assertEquals(1, stats.lastHourQuantiles(4).getCount(), "a las 10:59:59 sigue dentro");
+
+        clock.set(ten.plusHours(1));
+        assertEquals(0, stats.lastHourQuantiles(4).getCount(), "a las 11:00 el tramo de las 10:00 salió");
+        assertEquals(1, stats.todayQuantiles(4).getCount(), "hoy no se ve afectado");
+
+        // 11:00 cae en la misma casilla del anillo: se limpia antes de usarla
+        stats.recordAttend(attended(2, 4, ten.plusHours(1), 25));
+        assertEquals(1, stats.lastHourQuantiles(4).getCount());
+
+        // Undo de la atención vieja: su tramo ya no existe, no toca al nuevo
+        stats.revertAttend(early);
+        assertEquals(1, stats.lastHourQuantiles(4).getCount());
+        assertEquals(1, stats.attendedToday(4));
+
+        // Una atención sembrada de hace más de una hora no entra en la ventana
+        stats.recordAttend(attended(3, 4, ten.minusMinutes(30), 5));
+        assertEquals(1, stats.lastHourQuantiles(4).getCount());
+        assertEquals(2, stats.attendedToday(4));
+    }
+
+    @Test
+    void laSiembraCubreElDiaOLaUltimaHoraSiEmpiezaAntes() {
+        assertEquals(DAY, DailyStats.seedFrom(DAY.plusHours(15)));
+        assertEquals(DAY.minusMinutes(30), DailyStats.seedFrom(DAY.plusMinutes(30)));
+    }
+
+    /** Paciente atendido en {@code at} tras esperar {@code waitMinutes}. */
+    private static Patient attended(int id, int level, LocalDateTime at, int waitMinutes) {
+        LocalDateTime arrival = at.minusMinutes(waitMinutes);
+        return new Patient(id, "Paciente " + id, 50, "dolor", level, "ATTENDED", arrival, at, arrival);
+    }
+}
@@ -0,0 +1,63 @@
+package com.meditriage.service;
+
+import com.meditriage.model.Patient;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Ventana de atendidos recientes de la búsqueda aproximada. */
+class FuzzyNameIndexTest {
+
+    @Test
+    void elMasAntiguoSaleAlLlenarseLaVentana() {
+        FuzzyNameIndex index = new FuzzyNameIndex(2);
+        Patient ana = attended(1, "Ana Torres"), luis = attended(2, "Luis Rojas"), eva = attended(3, "Eva Mora");
+
+        index.addAttended(ana);
+        index.addAttended(luis);
+        index.addAttended(eva);
+
+        assertEquals(0, index.search("ana torres", 10).length);
+        assertEquals(1, index.search("luis rojas", 10).length);
+        assertEquals(1, index.search("eva mora", 10).length);
+    }
+
+    @Test
+    void atenderDeshacerYAtenderNoDuplicaEnLaVentana() {
+        FuzzyNameIndex index = new FuzzyNameIndex(2);
+        Patient ana = attended(1, "Ana Torres"), luis = attended(2, "Luis Rojas");
+
+        index.addAttended(ana);
+        ana.setStatus("WAITING");       // undo de la atención
+        index.reactivate(ana);
+        ana.setStatus("ATTENDED");      // atendida otra vez
+        index.addAttended(ana);
+        index.addAttended(luis);
+
+        // La ventana es [Ana, Luis]: una copia vieja de Ana no debe desalojarla
+        assertEquals(1, index.search("ana torres", 10).length);
+        assertEquals(1, index.search("luis rojas", 10).length);
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void unPacienteDevueltoALaColaNoSaleConLaVentana() {
+        FuzzyNameIndex index = new FuzzyNameIndex(1);
+        Patient ana = attended(1, "Ana Torres"), luis = attended(2, "Luis Rojas");
+
+        index.addAttended(ana);
+        ana.setStatus("WAITING");
+        index.reactivate(ana);
+        index.addAttended(luis);
+
+        assertEquals(1, index.search("ana torres", 10).length, "en espera sigue buscable");
+    }
+
+    private static Patient attended(int id, String name) {
+        Patient p = new Patient();
+        p.setId(id);
+        p.setName(name);
+        p.setStatus("ATTENDED");
+        return p;
+    }
+}
@@ -0,0 +1,121 @@
+package com.meditriage.service;
+
+import com.meditriage.database.PatientDAO;
+import com.meditriage.model.Patient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Snapshot del índice de texto frente a cierres limpios y caídas, con un DAO
+ * en memoria en lugar de MySQL.
+ */
+class TextSearchIndexRecoveryTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void cierreLimpioReusaElSnapshotYSoloPideIdsNuevos() throws Exception {
+        Path       file = dir.resolve("text-index.snapshot");
+        FakeDao    db   = new FakeDao();
+        db.rows = new Patient[] { patient(1, "Ana Torres", 3, "WAITING"), patient(2, "Luis Rojas", 4, "WAITING") };
+
+        TextSearchIndex first = startAndWait(db, file);
+        first.save();
+        assertTrue(Files.exists(file));
+
+        db.rows = new Patient[] { db.rows[0], db.rows[1], patient(3, "Eva Mora", 2, "WAITING") };
+        db.firstCursor = -1;
+        TextSearchIndex second = startAndWait(db, file);
+
+        assertEquals(2, db.firstCursor, "debe seguir desde el mayor ID del snapshot");
+        assertEquals(3, second.size());
+        assertFalse(Files.exists(file), "el snapshot se consume al leerlo");
+    }
+
+    @Test
+    void trasUnaCaidaSeReconstruyeDesdeLaBase() throws Exception {
+        Path    file = dir.resolve("text-index.snapshot");
+        FakeDao db   = new FakeDao();
+        db.rows = new Patient[] { patient(1, "Ana Torres", 3, "WAITING"), patient(2, "Luis Rojas", 4, "WAITING") };
+        startAndWait(db, file).save();
+
+        // Arranque que lee el snapshot y cae sin cerrar (no hay save)
+        startAndWait(db, file);
+
+        // Mientras tanto la BD cambió: Ana fue atendida con otro nivel y el
+        // registro de Luis se deshizo
+        db.rows = new Patient[] { patient(1, "Ana Torres", 2, "ATTENDED") };
+        db.firstCursor = -1;
+        TextSearchIndex recovered = startAndWait(db, file);
+
+        assertEquals(0, db.firstCursor, "sin snapshot se recorre toda la tabla");
+        assertEquals(1, recovered.size());
+        assertEquals(0, recovered.search("rojas", 10, false).length, "no debe reaparecer un registro deshecho");
+        Patient ana = recovered.search("torres", 10, false)[0];
+        assertEquals("ATTENDED", ana.getStatus());
+        assertEquals(2, ana.getLevel());
+    }
+
+    @Test
+    void restoDeUnArranqueInterrumpidoSeDescarta() throws Exception {
+        Path    file = dir.resolve("text-index.snapshot");
+        FakeDao db   = new FakeDao();
+        db.rows = new Patient[] { patient(1, "Ana Torres", 3, "WAITING") };
+        startAndWait(db, file).save();
+        Files.move(file, dir.resolve("text-index.snapshot.loading"));
+
+        db.rows = new Patient[0];
+        TextSearchIndex index = startAndWait(db, file);
+
+        assertEquals(0, index.size());
+        assertFalse(Files.exists(dir.resolve("text-index.snapshot.loading")));
+    }
+
+    // Helpers
+
+    private static TextSearchIndex startAndWait(FakeDao db, Path file) throws InterruptedException {
+        TextSearchIndex index = new TextSearchIndex(db, file, 2);
+        index.start(new Patient[0]);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!index.isReady()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("el índice no terminó de construirse");
+            Thread.sleep(5);
+        }
+        return index;
+    }
+
+    private static Patient patient(int id, String name, int level, String status) {
+        LocalDateTime attended = "ATTENDED".equals(status) ? BASE.plusMinutes(30) : null;
+        return new Patient(id, name, 40, "dolor de cabeza", level, status, BASE, attended, BASE);
+    }
+
+    /** Tabla de pacientes en memoria; registra el primer cursor pedido. */
+    private static final class FakeDao extends PatientDAO {
+        volatile Patient[] rows = new Patient[0];
+        volatile int       firstCursor = -1;
+
+        @Override
+        public Patient[] listSinceId(int afterId, int limit) {
+            if (firstCursor < 0) firstCursor = afterId;
+            Patient[] buffer = new Patient[limit];
+            int n = 0;
+            for (Patient p : rows) {
+                if (p.getId() > afterId && n < limit) buffer[n++] = p.copy();
+            }
+            Patient[] out = new Patient[n];
+            for (int i = 0; i < n; i++) out[i] = buffer[i];
+            return out;
+        }
+    }
+}
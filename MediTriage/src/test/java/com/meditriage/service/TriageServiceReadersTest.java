@@ -0,0 +1,160 @@
+package com.meditriage.service;
+
+import com.meditriage.database.InMemoryPatientDAO;
+import com.meditriage.model.Patient;
+import com.meditriage.structures.MinHeap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Lecturas sin bloqueo contra el escritor: mientras varios puestos mutan la
+ * cola, otros hilos leen métricas, cola, historial y pacientes por ID. Cada
+ * lectura debe ser coherente consigo misma, y ningún Patient entregado por una
+ * lectura puede cambiar después (son copias congeladas, no los objetos vivos).
+ */
+class TriageServiceReadersTest {
+
+    private static final int  WRITERS     = 2;
+    private static final int  READERS     = 3;
+    private static final int  OPS         = 20_000;   // por escritor
+    private static final int  MAX_WATCHED = 5_000;    // copias vigiladas por lector
+    private static final long TIMEOUT_S   = 60;
+
+    @TempDir Path dir;
+
+    private TriageService service;
+
+    @BeforeEach
+    void open() throws Exception {
+        InMemoryPatientDAO db = new InMemoryPatientDAO();
+        service = new TriageService(new MinHeap(), db, db.openJournal(dir.resolve("triage.journal")),
+                                    InMemoryPatientDAO.idAllocator(64), dir.resolve("text-index.snapshot"));
+    }
+
+    @AfterEach
+    void close() {
+        if (service != null) service.close();
+    }
+
+    @Test
+    void losLectoresVenCopiasCoherentesYCongeladasMientrasElEscritorMuta() throws Exception {
+        AtomicBoolean              writing = new AtomicBoolean(true);
+        AtomicReference<Throwable> error   = new AtomicReference<>();
+
+        Thread[] readers = new Thread[READERS];
+        for (int r = 0; r < READERS; r++) {
+            readers[r] = new Thread(() -> {
+                try {
+                    readWhile(writing);
+                } catch (Throwable t) {
+                    error.compareAndSet(null, t);
+                }
+            }, "reader-" + r);
+            readers[r].start();
+        }
+
+        Thread[] writers = new Thread[WRITERS];
+        for (int w = 0; w < WRITERS; w++) {
+            final long seed = 77 + w;
+            writers[w] = new Thread(() -> {
+                try {
+                    write(new Random(seed));
+                } catch (Throwable t) {
+                    error.compareAndSet(null, t);
+                }
+            }, "writer-" + w);
+            writers[w].start();
+        }
+        for (Thread t : writers) t.join();
+        writing.set(false);
+        for (Thread t : readers) t.join();
+
+        if (error.get() != null) fail(error.get());
+    }
+
+    /** Lecturas en bucle; al terminar, revisa que ninguna copia vista haya cambiado. */
+    private void readWhile(AtomicBoolean writing) {
+        Map<Patient, String> watched = new IdentityHashMap<>();
+        long reads = 0;
+        while (writing.get()) {
+            TriageStats stats = service.getStats();
+            assertEquals(stats.getQueueSize(), stats.getHashTableSize(), "métricas de una misma foto");
+
+            Patient[] queue = service.getQueueSnapshotSorted();
+            for (int i = 0; i < queue.length; i++) {
+                assertWaiting(queue[i]);
+                if (i > 0) assertTrue(queue[i - 1].getLevel() <= queue[i].getLevel(), "cola fuera de orden");
+                if (watched.size() < MAX_WATCHED) watched.putIfAbsent(queue[i], fingerprint(queue[i]));
+            }
+            if (queue.length > 0) {
+                Patient byId = service.searchById(queue[queue.length / 2].getId());
+                assertNotNull(byId);
+                assertTornFree(byId);
+            }
+            for (Patient p : service.getHistorySnapshot()) {
+                assertEquals("ATTENDED", p.getStatus());
+                assertNotNull(p.getAttendedAt());
+                if (watched.size() < MAX_WATCHED) watched.putIfAbsent(p, fingerprint(p));
+            }
+            reads++;
+        }
+        assertTrue(reads > 0);
+        for (Map.Entry<Patient, String> e : watched.entrySet()) {
+            assertEquals(e.getValue(), fingerprint(e.getKey()), "una copia ya entregada cambió");
+        }
+    }
+
+    /** Mutaciones al azar; re-triage sobre pacientes recién vistos para tocar copias ya entregadas. */
+    private void write(Random rnd) throws Exception {
+        CompletableFuture<?>[] window = new CompletableFuture<?>[64];
+        for (int i = 0; i < OPS; i++) {
+            int slot = i % window.length;
+            if (window[slot] != null) window[slot].get(TIMEOUT_S, TimeUnit.SECONDS);
+            int dice = rnd.nextInt(100);
+            if (dice < 35) {
+                window[slot] = service.registerPatientAsync(
+                    "Paciente " + rnd.nextInt(200), 30, "fiebre", 1 + rnd.nextInt(5));
+            } else if (dice < 65) {
+                window[slot] = service.attendNextAsync();
+            } else if (dice < 90) {
+                Patient next = service.peekNext();
+                window[slot] = next == null ? null : service.retriageAsync(next.getId(), 1 + rnd.nextInt(5));
+            } else {
+                window[slot] = service.undoLastActionAsync();
+            }
+        }
+        for (CompletableFuture<?> f : window) if (f != null) f.get(TIMEOUT_S, TimeUnit.SECONDS);
+    }
+
+    private static void assertWaiting(Patient p) {
+        assertEquals("WAITING", p.getStatus());
+        assertNull(p.getAttendedAt());
+    }
+
+    /** Estado y hora de atención van juntos: un objeto a medio modificar los separa. */
+    private static void assertTornFree(Patient p) {
+        if ("WAITING".equals(p.getStatus())) assertNull(p.getAttendedAt());
+        else                                 assertNotNull(p.getAttendedAt());
+    }
+
+    private static String fingerprint(Patient p) {
+        return p.getLevel() + "|" + p.getStatus() + "|" + p.getAttendedAt() + "|" + p.getName();
+    }
+}
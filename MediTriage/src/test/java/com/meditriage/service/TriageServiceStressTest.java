@@ -0,0 +1,223 @@
+package com.meditriage.service;
+
+import com.meditriage.database.InMemoryPatientDAO;
+import com.meditriage.model.Patient;
+import com.meditriage.structures.MinHeap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Varios puestos de triaje registran, atienden, re-triagean y deshacen a la
+ * vez sobre el servicio real (con una BD en memoria). Durante la corrida otro
+ * hilo valida cada foto publicada; al final se comprueba que heap, árbol
+ * ordenado, índices por ID y nombre, pila de undo y BD (vía journal) cuentan
+ * la misma historia, y que deshacer todo vuelve al estado vacío.
+ *
+ * Total de operaciones: {@code -Dstress.ops}. Por defecto 200 000 para que
+ * {@code mvn test} siga siendo corto; la corrida larga usa
+ * {@code -Dstress.ops=2000000}.
+ */
+class TriageServiceStressTest {
+
+    private static final int  DESKS     = 4;
+    private static final int  IN_FLIGHT = 256;   // futuros pendientes por puesto
+    private static final long TIMEOUT_S = 60;
+
+    @TempDir Path dir;
+
+    private InMemoryPatientDAO db;
+    private TriageService      service;
+
+    @BeforeEach
+    void open() throws Exception {
+        db      = new InMemoryPatientDAO();
+        service = new TriageService(new MinHeap(), db, db.openJournal(dir.resolve("triage.journal")),
+                                    InMemoryPatientDAO.idAllocator(64), dir.resolve("text-index.snapshot"));
+    }
+
+    @AfterEach
+    void close() {
+        if (service != null) service.close();
+    }
+
+    @Test
+    void lasEstructurasSiguenCoherentesTrasOperacionesIntercaladas() throws Exception {
+        int perDesk = Integer.getInteger("stress.ops", 200_000) / DESKS;
+
+        // Validador concurrente: cada foto publicada debe ser coherente consigo misma
+        AtomicReference<Throwable> readerError = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                long seen = -1;
+                while (!Thread.currentThread().isInterrupted()) {
+                    TriageSnapshot s = service.snapshot();
+                    if (s.version != seen) {
+                        assertSnapshotConsistent(s);
+                        seen = s.version;
+                    }
+                }
+            } catch (Throwable t) {
+                readerError.compareAndSet(null, t);
+            }
+        }, "stress-reader");
+        reader.start();
+
+        AtomicReference<Throwable> deskError = new AtomicReference<>();
+        Thread[] desks = new Thread[DESKS];
+        for (int d = 0; d < DESKS; d++) {
+            final long seed = 1000 + d;
+            desks[d] = new Thread(() -> {
+                try {
+                    runDesk(new Random(seed), perDesk);
+                } catch (Throwable t) {
+                    deskError.compareAndSet(null, t);
+                }
+            }, "desk-" + d);
+            desks[d].start();
+        }
+        for (Thread t : desks) t.join();
+        reader.interrupt();
+        reader.join();
+        if (deskError.get() != null)   fail("error en un puesto", deskError.get());
+        if (readerError.get() != null) fail("foto incoherente durante la corrida", readerError.get());
+
+        TriageSnapshot end = service.snapshot();
+        assertSnapshotConsistent(end);
+        assertLiveStructuresMatch(end);
+        awaitDatabaseMatches(end);
+
+        // Heap y árbol ordenado coinciden: atender sigue exactamente el orden de la foto
+        Patient[] queued = end.queue;
+        for (Patient expected : queued) assertEquals(expected.getId(), service.attendNext().getId());
+        assertNull(service.attendNext());
+
+        // Deshacer todo (en tandas asíncronas) deja memoria y BD vacías
+        while (service.snapshot().undoStackSize > 0) {
+            CompletableFuture<?>[] undos = new CompletableFuture<?>[IN_FLIGHT];
+            for (int i = 0; i < undos.length; i++) undos[i] = service.undoLastActionAsync();
+            for (CompletableFuture<?> f : undos) f.get(TIMEOUT_S, TimeUnit.SECONDS);
+        }
+        TriageSnapshot empty = service.snapshot();
+        assertEquals(0, empty.queue.length);
+        assertEquals(0, empty.history.length);
+        assertEquals(0, empty.hashTableSize);
+        awaitDatabaseMatches(empty);
+        assertEquals(0, db.rowCount(), "cada alta quedó deshecha también en la BD");
+    }
+
+    /** Un puesto: mezcla aleatoria de mutaciones con hasta IN_FLIGHT futuros pendientes. */
+    private void runDesk(Random rnd, int ops) throws Exception {
+        CompletableFuture<?>[] window = new CompletableFuture<?>[IN_FLIGHT];
+        int[] recentIds = new int[64];
+        int   recent    = 0;
+        for (int i = 0; i < ops; i++) {
+            int slot = i % IN_FLIGHT;
+            if (window[slot] != null) {
+                Object result = window[slot].get(TIMEOUT_S, TimeUnit.SECONDS);
+                if (result instanceof Patient p) recentIds[recent++ & 63] = p.getId();
+            }
+            int dice = rnd.nextInt(100);
+            if (dice < 30) {
+                window[slot] = service.registerPatientAsync(
+                    "Paciente " + rnd.nextInt(500), 1 + rnd.nextInt(90), "dolor " + rnd.nextInt(50),
+                    1 + rnd.nextInt(5));
+            } else if (dice < 62) {
+                window[slot] = service.attendNextAsync();
+            } else if (dice < 85) {
+                int id = recent == 0 ? 1 : recentIds[rnd.nextInt(Math.min(recent, 64))];
+                window[slot] = service.retriageAsync(id, 1 + rnd.nextInt(5));
+            } else {
+                window[slot] = service.undoLastActionAsync();
+            }
+        }
+        for (CompletableFuture<?> f : window) if (f != null) f.get(TIMEOUT_S, TimeUnit.SECONDS);
+    }
+
+    // Invariantes
+
+    /** Una foto: cola en orden de prioridad, mismo conjunto por ID, estados y métricas de acuerdo. */
+    private static void assertSnapshotConsistent(TriageSnapshot s) {
+        Patient[] queue = s.queue;
+        assertEquals(queue.length, s.activeById.length, "cola e índice por ID");
+        assertEquals(queue.length, s.hashTableSize,     "cola y tabla hash");
+
+        Set<Integer> waiting = new HashSet<>();
+        for (int i = 0; i < queue.length; i++) {
+            Patient p = queue[i];
+            assertEquals("WAITING", p.getStatus());
+            assertNull(p.getAttendedAt());
+            assertTrue(waiting.add(p.getId()), "ID repetido en la cola: " + p.getId());
+            if (i > 0) assertTrue(comparePriority(queue[i - 1], p) < 0, "cola fuera de orden en " + i);
+        }
+        for (int i = 0; i < s.activeById.length; i++) {
+            if (i > 0) assertTrue(s.activeById[i - 1].getId() < s.activeById[i].getId(), "activeById sin orden");
+            assertTrue(waiting.contains(s.activeById[i].getId()));
+        }
+        for (Patient p : s.history) {
+            assertEquals("ATTENDED", p.getStatus());
+            assertNotNull(p.getAttendedAt());
+            assertTrue(!waiting.contains(p.getId()), "en espera y atendido a la vez: " + p.getId());
+        }
+    }
+
+    /** Las estructuras vivas (heap indexado, árbol ordenado, AVL por nombre) coinciden con la foto. */
+    private void assertLiveStructuresMatch(TriageSnapshot s) {
+        for (int i = 0; i < s.queue.length; i++) {
+            Patient p = s.queue[i];
+            assertEquals(i, service.getQueuePosition(p.getId()), "rango en el árbol ordenado");
+            assertEquals(p.getId(), service.searchById(p.getId()).getId());
+
+            boolean byName = false;
+            for (Patient q : service.searchAllByName(p.getName())) byName |= q.getId() == p.getId();
+            assertTrue(byName, "AVL por nombre sin el ID " + p.getId());
+        }
+        assertEquals(s.queue.length, service.getStats().getQueueSize());
+    }
+
+    /** Espera a que el journal drene y compara la tabla con la foto. */
+    private void awaitDatabaseMatches(TriageSnapshot s) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_S);
+        String mismatch;
+        while ((mismatch = databaseMismatch(s)) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertNull(mismatch);
+    }
+
+    private String databaseMismatch(TriageSnapshot s) {
+        for (Patient p : s.queue) {
+            Patient row = db.row(p.getId());
+            if (row == null)                          return "falta en la BD: " + p.getId();
+            if (!"WAITING".equals(row.getStatus()))   return "estado en la BD de " + p.getId();
+            if (row.getLevel() != p.getLevel())       return "nivel en la BD de " + p.getId();
+        }
+        for (Patient p : s.history) {
+            Patient row = db.row(p.getId());
+            if (row == null || !"ATTENDED".equals(row.getStatus())) return "atención sin aplicar: " + p.getId();
+        }
+        return null;
+    }
+
+    /** Mismo orden total que MinHeap.comparePriority (nivel, llegada, ID). */
+    private static int comparePriority(Patient a, Patient b) {
+        if (a.getLevel() != b.getLevel()) return Integer.compare(a.getLevel(), b.getLevel());
+        int c = a.getArrivalAt().compareTo(b.getArrivalAt());
+        return c != 0 ? c : Integer.compare(a.getId(), b.getId());
+    }
+}
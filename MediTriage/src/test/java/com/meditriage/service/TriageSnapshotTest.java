@@ -0,0 +1,38 @@
+package com.meditriage.service;
+
+import com.meditriage.model.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/** Búsquedas por ID sobre la foto de lectura. */
+class TriageSnapshotTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 5, 1, 8, 0);
+
+    @Test
+    void encuentraEnEsperaYEnElHistorialEnMemoria() {
+        Patient ana  = patient(3, "WAITING",  null);
+        Patient luis = patient(7, "WAITING",  null);
+        Patient eva  = patient(5, "ATTENDED", T0.plusMinutes(5));
+        Patient raul = patient(9, "ATTENDED", T0.plusMinutes(9));
+        TriageSnapshot s = new TriageSnapshot(1,
+            new Patient[] { luis, ana }, new Patient[] { ana, luis }, new Patient[] { eva, raul },
+            0, 2, 0f, 0, 0, 0, 0);
+
+        assertSame(ana,  s.findActive(3));
+        assertSame(luis, s.findActive(7));
+        assertNull(s.findActive(5));
+        assertSame(eva,  s.findAttended(5));
+        assertSame(raul, s.findAttended(9));
+        assertNull(s.findAttended(3));
+        assertNull(s.findAttended(42));
+    }
+
+    private static Patient patient(int id, String status, LocalDateTime attendedAt) {
+        return new Patient(id, "P" + id, 40, "", 3, status, T0, attendedAt, T0);
+    }
+}
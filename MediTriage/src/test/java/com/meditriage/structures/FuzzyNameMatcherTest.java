@@ -0,0 +1,112 @@
+package com.meditriage.structures;
+
+import com.meditriage.model.Patient;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Búsqueda aproximada de nombres: tildes, errores de tipeo y orden de palabras. */
+class FuzzyNameMatcherTest {
+
+    @Test
+    void toleraTildesYErroresDeTipeo() {
+        FuzzyNameMatcher matcher = matcher("María López", "María López García", "Pedro Ramírez");
+
+        int[] found = ids(matcher.search("Maria Lopes", 10));
+
+        assertEquals(2, found.length);
+        assertTrue(contains(found, 1) && contains(found, 2));
+    }
+
+    @Test
+    void elMasParecidoVaPrimero() {
+        FuzzyNameMatcher matcher = matcher("Gonzalo Martinez", "Gonzalo Martines");
+
+        assertEquals(1, ids(matcher.search("gonzalo martinez", 10))[0]);
+        assertEquals(2, ids(matcher.search("gonzalo martines", 10))[0]);
+    }
+
+    @Test
+    void lasPalabrasPuedenVenirEnCualquierOrden() {
+        FuzzyNameMatcher matcher = matcher("María López");
+
+        assertEquals(1, matcher.search("lopez maria", 10).length);
+    }
+
+    @Test
+    void todasLasPalabrasDeLaConsultaDebenCoincidir() {
+        FuzzyNameMatcher matcher = matcher("María López", "María Fernández");
+
+        int[] found = ids(matcher.search("maria lopez", 10));
+
+        assertEquals(1, found.length);
+        assertEquals(1, found[0]);
+    }
+
+    @Test
+    void elCupoDeErroresDependeDelLargoDeLaPalabra() {
+        assertEquals(0, FuzzyNameMatcher.maxEdits(3));
+        assertEquals(1, FuzzyNameMatcher.maxEdits(4));
+        assertEquals(1, FuzzyNameMatcher.maxEdits(6));
+        assertEquals(2, FuzzyNameMatcher.maxEdits(7));
+
+        FuzzyNameMatcher matcher = matcher("Ana Ruiz", "Roberto Sosa");
+        assertEquals(0, matcher.search("Ann", 10).length, "tres letras: solo exacta");
+        assertEquals(1, matcher.search("Robrto", 10).length, "seis letras: un error");
+        assertEquals(0, matcher.search("Rbrto", 10).length, "cinco letras: no dos errores");
+    }
+
+    @Test
+    void quitarUnPacienteLoSacaDeLosResultados() {
+        Patient[] patients = patients("María López", "María Lopes");
+        FuzzyNameMatcher matcher = new FuzzyNameMatcher();
+        for (Patient p : patients) matcher.insert(p);
+        matcher.insert(patients[0]);   // repetido: no cuenta dos veces
+        assertEquals(2, matcher.size());
+
+        matcher.remove(patients[0]);
+
+        int[] found = ids(matcher.search("maria lopez", 10));
+        assertEquals(1, matcher.size());
+        assertEquals(1, found.length);
+        assertEquals(2, found[0]);
+    }
+
+    @Test
+    void respetaElLimite() {
+        FuzzyNameMatcher matcher = matcher("Juan Pérez", "Juan Peres", "Juan Perez", "Juan Perea");
+
+        assertEquals(2, matcher.search("juan perez", 2).length);
+    }
+
+    // Helpers
+
+    private static FuzzyNameMatcher matcher(String... names) {
+        FuzzyNameMatcher matcher = new FuzzyNameMatcher();
+        for (Patient p : patients(names)) matcher.insert(p);
+        return matcher;
+    }
+
+    /** Un paciente por nombre, con IDs desde 1 en el mismo orden. */
+    private static Patient[] patients(String... names) {
+        Patient[] out = new Patient[names.length];
+        for (int i = 0; i < names.length; i++) {
+            out[i] = new Patient();
+            out[i].setId(i + 1);
+            out[i].setName(names[i]);
+        }
+        return out;
+    }
+
+    private static int[] ids(Patient[] patients) {
+        int[] out = new int[patients.length];
+        for (int i = 0; i < patients.length; i++) out[i] = patients[i].getId();
+        return out;
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int x : ids) if (x == id) return true;
+        return false;
+    }
+}
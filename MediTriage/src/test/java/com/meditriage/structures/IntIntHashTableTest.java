@@ -0,0 +1,73 @@
+package com.meditriage.structures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Tabla int → int: cualquier int es un valor válido, incluido el de ausencia. */
+class IntIntHashTableTest {
+
+    private static final int CAPACITY = 32;   // capacidad inicial de la tabla
+
+    @Test
+    void ceroYNegativosSonValoresComoCualquierOtro() {
+        IntIntHashTable table = new IntIntHashTable();
+        table.put(0, 0);
+        table.put(-5, -1);
+
+        assertTrue(table.containsKey(0));
+        assertEquals(0, table.get(0, 99));
+        assertEquals(-1, table.get(-5, 99));
+        assertEquals(99, table.get(7, 99));
+
+        table.put(0, 3);                      // actualizar no agrega otra entrada
+        assertEquals(3, table.get(0, 99));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void coincideConUnModeloEnOperacionesAleatorias() {
+        int       range   = 2000;
+        Random    rnd     = new Random(11);
+        int[]     model   = new int[range];       // clave k → model[k + range / 2]
+        boolean[] present = new boolean[range];
+        int       size    = 0;
+        IntIntHashTable table = new IntIntHashTable();
+
+        for (int op = 0; op < 200_000; op++) {
+            int key = rnd.nextInt(range) - range / 2;
+            int at  = key + range / 2;
+            if (rnd.nextInt(10) < 6) {
+                if (!present[at]) size++;
+                present[at] = true;
+                model[at]   = op - 100_000;       // valores negativos también
+                table.put(key, model[at]);
+            } else {
+                assertEquals(present[at], table.remove(key), "remove " + key);
+                if (present[at]) size--;
+                present[at] = false;
+            }
+            assertEquals(size, table.size());
+            if (op % 5000 == 0) assertSameContents(model, present, table);
+        }
+        assertSameContents(model, present, table);
+
+        for (int key = -range / 2; key < range / 2; key++) table.remove(key);
+        assertTrue(table.isEmpty());
+        assertEquals(CAPACITY, table.capacity(), "vacía vuelve a la capacidad inicial");
+        assertFalse(table.containsKey(0));
+    }
+
+    private static void assertSameContents(int[] model, boolean[] present, IntIntHashTable table) {
+        int range = model.length;
+        for (int i = 0; i < range; i++) {
+            int key = i - range / 2;
+            assertEquals(present[i], table.containsKey(key), "clave " + key);
+            if (present[i]) assertEquals(model[i], table.get(key, Integer.MIN_VALUE));
+        }
+    }
+}
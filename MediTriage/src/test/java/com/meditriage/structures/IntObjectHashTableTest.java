@@ -0,0 +1,125 @@
+package com.meditriage.structures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Direccionamiento abierto con borrado por desplazamiento hacia atrás. */
+class IntObjectHashTableTest {
+
+    private static final int CAPACITY = 32;   // capacidad inicial de la tabla
+
+    @Test
+    void borrarEnUnRacimoAcercaALosSiguientesASuCeldaIdeal() {
+        int[] keys = keysWithSlot(5, 6);
+        IntObjectHashTable<String> table = new IntObjectHashTable<>();
+        for (int k : keys) table.put(k, "v" + k);
+        assertEquals(5, table.maxProbeLength());
+
+        assertTrue(table.remove(keys[0]));
+        assertEquals(4, table.maxProbeLength(), "sin lápidas: el racimo retrocede una celda");
+        assertTrue(table.remove(keys[3]));
+        assertEquals(3, table.maxProbeLength());
+
+        assertNull(table.get(keys[0]));
+        assertNull(table.get(keys[3]));
+        for (int k : new int[] { keys[1], keys[2], keys[4], keys[5] }) assertEquals("v" + k, table.get(k));
+        assertEquals(4, table.size());
+    }
+
+    @Test
+    void unaEntradaEnSuCeldaIdealNoSeMueve() {
+        // Racimo mixto: dos claves de la celda 10 y detrás una de la celda 12
+        int[] ten    = keysWithSlot(10, 2);
+        int[] twelve = keysWithSlot(12, 2);
+        IntObjectHashTable<String> table = new IntObjectHashTable<>();
+        table.put(ten[0], "a");      // celda 10
+        table.put(ten[1], "b");      // celda 11
+        table.put(twelve[0], "c");   // celda 12 (ideal)
+        table.put(twelve[1], "d");   // celda 13
+
+        table.remove(ten[0]);        // "b" baja a 10; "c" ya está en su celda ideal y no debe moverse
+
+        assertEquals("b", table.get(ten[1]));
+        assertEquals("c", table.get(twelve[0]));
+        assertEquals("d", table.get(twelve[1]));
+        assertEquals(1, table.maxProbeLength());
+    }
+
+    @Test
+    void elRacimoQueDaLaVueltaAlArregloTambienRetrocede() {
+        int[] keys = keysWithSlot(CAPACITY - 2, 5);   // ocupa 30, 31, 0, 1, 2
+        IntObjectHashTable<String> table = new IntObjectHashTable<>();
+        for (int k : keys) table.put(k, "v" + k);
+
+        assertTrue(table.remove(keys[1]));
+        assertTrue(table.remove(keys[0]));
+
+        assertEquals(2, table.maxProbeLength());
+        for (int i = 2; i < keys.length; i++) assertEquals("v" + keys[i], table.get(keys[i]));
+    }
+
+    @Test
+    void coincideConUnModeloEnOperacionesAleatorias() {
+        int      range = 2000;
+        Random   rnd   = new Random(7);
+        Object[] model = new Object[range];   // clave k → model[k + range / 2]
+        int      size  = 0;
+        IntObjectHashTable<Integer> table = new IntObjectHashTable<>();
+
+        for (int op = 0; op < 200_000; op++) {
+            int key = rnd.nextInt(range) - range / 2;
+            int at  = key + range / 2;
+            if (rnd.nextInt(10) < 6) {
+                if (model[at] == null) size++;
+                model[at] = op;
+                table.put(key, op);
+            } else {
+                assertEquals(model[at] != null, table.remove(key), "remove " + key);
+                if (model[at] != null) size--;
+                model[at] = null;
+            }
+            assertEquals(size, table.size());
+            if (op % 5000 == 0) assertSameContents(model, range, table);
+        }
+        assertSameContents(model, range, table);
+
+        for (int key = -range / 2; key < range / 2; key++) table.remove(key);
+        assertTrue(table.isEmpty());
+        assertEquals(CAPACITY, table.capacity(), "vacía vuelve a la capacidad inicial");
+        assertFalse(table.containsKey(0));
+    }
+
+    // Helpers
+
+    private static void assertSameContents(Object[] model, int range, IntObjectHashTable<Integer> table) {
+        int[] visited = new int[1];
+        table.forEach((k, v) -> {
+            assertEquals(model[k + range / 2], v);
+            visited[0]++;
+        });
+        assertEquals(table.size(), visited[0]);
+        for (int i = 0; i < range; i++) assertEquals(model[i], table.get(i - range / 2));
+    }
+
+    /** Las primeras {@code n} claves no negativas cuya celda ideal es {@code slot} con la capacidad inicial. */
+    private static int[] keysWithSlot(int slot, int n) {
+        int[] out = new int[n];
+        int found = 0;
+        for (int key = 0; found < n; key++) {
+            if (idealSlot(key) == slot) out[found++] = key;
+        }
+        return out;
+    }
+
+    /** Misma mezcla que IntObjectHashTable.slot. */
+    private static int idealSlot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (CAPACITY - 1);
+    }
+}
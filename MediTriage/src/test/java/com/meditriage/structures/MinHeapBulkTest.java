@@ -0,0 +1,129 @@
+package com.meditriage.structures;
+
+import com.meditriage.model.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Carga masiva del MinHeap: build-heap de Floyd y lotes sobre un heap existente. */
+class MinHeapBulkTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    @Test
+    void ofExtraeEnOrdenDePrioridadSinTocarElArreglo() {
+        Patient[] input  = randomPatients(new Random(3), 1, 3000);
+        Patient[] before = input.clone();
+
+        MinHeap heap = MinHeap.of(input);
+
+        assertArrayEquals(before, input, "of no modifica el arreglo recibido");
+        assertArrayEquals(ids(sortedCopy(input)), drain(heap));
+    }
+
+    @Test
+    void elIndiceDePosicionesQuedaAlDiaTrasLaReconstruccion() {
+        Patient[] input = randomPatients(new Random(5), 1, 500);
+        MinHeap   heap  = MinHeap.of(input);
+
+        for (Patient p : input) {
+            assertTrue(heap.contains(p.getId()));
+            assertSame(p, heap.get(p.getId()));
+        }
+        for (int i = 0; i < input.length; i += 3) assertTrue(heap.removeById(input[i].getId()));
+        assertTrue(heap.changeLevel(input[1].getId(), 1));
+
+        Patient[] rest = new Patient[input.length - (input.length + 2) / 3];
+        for (int i = 0, j = 0; i < input.length; i++) if (i % 3 != 0) rest[j++] = input[i];
+        assertArrayEquals(ids(sortedCopy(rest)), drain(heap));
+    }
+
+    @Test
+    void loteChicoYLoteGrandeDanElMismoOrden() {
+        Random    rnd   = new Random(11);
+        Patient[] base  = randomPatients(rnd, 1, 2000);
+        Patient[] small = randomPatients(rnd, 10_000, 5);      // subidas individuales
+        Patient[] large = randomPatients(rnd, 20_000, 4000);   // reconstrucción completa
+
+        MinHeap heap = MinHeap.of(base);
+        heap.addAll(small);
+        heap.addAll(large);
+
+        assertArrayEquals(ids(sortedCopy(concat(base, small, large))), drain(heap));
+    }
+
+    @Test
+    void unIdRepetidoRechazaElLoteCompleto() {
+        Patient[] base = randomPatients(new Random(13), 1, 10);
+        MinHeap   heap = MinHeap.of(base);
+
+        Patient[] batch = randomPatients(new Random(17), 100, 3);
+        batch[2] = batch[0];
+
+        assertThrows(IllegalArgumentException.class, () -> heap.addAll(batch));
+        assertEquals(base.length, heap.size());
+        assertArrayEquals(ids(sortedCopy(base)), drain(heap));
+    }
+
+    @Test
+    void laFotoOrdenadaNoAlteraElHeap() {
+        Patient[] input = randomPatients(new Random(19), 1, 800);
+        MinHeap   heap  = MinHeap.of(input);
+
+        assertArrayEquals(ids(sortedCopy(input)), ids(heap.getSortedSnapshot()));
+        assertEquals(input.length, heap.size());
+        assertArrayEquals(ids(sortedCopy(input)), drain(heap));
+    }
+
+    // Helpers
+
+    private static Patient[] randomPatients(Random rnd, int firstId, int n) {
+        Patient[] out = new Patient[n];
+        for (int i = 0; i < n; i++) {
+            Patient p = new Patient();
+            p.setId(firstId + i);
+            p.setName("Paciente " + (firstId + i));
+            p.setLevel(1 + rnd.nextInt(5));
+            p.setStatus("WAITING");
+            p.setArrivalAt(BASE.plusMinutes(rnd.nextInt(30)));
+            out[i] = p;
+        }
+        return out;
+    }
+
+    private static Patient[] sortedCopy(Patient[] patients) {
+        Patient[] copy = patients.clone();
+        Arrays.sort(copy, MinHeap::comparePriority);
+        return copy;
+    }
+
+    private static Patient[] concat(Patient[]... parts) {
+        int n = 0;
+        for (Patient[] part : parts) n += part.length;
+        Patient[] out = new Patient[n];
+        int at = 0;
+        for (Patient[] part : parts) for (Patient p : part) out[at++] = p;
+        return out;
+    }
+
+    private static int[] drain(MinHeap heap) {
+        int[] out = new int[heap.size()];
+        for (int i = 0; i < out.length; i++) out[i] = heap.pop().getId();
+        assertTrue(heap.isEmpty());
+        return out;
+    }
+
+    private static int[] ids(Patient[] patients) {
+        int[] out = new int[patients.length];
+        for (int i = 0; i < patients.length; i++) out[i] = patients[i].getId();
+        return out;
+    }
+}
@@ -0,0 +1,146 @@
+package com.meditriage.structures;
+
+import com.meditriage.model.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba diferencial: MinHeap y BucketPriorityQueue reciben la misma secuencia
+ * aleatoria de operaciones y deben entregar exactamente los mismos pacientes
+ * (por ID) en el mismo orden.
+ *
+ * Las llegadas se eligen entre pocos minutos distintos y los IDs no siguen el
+ * orden de llegada, así que los empates de nivel y llegada son frecuentes y
+ * los decide el desempate por ID de MinHeap.comparePriority.
+ */
+class PriorityQueueEngineDifferentialTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    @Test
+    void mismaSecuenciaDeExtraccionConOperacionesAleatorias() {
+        for (long seed = 1; seed <= 200; seed++) {
+            runScenario(seed, 400);
+        }
+    }
+
+    @Test
+    void vaciadoCompletoTrasCargaMasiva() {
+        Random rnd = new Random(42);
+        Patient[] batch = new Patient[5000];
+        for (int i = 0; i < batch.length; i++) batch[i] = patient(rnd, 100_000 - i * 7);
+
+        MinHeap             heap    = new MinHeap();
+        BucketPriorityQueue buckets = new BucketPriorityQueue();
+        heap.addAll(copies(batch));
+        buckets.addAll(copies(batch));
+
+        assertArrayEquals(ids(heap.getSortedSnapshot()), ids(buckets.getSortedSnapshot()));
+        assertArrayEquals(drain(heap), drain(buckets));
+    }
+
+    private static void runScenario(long seed, int operations) {
+        Random              rnd     = new Random(seed);
+        MinHeap             heap    = new MinHeap();
+        BucketPriorityQueue buckets = new BucketPriorityQueue();
+        int[]               live    = new int[operations];   // IDs en cola (para elegir víctimas)
+        int                 liveCount = 0;
+        int                 nextId  = 1;
+
+        for (int op = 0; op < operations; op++) {
+            String at = "semilla " + seed + ", operación " + op;
+            int    r  = rnd.nextInt(100);
+
+            if (r < 40 || liveCount == 0) {
+                // Alta: IDs salteados para que no coincidan con el orden de llegada
+                Patient p = patient(rnd, nextId += 1 + rnd.nextInt(3));
+                heap.push(p.copy());
+                buckets.push(p.copy());
+                live[liveCount++] = p.getId();
+
+            } else if (r < 65) {
+                Patient a = heap.pop();
+                Patient b = buckets.pop();
+                assertEquals(a.getId(), b.getId(), at);
+                liveCount = removeLive(live, liveCount, a.getId());
+
+            } else if (r < 80) {
+                int id = live[rnd.nextInt(liveCount)];
+                assertTrue(heap.removeById(id), at);
+                assertTrue(buckets.removeById(id), at);
+                liveCount = removeLive(live, liveCount, id);
+
+            } else if (r < 95) {
+                int id    = live[rnd.nextInt(liveCount)];
+                int level = 1 + rnd.nextInt(5);
+                assertTrue(heap.changeLevel(id, level), at);
+                assertTrue(buckets.changeLevel(id, level), at);
+
+            } else {
+                int absent = nextId + 1000;
+                assertFalse(heap.removeById(absent), at);
+                assertFalse(buckets.removeById(absent), at);
+                assertNull(heap.get(absent), at);
+                assertNull(buckets.get(absent), at);
+            }
+
+            assertEquals(heap.size(), buckets.size(), at);
+            Patient hp = heap.peek(), bp = buckets.peek();
+            assertEquals(hp == null ? -1 : hp.getId(), bp == null ? -1 : bp.getId(), at);
+        }
+
+        assertArrayEquals(ids(heap.getSortedSnapshot()), ids(buckets.getSortedSnapshot()), "semilla " + seed);
+        assertArrayEquals(drain(heap), drain(buckets), "semilla " + seed);
+    }
+
+    // Helpers
+
+    private static Patient patient(Random rnd, int id) {
+        Patient p = new Patient();
+        p.setId(id);
+        p.setName("Paciente " + id);
+        p.setLevel(1 + rnd.nextInt(5));
+        p.setStatus("WAITING");
+        p.setArrivalAt(BASE.plusMinutes(rnd.nextInt(10)));
+        return p;
+    }
+
+    /** Cada motor recibe sus propios objetos: changeLevel modifica el paciente. */
+    private static Patient[] copies(Patient[] patients) {
+        Patient[] out = new Patient[patients.length];
+        for (int i = 0; i < patients.length; i++) out[i] = patients[i].copy();
+        return out;
+    }
+
+    private static int removeLive(int[] live, int count, int id) {
+        for (int i = 0; i < count; i++) {
+            if (live[i] == id) {
+                live[i] = live[count - 1];
+                return count - 1;
+            }
+        }
+        return count;
+    }
+
+    /** IDs en el orden completo de extracción. */
+    private static int[] drain(PriorityQueueEngine queue) {
+        int[] out = new int[queue.size()];
+        for (int i = 0; i < out.length; i++) out[i] = queue.pop().getId();
+        assertTrue(queue.isEmpty());
+        return out;
+    }
+
+    private static int[] ids(Patient[] patients) {
+        int[] out = new int[patients.length];
+        for (int i = 0; i < patients.length; i++) out[i] = patients[i].getId();
+        return out;
+    }
+}
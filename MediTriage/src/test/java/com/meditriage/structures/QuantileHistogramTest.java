@@ -0,0 +1,125 @@
+package com.meditriage.structures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Histograma log-lineal: límites de cubeta, error de percentiles, remove y merge. */
+class QuantileHistogramTest {
+
+    private static final long MAX = (1L << 22) - 1;   // mayor valor representable
+
+    @Test
+    void exactoHasta63YDespuesTreintaYDosCubetasPorOctava() {
+        assertEquals(2 * 32 + 16 * 32, QuantileHistogram.BUCKETS);
+
+        for (long v = 0; v < 64; v++) assertEquals(v, single(v).quantile(0.5), "exacto: " + v);
+
+        // Cada potencia de dos abre cubeta: 2^k - 1 y 2^k nunca comparten
+        for (int k = 6; k < 22; k++) {
+            long edge = 1L << k;
+            QuantileHistogram h = new QuantileHistogram();
+            h.record(edge - 1);
+            h.record(edge);
+            assertEquals(1, h.countAtOrBelow(edge - 1), "límite 2^" + k);
+            assertEquals(2, h.countAtOrBelow(edge));
+        }
+
+        // Dentro de la octava [2^k, 2^(k+1)) las cubetas miden 2^(k-5)
+        for (int k = 6; k < 22; k++) {
+            long width = 1L << (k - 5);
+            long lower = (1L << k) + 7 * width;          // inicio de la 8.ª cubeta de la octava
+            QuantileHistogram h = new QuantileHistogram();
+            h.record(lower);
+            h.record(lower + width - 1);                  // misma cubeta
+            h.record(lower + width);                      // la siguiente
+            assertEquals(2, h.countAtOrBelow(lower), "ancho en la octava 2^" + k);
+            assertEquals(lower + (width - 1) / 2, h.quantile(0.5), "punto medio de la cubeta");
+        }
+    }
+
+    @Test
+    void losValoresFueraDeRangoSeSaturan() {
+        QuantileHistogram h = new QuantileHistogram();
+        h.record(-5);
+        assertEquals(0, h.quantile(0.5));
+
+        h.clear();
+        h.record(Long.MAX_VALUE);
+        h.record(MAX + 1);
+        long top = h.quantile(1.0);
+        assertTrue(top <= MAX && top >= MAX - MAX / 32, "última cubeta: " + top);
+        assertEquals(2, h.countAtOrBelow(MAX));
+    }
+
+    @Test
+    void elErrorRelativoDeLosPercentilesNoSuperaElTresPorCiento() {
+        Random rnd = new Random(17);
+        LongSupplier[] distributions = {
+            () -> rnd.nextInt(7200),                                             // uniforme, 2 h en segundos
+            () -> (long) (-Math.log(1 - rnd.nextDouble()) * 900),                // exponencial, media 15 min
+            () -> Math.min(MAX, (long) Math.exp(6 + 1.5 * rnd.nextGaussian())),  // lognormal, cola larga
+            () -> 60 + rnd.nextInt(4)                                            // casi constante
+        };
+        double[] qs = { 0.01, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1.0 };
+
+        for (int d = 0; d < distributions.length; d++) {
+            QuantileHistogram h = new QuantileHistogram();
+            long[] values = new long[100_000];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = distributions[d].getAsLong();
+                h.record(values[i]);
+            }
+            Arrays.sort(values);
+            assertEquals(values.length, h.count());
+
+            for (double q : qs) {
+                long exact    = values[(int) Math.max(0, Math.ceil(q * values.length) - 1)];
+                long estimate = h.quantile(q);
+                assertTrue(Math.abs(estimate - exact) <= exact * 0.03,
+                           "distribución " + d + ", q=" + q + ": " + estimate + " vs " + exact);
+            }
+        }
+    }
+
+    @Test
+    void removeDeshaceYMergeSumaComoRegistrarTodoJunto() {
+        Random rnd = new Random(4);
+        QuantileHistogram a   = new QuantileHistogram();
+        QuantileHistogram b   = new QuantileHistogram();
+        QuantileHistogram all = new QuantileHistogram();
+        long[] extra = new long[500];
+        for (int i = 0; i < 5000; i++) {
+            long v = rnd.nextInt(100_000);
+            (i % 2 == 0 ? a : b).record(v);
+            all.record(v);
+        }
+        for (int i = 0; i < extra.length; i++) {
+            extra[i] = rnd.nextInt(100_000);
+            a.record(extra[i]);
+        }
+        for (long v : extra) a.remove(v);
+        a.remove(12_345_678);                            // cubeta vacía: se ignora
+        assertEquals(2500, a.count());
+
+        a.merge(b);
+        a.merge(new QuantileHistogram());
+        assertEquals(all.count(), a.count());
+        for (double q = 0.05; q <= 1.0; q += 0.05) assertEquals(all.quantile(q), a.quantile(q), "q=" + q);
+
+        a.clear();
+        assertEquals(0, a.count());
+        assertEquals(0, a.quantile(0.9));
+    }
+
+    private static QuantileHistogram single(long v) {
+        QuantileHistogram h = new QuantileHistogram();
+        h.record(v);
+        return h;
+    }
+}
@@ -0,0 +1,160 @@
+package com.meditriage.structures;
+
+import com.meditriage.model.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Árbol de estadísticos de orden contra una lista ordenada de referencia:
+ * get, rankOf y page deben coincidir tras altas, bajas y re-triage.
+ */
+class RankedPatientTreeTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    @Test
+    void coincideConUnaListaOrdenadaEnOperacionesAleatorias() {
+        for (long seed = 1; seed <= 30; seed++) {
+            Random            rnd  = new Random(seed);
+            RankedPatientTree tree = new RankedPatientTree();
+            List<Patient>     ref  = new ArrayList<>();
+            int nextId = 1;
+
+            for (int op = 0; op < 1500; op++) {
+                String at = "semilla " + seed + ", operación " + op;
+                int r = rnd.nextInt(100);
+                if (r < 50 || ref.isEmpty()) {
+                    Patient p = patient(rnd, nextId++);
+                    tree.insert(p);
+                    insertSorted(ref, p);
+                } else if (r < 75) {
+                    Patient p = ref.remove(rnd.nextInt(ref.size()));
+                    assertTrue(tree.remove(p), at);
+                    assertFalse(tree.remove(p), "segunda baja, " + at);
+                } else {
+                    // Re-triage: quitar con la prioridad vieja, cambiar el nivel y volver a insertar
+                    Patient p = ref.remove(rnd.nextInt(ref.size()));
+                    assertTrue(tree.remove(p), at);
+                    p.setLevel(1 + rnd.nextInt(5));
+                    tree.insert(p);
+                    insertSorted(ref, p);
+                }
+                assertEquals(ref.size(), tree.size(), at);
+                if (op % 50 == 0) assertSameOrder(ref, tree, rnd, at);
+            }
+            assertSameOrder(ref, tree, rnd, "semilla " + seed + ", final");
+        }
+    }
+
+    @Test
+    void paginasEnLosBordes() {
+        RankedPatientTree tree = new RankedPatientTree();
+        Random rnd = new Random(9);
+        List<Patient> ref = new ArrayList<>();
+        for (int id = 1; id <= 37; id++) {
+            Patient p = patient(rnd, id);
+            tree.insert(p);
+            insertSorted(ref, p);
+        }
+
+        assertArrayEquals(ids(ref.subList(0, 10)),  ids(tree.page(0, 10)));
+        assertArrayEquals(ids(ref.subList(30, 37)), ids(tree.page(30, 10)), "última página incompleta");
+        assertArrayEquals(ids(ref.subList(0, 5)),   ids(tree.page(-3, 5)),  "offset negativo = 0");
+        assertEquals(0, tree.page(37, 10).length);
+        assertEquals(0, tree.page(100, 10).length);
+        assertEquals(0, tree.page(5, 0).length);
+        assertArrayEquals(ids(ref), ids(tree.toArray()));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.get(37));
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.get(-1));
+    }
+
+    @Test
+    void elMismoPacienteDosVecesNoSeDuplicaYElAusenteNoTieneRango() {
+        RankedPatientTree tree = new RankedPatientTree();
+        Patient a = patient(1, 3, 0);
+        tree.insert(a);
+        tree.insert(a.copy());
+        assertEquals(1, tree.size());
+
+        Patient absent = patient(2, 3, 0);
+        assertEquals(-1, tree.rankOf(absent));
+        assertFalse(tree.remove(absent));
+        assertFalse(tree.remove(null));
+        assertThrows(IllegalArgumentException.class, () -> tree.insert(null));
+
+        tree.clear();
+        assertTrue(tree.isEmpty());
+        assertEquals(0, tree.toArray().length);
+    }
+
+    @Test
+    void insercionesEnOrdenNoDesequilibranElArbol() {
+        // 200k altas ya ordenadas: un árbol sin balanceo haría get/rankOf lineales
+        RankedPatientTree tree = new RankedPatientTree();
+        Patient[] all = new Patient[200_000];
+        for (int i = 0; i < all.length; i++) all[i] = patient(i + 1, 1, i);
+        tree.insertAll(all);
+
+        for (int i = 0; i < all.length; i += 997) {
+            assertEquals(all[i].getId(), tree.get(i).getId());
+            assertEquals(i, tree.rankOf(all[i]));
+        }
+        assertEquals(all[all.length - 1].getId(), tree.page(all.length - 1, 5)[0].getId());
+    }
+
+    // Auxiliares
+
+    private static void assertSameOrder(List<Patient> ref, RankedPatientTree tree, Random rnd, String at) {
+        assertArrayEquals(ids(ref), ids(tree.toArray()), at);
+        for (int i = 0; i < ref.size(); i++) {
+            assertEquals(ref.get(i).getId(), tree.get(i).getId(), "get(" + i + "), " + at);
+            assertEquals(i, tree.rankOf(ref.get(i)), "rankOf, " + at);
+        }
+        for (int k = 0; k < 5; k++) {
+            int offset = rnd.nextInt(ref.size() + 3);
+            int limit  = rnd.nextInt(20);
+            int to     = Math.min(ref.size(), offset + limit);
+            int[] expected = offset >= to ? new int[0] : ids(ref.subList(offset, to));
+            assertArrayEquals(expected, ids(tree.page(offset, limit)), "page(" + offset + ", " + limit + "), " + at);
+        }
+    }
+
+    private static void insertSorted(List<Patient> ref, Patient p) {
+        int i = 0;
+        while (i < ref.size() && MinHeap.comparePriority(ref.get(i), p) < 0) i++;
+        ref.add(i, p);
+    }
+
+    /** Pocos minutos de llegada y nivel al azar: muchos empates que decide el ID. */
+    private static Patient patient(Random rnd, int id) {
+        return patient(id, 1 + rnd.nextInt(5), rnd.nextInt(8));
+    }
+
+    private static Patient patient(int id, int level, int minute) {
+        LocalDateTime at = BASE.plusMinutes(minute);
+        return new Patient(id, "Paciente " + id, 30, "dolor", level, "WAITING", at, null, at);
+    }
+
+    private static int[] ids(List<Patient> patients) {
+        int[] out = new int[patients.size()];
+        for (int i = 0; i < out.length; i++) out[i] = patients.get(i).getId();
+        return out;
+    }
+
+    private static int[] ids(Patient[] patients) {
+        int[] out = new int[patients.length];
+        for (int i = 0; i < out.length; i++) out[i] = patients[i].getId();
+        return out;
+    }
+}
@@ -0,0 +1,233 @@
+package com.meditriage.structures;
+
+import com.meditriage.model.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Índice de síntomas: listas comprimidas, altas fuera de orden, bajas, BM25 y filtros. */
+class SymptomIndexTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 5, 1, 8, 0);
+
+    private static final String[] WORDS = {
+        "dolor", "pecho", "fiebre", "tos", "mareo", "cabeza", "vomito", "herida", "brazo", "nausea"
+    };
+
+    // Analizador
+
+    @Test
+    void elAnalizadorQuitaPalabrasVaciasYUneFormasDeLaMismaPalabra() {
+        assertArrayEquals(new String[] { "dolor", "pech", "dolor", "cabez" },
+                          SpanishAnalyzer.terms("Dolor en el pecho y dolores de cabeza"));
+        assertEquals(SpanishAnalyzer.stem("dolorosa"), SpanishAnalyzer.stem("dolorosos"));
+        assertEquals("luz",   SpanishAnalyzer.stem("luces"));
+        assertEquals(SpanishAnalyzer.stem("mareo"), SpanishAnalyzer.stem("mareos"));
+        assertEquals("rapid", SpanishAnalyzer.stem("rapidamente"));
+        assertArrayEquals(new String[] { "nause" }, SpanishAnalyzer.terms("NÁUSEAS"));
+        assertArrayEquals(new String[] { "tos", "38" }, SpanishAnalyzer.terms("tos con 38"));
+        assertEquals(0, SpanishAnalyzer.terms("de la y con el").length);
+    }
+
+    // Listas comprimidas
+
+    @Test
+    void lasAltasFueraDeOrdenSeFusionanSinPerderNiDuplicarDocumentos() {
+        SymptomIndex index = new SymptomIndex();
+        // 1..300 en orden inverso por tandas: fuerza pendientes y más de una compactación
+        for (int block = 2; block >= 0; block--) {
+            for (int id = block * 100 + 100; id > block * 100; id--) index.add(patient(id, "tos", 3, T0));
+        }
+        assertEquals(300, index.size());
+
+        Patient[] found = index.search("tos", 1, 5, null, null, 1000);
+        assertEquals(300, found.length);
+        Set<Integer> ids = new HashSet<>();
+        for (Patient p : found) assertTrue(ids.add(p.getId()), "ID repetido " + p.getId());
+
+        // Diferencias grandes (varint de varios bytes) mezcladas con pequeñas
+        index.add(patient(1_000_000, "tos", 3, T0));
+        index.add(patient(150_000, "tos", 3, T0));
+        assertEquals(302, index.search("tos", 1, 5, null, null, 1000).length);
+    }
+
+    @Test
+    void deshacerLasAltasMasRecientesRecortaLaListaYPermiteSeguirAgregando() {
+        SymptomIndex index = new SymptomIndex();
+        long empty = index.postingBytes();
+        for (int id = 1; id <= 200; id++) index.add(patient(id * 131, "dolor fuerte de pecho", 2, T0));
+
+        // Undo: la más reciente primero (último par comprimido de cada lista)
+        for (int id = 200; id > 100; id--) assertTrue(index.remove(id * 131));
+        assertFalse(index.remove(200 * 131));
+        assertEquals(100, index.search("dolor", 1, 5, null, null, 1000).length);
+
+        index.add(patient(50_000, "dolor", 2, T0));
+        Patient[] found = index.search("dolor", 1, 5, null, null, 1000);
+        assertEquals(101, found.length);
+        assertTrue(ids(found).contains(50_000));
+
+        // Baja en el medio y de un pendiente (alta fuera de orden aún sin fusionar)
+        index.add(patient(7, "dolor", 2, T0));
+        assertTrue(index.remove(7));
+        assertTrue(index.remove(50 * 131));
+        assertEquals(100, index.search("dolor", 1, 5, null, null, 1000).length);
+        assertFalse(ids(index.search("dolor", 1, 5, null, null, 1000)).contains(50 * 131));
+
+        for (int id = 1; id <= 100; id++) if (id != 50) index.remove(id * 131);
+        index.remove(50_000);
+        assertEquals(0, index.size());
+        assertEquals(0, index.termCount());
+        assertEquals(empty, index.postingBytes());
+    }
+
+    @Test
+    void coincideConUnaBusquedaExhaustivaEnOperacionesAleatorias() {
+        Random rnd = new Random(5);
+        SymptomIndex index = new SymptomIndex();
+        Map<Integer, Patient> model = new HashMap<>();
+        List<Integer> undo = new ArrayList<>();
+        int nextId = 1000;
+
+        for (int op = 0; op < 20_000; op++) {
+            int dice = rnd.nextInt(100);
+            if (dice < 55) {
+                // Mayormente en orden; a veces un ID viejo (carga del historial)
+                int id = rnd.nextInt(10) == 0 ? 1 + rnd.nextInt(999) : nextId++;
+                Patient p = patient(id, randomSymptoms(rnd), 1 + rnd.nextInt(5), T0.plusMinutes(rnd.nextInt(600)));
+                boolean added = index.add(p);
+                assertEquals(!model.containsKey(id), added);
+                if (added) {
+                    model.put(id, p);
+                    undo.add(id);
+                }
+            } else if (dice < 85 && !undo.isEmpty()) {
+                int id = undo.remove(undo.size() - 1);                            // undo: el último
+                assertTrue(index.remove(id));
+                model.remove(id);
+            } else if (!undo.isEmpty()) {
+                int id = undo.remove(rnd.nextInt(undo.size()));                   // cualquiera
+                assertTrue(index.remove(id));
+                model.remove(id);
+            }
+            if (op % 500 == 0) assertSameResults(index, model, randomSymptoms(rnd));
+        }
+        for (String w : WORDS) assertSameResults(index, model, w);
+        assertEquals(model.size(), index.size());
+    }
+
+    // Ranking y filtros
+
+    @Test
+    void bm25PremiaFrecuenciaTerminosRarosYDocumentosCortos() {
+        SymptomIndex index = new SymptomIndex();
+        index.add(patient(1, "dolor", 3, T0));
+        index.add(patient(2, "dolor dolor dolor", 3, T0));
+        index.add(patient(3, "dolor de pecho con fiebre y tos persistente", 3, T0));
+        index.add(patient(4, "fiebre", 3, T0));
+        index.add(patient(5, "fiebre", 3, T0));
+        index.add(patient(6, "fiebre", 3, T0));
+        index.add(patient(7, "mareo", 3, T0));
+
+        Patient[] dolor = index.search("dolor", 1, 5, null, null, 10);
+        assertEquals(List.of(2, 1, 3), idList(dolor), "más apariciones y documento más corto primero");
+
+        // "mareo" es más raro que "fiebre": pesa más
+        index.add(patient(8, "fiebre mareo", 3, T0));
+        assertEquals(8, index.search("fiebre mareo", 1, 5, null, null, 10)[0].getId());
+        assertEquals(7, index.search("fiebre mareo", 1, 5, null, null, 10)[1].getId());
+
+        // A igual puntuación, el más reciente primero; y el límite se respeta
+        assertEquals(List.of(6, 5), idList(index.search("fiebre", 1, 5, null, null, 2)));
+    }
+
+    @Test
+    void filtraPorNivelYVentanaDeLlegada() {
+        SymptomIndex index = new SymptomIndex();
+        index.add(patient(1, "tos", 1, T0));
+        index.add(patient(2, "tos", 3, T0.plusHours(1)));
+        index.add(patient(3, "tos", 5, T0.plusHours(2)));
+        index.add(patient(4, "tos", 3, null));
+
+        assertEquals(Set.of(2, 4), ids(index.search("tos", 2, 4, null, null, 10)));
+        assertEquals(Set.of(2, 3), ids(index.search("tos", 1, 5, T0.plusHours(1), null, 10)));
+        assertEquals(Set.of(1),    ids(index.search("tos", 1, 5, null, T0.plusHours(1), 10)),
+                     "'to' es exclusivo y sin hora de llegada no entra en la ventana");
+        assertEquals(0, index.search("tos", 1, 5, null, null, 0).length);
+        assertEquals(0, index.search("de la", 1, 5, null, null, 10).length);
+        assertEquals(0, index.search("fractura", 1, 5, null, null, 10).length);
+    }
+
+    // Auxiliares
+
+    /** Compara con una búsqueda por fuerza bruta: mismo conjunto y orden de puntuación. */
+    private static void assertSameResults(SymptomIndex index, Map<Integer, Patient> model, String query) {
+        Map<Integer, Double> expected = bm25(model, query);
+        Patient[] found = index.search(query, 1, 5, null, null, 100_000);
+        assertEquals(expected.keySet(), ids(found), "consulta '" + query + "'");
+        for (int i = 1; i < found.length; i++) {
+            double prev = expected.get(found[i - 1].getId());
+            double cur  = expected.get(found[i].getId());
+            assertTrue(prev >= cur - 1e-9, "orden BM25 en " + i + " de '" + query + "'");
+        }
+    }
+
+    private static Map<Integer, Double> bm25(Map<Integer, Patient> model, String query) {
+        Map<Integer, String[]> docs = new HashMap<>();
+        long total = 0;
+        for (Patient p : model.values()) {
+            String[] terms = SpanishAnalyzer.terms(p.getSymptoms());
+            docs.put(p.getId(), terms);
+            total += terms.length;
+        }
+        double avgdl = (double) total / Math.max(1, docs.size());
+        Map<Integer, Double> scores = new HashMap<>();
+        for (String term : new HashSet<>(List.of(SpanishAnalyzer.terms(query)))) {
+            int df = 0;
+            for (String[] d : docs.values()) if (List.of(d).contains(term)) df++;
+            if (df == 0) continue;
+            double idf = Math.log(1 + (docs.size() - df + 0.5) / (df + 0.5));
+            for (Map.Entry<Integer, String[]> e : docs.entrySet()) {
+                int tf = 0;
+                for (String t : e.getValue()) if (t.equals(term)) tf++;
+                if (tf == 0) continue;
+                double norm = 1.2 * (1 - 0.75 + 0.75 * e.getValue().length / avgdl);
+                scores.merge(e.getKey(), idf * tf * 2.2 / (tf + norm), Double::sum);
+            }
+        }
+        return scores;
+    }
+
+    private static String randomSymptoms(Random rnd) {
+        StringBuilder sb = new StringBuilder();
+        int n = 1 + rnd.nextInt(4);
+        for (int i = 0; i < n; i++) sb.append(WORDS[rnd.nextInt(WORDS.length)]).append(' ');
+        return sb.toString();
+    }
+
+    private static Patient patient(int id, String symptoms, int level, LocalDateTime arrivalAt) {
+        return new Patient(id, "Paciente " + id, 40, symptoms, level, "WAITING", arrivalAt, null, arrivalAt);
+    }
+
+    private static Set<Integer> ids(Patient[] patients) {
+        return new HashSet<>(idList(patients));
+    }
+
+    private static List<Integer> idList(Patient[] patients) {
+        List<Integer> out = new ArrayList<>();
+        for (Patient p : patients) out.add(p.getId());
+        return out;
+    }
+}
@@ -0,0 +1,173 @@
+package com.meditriage.structures;
+
+import com.meditriage.model.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Trie de palabras de nombres: prefijos, varias palabras, bajas con poda y distancia de edición. */
+class TokenTrieTest {
+
+    @Test
+    void cadaPalabraDeLaConsultaEsPrefijoDeAlgunaDelNombreEnCualquierOrden() {
+        TokenTrie trie = trie("María López", "Mario Lopera", "Marta Ruiz", "Pedro López");
+
+        assertEquals(Set.of(1, 2, 3), ids(trie.search("mar", 10)));
+        assertEquals(Set.of(1, 2),    ids(trie.search("mar lop", 10)));
+        assertEquals(Set.of(1, 2),    ids(trie.search("LOP mar", 10)), "orden y mayúsculas no importan");
+        assertEquals(Set.of(1),       ids(trie.search("maría lópez", 10)), "tildes plegadas");
+        assertEquals(Set.of(4),       ids(trie.search("lopez ped", 10)));
+        assertEquals(0, trie.search("mar perez", 10).length);
+        assertEquals(0, trie.search("xyz", 10).length);
+        assertEquals(0, trie.search("  ", 10).length);
+        assertEquals(2, trie.search("mar", 2).length, "respeta el límite");
+        assertEquals(0, trie.search("mar", 0).length);
+    }
+
+    @Test
+    void coincideConUnaBusquedaExhaustivaEnOperacionesAleatorias() {
+        String[] words = { "ana", "andrea", "andres", "luis", "luisa", "lopez", "lopera", "ruiz", "rubio", "maria" };
+        Random rnd = new Random(21);
+        TokenTrie trie = new TokenTrie();
+        Map<Integer, Patient> model = new HashMap<>();
+        int nextId = 1;
+
+        for (int op = 0; op < 5000; op++) {
+            if (model.isEmpty() || rnd.nextInt(10) < 6) {
+                StringBuilder name = new StringBuilder();
+                int n = 1 + rnd.nextInt(3);
+                for (int i = 0; i < n; i++) name.append(words[rnd.nextInt(words.length)]).append(' ');
+                Patient p = patient(nextId++, name.toString());
+                trie.insert(p);
+                model.put(p.getId(), p);
+            } else {
+                List<Integer> live = new ArrayList<>(model.keySet());
+                Patient p = model.remove(live.get(rnd.nextInt(live.size())));
+                trie.remove(p);
+            }
+            assertEquals(model.size(), trie.size());
+            if (op % 100 == 0) {
+                String query = words[rnd.nextInt(words.length)].substring(0, 1 + rnd.nextInt(3));
+                if (rnd.nextBoolean()) query += " " + words[rnd.nextInt(words.length)].substring(0, 2);
+                assertEquals(reference(model, query), ids(trie.search(query, 100_000)), "'" + query + "'");
+            }
+        }
+    }
+
+    @Test
+    void laPalabraRepetidaCuentaUnaVezYBorrarPodaLasRamas() {
+        TokenTrie trie = new TokenTrie();
+        Patient twice = patient(1, "Ana Ana López");
+        Patient other = patient(2, "Ana Lopera");
+        trie.insert(twice);
+        trie.insert(other);
+
+        assertEquals(2, trie.size());
+        assertEquals(2, trie.countWithWord("ana"));
+        assertEquals(1, trie.search("ana lopez", 10).length);
+        int nodes = trie.nodeCount();
+
+        trie.remove(twice);
+        assertEquals(1, trie.size());
+        assertEquals(1, trie.countWithWord("ana"));
+        assertEquals(0, trie.countWithWord("lopez"));
+        assertEquals(Set.of(2), ids(trie.search("lop", 10)));
+        assertTrue(trie.nodeCount() < nodes, "la rama de 'lopez' sobrante se poda");
+        assertEquals("ana".length() + "lopera".length(), trie.nodeCount());
+
+        trie.remove(twice);                             // borrar dos veces no descuenta de más
+        assertEquals(1, trie.size());
+
+        trie.remove(other);
+        assertTrue(trie.isEmpty());
+        assertEquals(0, trie.nodeCount(), "vacío no deja nodos");
+        assertEquals(0, trie.search("a", 10).length);
+    }
+
+    @Test
+    void searchWithinEncuentraExactamenteLasPalabrasADistanciaAcotada() {
+        String[] names = { "Lopez", "Lopes", "Lope", "Lopera", "Pérez", "Perea", "Ruiz", "Luis", "Luisa" };
+        TokenTrie trie = new TokenTrie();
+        for (int i = 0; i < names.length; i++) trie.insert(patient(i + 1, names[i]));
+
+        for (String query : new String[] { "lopez", "perez", "luiz", "x", "lopezz" }) {
+            for (int maxEdits = 0; maxEdits <= 2; maxEdits++) {
+                Map<String, Integer> expected = new HashMap<>();
+                for (String name : names) {
+                    String w = TextNormalizer.fold(name);
+                    int d = levenshtein(query, w);
+                    if (d <= maxEdits) expected.put(w, d);
+                }
+                Map<String, Integer> found = new HashMap<>();
+                trie.searchWithin(query, maxEdits, (word, distance) ->
+                    assertEquals(null, found.put(word, distance), "palabra visitada dos veces: " + word));
+                assertEquals(expected, found, "'" + query + "' ≤ " + maxEdits);
+            }
+        }
+
+        List<String> seen = new ArrayList<>();
+        trie.searchWithin("lopes", 1, (word, distance) -> seen.add(word + "=" + distance));
+        assertTrue(seen.contains("lopes=0") && seen.contains("lopez=1") && seen.contains("lope=1"), seen.toString());
+        assertFalse(seen.contains("lopera=2"));
+    }
+
+    // Auxiliares
+
+    private static Set<Integer> reference(Map<Integer, Patient> model, String query) {
+        String[] q = TextNormalizer.tokens(query);
+        Set<Integer> out = new HashSet<>();
+        for (Patient p : model.values()) {
+            String[] tokens = TextNormalizer.tokens(p.getName());
+            boolean all = true;
+            for (String w : q) {
+                boolean any = false;
+                for (String t : tokens) any |= t.startsWith(w);
+                all &= any;
+            }
+            if (all) out.add(p.getId());
+        }
+        return out;
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) d[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(d[i - 1][j - 1] + cost, Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1));
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private static TokenTrie trie(String... names) {
+        TokenTrie trie = new TokenTrie();
+        for (int i = 0; i < names.length; i++) trie.insert(patient(i + 1, names[i]));
+        return trie;
+    }
+
+    private static Patient patient(int id, String name) {
+        Patient p = new Patient();
+        p.setId(id);
+        p.setName(name);
+        return p;
+    }
+
+    private static Set<Integer> ids(Patient[] patients) {
+        Set<Integer> out = new HashSet<>();
+        for (Patient p : patients) assertTrue(out.add(p.getId()), "ID repetido " + p.getId());
+        return out;
+    }
+}
@@ -0,0 +1,192 @@
+package com.meditriage.structures;
+
+import com.meditriage.model.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Índice de trigramas: consultas cortas, intersección, plegado y snapshot. */
+class TrigramIndexTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 3, 10, 9, 15, 30, 123_456_789);
+
+    @Test
+    void lasConsultasCortasRecorrenLosDocumentosDelMasRecienteAlMasViejo() {
+        TrigramIndex index = index("Ana Ruiz", "Luis Ortega", "Inés Sanz", "Ramón Gil");
+
+        assertEquals(List.of(4, 3, 2, 1), ids(index.search("a", 10, false)), "una letra: ID descendente");
+        assertEquals(List.of(4, 2, 1),    ids(index.search("R", 10, false)));
+        assertEquals(List.of(1),          ids(index.search("ru", 10, false)));
+        assertEquals(List.of(3),          ids(index.search("né", 10, false)), "dos letras con tilde");
+        assertEquals(List.of(4, 3),       ids(index.search("a", 2, false)), "el límite corta en orden");
+        assertEquals(0, index.search("  ", 10, false).length);
+        assertEquals(0, index.search("a", 0, false).length);
+    }
+
+    @Test
+    void intersectaTrigramasYVerificaLaSubcadena() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(patient(1, "Mariana Ortiz", "tos"));
+        index.put(patient(2, "Ana Maria", "fiebre"));
+        index.put(patient(3, "abcxbcd", "dolor"));      // tiene abc y bcd, pero no "abcd"
+        index.put(patient(4, "abcd", "dolor"));
+
+        assertEquals(List.of(2, 1), ids(index.search("aria", 10, false)));
+        assertEquals(List.of(1),    ids(index.search("riana o", 10, false)), "espacios dentro de la consulta");
+        assertEquals(List.of(4),    ids(index.search("abcd", 10, false)), "trigramas presentes no bastan");
+        assertEquals(0, index.search("zzzz", 10, false).length);
+        assertEquals(0, index.search("ortizz", 10, false).length);
+    }
+
+    @Test
+    void pliegaTildesYMayusculasEnDocumentosYConsulta() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(patient(1, "José Pérez Núñez", "Dolor de CABEZA"));
+
+        for (String q : new String[] { "perez", "PÉREZ", "pérez", "nunez", "ÑÚÑ", "jose p" }) {
+            assertEquals(List.of(1), ids(index.search(q, 10, false)), q);
+        }
+        assertEquals(0, index.search("cabeza", 10, false).length, "síntomas solo si se piden");
+        assertEquals(List.of(1), ids(index.search("cabeza", 10, true)));
+        assertEquals(List.of(1), ids(index.search("ca", 10, true)));
+    }
+
+    @Test
+    void coincideConUnaBusquedaExhaustivaConAltasBajasYReindexado() {
+        String[] syllables = { "ma", "ri", "a", "lo", "pez", "ru", "iz", "án", "gel", "to", "ña" };
+        Random rnd = new Random(8);
+        TrigramIndex index = new TrigramIndex();
+        Map<Integer, Patient> model = new TreeMap<>();
+
+        for (int op = 0; op < 4000; op++) {
+            int id = 1 + rnd.nextInt(400);
+            if (rnd.nextInt(4) == 0) {
+                assertEquals(model.remove(id) != null, index.remove(id));
+            } else {
+                Patient p = patient(id, word(rnd, syllables) + " " + word(rnd, syllables), word(rnd, syllables));
+                index.put(p);                               // re-indexa si el ID ya estaba
+                model.put(id, p);
+            }
+            assertEquals(model.size(), index.size());
+            if (op % 40 == 0) {
+                String q = word(rnd, syllables);
+                q = q.substring(0, 1 + rnd.nextInt(q.length()));
+                boolean symptoms = rnd.nextBoolean();
+                assertEquals(reference(model, q, symptoms), ids(index.search(q, 10_000, symptoms)), "'" + q + "'");
+            }
+        }
+
+        for (int id : new ArrayList<>(model.keySet())) index.remove(id);
+        assertEquals(0, index.size());
+        assertEquals(0, index.trigramCount(), "sin documentos no quedan listas");
+        assertEquals(0, index.maxId());
+    }
+
+    @Test
+    void elSnapshotRestauraDocumentosYBusquedas() throws IOException {
+        TrigramIndex original = new TrigramIndex();
+        original.put(new Patient(7, "María López", 41, "Dolor torácico", 2, "ATTENDED", T0, T0.plusMinutes(40), T0));
+        original.put(new Patient(3, "Luis Ñúñez", 9, null, 5, "WAITING", T0.minusDays(1), null, null));
+        original.put(new Patient(12, null, 0, "tos", 4, null, null, null, null));
+
+        byte[] bytes = snapshot(original);
+        TrigramIndex restored = new TrigramIndex();
+        Patient live = patient(3, "Luis Núñez (vivo)", "fiebre");
+        restored.put(live);
+        int max = restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+
+        assertEquals(12, max);
+        assertEquals(3, restored.size());
+        assertSame(live, restored.search("vivo", 10, false)[0], "no pisa documentos ya presentes");
+
+        Patient maria = restored.search("lopez", 10, false)[0];
+        assertEquals(7, maria.getId());
+        assertEquals("María López", maria.getName());
+        assertEquals(41, maria.getAge());
+        assertEquals("Dolor torácico", maria.getSymptoms());
+        assertEquals(2, maria.getLevel());
+        assertEquals("ATTENDED", maria.getStatus());
+        assertEquals(T0, maria.getArrivalAt(), "con nanosegundos");
+        assertEquals(T0.plusMinutes(40), maria.getAttendedAt());
+        assertEquals(T0, maria.getCreatedAt());
+
+        Patient blank = restored.search("tos", 10, true)[0];
+        assertEquals(12, blank.getId());
+        assertEquals("", blank.getName(), "los null de texto se guardan vacíos");
+        assertNull(blank.getArrivalAt());
+        assertNull(blank.getAttendedAt());
+
+        // Volver a escribir lo leído da el mismo contenido (sin el documento vivo)
+        TrigramIndex again = new TrigramIndex();
+        again.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+        assertArrayEquals(bytes, snapshot(again));
+        assertEquals(original.trigramCount(), again.trigramCount());
+    }
+
+    @Test
+    void unSnapshotAjenoSeRechaza() {
+        byte[] junk = { 1, 2, 3, 4, 0, 0, 0, 0 };
+        TrigramIndex index = new TrigramIndex();
+        assertThrows(IOException.class, () -> index.readFrom(new DataInputStream(new ByteArrayInputStream(junk))));
+        assertEquals(0, index.size());
+    }
+
+    // Auxiliares
+
+    private static List<Integer> reference(Map<Integer, Patient> model, String q, boolean symptoms) {
+        String folded = TextNormalizer.fold(q).trim();
+        List<Integer> out = new ArrayList<>();
+        for (Patient p : model.values()) {
+            if (TextNormalizer.fold(p.getName()).contains(folded)
+                || (symptoms && TextNormalizer.fold(p.getSymptoms()).contains(folded))) out.add(0, p.getId());
+        }
+        return out;
+    }
+
+    private static String word(Random rnd, String[] syllables) {
+        StringBuilder sb = new StringBuilder();
+        int n = 1 + rnd.nextInt(3);
+        for (int i = 0; i < n; i++) sb.append(syllables[rnd.nextInt(syllables.length)]);
+        return sb.toString();
+    }
+
+    private static byte[] snapshot(TrigramIndex index) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            index.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static TrigramIndex index(String... names) {
+        TrigramIndex index = new TrigramIndex();
+        for (int i = 0; i < names.length; i++) index.put(patient(i + 1, names[i], ""));
+        return index;
+    }
+
+    private static Patient patient(int id, String name, String symptoms) {
+        return new Patient(id, name, 30, symptoms, 3, "WAITING", T0, null, T0);
+    }
+
+    private static List<Integer> ids(Patient[] patients) {
+        List<Integer> out = new ArrayList<>();
+        for (Patient p : patients) out.add(p.getId());
+        return out;
+    }
+}